@@ -3,5 +3,25 @@ USE db_test;
 CREATE TABLE IF NOT EXISTS Users (
   id INT AUTO_INCREMENT PRIMARY KEY,
   name VARCHAR(255) NOT NULL,
-  email VARCHAR(255) NOT NULL
-);
\ No newline at end of file
+  email VARCHAR(255) NOT NULL,
+  version BIGINT NOT NULL DEFAULT 0,
+  deleted_at DATETIME(6) NULL,
+  alive TINYINT GENERATED ALWAYS AS (CASE WHEN deleted_at IS NULL THEN 1 END) VIRTUAL,
+  UNIQUE KEY uk_users_email (email, alive),
+  KEY idx_users_deleted_at (deleted_at)
+);
+
+CREATE TABLE IF NOT EXISTS User_Changes (
+  seq BIGINT AUTO_INCREMENT PRIMARY KEY,
+  user_id INT NOT NULL,
+  type VARCHAR(16) NOT NULL,
+  name VARCHAR(255),
+  email VARCHAR(255),
+  changed_at DATETIME(6) NOT NULL
+);
+CREATE TABLE IF NOT EXISTS User_Change_Sequence (
+  id INT PRIMARY KEY,
+  next_seq BIGINT NOT NULL
+);
+
+INSERT IGNORE INTO User_Change_Sequence (id, next_seq) SELECT 1, COALESCE(MAX(seq), 0) + 1 FROM User_Changes;
@@ -0,0 +1,16 @@
+-- Turns the container into a read-only replica of db_mysql, replicating every transaction by GTID.
+-- The schema was already created by init.sql, so the local GTIDs are discarded first.
+RESET MASTER;
+
+CHANGE REPLICATION SOURCE TO
+  SOURCE_HOST = 'db_mysql',
+  SOURCE_USER = 'root',
+  SOURCE_PASSWORD = 'root',
+  SOURCE_AUTO_POSITION = 1,
+  GET_SOURCE_PUBLIC_KEY = 1;
+
+START REPLICA;
+
+-- Read-only is persisted instead of passed on the command line, so it does not block init.sql
+SET PERSIST read_only = ON;
+SET PERSIST super_read_only = ON;
@@ -0,0 +1,26 @@
+-- Sequence the IDs of the users of every shard are reserved from, in blocks
+USE db_test;
+
+CREATE TABLE IF NOT EXISTS User_Id_Sequence (
+  id TINYINT PRIMARY KEY,
+  next_id BIGINT NOT NULL
+);
+
+INSERT IGNORE INTO User_Id_Sequence (id, next_id) VALUES (1, 1);
+
+-- Shards of the Users table, as separate schemas of the same MySQL instance.
+-- Users are placed by a consistent hash of their ID, and emails by a consistent hash of the email
+CREATE DATABASE IF NOT EXISTS db_shard_0;
+CREATE DATABASE IF NOT EXISTS db_shard_1;
+CREATE DATABASE IF NOT EXISTS db_shard_2;
+CREATE DATABASE IF NOT EXISTS db_shard_3;
+
+CREATE TABLE IF NOT EXISTS db_shard_0.Users (id INT PRIMARY KEY, name VARCHAR(255) NOT NULL, email VARCHAR(255) NOT NULL, version BIGINT NOT NULL DEFAULT 0);
+CREATE TABLE IF NOT EXISTS db_shard_1.Users (id INT PRIMARY KEY, name VARCHAR(255) NOT NULL, email VARCHAR(255) NOT NULL, version BIGINT NOT NULL DEFAULT 0);
+CREATE TABLE IF NOT EXISTS db_shard_2.Users (id INT PRIMARY KEY, name VARCHAR(255) NOT NULL, email VARCHAR(255) NOT NULL, version BIGINT NOT NULL DEFAULT 0);
+CREATE TABLE IF NOT EXISTS db_shard_3.Users (id INT PRIMARY KEY, name VARCHAR(255) NOT NULL, email VARCHAR(255) NOT NULL, version BIGINT NOT NULL DEFAULT 0);
+
+CREATE TABLE IF NOT EXISTS db_shard_0.User_Emails (email VARCHAR(255) PRIMARY KEY, user_id INT NOT NULL, claimed_at DATETIME(6) NOT NULL);
+CREATE TABLE IF NOT EXISTS db_shard_1.User_Emails (email VARCHAR(255) PRIMARY KEY, user_id INT NOT NULL, claimed_at DATETIME(6) NOT NULL);
+CREATE TABLE IF NOT EXISTS db_shard_2.User_Emails (email VARCHAR(255) PRIMARY KEY, user_id INT NOT NULL, claimed_at DATETIME(6) NOT NULL);
+CREATE TABLE IF NOT EXISTS db_shard_3.User_Emails (email VARCHAR(255) PRIMARY KEY, user_id INT NOT NULL, claimed_at DATETIME(6) NOT NULL);
@@ -0,0 +1,57 @@
+package com.urdgz.docker_exam.benchmark;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * BenchmarkDiff compares two JSON result files written by {@link BenchmarkRunner} and prints
+ * the relative change of the score of every benchmark found in both.
+ * <p>
+ * Run with: mvn -Pbenchmark test-compile exec:exec -Dbenchmark.main=com.urdgz.docker_exam.benchmark.BenchmarkDiff
+ * -Dbenchmark.args="baseline.json target/jmh-result.json"
+ * @author Ulises Rodríguez García.
+ */
+public class BenchmarkDiff {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2) {
+            System.err.println("Usage: BenchmarkDiff <baseline.json> <candidate.json>");
+            System.exit(1);
+        }
+
+        Map<String, JsonNode> baseline = read(new File(args[0]));
+        Map<String, JsonNode> candidate = read(new File(args[1]));
+
+        System.out.printf("%-70s %14s %14s %9s%n", "Benchmark", "Baseline", "Candidate", "Change");
+        for (Map.Entry<String, JsonNode> entry : candidate.entrySet()) {
+            JsonNode before = baseline.get(entry.getKey());
+            if (before == null)
+                continue;
+
+            double oldScore = before.path("primaryMetric").path("score").asDouble();
+            double newScore = entry.getValue().path("primaryMetric").path("score").asDouble();
+            String unit = entry.getValue().path("primaryMetric").path("scoreUnit").asText();
+            System.out.printf("%-70s %14.3f %14.3f %+8.1f%% %s%n", entry.getKey(), oldScore, newScore,
+                (newScore - oldScore) / oldScore * 100, unit);
+        }
+    }
+
+    /**
+     * Reads a JSON result file and keys its entries by benchmark name and parameters.
+     * @param file the JSON result file
+     * @return the entries of the file
+     */
+    private static Map<String, JsonNode> read(File file) throws Exception {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file)) {
+            StringBuilder key = new StringBuilder(result.path("benchmark").asText().replaceFirst("^.*\\.benchmark\\.", ""));
+            result.path("params").fields().forEachRemaining(param -> key.append(' ').append(param.getKey()).append('=').append(param.getValue().asText()));
+            results.put(key.toString(), result);
+        }
+        return results;
+    }
+}
@@ -0,0 +1,30 @@
+package com.urdgz.docker_exam.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * BenchmarkRunner runs the JMH benchmarks selected on the command line and always writes the results
+ * as JSON, to target/jmh-result.json unless another file is given with -rff, so the results of two
+ * builds can be compared with {@link BenchmarkDiff}.
+ * @author Ulises Rodríguez García.
+ */
+public class BenchmarkRunner {
+
+    /**
+     * The file the results are written to by default.
+     */
+    private static final String DEFAULT_RESULT = "target/jmh-result.json";
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine).resultFormat(ResultFormatType.JSON);
+        if (!commandLine.getResult().hasValue())
+            options.result(DEFAULT_RESULT);
+
+        new Runner(options.build()).run();
+    }
+}
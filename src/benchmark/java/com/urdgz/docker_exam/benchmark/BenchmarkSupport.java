@@ -0,0 +1,72 @@
+package com.urdgz.docker_exam.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.urdgz.docker_exam.DockerExamApplication;
+import com.urdgz.docker_exam.model.User;
+import com.urdgz.docker_exam.service.UserService;
+
+/**
+ * BenchmarkSupport holds the helpers shared by the benchmarks, such as starting the application
+ * against the in-memory test database and building users with unique emails.
+ * @author Ulises Rodríguez García.
+ */
+final class BenchmarkSupport {
+
+    /**
+     * The number of users written per batch while seeding the database.
+     */
+    private static final int SEED_BATCH_SIZE = 1000;
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * Starts the application without a web server against the in-memory test database.
+     * @param args the arguments passed to the application
+     * @return the started application context
+     */
+    static ConfigurableApplicationContext startApplication(String... args) {
+        return new SpringApplicationBuilder(DockerExamApplication.class)
+            .web(WebApplicationType.NONE)
+            .profiles("test")
+            .run(args);
+    }
+
+    /**
+     * Builds users with unique names and emails.
+     * @param prefix the prefix that makes the emails unique across calls
+     * @param count  the number of users to build
+     * @return the built users
+     */
+    static List<User> newUsers(String prefix, int count) {
+        List<User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            User user = new User();
+            user.setName("User " + prefix + "-" + i);
+            user.setEmail(prefix + "-" + i + "@example.com");
+            users.add(user);
+        }
+        return users;
+    }
+
+    /**
+     * Fills the database with the given number of users.
+     * @param userService the UserService used to create the users
+     * @param count       the number of users to create
+     * @return the IDs of the created users
+     */
+    static List<Integer> seed(UserService userService, int count) {
+        List<Integer> ids = new ArrayList<>(count);
+        for (int offset = 0; offset < count; offset += SEED_BATCH_SIZE) {
+            List<User> users = newUsers("seed" + offset, Math.min(SEED_BATCH_SIZE, count - offset));
+            userService.createUsers(users).forEach(result -> ids.add(result.getId()));
+        }
+        return ids;
+    }
+}
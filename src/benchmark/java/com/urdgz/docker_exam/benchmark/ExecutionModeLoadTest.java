@@ -0,0 +1,185 @@
+package com.urdgz.docker_exam.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.urdgz.docker_exam.DockerExamApplication;
+import com.urdgz.docker_exam.service.UserService;
+
+/**
+ * ExecutionModeLoadTest compares the throughput and the p99 latency of the application when requests
+ * run on the Tomcat platform-thread pool and when they run on virtual threads.
+ * Each mode is started on a random port and driven by a fixed number of concurrent clients that read
+ * random users for a fixed duration. Extra arguments are passed to the application, so it can be pointed
+ * at MySQL instead of the in-memory database, which is where blocking on JDBC actually shows up.
+ * The number of clients and the duration of each run are read from the load.clients and load.seconds arguments.
+ * <p>
+ * Run with: mvn -Pbenchmark test-compile exec:exec -Dbenchmark.main=com.urdgz.docker_exam.benchmark.ExecutionModeLoadTest
+ * -Dbenchmark.args="--load.clients=400 --load.seconds=20"
+ * @author Ulises Rodríguez García.
+ */
+public class ExecutionModeLoadTest {
+
+    /**
+     * The number of users read by the clients.
+     */
+    private static final int USERS = 1000;
+
+    public static void main(String[] args) throws Exception {
+        if (Runtime.version().feature() < 21)
+            System.out.println("Running on Java " + Runtime.version().feature() + ": virtual threads need Java 21, both runs use platform threads");
+
+        Result platform = run("platform threads", args);
+        Result virtual = run("virtual threads", args, "--spring.profiles.include=virtual-threads");
+
+        System.out.printf("%n%-18s %12s %12s %12s %10s%n", "Mode", "Requests/s", "p50 (ms)", "p99 (ms)", "Errors");
+        platform.print();
+        virtual.print();
+    }
+
+    /**
+     * Starts the application in one execution mode and measures it.
+     * @param mode      the name of the execution mode
+     * @param args      the arguments passed to the application
+     * @param extraArgs the arguments that select the execution mode
+     * @return the measured result
+     */
+    private static Result run(String mode, String[] args, String... extraArgs) throws Exception {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        arguments.addAll(Arrays.asList(extraArgs));
+        arguments.add("--server.port=0");
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(DockerExamApplication.class)
+                .profiles("test")
+                .run(arguments.toArray(String[]::new))) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            int clients = context.getEnvironment().getProperty("load.clients", Integer.class, 400);
+            Duration duration = Duration.ofSeconds(context.getEnvironment().getProperty("load.seconds", Long.class, 20L));
+            List<Integer> ids = BenchmarkSupport.seed(context.getBean(UserService.class), USERS);
+
+            drive(port, ids, clients, Duration.ofSeconds(5));
+            return new Result(mode, drive(port, ids, clients, duration));
+        }
+    }
+
+    /**
+     * Drives the application with the concurrent clients for the given duration.
+     * @param port     the port of the application
+     * @param ids      the IDs of the users to be read
+     * @param clients  the number of concurrent clients, above the size of the platform-thread pool
+     * @param duration the duration of the run
+     * @return the recorded latencies and counters
+     */
+    private static Recorder drive(int port, List<Integer> ids, int clients, Duration duration) throws InterruptedException {
+        ExecutorService clientExecutor = Executors.newFixedThreadPool(16);
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(clientExecutor).build();
+        Recorder recorder = new Recorder(clients);
+        long deadline = System.nanoTime() + duration.toNanos();
+        CountDownLatch done = new CountDownLatch(clients);
+        ExecutorService workers = Executors.newFixedThreadPool(clients);
+
+        for (int c = 0; c < clients; c++) {
+            int worker = c;
+            workers.execute(() -> {
+                try {
+                    while (System.nanoTime() < deadline) {
+                        int id = ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+                        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/users/" + id)).build();
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            recorder.record(worker, System.nanoTime() - start, response.statusCode() == 200);
+                        } catch (Exception exception) {
+                            recorder.record(worker, System.nanoTime() - start, false);
+                        }
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        done.await();
+        workers.shutdown();
+        clientExecutor.shutdown();
+        recorder.elapsedNanos = duration.toNanos();
+        return recorder;
+    }
+
+    /**
+     * Recorder keeps the latencies of each client apart so the clients never contend on it.
+     */
+    private static final class Recorder {
+
+        private final long[][] latencies;
+        private final int[] counts;
+        private final AtomicLong errors = new AtomicLong();
+        private long elapsedNanos;
+
+        private Recorder(int clients) {
+            latencies = new long[clients][1024];
+            counts = new int[clients];
+        }
+
+        private void record(int client, long nanos, boolean success) {
+            if (!success)
+                errors.incrementAndGet();
+
+            if (counts[client] == latencies[client].length)
+                latencies[client] = Arrays.copyOf(latencies[client], counts[client] * 2);
+
+            latencies[client][counts[client]++] = nanos;
+        }
+
+        private long[] sorted() {
+            long[] all = new long[Arrays.stream(counts).sum()];
+            int offset = 0;
+            for (int c = 0; c < counts.length; c++) {
+                System.arraycopy(latencies[c], 0, all, offset, counts[c]);
+                offset += counts[c];
+            }
+            Arrays.sort(all);
+            return all;
+        }
+    }
+
+    /**
+     * Result holds the figures measured for one execution mode.
+     */
+    private static final class Result {
+
+        private final String mode;
+        private final double throughput;
+        private final double p50;
+        private final double p99;
+        private final long errors;
+
+        private Result(String mode, Recorder recorder) {
+            long[] latencies = recorder.sorted();
+            this.mode = mode;
+            this.throughput = latencies.length / (recorder.elapsedNanos / 1e9);
+            this.p50 = latencies.length == 0 ? 0 : latencies[(int) (latencies.length * 0.50)] / 1e6;
+            this.p99 = latencies.length == 0 ? 0 : latencies[(int) (latencies.length * 0.99)] / 1e6;
+            this.errors = recorder.errors.get();
+        }
+
+        private void print() {
+            System.out.printf("%-18s %12.0f %12.2f %12.2f %10d%n", mode, throughput, p50, p99, errors);
+        }
+    }
+}
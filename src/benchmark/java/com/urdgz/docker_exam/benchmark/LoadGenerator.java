@@ -0,0 +1,477 @@
+package com.urdgz.docker_exam.benchmark;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.urdgz.docker_exam.DockerExamApplication;
+
+/**
+ * LoadGenerator drives the /users API with a mix of reads, listings, creates, patches and deletes,
+ * and reports the latency of every operation, so throughput regressions show up before they ship.
+ * <p>
+ * The load follows an open model: requests arrive at the given rate with exponentially distributed gaps,
+ * whether or not the previous ones have been answered, as independent clients do. The latency of a request is
+ * measured from the moment it was scheduled to be sent, not from the moment it was sent, so a stalled server or
+ * generator is charged for every request that had to wait instead of silently sending fewer of them; the latency
+ * from the moment it was sent is reported alongside to show the difference. Reads and patches pick their user
+ * with a Zipf distribution over the seeded users, so a few users are hot as in production, and deletes only
+ * remove users created during the run, so the seeded population stays the same.
+ * <p>
+ * By default the application is started in the same JVM with the test profile, on the in-memory database in
+ * MySQL mode and without rate limiting. With --load.url an application that is already running is driven instead,
+ * such as one started against the MySQL of docker compose with --users.rate-limit.enabled=false.
+ * The arguments are:
+ * <ul>
+ * <li>--load.url: the base URL of a running application, such as http://localhost:8080.</li>
+ * <li>--load.rate: the number of requests per second, 200 by default.</li>
+ * <li>--load.seconds: the duration of the measured run, 30 by default.</li>
+ * <li>--load.warmup-seconds: the duration of the warm-up run before it, 10 by default.</li>
+ * <li>--load.mix: the weight of each operation, read:60,list:10,create:15,patch:10,delete:5 by default.</li>
+ * <li>--load.users: the number of users seeded before the runs, 10000 by default.</li>
+ * <li>--load.zipf: the exponent of the Zipf distribution, 1.0 by default, where 0 picks every user evenly.</li>
+ * <li>--load.max-in-flight: the maximum number of requests waiting for an answer, 1000 by default.
+ * Requests arriving beyond it are dropped and reported as such.</li>
+ * <li>--load.report-dir: the directory the percentile distribution of every operation is written to,
+ * as .hgrm files that can be plotted with the HdrHistogram tools, target by default.</li>
+ * </ul>
+ * Any other argument is passed to the application started in the same JVM.
+ * <p>
+ * Run with: mvn -Pbenchmark test-compile exec:exec -Dbenchmark.main=com.urdgz.docker_exam.benchmark.LoadGenerator
+ * -Dbenchmark.args="--load.rate=500 --load.mix=read:80,patch:20"
+ * @author Ulises Rodríguez García.
+ */
+public class LoadGenerator {
+
+    /**
+     * The operations of the workload.
+     */
+    enum Operation {
+        READ, LIST, CREATE, PATCH, DELETE
+    }
+
+    /**
+     * The maximum latency tracked by the histograms.
+     */
+    private static final long MAX_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    /**
+     * The number of users created per request while seeding.
+     */
+    private static final int SEED_BATCH_SIZE = 1000;
+
+    /**
+     * The size of the pages of the listing operation.
+     */
+    private static final int LIST_PAGE_SIZE = 100;
+
+    /**
+     * The seed of the random choices, fixed so runs with the same arguments send the same requests.
+     */
+    private static final long RANDOM_SEED = 42;
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    public static void main(String[] args) throws Exception {
+        String url = null;
+        double rate = 200;
+        int seconds = 30;
+        int warmupSeconds = 10;
+        String mix = "read:60,list:10,create:15,patch:10,delete:5";
+        int users = 10000;
+        double zipf = 1.0;
+        int maxInFlight = 1000;
+        Path reportDir = Path.of("target");
+        List<String> appArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--load.url="))
+                url = value(arg);
+            else if (arg.startsWith("--load.rate="))
+                rate = Double.parseDouble(value(arg));
+            else if (arg.startsWith("--load.seconds="))
+                seconds = Integer.parseInt(value(arg));
+            else if (arg.startsWith("--load.warmup-seconds="))
+                warmupSeconds = Integer.parseInt(value(arg));
+            else if (arg.startsWith("--load.mix="))
+                mix = value(arg);
+            else if (arg.startsWith("--load.users="))
+                users = Integer.parseInt(value(arg));
+            else if (arg.startsWith("--load.zipf="))
+                zipf = Double.parseDouble(value(arg));
+            else if (arg.startsWith("--load.max-in-flight="))
+                maxInFlight = Integer.parseInt(value(arg));
+            else if (arg.startsWith("--load.report-dir="))
+                reportDir = Path.of(value(arg));
+            else
+                appArgs.add(arg);
+        }
+
+        ConfigurableApplicationContext context = null;
+        if (url == null) {
+            appArgs.add("--server.port=0");
+            appArgs.add("--users.rate-limit.enabled=false");
+            context = new SpringApplicationBuilder(DockerExamApplication.class)
+                .profiles("test")
+                .run(appArgs.toArray(String[]::new));
+            url = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+        }
+
+        try {
+            HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+            Workload workload = new Workload(url, parseMix(mix), seed(client, url, users), zipf);
+
+            System.out.printf("Seeded %d users, warming up for %d s%n", users, warmupSeconds);
+            drive(client, workload, rate, Duration.ofSeconds(warmupSeconds), maxInFlight);
+            System.out.printf("Running %.0f requests/s for %d s%n", rate, seconds);
+            Result result = drive(client, workload, rate, Duration.ofSeconds(seconds), maxInFlight);
+
+            result.print(rate);
+            result.write(reportDir);
+        } finally {
+            if (context != null)
+                context.close();
+        }
+    }
+
+    /**
+     * Sends requests at the given rate for the given duration and waits for their answers.
+     * @param client      the HTTP client
+     * @param workload    the workload the requests are taken from
+     * @param rate        the number of requests per second
+     * @param duration    the duration of the run
+     * @param maxInFlight the maximum number of requests waiting for an answer
+     * @return the latencies and counters of the run
+     */
+    private static Result drive(HttpClient client, Workload workload, double rate, Duration duration, int maxInFlight)
+            throws InterruptedException {
+        Result result = new Result(duration);
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        double meanGapNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        long scheduled = start;
+
+        while (scheduled < end) {
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0)
+                LockSupport.parkNanos(wait);
+
+            Operation operation = workload.nextOperation();
+            HttpRequest request = workload.nextRequest(operation);
+            Stats stats = result.stats.get(operation);
+            if (request == null) {
+                stats.skipped.incrementAndGet();
+            } else if (!inFlight.tryAcquire()) {
+                stats.dropped.incrementAndGet();
+            } else {
+                long intended = scheduled;
+                long sent = System.nanoTime();
+                client.sendAsync(request, HttpResponse.BodyHandlers.ofString()).whenComplete((response, exception) -> {
+                    long now = System.nanoTime();
+                    stats.record(now - intended, now - sent);
+                    if (exception != null || response.statusCode() >= 300)
+                        stats.errors.incrementAndGet();
+                    else if (operation == Operation.CREATE)
+                        workload.created(response.body());
+                    inFlight.release();
+                });
+            }
+            scheduled += (long) (-Math.log(1 - workload.random.nextDouble()) * meanGapNanos);
+        }
+
+        if (!inFlight.tryAcquire(maxInFlight, 1, TimeUnit.MINUTES))
+            System.out.println("Some requests were still unanswered a minute after the run");
+        result.stats.values().forEach(Stats::snapshot);
+        return result;
+    }
+
+    /**
+     * Creates the users the reads and patches are sent to, through the batch endpoint.
+     * @param client the HTTP client
+     * @param url    the base URL of the application
+     * @param count  the number of users to create
+     * @return the IDs of the created users
+     */
+    private static List<Integer> seed(HttpClient client, String url, int count) throws IOException, InterruptedException {
+        String prefix = "load" + System.currentTimeMillis();
+        List<Integer> ids = new ArrayList<>(count);
+        for (int offset = 0; offset < count; offset += SEED_BATCH_SIZE) {
+            StringBuilder body = new StringBuilder("[");
+            for (int i = offset; i < Math.min(offset + SEED_BATCH_SIZE, count); i++) {
+                if (i > offset)
+                    body.append(',');
+                body.append(userJson("Seed user " + i, prefix + "-seed-" + i + "@example.com"));
+            }
+            body.append(']');
+
+            HttpRequest request = HttpRequest.newBuilder(URI.create(url + "/users/batch"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build();
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200)
+                throw new IllegalStateException("Seeding failed with " + response.statusCode() + ": " + response.body());
+
+            for (JsonNode item : OBJECT_MAPPER.readTree(response.body()).path("data"))
+                if (item.path("id").isInt())
+                    ids.add(item.path("id").asInt());
+        }
+        return ids;
+    }
+
+    /**
+     * Parses the weights of the operations.
+     * @param mix the weights, as operation:weight pairs separated by commas
+     * @return the weight of every operation, 0 for the missing ones
+     */
+    private static int[] parseMix(String mix) {
+        int[] weights = new int[Operation.values().length];
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            weights[Operation.valueOf(parts[0].trim().toUpperCase(Locale.ROOT)).ordinal()] = Integer.parseInt(parts[1].trim());
+        }
+        if (Arrays.stream(weights).sum() <= 0)
+            throw new IllegalArgumentException("The mix must give some weight to an operation: " + mix);
+        return weights;
+    }
+
+    /**
+     * Builds the JSON of a user.
+     * @param name  the name of the user
+     * @param email the email of the user
+     * @return the JSON object
+     */
+    private static String userJson(String name, String email) {
+        return "{\"name\":\"" + name + "\",\"email\":\"" + email + "\"}";
+    }
+
+    /**
+     * Gets the value of a --name=value argument.
+     * @param arg the argument
+     * @return the value
+     */
+    private static String value(String arg) {
+        return arg.substring(arg.indexOf('=') + 1);
+    }
+
+    /**
+     * Workload builds the requests of every operation. It is only used by the thread sending the requests,
+     * except for the users created during the run, which are handed over by the threads receiving the answers.
+     */
+    private static final class Workload {
+
+        private final String url;
+        private final int[] cumulativeWeights;
+        private final List<Integer> ids;
+        private final ZipfSampler sampler;
+        private final Queue<Integer> created = new ConcurrentLinkedQueue<>();
+        private final Random random = new Random(RANDOM_SEED);
+        private final String prefix = "load" + System.currentTimeMillis();
+        private long sequence;
+
+        private Workload(String url, int[] weights, List<Integer> ids, double exponent) {
+            this.url = url;
+            this.cumulativeWeights = new int[weights.length];
+            for (int i = 0, sum = 0; i < weights.length; i++)
+                cumulativeWeights[i] = sum += weights[i];
+
+            // The hottest users are spread over the table instead of being the first ones created.
+            this.ids = new ArrayList<>(ids);
+            Collections.shuffle(this.ids, new Random(RANDOM_SEED));
+            this.sampler = new ZipfSampler(ids.size(), exponent);
+        }
+
+        private Operation nextOperation() {
+            int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+            int i = 0;
+            while (pick >= cumulativeWeights[i])
+                i++;
+            return Operation.values()[i];
+        }
+
+        /**
+         * Builds the next request of an operation.
+         * @param operation the operation
+         * @return the request, or null if there is no user to delete
+         */
+        private HttpRequest nextRequest(Operation operation) {
+            sequence++;
+            switch (operation) {
+                case READ:
+                    return HttpRequest.newBuilder(URI.create(url + "/users/" + hotId())).build();
+                case LIST:
+                    return HttpRequest.newBuilder(URI.create(url + "/users?limit=" + LIST_PAGE_SIZE)).build();
+                case CREATE:
+                    return HttpRequest.newBuilder(URI.create(url + "/users"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(
+                            userJson("Load user " + sequence, prefix + "-" + sequence + "@example.com")))
+                        .build();
+                case PATCH:
+                    return HttpRequest.newBuilder(URI.create(url + "/users/" + hotId()))
+                        .header("Content-Type", "application/json")
+                        .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"name\":\"Patched user " + sequence + "\"}"))
+                        .build();
+                default:
+                    Integer id = created.poll();
+                    return id == null ? null : HttpRequest.newBuilder(URI.create(url + "/users/" + id)).DELETE().build();
+            }
+        }
+
+        private int hotId() {
+            return ids.get(sampler.sample(random));
+        }
+
+        private void created(String body) {
+            try {
+                created.add(OBJECT_MAPPER.readTree(body).path("data").path("id").asInt());
+            } catch (IOException exception) {
+                // The user cannot be deleted later, which only skips one delete.
+            }
+        }
+    }
+
+    /**
+     * ZipfSampler picks ranks from 0 to n - 1 with a probability proportional to 1 / (rank + 1)^exponent,
+     * by a binary search over the cumulative distribution.
+     */
+    static final class ZipfSampler {
+
+        private final double[] cumulative;
+
+        ZipfSampler(int n, double exponent) {
+            cumulative = new double[n];
+            double sum = 0;
+            for (int rank = 0; rank < n; rank++)
+                cumulative[rank] = sum += 1 / Math.pow(rank + 1, exponent);
+            for (int rank = 0; rank < n; rank++)
+                cumulative[rank] /= sum;
+        }
+
+        int sample(Random random) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble());
+            return Math.min(index < 0 ? -index - 1 : index, cumulative.length - 1);
+        }
+    }
+
+    /**
+     * Stats holds the latencies and counters of one operation. The latencies are recorded by the threads
+     * receiving the answers into HdrHistogram recorders, which take no lock.
+     */
+    private static final class Stats {
+
+        private final Recorder responseTime = new Recorder(MAX_LATENCY_NANOS, 3);
+        private final Recorder serviceTime = new Recorder(MAX_LATENCY_NANOS, 3);
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+        private final AtomicLong skipped = new AtomicLong();
+        private Histogram responseHistogram;
+        private Histogram serviceHistogram;
+
+        private void record(long responseNanos, long serviceNanos) {
+            responseTime.recordValue(Math.min(responseNanos, MAX_LATENCY_NANOS));
+            serviceTime.recordValue(Math.min(serviceNanos, MAX_LATENCY_NANOS));
+        }
+
+        private void snapshot() {
+            responseHistogram = responseTime.getIntervalHistogram();
+            serviceHistogram = serviceTime.getIntervalHistogram();
+        }
+    }
+
+    /**
+     * Result holds the stats of every operation in one run.
+     */
+    private static final class Result {
+
+        private final Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+        private final Duration duration;
+
+        private Result(Duration duration) {
+            this.duration = duration;
+            for (Operation operation : Operation.values())
+                stats.put(operation, new Stats());
+        }
+
+        private void print(double rate) {
+            double seconds = duration.toNanos() / 1e9;
+            System.out.printf("%n%-8s %9s %8s %8s %9s %9s %9s %9s %9s %9s %14s%n", "", "Requests", "Errors", "Dropped",
+                "Req/s", "p50 (ms)", "p90 (ms)", "p99 (ms)", "p99.9 (ms)", "max (ms)", "p99 sent (ms)");
+            long total = 0;
+            Histogram all = new Histogram(MAX_LATENCY_NANOS, 3);
+            for (Operation operation : Operation.values()) {
+                Stats operationStats = stats.get(operation);
+                Histogram response = operationStats.responseHistogram;
+                Histogram service = operationStats.serviceHistogram;
+                if (response.getTotalCount() == 0 && operationStats.dropped.get() == 0)
+                    continue;
+
+                all.add(response);
+                total += response.getTotalCount();
+                System.out.printf("%-8s %9d %8d %8d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f %14.2f%n",
+                    operation.name().toLowerCase(Locale.ROOT), response.getTotalCount(), operationStats.errors.get(),
+                    operationStats.dropped.get(), response.getTotalCount() / seconds,
+                    millis(response, 50), millis(response, 90), millis(response, 99), millis(response, 99.9),
+                    response.getMaxValue() / 1e6, millis(service, 99));
+            }
+            System.out.printf("%-8s %9d %8s %8s %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n", "all", total, "", "",
+                total / seconds, millis(all, 50), millis(all, 90), millis(all, 99), millis(all, 99.9), all.getMaxValue() / 1e6);
+
+            long skipped = stats.get(Operation.DELETE).skipped.get();
+            if (skipped > 0)
+                System.out.printf("%d deletes were skipped because no user created during the run was left%n", skipped);
+            if (total / seconds < rate * 0.95)
+                System.out.printf("The application answered %.1f requests/s, below the %.0f requests/s sent%n", total / seconds, rate);
+        }
+
+        private void write(Path directory) throws IOException {
+            Files.createDirectories(directory);
+            for (Operation operation : Operation.values()) {
+                Histogram histogram = stats.get(operation).responseHistogram;
+                if (histogram.getTotalCount() == 0)
+                    continue;
+
+                Path file = directory.resolve("load-" + operation.name().toLowerCase(Locale.ROOT) + ".hgrm");
+                try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+                    histogram.outputPercentileDistribution(out, 1e6);
+                }
+            }
+            System.out.println("Percentile distributions in milliseconds written to " + directory.toAbsolutePath());
+        }
+
+        private static double millis(Histogram histogram, double percentile) {
+            return histogram.getTotalCount() == 0 ? 0 : histogram.getValueAtPercentile(percentile) / 1e6;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.urdgz.docker_exam.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.urdgz.docker_exam.dto.SuccessResponse;
+import com.urdgz.docker_exam.json.ResponseJsonModule;
+import com.urdgz.docker_exam.model.User;
+
+/**
+ * PayloadFormatBenchmark compares the formats the user listing can be served in: JSON, Smile and CBOR,
+ * each one plain and gzip-compressed as Tomcat sends it to the clients accepting it.
+ * It measures the time to encode the listing response and to decode it back into users, and prints
+ * the size of the payload of every combination when the trial starts.
+ * @author Ulises Rodríguez García.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PayloadFormatBenchmark {
+
+    /**
+     * The number of users in the response.
+     */
+    @Param({ "10000", "100000" })
+    private int size;
+
+    /**
+     * The format of the payload: json, smile or cbor.
+     */
+    @Param({ "json", "smile", "cbor" })
+    private String format;
+
+    /**
+     * The compression of the payload: none or gzip.
+     */
+    @Param({ "none", "gzip" })
+    private String compression;
+
+    /**
+     * The ObjectMapper of the format, configured the same way as the one used by Spring MVC.
+     */
+    private ObjectMapper objectMapper;
+
+    /**
+     * The listing response that is encoded.
+     */
+    private SuccessResponse<List<User>> response;
+
+    /**
+     * The encoded listing response that is decoded.
+     */
+    private byte[] payload;
+
+    /**
+     * Builds the ObjectMapper, the response and its payload, and prints the size of the payload.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json().modulesToInstall(new ResponseJsonModule());
+        if ("smile".equals(format))
+            builder.factory(new SmileFactory());
+        else if ("cbor".equals(format))
+            builder.factory(new CBORFactory());
+
+        objectMapper = builder.build();
+        List<User> users = BenchmarkSupport.newUsers("format", size);
+        for (int i = 0; i < users.size(); i++)
+            users.get(i).setId(i + 1);
+        response = new SuccessResponse<>(HttpStatus.OK, "Users retrieved successfully", users);
+
+        payload = encode();
+        System.out.printf("%n%s/%s payload with %d users: %d bytes (%.1f bytes per user)%n",
+            format, compression, size, payload.length, (double) payload.length / size);
+    }
+
+    /**
+     * Encodes the listing response.
+     * @return the payload
+     */
+    @Benchmark
+    public byte[] encode() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(size * 64);
+        try (OutputStream output = "gzip".equals(compression) ? new GZIPOutputStream(bytes, 8192) : bytes) {
+            objectMapper.writeValue(output, response);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes the listing response back into users, as a client of the API would.
+     * @return the decoded listing
+     */
+    @Benchmark
+    public Listing decode() throws IOException {
+        InputStream bytes = new ByteArrayInputStream(payload);
+        try (InputStream input = "gzip".equals(compression) ? new GZIPInputStream(bytes, 8192) : bytes) {
+            return objectMapper.readValue(input, Listing.class);
+        }
+    }
+
+    /**
+     * Listing is the part of the listing response a client reads: the users.
+     */
+    public static class Listing {
+
+        /**
+         * The users of the listing.
+         */
+        public List<User> data;
+    }
+}
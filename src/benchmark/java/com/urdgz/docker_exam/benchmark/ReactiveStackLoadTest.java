@@ -0,0 +1,286 @@
+package com.urdgz.docker_exam.benchmark;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.urdgz.docker_exam.DockerExamApplication;
+import com.urdgz.docker_exam.service.UserService;
+
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * ReactiveStackLoadTest compares the throughput and the latency of the blocking stack (Tomcat, JPA and JDBC)
+ * and of the reactive stack (Netty, WebFlux and R2DBC) when the database is slow and many clients are waiting.
+ * Both stacks run against the in-memory database, and every statement is delayed by a fixed latency on both
+ * drivers, so the database behaves like a remote one under load: the blocking stack holds a request thread for
+ * the whole wait, while the reactive stack only holds a pooled connection.
+ * Both connection pools are sized alike and larger than the Tomcat thread pool, so the threads are the first
+ * limit of the blocking stack. The user cache is disabled, so every read reaches the database.
+ * The number of clients, the duration of each run and the latency of each statement are read from the
+ * load.clients, load.seconds and load.latency-ms arguments. Extra arguments are passed to both applications.
+ * <p>
+ * Run with: mvn -Pbenchmark test-compile exec:exec -Dbenchmark.main=com.urdgz.docker_exam.benchmark.ReactiveStackLoadTest
+ * -Dbenchmark.args="--load.clients=800 --load.seconds=20 --load.latency-ms=50"
+ * @author Ulises Rodríguez García.
+ */
+public class ReactiveStackLoadTest {
+
+    /**
+     * The number of users read by the clients.
+     */
+    private static final int USERS = 1000;
+
+    /**
+     * The size of the JDBC and R2DBC connection pools.
+     */
+    private static final int POOL_SIZE = 400;
+
+    public static void main(String[] args) throws Exception {
+        Result blocking = run("blocking", args);
+        Result reactive = run("reactive", args, "reactive");
+
+        System.out.printf("%n%-18s %12s %12s %12s %10s%n", "Stack", "Requests/s", "p50 (ms)", "p99 (ms)", "Errors");
+        blocking.print();
+        reactive.print();
+    }
+
+    /**
+     * Starts the application with one stack and measures it.
+     * @param stack    the name of the stack
+     * @param args     the arguments passed to the application
+     * @param profiles the profiles that select the stack, activated before the test profile
+     * @return the measured result
+     */
+    private static Result run(String stack, String[] args, String... profiles) throws Exception {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        arguments.add("--server.port=0");
+        arguments.add("--users.cache.maximum-size=0");
+        arguments.add("--users.rate-limit.enabled=false");
+        arguments.add("--spring.datasource.hikari.maximum-pool-size=" + POOL_SIZE);
+        arguments.add("--spring.r2dbc.pool.max-size=" + POOL_SIZE);
+
+        List<String> activeProfiles = new ArrayList<>(Arrays.asList(profiles));
+        activeProfiles.add("test");
+        SlowDatabase slowDatabase = new SlowDatabase();
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(DockerExamApplication.class)
+                .profiles(activeProfiles.toArray(String[]::new))
+                .initializers(applicationContext -> applicationContext.getBeanFactory().addBeanPostProcessor(slowDatabase))
+                .run(arguments.toArray(String[]::new))) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            int clients = context.getEnvironment().getProperty("load.clients", Integer.class, 800);
+            Duration duration = Duration.ofSeconds(context.getEnvironment().getProperty("load.seconds", Long.class, 20L));
+            List<Integer> ids = BenchmarkSupport.seed(context.getBean(UserService.class), USERS);
+
+            slowDatabase.latency = Duration.ofMillis(context.getEnvironment().getProperty("load.latency-ms", Long.class, 50L));
+            drive(port, ids, clients, Duration.ofSeconds(5));
+            return new Result(stack, drive(port, ids, clients, duration));
+        }
+    }
+
+    /**
+     * Drives the application with the concurrent clients for the given duration.
+     * @param port     the port of the application
+     * @param ids      the IDs of the users to be read
+     * @param clients  the number of concurrent clients
+     * @param duration the duration of the run
+     * @return the recorded latencies and counters
+     */
+    private static Recorder drive(int port, List<Integer> ids, int clients, Duration duration) throws InterruptedException {
+        ExecutorService clientExecutor = Executors.newFixedThreadPool(16);
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(clientExecutor).build();
+        Recorder recorder = new Recorder(clients);
+        long deadline = System.nanoTime() + duration.toNanos();
+        CountDownLatch done = new CountDownLatch(clients);
+        ExecutorService workers = Executors.newFixedThreadPool(clients);
+
+        for (int c = 0; c < clients; c++) {
+            int worker = c;
+            workers.execute(() -> {
+                try {
+                    while (System.nanoTime() < deadline) {
+                        int id = ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+                        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/users/" + id)).build();
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            recorder.record(worker, System.nanoTime() - start, response.statusCode() == 200);
+                        } catch (Exception exception) {
+                            recorder.record(worker, System.nanoTime() - start, false);
+                        }
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        done.await();
+        workers.shutdown();
+        clientExecutor.shutdown();
+        recorder.elapsedNanos = duration.toNanos();
+        return recorder;
+    }
+
+    /**
+     * SlowDatabase delays every statement sent through the JDBC DataSource and the R2DBC ConnectionFactory.
+     * The JDBC statements sleep on the calling thread, the R2DBC statements delay their subscription,
+     * and in both cases the connection stays checked out of its pool while waiting.
+     * The latency is zero until the database is seeded.
+     */
+    private static final class SlowDatabase implements BeanPostProcessor {
+
+        private volatile Duration latency = Duration.ZERO;
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof DataSource dataSource && beanName.equals("dataSource"))
+                return proxy(DataSource.class, dataSource, this::slowJdbc);
+            if (bean instanceof ConnectionFactory connectionFactory && beanName.equals("connectionFactory"))
+                return proxy(ConnectionFactory.class, connectionFactory, this::slowR2dbc);
+            return bean;
+        }
+
+        /**
+         * Wraps the JDBC objects down to the statements, and sleeps before every execution.
+         */
+        private Object slowJdbc(Object proxy, Object target, Method method, Object[] args) throws Throwable {
+            Object result = invoke(target, method, args);
+            if (method.getName().startsWith("execute") && target instanceof Statement)
+                Thread.sleep(latency.toMillis());
+            if (result != null && method.getReturnType().isInterface()
+                    && (method.getReturnType() == java.sql.Connection.class || Statement.class.isAssignableFrom(method.getReturnType())))
+                return proxy(method.getReturnType(), result, this::slowJdbc);
+            return result;
+        }
+
+        /**
+         * Wraps the R2DBC connections and statements, and delays the subscription to every execution.
+         */
+        @SuppressWarnings("unchecked")
+        private Object slowR2dbc(Object proxy, Object target, Method method, Object[] args) throws Throwable {
+            Object result = invoke(target, method, args);
+            if (target instanceof ConnectionFactory && method.getName().equals("create"))
+                return Mono.from((Publisher<Connection>) result).map(connection -> proxy(Connection.class, connection, this::slowR2dbc));
+            if (target instanceof Connection && method.getName().equals("createStatement"))
+                return proxy(io.r2dbc.spi.Statement.class, result, this::slowR2dbc);
+            if (target instanceof io.r2dbc.spi.Statement statement) {
+                if (method.getName().equals("execute"))
+                    return Flux.from((Publisher<?>) result).delaySubscription(latency);
+                if (result == statement)
+                    return proxy;
+            }
+            return result;
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException exception) {
+                throw exception.getCause();
+            }
+        }
+
+        private static <T> T proxy(Class<T> type, Object target, Interceptor interceptor) {
+            return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+                (proxy, method, args) -> interceptor.intercept(proxy, target, method, args)));
+        }
+    }
+
+    /**
+     * Interceptor runs a call made on a proxied database object.
+     */
+    @FunctionalInterface
+    private interface Interceptor {
+
+        Object intercept(Object proxy, Object target, Method method, Object[] args) throws Throwable;
+    }
+
+    /**
+     * Recorder keeps the latencies of each client apart so the clients never contend on it.
+     */
+    private static final class Recorder {
+
+        private final long[][] latencies;
+        private final int[] counts;
+        private final AtomicLong errors = new AtomicLong();
+        private long elapsedNanos;
+
+        private Recorder(int clients) {
+            latencies = new long[clients][1024];
+            counts = new int[clients];
+        }
+
+        private void record(int client, long nanos, boolean success) {
+            if (!success)
+                errors.incrementAndGet();
+
+            if (counts[client] == latencies[client].length)
+                latencies[client] = Arrays.copyOf(latencies[client], counts[client] * 2);
+
+            latencies[client][counts[client]++] = nanos;
+        }
+
+        private long[] sorted() {
+            long[] all = new long[Arrays.stream(counts).sum()];
+            int offset = 0;
+            for (int c = 0; c < counts.length; c++) {
+                System.arraycopy(latencies[c], 0, all, offset, counts[c]);
+                offset += counts[c];
+            }
+            Arrays.sort(all);
+            return all;
+        }
+    }
+
+    /**
+     * Result holds the figures measured for one stack.
+     */
+    private static final class Result {
+
+        private final String stack;
+        private final double throughput;
+        private final double p50;
+        private final double p99;
+        private final long errors;
+
+        private Result(String stack, Recorder recorder) {
+            long[] latencies = recorder.sorted();
+            this.stack = stack;
+            this.throughput = latencies.length / (recorder.elapsedNanos / 1e9);
+            this.p50 = latencies.length == 0 ? 0 : latencies[(int) (latencies.length * 0.50)] / 1e6;
+            this.p99 = latencies.length == 0 ? 0 : latencies[(int) (latencies.length * 0.99)] / 1e6;
+            this.errors = recorder.errors.get();
+        }
+
+        private void print() {
+            System.out.printf("%-18s %12.0f %12.2f %12.2f %10d%n", stack, throughput, p50, p99, errors);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.urdgz.docker_exam.benchmark;
+
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.urdgz.docker_exam.dto.ErrorResponse;
+import com.urdgz.docker_exam.dto.SuccessResponse;
+import com.urdgz.docker_exam.json.ResponseJsonModule;
+import com.urdgz.docker_exam.model.User;
+
+/**
+ * ResponseSerializationBenchmark measures the Jackson serialization of the user listing response,
+ * a SuccessResponse wrapping a list of users, at different list sizes, and of an ErrorResponse.
+ * The reflective serializer is the plain bean serialization and the streaming serializer is the one
+ * registered by the ResponseJsonModule; run it with -prof gc to compare the bytes allocated per response.
+ * @author Ulises Rodríguez García.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseSerializationBenchmark {
+
+    /**
+     * The number of users in the response.
+     */
+    @Param({ "100", "1000", "10000" })
+    private int size;
+
+    /**
+     * The serializer of the responses, reflective or streaming.
+     */
+    @Param({ "reflective", "streaming" })
+    private String serializer;
+
+    /**
+     * The ObjectMapper configured the same way as the one used by Spring MVC.
+     */
+    private ObjectMapper objectMapper;
+
+    /**
+     * The users serialized in each response.
+     */
+    private List<User> users;
+
+    /**
+     * Builds the ObjectMapper and the users.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        if ("streaming".equals(serializer))
+            builder.modulesToInstall(new ResponseJsonModule());
+
+        objectMapper = builder.build();
+        users = BenchmarkSupport.newUsers("json", size);
+        for (int i = 0; i < users.size(); i++)
+            users.get(i).setId(i + 1);
+    }
+
+    /**
+     * Serializes the listing response, discarding the bytes.
+     */
+    @Benchmark
+    public void serializeListing() throws Exception {
+        SuccessResponse<List<User>> response = new SuccessResponse<>(HttpStatus.OK, "Users retrieved successfully", users);
+        objectMapper.writeValue(OutputStream.nullOutputStream(), response);
+    }
+
+    /**
+     * Serializes an error response, discarding the bytes.
+     */
+    @Benchmark
+    public void serializeError() throws Exception {
+        ErrorResponse response = new ErrorResponse(HttpStatus.NOT_FOUND, "User not found", "/users/1");
+        objectMapper.writeValue(OutputStream.nullOutputStream(), response);
+    }
+}
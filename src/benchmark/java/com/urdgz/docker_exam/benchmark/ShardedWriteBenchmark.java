@@ -0,0 +1,183 @@
+package com.urdgz.docker_exam.benchmark;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.urdgz.docker_exam.model.User;
+import com.urdgz.docker_exam.service.ShardedUserServiceImp;
+import com.urdgz.docker_exam.shard.ShardedUserRepository;
+import com.urdgz.docker_exam.shard.UserIdAllocator;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * ShardedWriteBenchmark measures how the write throughput of the application grows with the number of shards.
+ * Writers create users through the ShardedUserServiceImp, the service the API uses when the Users table is sharded,
+ * over real databases: the first N of --shards.urls for each shard count N, with the IDs reserved from the
+ * User_Id_Sequence table of --shards.sequence-url, as set up by shard-init.sql. The tables of the shards are emptied
+ * before each shard count. The writes per second and the speedup over a single shard are reported. The throughput
+ * only scales when the shards are on separate MySQL instances: schemas of one instance share its disk and CPU.
+ * The arguments are:
+ * <ul>
+ * <li>--shards.urls: the JDBC URLs of the shards, the four schemas of shard-init.sql by default.</li>
+ * <li>--shards.sequence-url: the JDBC URL of the database holding the ID sequence, the main database by default.</li>
+ * <li>--shards.username and --shards.password: the credentials of every database, root by default.</li>
+ * <li>--shards.counts: the shard counts to be measured, 1,2,4 by default.</li>
+ * <li>--shards.writers: the number of concurrent writers, 64 by default.</li>
+ * <li>--shards.seconds: the measured time of each shard count, 10 by default.</li>
+ * </ul>
+ * <p>
+ * Run with: mvn -Pbenchmark test-compile exec:exec -Dbenchmark.main=com.urdgz.docker_exam.benchmark.ShardedWriteBenchmark
+ * -Dbenchmark.args="--shards.counts=1,2,4"
+ * @author Ulises Rodríguez García.
+ */
+public class ShardedWriteBenchmark {
+
+    /**
+     * The time the writers run before each measurement.
+     */
+    private static final long WARMUP_SECONDS = 2;
+
+    public static void main(String[] args) throws Exception {
+        List<String> urls = List.of(
+            "jdbc:mysql://localhost:3306/db_shard_0",
+            "jdbc:mysql://localhost:3306/db_shard_1",
+            "jdbc:mysql://localhost:3306/db_shard_2",
+            "jdbc:mysql://localhost:3306/db_shard_3");
+        String sequenceUrl = "jdbc:mysql://localhost:3306/db_test";
+        String username = "root";
+        String password = "root";
+        int[] counts = { 1, 2, 4 };
+        int writers = 64;
+        long seconds = 10;
+        for (String arg : args) {
+            if (arg.startsWith("--shards.urls="))
+                urls = Arrays.stream(value(arg).split(",")).map(String::trim).toList();
+            else if (arg.startsWith("--shards.sequence-url="))
+                sequenceUrl = value(arg);
+            else if (arg.startsWith("--shards.username="))
+                username = value(arg);
+            else if (arg.startsWith("--shards.password="))
+                password = value(arg);
+            else if (arg.startsWith("--shards.counts="))
+                counts = Arrays.stream(value(arg).split(",")).mapToInt(count -> Integer.parseInt(count.trim())).toArray();
+            else if (arg.startsWith("--shards.writers="))
+                writers = Integer.parseInt(value(arg));
+            else if (arg.startsWith("--shards.seconds="))
+                seconds = Long.parseLong(value(arg));
+        }
+
+        System.out.printf("%-8s %12s %10s%n", "Shards", "Writes/s", "Speedup");
+        double baseline = 0;
+        try (HikariDataSource sequence = dataSource(sequenceUrl, username, password, 2)) {
+            for (int count : counts) {
+                if (count > urls.size())
+                    throw new IllegalArgumentException("Only " + urls.size() + " shard URLs were given for " + count + " shards");
+
+                double throughput = run(urls.subList(0, count), sequence, username, password, writers, seconds);
+                if (baseline == 0)
+                    baseline = throughput;
+                System.out.printf("%-8d %12.0f %9.2fx%n", count, throughput, throughput / baseline);
+            }
+        }
+    }
+
+    /**
+     * Measures the users created per second over the given shards.
+     * @param urls     the JDBC URLs of the shards
+     * @param sequence the DataSource of the database holding the ID sequence
+     * @param username the user of the shards
+     * @param password the password of the shards
+     * @param writers  the number of concurrent writers
+     * @param seconds  the measured time
+     * @return the users created per second
+     */
+    private static double run(List<String> urls, DataSource sequence, String username, String password, int writers, long seconds)
+            throws Exception {
+        List<DataSource> shards = new ArrayList<>();
+        for (String url : urls) {
+            HikariDataSource shard = dataSource(url, username, password, writers);
+            JdbcTemplate shardTemplate = new JdbcTemplate(shard);
+            shardTemplate.execute("TRUNCATE TABLE Users");
+            shardTemplate.execute("TRUNCATE TABLE User_Emails");
+            shards.add(shard);
+        }
+
+        try (ShardedUserRepository repository = new ShardedUserRepository(shards, 160, new UserIdAllocator(sequence, 1000), Duration.ofMinutes(1))) {
+            ShardedUserServiceImp userService = new ShardedUserServiceImp(repository, event -> { }, 1000, false);
+            drive(userService, urls.size(), writers, WARMUP_SECONDS);
+            return drive(userService, urls.size(), writers, seconds) / (double) seconds;
+        }
+    }
+
+    /**
+     * Creates users from several writers until the time is over.
+     * @param userService the service under benchmark
+     * @param count       the number of shards, used to keep the emails of each shard count apart
+     * @param writers     the number of concurrent writers
+     * @param seconds     the time the writers run
+     * @return the number of created users
+     */
+    private static long drive(ShardedUserServiceImp userService, int count, int writers, long seconds) throws InterruptedException {
+        AtomicLong created = new AtomicLong();
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        CountDownLatch done = new CountDownLatch(writers);
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+
+        for (int w = 0; w < writers; w++) {
+            executor.execute(() -> {
+                try {
+                    while (System.nanoTime() < deadline) {
+                        long n = System.nanoTime();
+                        User user = new User();
+                        user.setName("Sharded User " + n);
+                        user.setEmail("sharded" + count + "-" + Thread.currentThread().getId() + "-" + n + "@example.com");
+                        userService.createUser(user);
+                        created.incrementAndGet();
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        done.await();
+        executor.shutdown();
+        return created.get();
+    }
+
+    /**
+     * Creates a connection pool.
+     * @param url      the JDBC URL of the database
+     * @param username the user
+     * @param password the password
+     * @param size     the maximum number of connections
+     * @return the DataSource
+     */
+    private static HikariDataSource dataSource(String url, String username, String password, int size) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(username);
+        dataSource.setPassword(password);
+        dataSource.setMaximumPoolSize(size);
+        return dataSource;
+    }
+
+    /**
+     * Gets the value of an argument of the form --name=value.
+     * @param arg the argument
+     * @return the value
+     */
+    private static String value(String arg) {
+        return arg.substring(arg.indexOf('=') + 1);
+    }
+}
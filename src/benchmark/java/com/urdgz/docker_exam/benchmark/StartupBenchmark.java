@@ -0,0 +1,203 @@
+package com.urdgz.docker_exam.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.urdgz.docker_exam.DockerExamApplication;
+
+/**
+ * StartupBenchmark measures the cold start of the application: the time from launching a new JVM
+ * until the first successful GET /users, and the resident memory of the process once it has been idle for a while.
+ * Every run starts a fresh process on a free port and stops it afterwards, and the median and best run are reported.
+ * <p>
+ * By default the application is launched from the benchmark classpath with the test profile, on the in-memory database.
+ * With --startup.jar it is launched from a jar instead, such as the one extracted by the startup build profile, which
+ * is the only way to use its CDS archive; the jar has no in-memory database, so it needs the MySQL of docker compose.
+ * The jar is launched from its own directory, where the CDS archive has to be opened from.
+ * The arguments are:
+ * <ul>
+ * <li>--startup.runs: the number of runs, 5 by default.</li>
+ * <li>--startup.idle-seconds: the time the process is left idle before its memory is read, 5 by default.</li>
+ * <li>--startup.jvm-args: the options of the JVM, separated by spaces, such as -XX:SharedArchiveFile=application.jsa.</li>
+ * <li>--startup.jar: the jar to launch.</li>
+ * </ul>
+ * Any other argument is passed to the application.
+ * <p>
+ * Run with: mvn -Pbenchmark test-compile exec:exec -Dbenchmark.main=com.urdgz.docker_exam.benchmark.StartupBenchmark
+ * -Dbenchmark.args="--startup.runs=5"
+ * @author Ulises Rodríguez García.
+ */
+public class StartupBenchmark {
+
+    /**
+     * The maximum time a process is given to answer its first request.
+     */
+    private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(60);
+
+    public static void main(String[] args) throws Exception {
+        int runs = 5;
+        int idleSeconds = 5;
+        List<String> jvmArgs = new ArrayList<>();
+        String jar = null;
+        List<String> appArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--startup.runs="))
+                runs = Integer.parseInt(value(arg));
+            else if (arg.startsWith("--startup.idle-seconds="))
+                idleSeconds = Integer.parseInt(value(arg));
+            else if (arg.startsWith("--startup.jvm-args="))
+                jvmArgs.addAll(Arrays.asList(value(arg).trim().split("\\s+")));
+            else if (arg.startsWith("--startup.jar="))
+                jar = value(arg);
+            else
+                appArgs.add(arg);
+        }
+
+        long[] startupMillis = new long[runs];
+        long[] rssKilobytes = new long[runs];
+        for (int run = 0; run < runs; run++) {
+            long[] result = run(run, jvmArgs, jar, appArgs, idleSeconds);
+            startupMillis[run] = result[0];
+            rssKilobytes[run] = result[1];
+            System.out.printf("Run %d: first GET /users after %d ms, idle RSS %s%n", run + 1, result[0], formatRss(result[1]));
+        }
+
+        Arrays.sort(startupMillis);
+        Arrays.sort(rssKilobytes);
+        System.out.printf("%n%-30s %10s %10s%n", "", "Median", "Best");
+        System.out.printf("%-30s %10d %10d%n", "First GET /users (ms)", startupMillis[runs / 2], startupMillis[0]);
+        System.out.printf("%-30s %10s %10s%n", "Idle RSS", formatRss(rssKilobytes[runs / 2]), formatRss(rssKilobytes[0]));
+    }
+
+    /**
+     * Launches the application once and measures it.
+     * @param run         the number of the run, used to name its log file
+     * @param jvmArgs     the options of the JVM
+     * @param jar         the jar to launch, or null to launch from the benchmark classpath
+     * @param appArgs     the arguments passed to the application
+     * @param idleSeconds the time the process is left idle before its memory is read
+     * @return the time until the first successful request in milliseconds, and the idle RSS in kilobytes
+     */
+    private static long[] run(int run, List<String> jvmArgs, String jar, List<String> appArgs, int idleSeconds)
+            throws Exception {
+        int port = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        File directory = null;
+        if (jar != null) {
+            File jarFile = new File(jar).getAbsoluteFile();
+            directory = jarFile.getParentFile();
+            command.add("-jar");
+            command.add(jarFile.getName());
+        } else {
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(DockerExamApplication.class.getName());
+            command.add("--spring.profiles.active=test");
+        }
+        command.add("--server.port=" + port);
+        command.addAll(appArgs);
+
+        File log = Path.of("target", "startup-run-" + (run + 1) + ".log").toAbsolutePath().toFile();
+        Files.createDirectories(log.toPath().getParent());
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/users")).build();
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).directory(directory).redirectErrorStream(true).redirectOutput(log).start();
+        try {
+            long startupMillis = awaitFirstResponse(process, client, request, start, log);
+            Thread.sleep(TimeUnit.SECONDS.toMillis(idleSeconds));
+            return new long[] { startupMillis, residentKilobytes(process.pid()) };
+        } finally {
+            process.destroy();
+            if (!process.waitFor(10, TimeUnit.SECONDS))
+                process.destroyForcibly().waitFor();
+        }
+    }
+
+    /**
+     * Polls GET /users until it succeeds.
+     * @param process the process of the application
+     * @param client  the HTTP client
+     * @param request the request to send
+     * @param start   the moment the process was launched, in nanoseconds
+     * @param log     the log file of the process, named when it fails
+     * @return the time from the launch until the first successful response, in milliseconds
+     */
+    private static long awaitFirstResponse(Process process, HttpClient client, HttpRequest request, long start, File log)
+            throws Exception {
+        long deadline = start + STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive())
+                throw new IllegalStateException("The application exited with " + process.exitValue() + ", see " + log);
+
+            try {
+                if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200)
+                    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            } catch (ConnectException exception) {
+                // The server is not listening yet.
+            }
+            Thread.sleep(5);
+        }
+        throw new IllegalStateException("The application did not answer within " + STARTUP_TIMEOUT + ", see " + log);
+    }
+
+    /**
+     * Reads the resident set size of a process, available on Linux only.
+     * @param pid the ID of the process
+     * @return the resident set size in kilobytes, or -1 if it cannot be read
+     */
+    private static long residentKilobytes(long pid) {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc", String.valueOf(pid), "status")))
+                if (line.startsWith("VmRSS:"))
+                    return Long.parseLong(line.replaceAll("\\D", ""));
+        } catch (IOException exception) {
+            // Not on Linux.
+        }
+        return -1;
+    }
+
+    /**
+     * Formats a resident set size.
+     * @param kilobytes the size in kilobytes, or -1 if unknown
+     * @return the formatted size
+     */
+    private static String formatRss(long kilobytes) {
+        return kilobytes < 0 ? "n/a" : String.format("%.1f MB", kilobytes / 1024.0);
+    }
+
+    /**
+     * Finds a free local port.
+     * @return the port
+     */
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * Gets the value of a --name=value argument.
+     * @param arg the argument
+     * @return the value
+     */
+    private static String value(String arg) {
+        return arg.substring(arg.indexOf('=') + 1);
+    }
+}
@@ -0,0 +1,103 @@
+package com.urdgz.docker_exam.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.urdgz.docker_exam.model.User;
+import com.urdgz.docker_exam.service.UserService;
+
+/**
+ * UserBatchBenchmark compares the rows per second written by the single-item create path
+ * against the batch create path. Each invocation writes {@link #ROWS} users, so the reported
+ * throughput is in rows per second.
+ * @author Ulises Rodríguez García.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserBatchBenchmark {
+
+    /**
+     * The number of users written by each invocation.
+     */
+    private static final int ROWS = 500;
+
+    /**
+     * The sequence used to generate unique emails.
+     */
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * The application context started for the benchmark.
+     */
+    private ConfigurableApplicationContext context;
+
+    /**
+     * The UserService under benchmark.
+     */
+    private UserService userService;
+
+    /**
+     * Starts the application against the in-memory test database.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkSupport.startApplication();
+        userService = context.getBean(UserService.class);
+    }
+
+    /**
+     * Stops the application.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * Writes the users one at a time through the single-item path.
+     */
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void createOneByOne() {
+        for (User user : nextUsers())
+            userService.createUser(user);
+    }
+
+    /**
+     * Writes the users in a single batch.
+     * @return the outcome of the batch
+     */
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public Object createBatch() {
+        return userService.createUsers(nextUsers());
+    }
+
+    /**
+     * Builds the next users to be written, each with a unique email.
+     * @return the users to be written
+     */
+    private List<User> nextUsers() {
+        return BenchmarkSupport.newUsers("batch" + sequence.incrementAndGet(), ROWS);
+    }
+}
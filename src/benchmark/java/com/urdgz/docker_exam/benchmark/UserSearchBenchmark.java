@@ -0,0 +1,86 @@
+package com.urdgz.docker_exam.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.urdgz.docker_exam.dto.SearchPage;
+import com.urdgz.docker_exam.event.UserChangeEvent;
+import com.urdgz.docker_exam.model.User;
+import com.urdgz.docker_exam.search.UserSearchIndex;
+
+/**
+ * UserSearchBenchmark measures the latency of a search page of 20 users in the UserSearchIndex,
+ * with exact, prefix, substring and rare queries, at different numbers of indexed users.
+ * The index is filled directly, without a database.
+ * @author Ulises Rodríguez García.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx3g")
+public class UserSearchBenchmark {
+
+    private static final String[] FIRST_NAMES = { "Maria", "Jose", "Juan", "Ana", "Luis", "Carmen", "Jorge", "Lucia",
+        "Pedro", "Sofia", "Miguel", "Elena", "Diego", "Laura", "Pablo", "Marta" };
+    private static final String[] LAST_NAMES = { "Garcia", "Rodriguez", "Martinez", "Hernandez", "Lopez", "Gonzalez",
+        "Perez", "Sanchez", "Ramirez", "Torres", "Flores", "Rivera", "Gomez", "Diaz", "Cruz", "Morales" };
+
+    /**
+     * The number of indexed users.
+     */
+    @Param({ "100000", "1000000" })
+    private int indexSize;
+
+    /**
+     * The query searched.
+     */
+    @Param({ "maria", "mar", "ez@ex", "garcia.4242" })
+    private String query;
+
+    /**
+     * The index being searched.
+     */
+    private UserSearchIndex index;
+
+    /**
+     * Fills the index with users named after a fixed set of first and last names.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        index = new UserSearchIndex(null);
+        Random random = new Random(42);
+        for (int i = 1; i <= indexSize; i++) {
+            String first = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+            String last = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+            User user = new User();
+            user.setId(i);
+            user.setName(first + " " + last);
+            user.setEmail(first.toLowerCase() + "." + last.toLowerCase() + "." + i + "@example.com");
+            index.onUserChanged(UserChangeEvent.created(user));
+        }
+    }
+
+    /**
+     * Searches the first page of 20 users.
+     * @return the page, consumed by JMH
+     */
+    @Benchmark
+    public SearchPage<User> search() {
+        return index.search(query, 0, 20);
+    }
+}
@@ -0,0 +1,172 @@
+package com.urdgz.docker_exam.benchmark;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.urdgz.docker_exam.dto.UserDto;
+import com.urdgz.docker_exam.model.User;
+import com.urdgz.docker_exam.service.UserService;
+
+/**
+ * UserServiceBenchmark measures the controller → service → repository hot path at the service boundary,
+ * against the in-memory test database filled with different numbers of users.
+ * The users created while measuring are deleted after every iteration, so the table keeps its size.
+ * @author Ulises Rodríguez García.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserServiceBenchmark {
+
+    /**
+     * The number of users in the table while measuring.
+     */
+    @Param({ "1000", "10000", "100000" })
+    private int tableSize;
+
+    /**
+     * The sequence used to generate unique emails.
+     */
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * The application context started for the benchmark.
+     */
+    private ConfigurableApplicationContext context;
+
+    /**
+     * The UserService under benchmark.
+     */
+    private UserService userService;
+
+    /**
+     * The IDs of the seeded users.
+     */
+    private List<Integer> ids;
+
+    /**
+     * The IDs of the users created by createUser during the current iteration.
+     */
+    private final Queue<Integer> createdIds = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Starts the application and fills the table.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkSupport.startApplication();
+        userService = context.getBean(UserService.class);
+        ids = BenchmarkSupport.seed(userService, tableSize);
+    }
+
+    /**
+     * Stops the application.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * Deletes the users created during the iteration, outside of the measured time.
+     */
+    @TearDown(Level.Iteration)
+    public void deleteCreatedUsers() {
+        for (Integer id = createdIds.poll(); id != null; id = createdIds.poll())
+            userService.deleteUser(id);
+    }
+
+    /**
+     * Creates a user.
+     * @return the created user
+     */
+    @Benchmark
+    public User createUser() {
+        User user = userService.createUser(nextUser());
+        createdIds.add(user.getId());
+        return user;
+    }
+
+    /**
+     * Renames a random seeded user.
+     * @return the patched user
+     */
+    @Benchmark
+    public User patchUser() {
+        UserDto userDto = new UserDto();
+        userDto.setName("Patched " + sequence.incrementAndGet());
+        return userService.patchUser(ids.get(ThreadLocalRandom.current().nextInt(ids.size())), userDto);
+    }
+
+    /**
+     * Deletes a user created right before the invocation by the DeleteTarget.
+     * @param target the DeleteTarget holding the user to be deleted
+     */
+    @Benchmark
+    public void deleteUser(DeleteTarget target) {
+        userService.deleteUser(target.id);
+    }
+
+    /**
+     * Retrieves the whole table.
+     * @return the list of users
+     */
+    @Benchmark
+    public List<User> getAllUsers() {
+        return userService.getAllUsers();
+    }
+
+    /**
+     * Builds a user with a unique email.
+     * @return the user
+     */
+    private User nextUser() {
+        return BenchmarkSupport.newUsers("service" + sequence.incrementAndGet(), 1).get(0);
+    }
+
+    /**
+     * DeleteTarget creates the user removed by each deleteUser invocation, so the table size stays stable.
+     * It is only used by deleteUser, so the other benchmarks do not pay for its setup.
+     * The setup runs before every invocation, which JMH times around: a delete is a database round trip,
+     * well above the timestamp overhead, but the result still carries a small constant bias.
+     */
+    @State(Scope.Thread)
+    public static class DeleteTarget {
+
+        /**
+         * The ID of the user deleted by the next invocation.
+         */
+        private Integer id;
+
+        /**
+         * Creates the user deleted by the next invocation.
+         * @param benchmark the benchmark state holding the UserService
+         */
+        @Setup(Level.Invocation)
+        public void createTarget(UserServiceBenchmark benchmark) {
+            id = benchmark.userService.createUser(benchmark.nextUser()).getId();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.urdgz.docker_exam.cache;
+
+import java.time.Duration;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.urdgz.docker_exam.model.User;
+
+/**
+ * InMemorySharedUserCache is an in-process stand-in for the shared cache node, used when the
+ * application runs as a single instance and in tests, where several UserCache instances can share it.
+ * Every entry is replaced atomically by comparing versions, as a shared node would do with a
+ * conditional write, and is evicted by size and by age like the near-cache.
+ * @author Ulises Rodríguez García.
+ */
+public class InMemorySharedUserCache implements SharedUserCache {
+
+    /**
+     * The version of the tombstone left by a removed user, newer than any version of a stored user.
+     */
+    private static final long REMOVED = Long.MAX_VALUE;
+
+    /**
+     * The cached entries, keyed by the ID of the user.
+     */
+    private final Cache<Integer, Entry> entries;
+
+    /**
+     * Constructs a new InMemorySharedUserCache with the specified eviction settings.
+     * @param maximumSize      the maximum number of entries, tombstones included
+     * @param expireAfterWrite the time after which an entry is evicted
+     */
+    public InMemorySharedUserCache(long maximumSize, Duration expireAfterWrite) {
+        this.entries = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(expireAfterWrite)
+            .build();
+    }
+
+    /**
+     * Retrieves a user from the shared cache.
+     * @param id the ID of the user
+     * @return a copy of the cached user, or null if it is not cached or was removed
+     */
+    @Override
+    public User get(Integer id) {
+        Entry entry = entries.getIfPresent(id);
+        return entry == null || entry.user == null ? null : entry.user.copy();
+    }
+
+    /**
+     * Stores a user unless a newer version of it, or its tombstone, is already stored.
+     * @param user the user to be cached
+     * @return a copy of the stored user, or null if the user was removed
+     */
+    @Override
+    public User put(User user) {
+        long version = UserCache.versionOf(user);
+        Entry entry = entries.asMap().compute(user.getId(),
+            (id, current) -> current != null && current.version >= version ? current : new Entry(version, user.copy()));
+        return entry.user == null ? null : entry.user.copy();
+    }
+
+    /**
+     * Stores a newly created user unless a newer version of it is already stored, replacing any tombstone.
+     * @param user the created user
+     * @return a copy of the stored user
+     */
+    @Override
+    public User create(User user) {
+        long version = UserCache.versionOf(user);
+        Entry entry = entries.asMap().compute(user.getId(),
+            (id, current) -> current != null && current.user != null && current.version >= version ? current : new Entry(version, user.copy()));
+        return entry.user.copy();
+    }
+
+    /**
+     * Replaces a user with a tombstone.
+     * @param id the ID of the removed user
+     */
+    @Override
+    public void remove(Integer id) {
+        entries.put(id, new Entry(REMOVED, null));
+    }
+
+    /**
+     * Removes every entry, tombstones included.
+     */
+    @Override
+    public void clear() {
+        entries.invalidateAll();
+    }
+
+    /**
+     * Entry holds a cached user and its version, or the tombstone of a removed user.
+     */
+    private static final class Entry {
+
+        private final long version;
+        private final User user;
+
+        private Entry(long version, User user) {
+            this.version = version;
+            this.user = user;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.urdgz.docker_exam.cache;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * InMemoryUserInvalidationBus is an in-process stand-in for the message broker connecting the instances
+ * of the application, used when the application runs as a single instance and in tests.
+ * Invalidations are delivered to every subscriber on the publishing thread, before publish returns.
+ * @author Ulises Rodríguez García.
+ */
+public class InMemoryUserInvalidationBus implements UserInvalidationBus {
+
+    /**
+     * The registered subscribers.
+     */
+    private final List<Consumer<UserInvalidation>> subscribers = new CopyOnWriteArrayList<>();
+
+    /**
+     * Delivers an invalidation to every subscriber.
+     * @param invalidation the UserInvalidation to be broadcast
+     */
+    @Override
+    public void publish(UserInvalidation invalidation) {
+        for (Consumer<UserInvalidation> subscriber : subscribers)
+            subscriber.accept(invalidation);
+    }
+
+    /**
+     * Registers a subscriber.
+     * @param subscriber the subscriber
+     */
+    @Override
+    public void subscribe(Consumer<UserInvalidation> subscriber) {
+        subscribers.add(subscriber);
+    }
+}
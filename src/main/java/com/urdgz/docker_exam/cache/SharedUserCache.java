@@ -0,0 +1,48 @@
+package com.urdgz.docker_exam.cache;
+
+import com.urdgz.docker_exam.model.User;
+
+/**
+ * SharedUserCache is the cache node shared by every instance of the application, placed behind
+ * the local near-cache of each instance and in front of the database.
+ * Entries are versioned by the version of the user: a user is only stored if it is newer than the
+ * stored one, and a removed user leaves a tombstone, so a write that arrives late cannot bring back
+ * an older or a deleted user.
+ * @author Ulises Rodríguez García.
+ */
+public interface SharedUserCache {
+
+    /**
+     * Retrieves a user from the shared cache.
+     * @param id the ID of the user
+     * @return a copy of the cached user, or null if it is not cached or was removed
+     */
+    User get(Integer id);
+
+    /**
+     * Stores a user in the shared cache unless a newer version of it, or its removal, is already stored.
+     * @param user the user to be cached
+     * @return a copy of the user stored once the call returns, which is the given one or a newer one,
+     *         or null if the user was removed
+     */
+    User put(User user);
+
+    /**
+     * Stores a newly created user, replacing the tombstone of a deleted user whose ID was given to it,
+     * as MySQL can do after a restart, unless a newer version of the user is already stored.
+     * @param user the created user
+     * @return a copy of the user stored once the call returns, which is the given one or a newer one
+     */
+    User create(User user);
+
+    /**
+     * Removes a user from the shared cache, leaving a tombstone that rejects any later put of it.
+     * @param id the ID of the removed user
+     */
+    void remove(Integer id);
+
+    /**
+     * Removes every entry, tombstones included, from the shared cache.
+     */
+    void clear();
+}
@@ -0,0 +1,335 @@
+package com.urdgz.docker_exam.cache;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.urdgz.docker_exam.datasource.PrimaryPin;
+import com.urdgz.docker_exam.event.UserChangeEvent;
+import com.urdgz.docker_exam.model.User;
+import com.urdgz.docker_exam.repository.UserRepository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * UserCache is a bounded, read-through cache of users placed in front of the UserRepository.
+ * It is the local near-cache of this instance, backed by the SharedUserCache shared by every instance:
+ * a local miss is looked up in the shared cache, and only then loaded from the database.
+ * Users are cached by ID, and emails are mapped to IDs so lookups by email share the same entries.
+ * Entries are evicted by size and by age, and are updated or invalidated after every committed change.
+ * Every change is also written to the shared cache and broadcast on the UserInvalidationBus, so the other
+ * instances drop their older copies of the user. Entries are versioned by the version of the user, so an
+ * invalidation or an update that arrives out of order never replaces a newer entry.
+ * Misses are always loaded from the primary, so a lagging replica cannot leave a stale user in the cache.
+ * @author Ulises Rodríguez García.
+ */
+@Component
+public class UserCache {
+
+    /**
+     * The cached users, keyed by ID. Values are never handed out directly, only copies of them.
+     */
+    private final Cache<Integer, User> usersById;
+
+    /**
+     * The IDs of the cached users, keyed by email.
+     */
+    private final Cache<String, Integer> idsByEmail;
+
+    /**
+     * The UserRepository used to load the users missing from the cache.
+     */
+    private final UserRepository userRepository;
+
+    /**
+     * The SharedUserCache behind the near-cache.
+     */
+    private final SharedUserCache sharedCache;
+
+    /**
+     * The UserInvalidationBus the changes are broadcast on.
+     */
+    private final UserInvalidationBus invalidationBus;
+
+    /**
+     * The ID of this instance, used to ignore the invalidations it published itself.
+     */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * The number of local misses found in the shared cache.
+     */
+    private final LongAdder sharedHits = new LongAdder();
+
+    /**
+     * The number of local misses that were loaded from the database.
+     */
+    private final LongAdder sharedMisses = new LongAdder();
+
+    /**
+     * The number of invalidations received from other instances that dropped a cached user.
+     */
+    private final LongAdder appliedInvalidations = new LongAdder();
+
+    /**
+     * The number of invalidations received from other instances that found no older cached user to drop.
+     */
+    private final LongAdder ignoredInvalidations = new LongAdder();
+
+    /**
+     * Constructs a new UserCache with the specified UserRepository, shared cache, invalidation bus and eviction settings.
+     * @param userRepository    the UserRepository used to load the users missing from the cache
+     * @param sharedCache       the SharedUserCache behind the near-cache
+     * @param invalidationBus   the UserInvalidationBus the changes are broadcast on
+     * @param meterRegistry     the MeterRegistry the cache counters are published to
+     * @param maximumSize       the maximum number of users kept in the cache
+     * @param expireAfterWrite  the time after which a cached user is evicted
+     */
+    public UserCache(UserRepository userRepository, SharedUserCache sharedCache, UserInvalidationBus invalidationBus,
+            MeterRegistry meterRegistry,
+            @Value("${users.cache.maximum-size:10000}") long maximumSize,
+            @Value("${users.cache.expire-after-write:10m}") Duration expireAfterWrite) {
+        this.userRepository = userRepository;
+        this.sharedCache = sharedCache;
+        this.invalidationBus = invalidationBus;
+        this.usersById = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(expireAfterWrite)
+            .recordStats()
+            .build();
+        this.idsByEmail = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(expireAfterWrite)
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, usersById, "users.byId");
+        CaffeineCacheMetrics.monitor(meterRegistry, idsByEmail, "users.byEmail");
+        FunctionCounter.builder("users.cache.shared.requests", sharedHits, LongAdder::doubleValue)
+            .tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("users.cache.shared.requests", sharedMisses, LongAdder::doubleValue)
+            .tag("result", "miss").register(meterRegistry);
+        FunctionCounter.builder("users.cache.invalidations", appliedInvalidations, LongAdder::doubleValue)
+            .tag("result", "applied").register(meterRegistry);
+        FunctionCounter.builder("users.cache.invalidations", ignoredInvalidations, LongAdder::doubleValue)
+            .tag("result", "ignored").register(meterRegistry);
+        invalidationBus.subscribe(this::onInvalidation);
+    }
+
+    /**
+     * Retrieves the user with the given ID, looking it up in the shared cache and then
+     * in the database on a miss.
+     * @param id the ID of the user
+     * @return an Optional with a copy of the user, or empty if it does not exist
+     */
+    public Optional<User> findById(Integer id) {
+        User user = usersById.get(id, this::load);
+        if (user == null)
+            return Optional.empty();
+
+        idsByEmail.put(user.getEmail(), user.getId());
+        return Optional.of(user.copy());
+    }
+
+    /**
+     * Retrieves the user with the given email, loading it from the database on a miss.
+     * @param email the email of the user
+     * @return an Optional with a copy of the user, or empty if it does not exist
+     */
+    public Optional<User> findByEmail(String email) {
+        Integer id = idsByEmail.getIfPresent(email);
+        if (id != null) {
+            User user = usersById.getIfPresent(id);
+            if (user != null && user.getEmail().equals(email))
+                return Optional.of(user.copy());
+        }
+
+        Optional<User> user = PrimaryPin.call(() -> userRepository.findByEmail(email)).map(User::copy);
+        user.map(sharedCache::put).ifPresent(this::put);
+        return user.map(User::copy);
+    }
+
+    /**
+     * Checks if a user with the given ID exists.
+     * @param id the ID to check for existence
+     * @return true if a user with the given ID exists, false otherwise
+     */
+    public boolean existsById(Integer id) {
+        return findById(id).isPresent();
+    }
+
+    /**
+     * Checks if a user with the given email exists.
+     * @param email the email to check for existence
+     * @return true if a user with the given email exists, false otherwise
+     */
+    public boolean existsByEmail(String email) {
+        return findByEmail(email).isPresent();
+    }
+
+    /**
+     * Updates or invalidates the entries of a changed user once the change is committed,
+     * writes the change to the shared cache and broadcasts it to the other instances.
+     * Runs right away when the change was made outside of a transaction.
+     * @param event the UserChangeEvent describing the change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangeEvent event) {
+        User cached = usersById.getIfPresent(event.getId());
+        if (cached != null)
+            idsByEmail.invalidate(cached.getEmail());
+
+        if (event.getPreviousEmail() != null)
+            idsByEmail.invalidate(event.getPreviousEmail());
+
+        if (event.getType() == UserChangeEvent.Type.DELETED) {
+            sharedCache.remove(event.getId());
+            usersById.invalidate(event.getId());
+            invalidationBus.publish(new UserInvalidation(nodeId, event.getId(), UserInvalidation.DELETED));
+        } else {
+            User stored = event.getType() == UserChangeEvent.Type.CREATED
+                ? sharedCache.create(event.getUser())
+                : sharedCache.put(event.getUser());
+            if (stored == null)
+                usersById.invalidate(event.getId());
+            else
+                put(stored);
+            invalidationBus.publish(new UserInvalidation(nodeId, event.getId(), versionOf(event.getUser())));
+        }
+    }
+
+    /**
+     * Drops the cached copy of a user changed by another instance, unless the cached copy
+     * is already as new as the change.
+     * @param invalidation the UserInvalidation received from the bus
+     */
+    void onInvalidation(UserInvalidation invalidation) {
+        if (invalidation.getOrigin().equals(nodeId))
+            return;
+
+        boolean[] applied = new boolean[1];
+        usersById.asMap().computeIfPresent(invalidation.getId(), (id, cached) -> {
+            if (versionOf(cached) >= invalidation.getVersion())
+                return cached;
+
+            idsByEmail.invalidate(cached.getEmail());
+            applied[0] = true;
+            return null;
+        });
+        (applied[0] ? appliedInvalidations : ignoredInvalidations).increment();
+    }
+
+    /**
+     * Gets the ID of this instance, the origin of the invalidations it publishes.
+     * @return the ID of this instance
+     */
+    String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Removes every entry from the near-cache and from the shared cache.
+     */
+    public void clear() {
+        usersById.invalidateAll();
+        idsByEmail.invalidateAll();
+        sharedCache.clear();
+    }
+
+    /**
+     * Gets the statistics of the cache by ID.
+     * @return the hit, miss and eviction counters of the cache by ID
+     */
+    public CacheStats idStats() {
+        return usersById.stats();
+    }
+
+    /**
+     * Gets the statistics of the cache by email.
+     * @return the hit, miss and eviction counters of the cache by email
+     */
+    public CacheStats emailStats() {
+        return idsByEmail.stats();
+    }
+
+    /**
+     * Gets the statistics of the shared cache, as seen from the misses of this near-cache.
+     * @return the hit and miss counters of the shared cache
+     */
+    public CacheStats sharedStats() {
+        return CacheStats.of(sharedHits.sum(), sharedMisses.sum(), 0, 0, 0, 0, 0);
+    }
+
+    /**
+     * Gets the number of invalidations received from other instances that dropped a cached user.
+     * @return the number of applied invalidations
+     */
+    public long appliedInvalidationCount() {
+        return appliedInvalidations.sum();
+    }
+
+    /**
+     * Gets the number of invalidations received from other instances that were ignored because
+     * the cached user was missing or already as new as the change.
+     * @return the number of ignored invalidations
+     */
+    public long ignoredInvalidationCount() {
+        return ignoredInvalidations.sum();
+    }
+
+    /**
+     * Gets the approximate number of users in the cache.
+     * @return the number of cached users
+     */
+    public long size() {
+        return usersById.estimatedSize();
+    }
+
+    /**
+     * Gets the version of a user, treating a user that was never saved as older than any saved one.
+     * @param user the user
+     * @return the version of the user
+     */
+    public static long versionOf(User user) {
+        return user.getVersion() == null ? -1 : user.getVersion();
+    }
+
+    /**
+     * Loads a user missing from the near-cache, from the shared cache or else from the primary.
+     * A user loaded from the database is written to the shared cache, which keeps its newer copy if another
+     * instance wrote one in the meantime.
+     * @param id the ID of the user
+     * @return the user, or null if it does not exist
+     */
+    private User load(Integer id) {
+        User user = sharedCache.get(id);
+        if (user != null) {
+            sharedHits.increment();
+            return user;
+        }
+
+        sharedMisses.increment();
+        return PrimaryPin.call(() -> userRepository.findById(id))
+            .map(sharedCache::put)
+            .orElse(null);
+    }
+
+    /**
+     * Stores a copy of the given user in the near-cache, unless a newer version of it is already cached.
+     * @param user the user to be cached
+     */
+    private void put(User user) {
+        User stored = usersById.asMap().merge(user.getId(), user.copy(),
+            (cached, fresh) -> versionOf(cached) >= versionOf(fresh) ? cached : fresh);
+        idsByEmail.put(stored.getEmail(), stored.getId());
+    }
+}
@@ -0,0 +1,68 @@
+package com.urdgz.docker_exam.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+/**
+ * UserCacheEndpoint is an actuator endpoint that exposes the counters of the UserCache,
+ * so the cache can be sized from its hit, miss and eviction figures.
+ * Available at /actuator/usercache.
+ * @author Ulises Rodríguez García.
+ */
+@Component
+@Endpoint(id = "usercache")
+public class UserCacheEndpoint {
+
+    /**
+     * The UserCache whose counters are exposed.
+     */
+    private final UserCache userCache;
+
+    /**
+     * Constructs a new UserCacheEndpoint with the specified UserCache.
+     * @param userCache the UserCache whose counters are exposed
+     */
+    public UserCacheEndpoint(UserCache userCache) {
+        this.userCache = userCache;
+    }
+
+    /**
+     * Retrieves the counters of the cache.
+     * @return a map with the size of the cache, the counters of the lookups by ID, by email and in the shared cache,
+     *         and the counters of the invalidations received from other instances
+     */
+    @ReadOperation
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", userCache.size());
+        stats.put("byId", toMap(userCache.idStats()));
+        stats.put("byEmail", toMap(userCache.emailStats()));
+        stats.put("shared", toMap(userCache.sharedStats()));
+
+        Map<String, Object> invalidations = new LinkedHashMap<>();
+        invalidations.put("applied", userCache.appliedInvalidationCount());
+        invalidations.put("ignored", userCache.ignoredInvalidationCount());
+        stats.put("invalidations", invalidations);
+        return stats;
+    }
+
+    /**
+     * Converts the given statistics into a map.
+     * @param cacheStats the statistics to be converted
+     * @return a map with the hit, miss and eviction counters
+     */
+    private static Map<String, Object> toMap(CacheStats cacheStats) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("hits", cacheStats.hitCount());
+        map.put("misses", cacheStats.missCount());
+        map.put("hitRate", cacheStats.hitRate());
+        map.put("evictions", cacheStats.evictionCount());
+        return map;
+    }
+}
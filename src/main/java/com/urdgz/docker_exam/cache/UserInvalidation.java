@@ -0,0 +1,65 @@
+package com.urdgz.docker_exam.cache;
+
+/**
+ * Represents the message broadcast to the other instances of the application when a user changes,
+ * telling them to drop any cached copy of the user older than the given version.
+ * @author Ulises Rodríguez García.
+ */
+public class UserInvalidation {
+
+    /**
+     * The version carried by the invalidation of a deleted user, newer than any version of a stored user.
+     */
+    public static final long DELETED = Long.MAX_VALUE;
+
+    /**
+     * The ID of the instance that made the change.
+     */
+    private final String origin;
+
+    /**
+     * The ID of the changed user.
+     */
+    private final Integer id;
+
+    /**
+     * The version of the user after the change, or DELETED if the user was deleted.
+     */
+    private final long version;
+
+    /**
+     * Constructs a new UserInvalidation with the specified origin, user ID and version.
+     * @param origin  the ID of the instance that made the change
+     * @param id      the ID of the changed user
+     * @param version the version of the user after the change, or DELETED if the user was deleted
+     */
+    public UserInvalidation(String origin, Integer id, long version) {
+        this.origin = origin;
+        this.id = id;
+        this.version = version;
+    }
+
+    /**
+     * Gets the ID of the instance that made the change.
+     * @return the ID of the instance
+     */
+    public String getOrigin() {
+        return origin;
+    }
+
+    /**
+     * Gets the ID of the changed user.
+     * @return the ID of the user
+     */
+    public Integer getId() {
+        return id;
+    }
+
+    /**
+     * Gets the version of the user after the change.
+     * @return the version of the user, or DELETED if the user was deleted
+     */
+    public long getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,23 @@
+package com.urdgz.docker_exam.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * UserInvalidationBus broadcasts the UserInvalidation messages to every instance of the application,
+ * the instance that published them included.
+ * @author Ulises Rodríguez García.
+ */
+public interface UserInvalidationBus {
+
+    /**
+     * Broadcasts an invalidation to every subscriber.
+     * @param invalidation the UserInvalidation to be broadcast
+     */
+    void publish(UserInvalidation invalidation);
+
+    /**
+     * Registers a subscriber that receives every invalidation published from now on.
+     * @param subscriber the subscriber
+     */
+    void subscribe(Consumer<UserInvalidation> subscriber);
+}
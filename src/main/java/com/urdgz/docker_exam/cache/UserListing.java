@@ -0,0 +1,466 @@
+package com.urdgz.docker_exam.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import com.urdgz.docker_exam.model.User;
+
+/**
+ * UserListing is one immutable version of the listing of every user, kept by the UserListingSnapshot.
+ * The users are split into segments by ID range, each holding its users already serialized to JSON and,
+ * optionally, already compressed. A change only builds the segment of the changed user again and a new
+ * UserListing sharing every other segment, so readers holding an older version are never disturbed.
+ * <p>
+ * Each compressed segment is a raw deflate stream started from an empty dictionary and ended with a sync flush,
+ * so the segments can be concatenated into one valid deflate stream. A gzip response is written by wrapping
+ * them in the gzip header and trailer, and only the small envelope around the users is compressed per request.
+ * @author Ulises Rodríguez García.
+ */
+public class UserListing {
+
+    /**
+     * The suffix of the entity tags of the gzip representation of the listing.
+     */
+    private static final String GZIP_SUFFIX = "-gzip";
+
+    /**
+     * The gzip header: deflate, no flags, no modification time, unknown operating system.
+     */
+    private static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+    /**
+     * The comma written between two segments.
+     */
+    private static final byte[] COMMA = { ',' };
+
+    /**
+     * The comma written between two segments, compressed.
+     */
+    private static final byte[] DEFLATED_COMMA = deflate(COMMA, Deflater.BEST_SPEED, false);
+
+    /**
+     * The ID of the instance the listing was built on, which keeps the versions of different instances apart.
+     */
+    private final String epoch;
+
+    /**
+     * The version of the listing, incremented on every change.
+     */
+    private final long version;
+
+    /**
+     * The version of the last listing loaded from the database, the oldest one changes can be computed from.
+     */
+    private final long baseVersion;
+
+    /**
+     * The segments of the listing, sorted by key.
+     */
+    private final Segment[] segments;
+
+    /**
+     * The number of users in the listing.
+     */
+    private final int size;
+
+    /**
+     * Whether the segments are kept compressed.
+     */
+    private final boolean compressed;
+
+    /**
+     * Constructs a new UserListing with the given segments.
+     * @param epoch       the ID of the instance the listing was built on
+     * @param version     the version of the listing
+     * @param baseVersion the version of the last listing loaded from the database
+     * @param segments    the segments of the listing, sorted by key
+     * @param compressed  whether the segments are kept compressed
+     */
+    UserListing(String epoch, long version, long baseVersion, Segment[] segments, boolean compressed) {
+        this.epoch = epoch;
+        this.version = version;
+        this.baseVersion = baseVersion;
+        this.segments = segments;
+        this.size = Arrays.stream(segments).mapToInt(segment -> segment.entries.length).sum();
+        this.compressed = compressed;
+    }
+
+    /**
+     * Gets the version of the listing.
+     * @return the version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets the token identifying this version of the listing, which clients send back to get the changes made since.
+     * @return the token, made of the epoch and the version
+     */
+    public String getToken() {
+        return epoch + "-" + version;
+    }
+
+    /**
+     * Gets the quoted entity tag of this version of the listing in one of its encodings.
+     * The gzip representation has different bytes, so it gets a tag of its own, with the -gzip suffix.
+     * @param gzip whether the listing is sent compressed with gzip
+     * @return the entity tag
+     */
+    public String getETag(boolean gzip) {
+        return "\"" + getToken() + (gzip ? GZIP_SUFFIX : "") + "\"";
+    }
+
+    /**
+     * Reads the token of the version of the listing from any of its entity tags, or from the token itself.
+     * The weak prefix, the quotes and the suffix of the gzip representation are removed.
+     * @param eTag the entity tag or the token, as sent by the client
+     * @return the token of the version of the listing
+     */
+    public static String tokenOf(String eTag) {
+        String token = eTag.trim();
+        if (token.startsWith("W/"))
+            token = token.substring(2);
+        token = token.replace("\"", "").trim();
+        return token.endsWith(GZIP_SUFFIX) ? token.substring(0, token.length() - GZIP_SUFFIX.length()) : token;
+    }
+
+    /**
+     * Gets the number of users in the listing.
+     * @return the number of users
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Tells whether the segments are kept compressed, so the listing can be written with gzip.
+     * @return true if the segments are compressed
+     */
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    /**
+     * Gets a copy of every user of the listing, in ID order.
+     * @return the users
+     */
+    public List<User> getUsers() {
+        List<User> users = new ArrayList<>(size);
+        for (Segment segment : segments)
+            for (Entry entry : segment.entries)
+                users.add(entry.user.copy());
+        return users;
+    }
+
+    /**
+     * Gets the length of the listing written between the given envelope parts.
+     * @param prefixLength the length of the part written before the users
+     * @param suffixLength the length of the part written after the users
+     * @return the number of bytes written by writeTo
+     */
+    public long length(int prefixLength, int suffixLength) {
+        long length = prefixLength + suffixLength + Math.max(segments.length - 1, 0);
+        for (Segment segment : segments)
+            length += segment.json.length;
+        return length;
+    }
+
+    /**
+     * Writes the users of the listing as JSON objects separated by commas, between the given envelope parts.
+     * @param out    the stream written to
+     * @param prefix the part written before the users
+     * @param suffix the part written after the users
+     * @throws IOException if the stream cannot be written
+     */
+    public void writeTo(OutputStream out, byte[] prefix, byte[] suffix) throws IOException {
+        out.write(prefix);
+        for (int i = 0; i < segments.length; i++) {
+            if (i > 0)
+                out.write(COMMA);
+            out.write(segments[i].json);
+        }
+        out.write(suffix);
+    }
+
+    /**
+     * Writes the same bytes as writeTo compressed with gzip, concatenating the compressed segments.
+     * @param out    the stream written to
+     * @param prefix the part written before the users
+     * @param suffix the part written after the users
+     * @throws IOException if the stream cannot be written
+     */
+    public void writeGzipTo(OutputStream out, byte[] prefix, byte[] suffix) throws IOException {
+        if (!isCompressed())
+            throw new IllegalStateException("The segments of the listing are not compressed");
+
+        CRC32 crc = new CRC32();
+        out.write(GZIP_HEADER);
+        out.write(deflate(prefix, Deflater.BEST_SPEED, false));
+        crc.update(prefix);
+        for (int i = 0; i < segments.length; i++) {
+            if (i > 0) {
+                out.write(DEFLATED_COMMA);
+                crc.update(COMMA);
+            }
+            out.write(segments[i].deflated);
+            crc.update(segments[i].json);
+        }
+        out.write(deflate(suffix, Deflater.BEST_SPEED, true));
+        crc.update(suffix);
+
+        writeIntLittleEndian(out, (int) crc.getValue());
+        writeIntLittleEndian(out, (int) length(prefix.length, suffix.length));
+    }
+
+    /**
+     * Finds a user of the listing by ID.
+     * @param id          the ID of the user
+     * @param segmentSize the number of IDs covered by each segment
+     * @return the user, shared with the listing, or null if it is not listed
+     */
+    User find(int id, int segmentSize) {
+        Segment segment = segment(id / segmentSize);
+        if (segment == null)
+            return null;
+
+        int index = segment.indexOf(id);
+        return index < 0 ? null : segment.entries[index].user;
+    }
+
+    /**
+     * Gets the segment with the given key.
+     * @param key the key of the segment
+     * @return the segment, or null if the listing has no user in its ID range
+     */
+    Segment segment(int key) {
+        int index = indexOf(key);
+        return index < 0 ? null : segments[index];
+    }
+
+    /**
+     * Builds the next version of the listing, with a segment replaced, added or removed.
+     * @param key     the key of the segment
+     * @param segment the new segment, or null to remove the segment
+     * @return the next version of the listing
+     */
+    UserListing with(int key, Segment segment) {
+        int index = indexOf(key);
+        Segment[] next;
+        if (index >= 0 && segment != null) {
+            next = segments.clone();
+            next[index] = segment;
+        } else if (index >= 0) {
+            next = new Segment[segments.length - 1];
+            System.arraycopy(segments, 0, next, 0, index);
+            System.arraycopy(segments, index + 1, next, index, segments.length - index - 1);
+        } else if (segment != null) {
+            int insertion = -index - 1;
+            next = new Segment[segments.length + 1];
+            System.arraycopy(segments, 0, next, 0, insertion);
+            next[insertion] = segment;
+            System.arraycopy(segments, insertion, next, insertion + 1, segments.length - insertion);
+        } else {
+            next = segments;
+        }
+        return new UserListing(epoch, version + 1, baseVersion, next, compressed);
+    }
+
+    /**
+     * Gets the version of the last listing loaded from the database.
+     * @return the base version
+     */
+    long getBaseVersion() {
+        return baseVersion;
+    }
+
+    /**
+     * Gets the ID of the instance the listing was built on.
+     * @return the epoch
+     */
+    String getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Finds the position of a segment by binary search.
+     * @param key the key of the segment
+     * @return the index of the segment, or (-(insertion point) - 1) if there is none
+     */
+    private int indexOf(int key) {
+        int low = 0;
+        int high = segments.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int current = segments[middle].key;
+            if (current < key)
+                low = middle + 1;
+            else if (current > key)
+                high = middle - 1;
+            else
+                return middle;
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Compresses bytes into a raw deflate stream that can be concatenated with others.
+     * @param input the bytes to be compressed
+     * @param level the compression level
+     * @param last  whether the stream is the last one, ended with a final block instead of a sync flush
+     * @return the compressed bytes
+     */
+    static byte[] deflate(byte[] input, int level, boolean last) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(input.length / 4 + 64);
+            byte[] buffer = new byte[8192];
+            deflater.setInput(input);
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished())
+                    out.write(buffer, 0, deflater.deflate(buffer));
+            } else {
+                int written;
+                do {
+                    written = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    out.write(buffer, 0, written);
+                } while (written == buffer.length);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Writes an int in little-endian order, as the gzip trailer expects.
+     * @param out   the stream written to
+     * @param value the value
+     * @throws IOException if the stream cannot be written
+     */
+    private static void writeIntLittleEndian(OutputStream out, int value) throws IOException {
+        out.write(value);
+        out.write(value >>> 8);
+        out.write(value >>> 16);
+        out.write(value >>> 24);
+    }
+
+    /**
+     * Entry is a listed user with its JSON.
+     */
+    static final class Entry {
+
+        private final User user;
+        private final byte[] json;
+
+        Entry(User user, byte[] json) {
+            this.user = user;
+            this.json = json;
+        }
+
+        User getUser() {
+            return user;
+        }
+    }
+
+    /**
+     * Segment is an immutable range of the listing: the users whose ID divided by the segment size is its key,
+     * sorted by ID, with their JSON concatenated and, optionally, compressed.
+     */
+    static final class Segment {
+
+        private final int key;
+        private final Entry[] entries;
+        private final byte[] json;
+        private final byte[] deflated;
+
+        /**
+         * Constructs a new Segment, serializing and compressing its users.
+         * @param key      the key of the segment
+         * @param entries  the entries of the segment, sorted by ID
+         * @param compress whether the segment is compressed
+         */
+        Segment(int key, Entry[] entries, boolean compress) {
+            this.key = key;
+            this.entries = entries;
+
+            int length = entries.length - 1;
+            for (Entry entry : entries)
+                length += entry.json.length;
+            this.json = new byte[length];
+            int position = 0;
+            for (int i = 0; i < entries.length; i++) {
+                if (i > 0)
+                    json[position++] = ',';
+                System.arraycopy(entries[i].json, 0, json, position, entries[i].json.length);
+                position += entries[i].json.length;
+            }
+            this.deflated = compress ? deflate(json, Deflater.DEFAULT_COMPRESSION, false) : null;
+        }
+
+        /**
+         * Builds a copy of the segment with an entry added or replaced.
+         * @param entry the entry
+         * @return the new segment
+         */
+        Segment with(Entry entry) {
+            int index = indexOf(entry.user.getId());
+            Entry[] next;
+            if (index >= 0) {
+                next = entries.clone();
+                next[index] = entry;
+            } else {
+                int insertion = -index - 1;
+                next = new Entry[entries.length + 1];
+                System.arraycopy(entries, 0, next, 0, insertion);
+                next[insertion] = entry;
+                System.arraycopy(entries, insertion, next, insertion + 1, entries.length - insertion);
+            }
+            return new Segment(key, next, deflated != null);
+        }
+
+        /**
+         * Builds a copy of the segment without a user.
+         * @param id the ID of the user
+         * @return the new segment, or null if the segment would be empty
+         */
+        Segment without(int id) {
+            int index = indexOf(id);
+            if (entries.length == 1 && index == 0)
+                return null;
+
+            Entry[] next = new Entry[entries.length - 1];
+            System.arraycopy(entries, 0, next, 0, index);
+            System.arraycopy(entries, index + 1, next, index, entries.length - index - 1);
+            return new Segment(key, next, deflated != null);
+        }
+
+        /**
+         * Finds the position of a user by binary search.
+         * @param id the ID of the user
+         * @return the index of the user, or (-(insertion point) - 1) if it is not in the segment
+         */
+        int indexOf(int id) {
+            int low = 0;
+            int high = entries.length - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int current = entries[middle].user.getId();
+                if (current < id)
+                    low = middle + 1;
+                else if (current > id)
+                    high = middle - 1;
+                else
+                    return middle;
+            }
+            return -(low + 1);
+        }
+    }
+}
@@ -0,0 +1,386 @@
+package com.urdgz.docker_exam.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.urdgz.docker_exam.dto.UserListingDelta;
+import com.urdgz.docker_exam.event.UserChangeEvent;
+import com.urdgz.docker_exam.exception.CustomApiException;
+import com.urdgz.docker_exam.model.User;
+import com.urdgz.docker_exam.repository.UserJdbcRepository;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * UserListingSnapshot keeps the listing of every user in memory, already serialized, so listing requests
+ * are answered by writing buffers instead of scanning the table and serializing every user.
+ * The listing is loaded from the database in the background once the application is ready, and then updated
+ * after every committed change by building the segment of the changed user again. Each change publishes a new
+ * immutable UserListing through a volatile field, so readers never lock and always see a complete version.
+ * Changes are serialized by the monitor of the snapshot.
+ * <p>
+ * Changes made by other instances arrive through the UserInvalidationBus, and the changed user is read again
+ * through the UserCache. Those arriving while the listing is loaded are queued and applied once it is built, so
+ * the bus is not held up by the load and no change is lost. Every change is recorded with its version in a bounded history, which answers the
+ * clients asking for the changes since the version they already have.
+ * It is disabled by setting users.listing.snapshot.enabled to false, and listings are then read from the database.
+ * @author Ulises Rodríguez García.
+ */
+@Component
+public class UserListingSnapshot {
+
+    /**
+     * The time to wait before loading the listing again when loading it failed.
+     */
+    private static final long RELOAD_RETRY_MILLIS = 5000;
+
+    /**
+     * The UserJdbcRepository used to load every user when the listing is built.
+     */
+    private final UserJdbcRepository userJdbcRepository;
+
+    /**
+     * The UserCache used to read the users changed by other instances.
+     */
+    private final UserCache userCache;
+
+    /**
+     * The ObjectWriter used to serialize each user.
+     */
+    private final ObjectWriter userWriter;
+
+    /**
+     * Whether the listing is kept in memory.
+     */
+    private final boolean enabled;
+
+    /**
+     * Whether the segments are also kept compressed with gzip.
+     */
+    private final boolean compressed;
+
+    /**
+     * The number of IDs covered by each segment.
+     */
+    private final int segmentSize;
+
+    /**
+     * The last changes, each stored at its version modulo the capacity.
+     */
+    private final AtomicReferenceArray<Change> changes;
+
+    /**
+     * The ID of this instance, which keeps the versions of different instances and runs apart.
+     */
+    private final String epoch = UUID.randomUUID().toString().substring(0, 8);
+
+    /**
+     * The current version of the listing, or null until it is loaded.
+     */
+    private volatile UserListing current;
+
+    /**
+     * The invalidations received while the listing is loaded, applied once it is built. Its monitor guards it and loading.
+     */
+    private final List<UserInvalidation> pendingInvalidations = new ArrayList<>();
+
+    /**
+     * Whether the listing is being loaded.
+     */
+    private boolean loading;
+
+    /**
+     * Constructs a new UserListingSnapshot with the specified repository and settings.
+     * @param userJdbcRepository the UserJdbcRepository used to load every user when the listing is built
+     * @param userCache          the UserCache used to read the users changed by other instances
+     * @param invalidationBus    the UserInvalidationBus the changes of other instances arrive on
+     * @param objectMapper       the ObjectMapper used to serialize each user
+     * @param meterRegistry      the MeterRegistry the size and version of the listing are published to
+     * @param enabled            whether the listing is kept in memory
+     * @param compressed         whether the segments are also kept compressed with gzip
+     * @param segmentSize        the number of IDs covered by each segment
+     * @param history            the number of changes kept to answer the requests for changes since a version
+     */
+    public UserListingSnapshot(UserJdbcRepository userJdbcRepository, UserCache userCache,
+            UserInvalidationBus invalidationBus, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+            @Value("${users.listing.snapshot.enabled:true}") boolean enabled,
+            @Value("${users.listing.snapshot.gzip:true}") boolean compressed,
+            @Value("${users.listing.snapshot.segment-size:1024}") int segmentSize,
+            @Value("${users.listing.snapshot.history:10000}") int history) {
+        this.userJdbcRepository = userJdbcRepository;
+        this.userCache = userCache;
+        this.userWriter = objectMapper.writerFor(User.class);
+        this.enabled = enabled;
+        this.compressed = compressed;
+        this.segmentSize = segmentSize;
+        this.changes = new AtomicReferenceArray<>(history);
+        Gauge.builder("users.listing.snapshot.size", this, snapshot -> snapshot.current == null ? 0 : snapshot.current.size())
+            .description("Number of users in the in-memory listing")
+            .register(meterRegistry);
+        Gauge.builder("users.listing.snapshot.version", this, snapshot -> snapshot.current == null ? 0 : snapshot.current.getVersion())
+            .description("Version of the in-memory listing")
+            .register(meterRegistry);
+        if (enabled)
+            invalidationBus.subscribe(this::onInvalidation);
+    }
+
+    /**
+     * Starts loading the listing in the background once the application is ready to serve requests.
+     * The load is retried until the database is reachable.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled)
+            return;
+
+        Thread thread = new Thread(() -> {
+            while (current == null) {
+                try {
+                    rebuild();
+                } catch (RuntimeException exception) {
+                    try {
+                        Thread.sleep(RELOAD_RETRY_MILLIS);
+                    } catch (InterruptedException interrupted) {
+                        return;
+                    }
+                }
+            }
+        }, "user-listing-snapshot-load");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Discards the listing and loads every user from the database again, then applies the invalidations
+     * received meanwhile. The changes recorded before can no longer be asked for.
+     */
+    public synchronized void rebuild() {
+        synchronized (pendingInvalidations) {
+            loading = true;
+        }
+
+        try {
+            TreeMap<Integer, List<UserListing.Entry>> grouped = new TreeMap<>();
+            userJdbcRepository.forEachUser(user -> grouped.computeIfAbsent(user.getId() / segmentSize, key -> new ArrayList<>())
+                .add(entry(user)));
+
+            UserListing.Segment[] segments = grouped.entrySet().stream()
+                .map(group -> new UserListing.Segment(group.getKey(), group.getValue().toArray(UserListing.Entry[]::new), compressed))
+                .toArray(UserListing.Segment[]::new);
+            long version = current == null ? 1 : current.getVersion() + 1;
+            current = new UserListing(epoch, version, version, segments, compressed);
+        } finally {
+            List<UserInvalidation> received;
+            synchronized (pendingInvalidations) {
+                received = new ArrayList<>(pendingInvalidations);
+                pendingInvalidations.clear();
+                loading = false;
+            }
+            received.forEach(this::apply);
+        }
+    }
+
+    /**
+     * Gets the current version of the listing.
+     * @return an Optional with the listing, or empty if it is disabled or not loaded yet
+     */
+    public Optional<UserListing> current() {
+        return Optional.ofNullable(current);
+    }
+
+    /**
+     * Gets the changes made to the listing since the version identified by a token.
+     * @param since the token of the version the client has, as returned with the listing
+     * @return the users created or updated and the IDs of the users deleted since that version
+     * @throws CustomApiException with 400 if the token is malformed, with 410 if the changes since that version
+     *                            are no longer known, and with 503 if the listing is not loaded yet
+     */
+    public UserListingDelta changesSince(String since) {
+        UserListing listing = current;
+        if (listing == null)
+            throw new CustomApiException(HttpStatus.SERVICE_UNAVAILABLE, "The user listing is not available yet, please retry later");
+
+        int separator = since.lastIndexOf('-');
+        long version;
+        try {
+            version = Long.parseLong(since.substring(separator + 1));
+        } catch (NumberFormatException exception) {
+            throw new CustomApiException(HttpStatus.BAD_REQUEST, "Since must be a version returned with the user listing");
+        }
+
+        if (separator < 0 || !since.substring(0, separator).equals(listing.getEpoch()) || version < listing.getBaseVersion()
+                || version > listing.getVersion() || listing.getVersion() - version > changes.length())
+            throw new CustomApiException(HttpStatus.GONE, "The changes since version " + since + " are no longer available, please retrieve the full listing");
+
+        Set<Integer> ids = new TreeSet<>();
+        for (long v = version + 1; v <= listing.getVersion(); v++) {
+            Change change = changes.get(slot(v));
+            if (change == null || change.version != v)
+                throw new CustomApiException(HttpStatus.GONE, "The changes since version " + since + " are no longer available, please retrieve the full listing");
+            ids.add(change.id);
+        }
+
+        List<User> users = new ArrayList<>();
+        List<Integer> deletedIds = new ArrayList<>();
+        for (Integer id : ids) {
+            User user = listing.find(id, segmentSize);
+            if (user == null)
+                deletedIds.add(id);
+            else
+                users.add(user.copy());
+        }
+        return new UserListingDelta(listing.getToken(), users, deletedIds);
+    }
+
+    /**
+     * Updates the listing after a user was created, updated or deleted.
+     * It runs after the transaction commits, or right away when there is no transaction.
+     * @param event the UserChangeEvent describing the change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangeEvent event) {
+        if (event.getType() == UserChangeEvent.Type.DELETED)
+            remove(event.getId());
+        else
+            upsert(event.getUser(), event.getType() == UserChangeEvent.Type.CREATED);
+    }
+
+    /**
+     * Updates the listing after a user was changed by another instance, or queues the change while the listing
+     * is loaded. The changes made by this instance were already applied by onUserChanged, so they are skipped.
+     * @param invalidation the UserInvalidation received from the bus
+     */
+    void onInvalidation(UserInvalidation invalidation) {
+        if (invalidation.getOrigin().equals(userCache.getNodeId()))
+            return;
+
+        synchronized (pendingInvalidations) {
+            if (loading) {
+                pendingInvalidations.add(invalidation);
+                return;
+            }
+        }
+        apply(invalidation);
+    }
+
+    /**
+     * Applies a change made by another instance, reading the user again.
+     * Before the listing is first loaded the change is dropped, as the load reads it from the database.
+     * @param invalidation the UserInvalidation received from the bus
+     */
+    private void apply(UserInvalidation invalidation) {
+        if (current == null)
+            return;
+
+        if (invalidation.getVersion() == UserInvalidation.DELETED) {
+            remove(invalidation.getId());
+            return;
+        }
+
+        Optional<User> user = userCache.findById(invalidation.getId());
+        if (user.isPresent())
+            upsert(user.get(), true);
+        else
+            remove(invalidation.getId());
+    }
+
+    /**
+     * Adds or replaces a user in the listing, unless the listing already has the same or a newer version of it.
+     * @param user   the user
+     * @param insert whether the user is added when it is not listed, which updates alone never do, so that a late
+     *               update cannot bring back a deleted user
+     */
+    private synchronized void upsert(User user, boolean insert) {
+        UserListing listing = current;
+        if (listing == null)
+            return;
+
+        User listed = listing.find(user.getId(), segmentSize);
+        if (listed == null ? !insert : UserCache.versionOf(listed) >= UserCache.versionOf(user))
+            return;
+
+        int key = user.getId() / segmentSize;
+        UserListing.Segment segment = listing.segment(key);
+        UserListing.Entry entry = entry(user);
+        publish(listing.with(key, segment == null
+            ? new UserListing.Segment(key, new UserListing.Entry[] { entry }, compressed)
+            : segment.with(entry)), user.getId());
+    }
+
+    /**
+     * Removes a user from the listing, if listed.
+     * @param id the ID of the user
+     */
+    private synchronized void remove(Integer id) {
+        UserListing listing = current;
+        if (listing == null || listing.find(id, segmentSize) == null)
+            return;
+
+        int key = id / segmentSize;
+        publish(listing.with(key, listing.segment(key).without(id)), id);
+    }
+
+    /**
+     * Records a change in the history and publishes the new version of the listing.
+     * The change is recorded first, so a reader seeing the new version also sees the change.
+     * @param listing the new version of the listing
+     * @param id      the ID of the changed user
+     */
+    private void publish(UserListing listing, int id) {
+        changes.set(slot(listing.getVersion()), new Change(listing.getVersion(), id));
+        current = listing;
+    }
+
+    /**
+     * Builds the entry of a user, serializing a copy of it.
+     * @param user the user
+     * @return the entry
+     */
+    private UserListing.Entry entry(User user) {
+        try {
+            return new UserListing.Entry(user.copy(), userWriter.writeValueAsBytes(user));
+        } catch (JsonProcessingException exception) {
+            throw new IllegalStateException("User " + user.getId() + " cannot be serialized", exception);
+        }
+    }
+
+    /**
+     * Gets the position of a version in the history.
+     * @param version the version
+     * @return the index in the history
+     */
+    private int slot(long version) {
+        return (int) (version % changes.length());
+    }
+
+    /**
+     * Change is a version of the listing and the ID of the user changed by it.
+     */
+    private static final class Change {
+
+        private final long version;
+        private final int id;
+
+        private Change(long version, int id) {
+            this.version = version;
+            this.id = id;
+        }
+    }
+}
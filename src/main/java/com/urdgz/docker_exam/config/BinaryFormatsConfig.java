@@ -0,0 +1,41 @@
+package com.urdgz.docker_exam.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * BinaryFormatsConfig makes the responses available in compact binary formats for service-to-service callers,
+ * chosen through the Accept header: Smile (application/x-jackson-smile), which writes every repeated field name
+ * as a one-byte back reference, and CBOR (application/cbor). JSON stays the default format.
+ * The mappers are built from the same builder as the JSON one, so they share its modules and settings.
+ * @author Ulises Rodríguez García.
+ */
+@Configuration
+public class BinaryFormatsConfig {
+
+    /**
+     * Creates the converter that reads and writes Smile.
+     * @param builder the Jackson2ObjectMapperBuilder configured by Spring Boot
+     * @return the Smile converter
+     */
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+
+    /**
+     * Creates the converter that reads and writes CBOR.
+     * @param builder the Jackson2ObjectMapperBuilder configured by Spring Boot
+     * @return the CBOR converter
+     */
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+}
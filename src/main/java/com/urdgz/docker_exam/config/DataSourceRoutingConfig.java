@@ -0,0 +1,110 @@
+package com.urdgz.docker_exam.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.urdgz.docker_exam.datasource.ReadYourWritesFilter;
+import com.urdgz.docker_exam.datasource.ReplicaDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * DataSourceRoutingConfig sends read-only transactions to the MySQL replicas and everything else to the primary.
+ * The DataSource used by JPA and JDBC is a LazyConnectionDataSourceProxy, which only fetches the physical
+ * connection at the first statement, once the read-only flag of the transaction is known, and takes it from
+ * the ReplicaDataSource when the transaction is read-only.
+ * It is only active when the users.datasource.replica-urls property is set.
+ * @author Ulises Rodríguez García.
+ */
+@Configuration
+@ConditionalOnProperty(name = "users.datasource.replica-urls")
+public class DataSourceRoutingConfig {
+
+    /**
+     * Creates the connection pool of the primary, configured by the spring.datasource properties.
+     * @param properties the spring.datasource properties
+     * @return the HikariDataSource of the primary
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    /**
+     * Creates the connection pools of the replicas and the DataSource picking among them.
+     * Each replica pool copies the settings of the primary pool, but its URL, name and size.
+     * @param primary             the connection pool of the primary
+     * @param replicaUrls         the JDBC URLs of the replicas
+     * @param poolSize            the maximum number of connections of each replica pool
+     * @param healthCheckInterval the time between two health checks of every replica
+     * @param meterRegistry       the MeterRegistry the number of healthy replicas is published to
+     * @return the ReplicaDataSource
+     */
+    @Bean
+    public ReplicaDataSource replicaDataSource(@Qualifier("primaryDataSource") HikariDataSource primary,
+            @Value("${users.datasource.replica-urls}") List<String> replicaUrls,
+            @Value("${users.datasource.replica-pool-size:20}") int poolSize,
+            @Value("${users.datasource.health-check-interval:5s}") Duration healthCheckInterval,
+            MeterRegistry meterRegistry) {
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            HikariDataSource replica = new HikariDataSource();
+            primary.copyStateTo(replica);
+            replica.setJdbcUrl(replicaUrls.get(i).trim());
+            replica.setPoolName("replica-" + (i + 1));
+            replica.setMaximumPoolSize(poolSize);
+            replica.setMinimumIdle(Math.min(poolSize, replica.getMinimumIdle()));
+            replica.setReadOnly(true);
+            if (replica.getMetricsTrackerFactory() == null && replica.getMetricRegistry() == null)
+                replica.setMetricRegistry(meterRegistry);
+            replicas.add(replica);
+        }
+        return new ReplicaDataSource(primary, replicas, healthCheckInterval, meterRegistry);
+    }
+
+    /**
+     * Creates the DataSource used by JPA and JDBC, routing each connection by the read-only flag of its transaction.
+     * @param primary  the connection pool of the primary
+     * @param replicas the DataSource of the replicas
+     * @return the routing DataSource
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary, ReplicaDataSource replicas) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primary);
+        dataSource.setReadOnlyDataSource(replicas);
+        return dataSource;
+    }
+
+    /**
+     * Registers the filter pinning a client to the primary for a short window after it writes.
+     * @param window the time a client stays pinned to the primary after it writes
+     * @return the FilterRegistrationBean of the ReadYourWritesFilter
+     */
+    @Bean
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(
+            @Value("${users.datasource.read-your-writes-window:5s}") Duration window) {
+        FilterRegistrationBean<ReadYourWritesFilter> registration = new FilterRegistrationBean<>(new ReadYourWritesFilter(window));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+}
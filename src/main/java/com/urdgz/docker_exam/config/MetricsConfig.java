@@ -0,0 +1,25 @@
+package com.urdgz.docker_exam.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * MetricsConfig enables the @Timed annotation, used to time every service method.
+ * @author Ulises Rodríguez García.
+ */
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Creates the aspect that records the methods annotated with @Timed.
+     * @param meterRegistry the MeterRegistry the timers are recorded in
+     * @return the TimedAspect
+     */
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+}
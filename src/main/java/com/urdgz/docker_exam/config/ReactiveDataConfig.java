@@ -0,0 +1,54 @@
+package com.urdgz.docker_exam.config;
+
+import javax.sql.DataSource;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.r2dbc.spi.ConnectionFactory;
+
+/**
+ * ReactiveDataConfig sets up the transactions of the reactive stack, which reaches the database through
+ * the R2DBC connection pool configured by the spring.r2dbc properties.
+ * The R2DBC transaction manager is kept out of the context and only used through a TransactionalOperator,
+ * so the JPA transaction manager stays the only one and @Transactional keeps resolving to it.
+ * Spring Boot does not configure a JDBC DataSource once an R2DBC ConnectionFactory exists, so the
+ * JDBC connection pool still used by JPA, the cache, the search index and the change feed is created here.
+ * It is only loaded when the application runs as a reactive web application.
+ * @author Ulises Rodríguez García.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveDataConfig {
+
+    /**
+     * Creates the JDBC connection pool, configured by the spring.datasource properties,
+     * unless the DataSourceRoutingConfig already routes the connections between the primary and the replicas.
+     * @param properties the spring.datasource properties
+     * @return the HikariDataSource
+     */
+    @Bean
+    @ConditionalOnMissingBean(DataSource.class)
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    /**
+     * Creates the TransactionalOperator running the changes of the reactive stack in R2DBC transactions.
+     * @param connectionFactory the R2DBC ConnectionFactory
+     * @return the TransactionalOperator
+     */
+    @Bean
+    public TransactionalOperator reactiveTransactionalOperator(ConnectionFactory connectionFactory) {
+        return TransactionalOperator.create(new R2dbcTransactionManager(connectionFactory));
+    }
+}
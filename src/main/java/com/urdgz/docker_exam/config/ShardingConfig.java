@@ -0,0 +1,61 @@
+package com.urdgz.docker_exam.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.urdgz.docker_exam.shard.ShardedUserRepository;
+import com.urdgz.docker_exam.shard.UserIdAllocator;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * ShardingConfig creates the ShardedUserRepository spreading users over the shards listed in the
+ * users.sharding.shard-urls property, each reached through its own connection pool. The IDs of new users
+ * are reserved from the User_Id_Sequence table of the main database. The ShardedUserServiceImp serves the API from it.
+ * It is only active when the users.sharding.shard-urls property is set.
+ * @author Ulises Rodríguez García.
+ */
+@Configuration
+@ConditionalOnProperty(name = "users.sharding.shard-urls")
+public class ShardingConfig {
+
+    /**
+     * Creates the connection pools of the shards and the repository routing the users among them.
+     * Each pool uses the credentials of the main database.
+     * @param dataSource   the DataSource of the main database, holding the ID sequence
+     * @param properties   the spring.datasource properties
+     * @param shardUrls    the JDBC URLs of the shards, in a fixed order
+     * @param poolSize     the maximum number of connections of each shard pool
+     * @param virtualNodes the number of positions of each shard on the hash ring
+     * @param idBlockSize  the number of IDs reserved at once from the sequence
+     * @param claimTimeout the age after which an email claim whose user does not have the email is taken over
+     * @return the ShardedUserRepository
+     */
+    @Bean
+    public ShardedUserRepository shardedUserRepository(DataSource dataSource, DataSourceProperties properties,
+            @Value("${users.sharding.shard-urls}") List<String> shardUrls,
+            @Value("${users.sharding.pool-size:10}") int poolSize,
+            @Value("${users.sharding.virtual-nodes:160}") int virtualNodes,
+            @Value("${users.sharding.id-block-size:1000}") int idBlockSize,
+            @Value("${users.sharding.claim-timeout:1m}") Duration claimTimeout) {
+        List<DataSource> shards = new ArrayList<>();
+        for (int i = 0; i < shardUrls.size(); i++) {
+            HikariDataSource shard = new HikariDataSource();
+            shard.setJdbcUrl(shardUrls.get(i).trim());
+            shard.setUsername(properties.determineUsername());
+            shard.setPassword(properties.determinePassword());
+            shard.setPoolName("shard-" + i);
+            shard.setMaximumPoolSize(poolSize);
+            shards.add(shard);
+        }
+        return new ShardedUserRepository(shards, virtualNodes, new UserIdAllocator(dataSource, idBlockSize), claimTimeout);
+    }
+}
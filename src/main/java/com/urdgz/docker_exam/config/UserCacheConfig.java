@@ -0,0 +1,46 @@
+package com.urdgz.docker_exam.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.urdgz.docker_exam.cache.InMemorySharedUserCache;
+import com.urdgz.docker_exam.cache.InMemoryUserInvalidationBus;
+import com.urdgz.docker_exam.cache.SharedUserCache;
+import com.urdgz.docker_exam.cache.UserInvalidationBus;
+
+/**
+ * UserCacheConfig provides the shared tier of the UserCache and the bus its invalidations are broadcast on.
+ * The in-process stand-ins created here serve a single instance. When several instances run behind a load
+ * balancer, beans backed by the shared cache node and by the message broker replace them.
+ * @author Ulises Rodríguez García.
+ */
+@Configuration
+public class UserCacheConfig {
+
+    /**
+     * Creates the in-process stand-in for the shared cache node, unless another SharedUserCache is defined.
+     * @param maximumSize      the maximum number of users kept in the shared cache
+     * @param expireAfterWrite the time after which a user is evicted from the shared cache
+     * @return the SharedUserCache
+     */
+    @Bean
+    @ConditionalOnMissingBean(SharedUserCache.class)
+    public SharedUserCache sharedUserCache(@Value("${users.cache.shared.maximum-size:100000}") long maximumSize,
+            @Value("${users.cache.shared.expire-after-write:1h}") Duration expireAfterWrite) {
+        return new InMemorySharedUserCache(maximumSize, expireAfterWrite);
+    }
+
+    /**
+     * Creates the in-process stand-in for the invalidation bus, unless another UserInvalidationBus is defined.
+     * @return the UserInvalidationBus
+     */
+    @Bean
+    @ConditionalOnMissingBean(UserInvalidationBus.class)
+    public UserInvalidationBus userInvalidationBus() {
+        return new InMemoryUserInvalidationBus();
+    }
+}
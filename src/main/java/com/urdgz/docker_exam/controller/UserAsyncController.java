@@ -0,0 +1,115 @@
+package com.urdgz.docker_exam.controller;
+
+import java.net.URI;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import com.urdgz.docker_exam.dto.SuccessResponse;
+import com.urdgz.docker_exam.dto.UserCreateStatus;
+import com.urdgz.docker_exam.exception.CustomApiException;
+import com.urdgz.docker_exam.model.User;
+import com.urdgz.docker_exam.ratelimit.ClientKeyResolver;
+import com.urdgz.docker_exam.service.UserCreateQueue;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+
+/**
+ * UserAsyncController is a REST controller that handles the asynchronous creation of users.
+ * Creations are validated and queued under the idempotency key given by the client, and their
+ * outcome is polled from a status URL. Keys are scoped by client, identified like the rate limiter does,
+ * by configured API key or IP address. It is only created when the users.async.enabled property is true
+ * and the application runs as a servlet web application.
+ * @author Ulises Rodríguez García.
+ */
+@RestController
+@RequestMapping("/users/async")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "users.async.enabled", havingValue = "true")
+public class UserAsyncController {
+
+    /**
+     * The maximum length accepted for an idempotency key.
+     */
+    private static final int MAX_KEY_LENGTH = 128;
+
+    /**
+     * The UserCreateQueue the creations are queued in.
+     */
+    private final UserCreateQueue userCreateQueue;
+
+    /**
+     * The ClientKeyResolver identifying the client of every request.
+     */
+    private final ClientKeyResolver clientKeyResolver;
+
+    /**
+     * Constructs a new UserAsyncController with the specified UserCreateQueue and ClientKeyResolver.
+     * @param userCreateQueue   the UserCreateQueue the creations are queued in
+     * @param clientKeyResolver the ClientKeyResolver identifying the client of every request
+     */
+    public UserAsyncController(UserCreateQueue userCreateQueue, ClientKeyResolver clientKeyResolver) {
+        this.userCreateQueue = userCreateQueue;
+        this.clientKeyResolver = clientKeyResolver;
+    }
+
+    /**
+     * Accepts the creation of a user, to be written in the background.
+     * Repeating a request with the same idempotency key does not create the user again,
+     * it returns the status of the original request instead, as long as it is for the same user.
+     * @param key     the idempotency key of the request
+     * @param user    the User object to be created
+     * @param request the request, which identifies the client
+     * @return a ResponseEntity containing a SuccessResponse with the status of the creation, its URL,
+     *         and the 202 status while pending or the 200 status once done
+     */
+    @PostMapping
+    public ResponseEntity<SuccessResponse<UserCreateStatus>> createUser(
+            @RequestHeader("Idempotency-Key") String key, @Valid @RequestBody User user, HttpServletRequest request) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH)
+            throw new CustomApiException(HttpStatus.BAD_REQUEST, "Idempotency-Key must have between 1 and " + MAX_KEY_LENGTH + " characters");
+
+        UserCreateStatus status = userCreateQueue.submit(clientKeyResolver.clientKey(request), key, user);
+        HttpStatus httpStatus = status.getState() == UserCreateStatus.State.PENDING ? HttpStatus.ACCEPTED : HttpStatus.OK;
+        URI location = ServletUriComponentsBuilder.fromCurrentContextPath()
+            .path("/users/async/{key}")
+            .buildAndExpand(key)
+            .encode()
+            .toUri();
+        SuccessResponse<UserCreateStatus> response = new SuccessResponse<>(
+            httpStatus,
+            "User creation accepted",
+            status
+        );
+        return ResponseEntity.status(httpStatus).location(location).body(response);
+    }
+
+    /**
+     * Retrieves the status of an asynchronous creation of the client.
+     * @param key     the idempotency key of the request
+     * @param request the request, which identifies the client
+     * @return a ResponseEntity containing a SuccessResponse with the status of the creation and the HTTP status
+     */
+    @GetMapping("/{key}")
+    public ResponseEntity<SuccessResponse<UserCreateStatus>> getStatus(@PathVariable String key, HttpServletRequest request) {
+        UserCreateStatus status = userCreateQueue.getStatus(clientKeyResolver.clientKey(request), key)
+            .orElseThrow(() -> new CustomApiException(HttpStatus.NOT_FOUND, "User creation not found"));
+        SuccessResponse<UserCreateStatus> response = new SuccessResponse<>(
+            HttpStatus.OK,
+            "User creation status retrieved successfully",
+            status
+        );
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+}
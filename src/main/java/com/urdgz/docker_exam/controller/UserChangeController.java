@@ -0,0 +1,74 @@
+package com.urdgz.docker_exam.controller;
+
+import java.util.List;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.urdgz.docker_exam.dto.SuccessResponse;
+import com.urdgz.docker_exam.feed.UserChangeFeed;
+import com.urdgz.docker_exam.model.UserChange;
+
+/**
+ * UserChangeController is a REST controller that serves the change log of users,
+ * so downstream consumers can sync incrementally instead of reading every user again.
+ * It is only created when the application runs as a servlet web application.
+ * @author Ulises Rodríguez García.
+ */
+@RestController
+@RequestMapping("/users/changes")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class UserChangeController {
+
+    /**
+     * The UserChangeFeed used to read and stream the change log.
+     */
+    private final UserChangeFeed userChangeFeed;
+
+    /**
+     * Constructs a new UserChangeController with the specified UserChangeFeed.
+     * @param userChangeFeed the UserChangeFeed used to read and stream the change log
+     */
+    public UserChangeController(UserChangeFeed userChangeFeed) {
+        this.userChangeFeed = userChangeFeed;
+    }
+
+    /**
+     * Retrieves the changes recorded after the given sequence number, in sequence order.
+     * @param since the sequence number of the last change already seen, 0 to start from the beginning
+     * @param limit the maximum number of changes to retrieve
+     * @return a ResponseEntity containing a SuccessResponse with the changes and the HTTP status
+     */
+    @GetMapping
+    public ResponseEntity<SuccessResponse<List<UserChange>>> getChanges(@RequestParam(defaultValue = "0") long since,
+            @RequestParam(defaultValue = "100") int limit) {
+        List<UserChange> changes = userChangeFeed.getChanges(since, limit);
+        SuccessResponse<List<UserChange>> response = new SuccessResponse<>(
+            HttpStatus.OK,
+            "User changes retrieved successfully",
+            changes
+        );
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    /**
+     * Streams the changes recorded after the given sequence number as Server-Sent Events, live.
+     * A reconnecting client resumes from the Last-Event-ID header, which takes precedence over the since parameter.
+     * @param since       the sequence number of the last change already seen, 0 to start from the beginning
+     * @param lastEventId the ID of the last event received before reconnecting, if any
+     * @return the SseEmitter of the stream
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@RequestParam(defaultValue = "0") long since,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return userChangeFeed.subscribe(lastEventId != null ? lastEventId : since);
+    }
+}
@@ -1,8 +1,23 @@
 package com.urdgz.docker_exam.controller;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -10,44 +25,122 @@ import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.urdgz.docker_exam.cache.UserListing;
+import com.urdgz.docker_exam.dto.BatchItemResult;
+import com.urdgz.docker_exam.dto.CursorPage;
+import com.urdgz.docker_exam.dto.ImportReport;
+import com.urdgz.docker_exam.dto.SearchPage;
 import com.urdgz.docker_exam.dto.SuccessResponse;
 import com.urdgz.docker_exam.dto.UserDto;
+import com.urdgz.docker_exam.dto.UserListingDelta;
+import com.urdgz.docker_exam.dto.UserListingResponse;
+import com.urdgz.docker_exam.dto.UserPatchItem;
+import com.urdgz.docker_exam.exception.CustomApiException;
 import com.urdgz.docker_exam.model.User;
 import com.urdgz.docker_exam.service.UserService;
+import com.urdgz.docker_exam.transfer.UserCsvWriter;
+import com.urdgz.docker_exam.transfer.UserImporter;
 
 import jakarta.validation.Valid;
 
 /**
  * UserController is a REST controller that handles HTTP requests for user-related operations.
  * It includes endpoints for retrieving all users, creating a user, updating a user partially, and deleting a user.
+ * It serves the blocking stack, so it is only created when the application runs as a servlet web application.
  * @author Ulises Rodríguez García.
  */
 @RestController
 @RequestMapping("/users")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class UserController {
-    
+
+    /**
+     * The media type of CSV imports and exports.
+     */
+    private static final String TEXT_CSV_VALUE = "text/csv";
+
+    /**
+     * The query parameters selecting how GET /users answers, of which at most one can be sent.
+     */
+    private static final List<String> LISTING_PARAMETERS = List.of("limit", "email", "since");
+
     /**
      * The UserService instance used to perform user-related operations.
      */
     private final UserService userService;
 
     /**
-     * Constructs a new UserController with the specified UserService.
-     * @param userService the UserService to be used for user-related operations
+     * The ObjectMapper used to write users while streaming.
      */
-    public UserController(UserService userService) {
+    private final ObjectMapper objectMapper;
+
+    /**
+     * The UserImporter used to import users in bulk.
+     */
+    private final UserImporter userImporter;
+
+    /**
+     * Constructs a new UserController with the specified UserService, ObjectMapper and UserImporter.
+     * @param userService  the UserService to be used for user-related operations
+     * @param objectMapper the ObjectMapper used to write users while streaming
+     * @param userImporter the UserImporter used to import users in bulk
+     */
+    public UserController(UserService userService, ObjectMapper objectMapper, UserImporter userImporter) {
         this.userService = userService;
+        this.objectMapper = objectMapper;
+        this.userImporter = userImporter;
     }
 
     /**
      * Retrieves a list of all users.
-     * @return a ResponseEntity containing a SuccessResponse with the list of users and the HTTP status
+     * Once the in-memory listing is loaded, the response is written from it, compressed with gzip when the
+     * client accepts it, and carries the ETag of the listing version, with a suffix for the gzip representation:
+     * a request whose If-None-Match header holds a tag of the current version in either encoding is answered with
+     * 304 Not Modified, and the tag can be sent back to get only the changes since.
+     * The requests sending more than one of limit, email and since match no other handler and end up here,
+     * where they are rejected.
+     * @param parameters     the query parameters of the request
+     * @param acceptEncoding the value of the Accept-Encoding header, or null if it was not sent
+     * @param ifNoneMatch    the value of the If-None-Match header, or null if it was not sent
+     * @return a ResponseEntity containing the list of users and the HTTP status
+     * @throws CustomApiException with 400 if more than one of limit, email and since was sent
      */
     @GetMapping
-    public ResponseEntity<SuccessResponse<List<User>>> getAllUsers() {
+    public ResponseEntity<?> getAllUsers(@RequestParam Map<String, String> parameters,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (LISTING_PARAMETERS.stream().anyMatch(parameters::containsKey))
+            throw new CustomApiException(HttpStatus.BAD_REQUEST, "Only one of the limit, email and since parameters can be sent");
+
+        Optional<UserListing> listing = userService.getUserListing();
+        if (listing.isPresent()) {
+            boolean gzip = listing.get().isCompressed() && acceptsGzip(acceptEncoding);
+            if (matchesListing(ifNoneMatch, listing.get()))
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(listing.get().getETag(gzip))
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+
+            UserListingResponse response = new UserListingResponse(
+                HttpStatus.OK,
+                "Users retrieved successfully",
+                listing.get(),
+                gzip
+            );
+            return ResponseEntity.ok()
+                .eTag(listing.get().getETag(gzip))
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .body(response);
+        }
+
         List<User> users = userService.getAllUsers();
         SuccessResponse<List<User>> response = new SuccessResponse<>(
             HttpStatus.OK,
@@ -57,6 +150,197 @@ public class UserController {
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
 
+    /**
+     * Retrieves the changes made to the list of all users since the version identified by an ETag of the listing.
+     * The response carries the ETag of the version the changes lead to, to be sent as the next since value.
+     * @param since the ETag of the listing the client has, in either encoding, weak or not, with or without quotes
+     * @return a ResponseEntity containing a SuccessResponse with the changed users and the deleted IDs
+     */
+    @GetMapping(params = { "since", "!limit", "!email" })
+    public ResponseEntity<SuccessResponse<UserListingDelta>> getUserListingChanges(@RequestParam String since) {
+        UserListingDelta delta = userService.getUserListingChanges(UserListing.tokenOf(since));
+        SuccessResponse<UserListingDelta> response = new SuccessResponse<>(
+            HttpStatus.OK,
+            "User changes retrieved successfully",
+            delta
+        );
+        return ResponseEntity.ok().eTag("\"" + delta.getVersion() + "\"").body(response);
+    }
+
+    /**
+     * Retrieves a user by their ID.
+     * The response carries the ETag of the user, and a request whose If-None-Match header
+     * matches it is answered with 304 Not Modified and no body.
+     * @param id the ID of the user
+     * @return a ResponseEntity containing a SuccessResponse with the user and the HTTP status
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<SuccessResponse<User>> getUserById(@PathVariable Integer id) {
+        User user = userService.getUserById(id);
+        SuccessResponse<User> response = new SuccessResponse<>(
+            HttpStatus.OK,
+            "User retrieved successfully",
+            user
+        );
+        return ResponseEntity.ok().eTag(UserETag.of(user)).body(response);
+    }
+
+    /**
+     * Retrieves a user by their email.
+     * The response carries the ETag of the user, and a request whose If-None-Match header
+     * matches it is answered with 304 Not Modified and no body.
+     * @param email the email of the user
+     * @return a ResponseEntity containing a SuccessResponse with the user and the HTTP status
+     */
+    @GetMapping(params = { "email", "!limit", "!since" })
+    public ResponseEntity<SuccessResponse<User>> getUserByEmail(@RequestParam String email) {
+        User user = userService.getUserByEmail(email);
+        SuccessResponse<User> response = new SuccessResponse<>(
+            HttpStatus.OK,
+            "User retrieved successfully",
+            user
+        );
+        return ResponseEntity.ok().eTag(UserETag.of(user)).body(response);
+    }
+
+    /**
+     * Retrieves a page of users ordered by ID.
+     * @param limit the maximum number of users in the page
+     * @param after the opaque cursor returned with the previous page, or null for the first page
+     * @return a ResponseEntity containing a SuccessResponse with the page of users and the HTTP status
+     */
+    @GetMapping(params = { "limit", "!email", "!since" })
+    public ResponseEntity<SuccessResponse<CursorPage<User>>> getUsersPage(@RequestParam int limit,
+            @RequestParam(required = false) String after) {
+        CursorPage<User> page = userService.getUsersPage(after, limit);
+        SuccessResponse<CursorPage<User>> response = new SuccessResponse<>(
+            HttpStatus.OK,
+            "Users retrieved successfully",
+            page
+        );
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    /**
+     * Searches the users whose name or email contains the given query, ignoring case.
+     * @param q      the text to look for
+     * @param limit  the maximum number of users in the page
+     * @param offset the number of matches to skip
+     * @return a ResponseEntity containing a SuccessResponse with the page of matching users and the HTTP status
+     */
+    @GetMapping("/search")
+    public ResponseEntity<SuccessResponse<SearchPage<User>>> searchUsers(@RequestParam String q,
+            @RequestParam(defaultValue = "20") int limit, @RequestParam(defaultValue = "0") int offset) {
+        SearchPage<User> page = userService.searchUsers(q, offset, limit);
+        SuccessResponse<SearchPage<User>> response = new SuccessResponse<>(
+            HttpStatus.OK,
+            "Users retrieved successfully",
+            page
+        );
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    /**
+     * Streams every user ordered by ID as they are read from the database.
+     * Users are written as newline-delimited JSON when the client accepts application/x-ndjson,
+     * otherwise as a chunked JSON array.
+     * @param accept the Accept header sent by the client
+     * @return a ResponseEntity containing the streaming body and the HTTP status
+     */
+    @GetMapping(value = "/stream", produces = { MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE })
+    public ResponseEntity<StreamingResponseBody> streamAllUsers(
+            @RequestHeader(value = "Accept", defaultValue = MediaType.APPLICATION_JSON_VALUE) String accept) {
+        boolean ndjson = accept.contains(MediaType.APPLICATION_NDJSON_VALUE);
+        return ResponseEntity.ok()
+            .contentType(ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+            .body(outputStream -> writeJson(outputStream, ndjson));
+    }
+
+    /**
+     * Exports every user ordered by ID, streamed from a forward-only result set straight to the response.
+     * Users are written as newline-delimited JSON when the client accepts application/x-ndjson,
+     * otherwise as CSV with an id, name and email header.
+     * @param accept the Accept header sent by the client
+     * @return a ResponseEntity containing the streaming body, sent as an attachment, and the HTTP status
+     */
+    @GetMapping(value = "/export", produces = { TEXT_CSV_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    public ResponseEntity<StreamingResponseBody> exportUsers(
+            @RequestHeader(value = "Accept", defaultValue = TEXT_CSV_VALUE) String accept) {
+        boolean ndjson = accept.contains(MediaType.APPLICATION_NDJSON_VALUE);
+        StreamingResponseBody body = ndjson
+            ? outputStream -> writeJson(outputStream, true)
+            : outputStream -> {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+                UserCsvWriter csvWriter = new UserCsvWriter(writer);
+                csvWriter.writeHeader();
+                userService.streamAllUsers(user -> {
+                    try {
+                        csvWriter.write(user);
+                    } catch (IOException exception) {
+                        throw new UncheckedIOException(exception);
+                    }
+                });
+                writer.flush();
+            };
+        return ResponseEntity.ok()
+            .contentType(ndjson ? MediaType.APPLICATION_NDJSON : new MediaType("text", "csv", StandardCharsets.UTF_8))
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"users." + (ndjson ? "ndjson" : "csv") + "\"")
+            .body(body);
+    }
+
+    /**
+     * Imports users from a CSV or newline-delimited JSON body, parsed as it is received.
+     * CSV bodies have name and email columns, optionally preceded by a header row,
+     * and newline-delimited JSON bodies have one user object per line.
+     * @param contentType the Content-Type header sent by the client
+     * @param body        the body of the request
+     * @return a ResponseEntity containing a SuccessResponse with the import report and the HTTP status
+     * @throws IOException if the body cannot be read
+     */
+    @PostMapping(value = "/import", consumes = { TEXT_CSV_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    public ResponseEntity<SuccessResponse<ImportReport>> importUsers(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream body) throws IOException {
+        MediaType mediaType = MediaType.parseMediaType(contentType);
+        Charset charset = mediaType.getCharset() != null ? mediaType.getCharset() : StandardCharsets.UTF_8;
+        ImportReport report = MediaType.APPLICATION_NDJSON.isCompatibleWith(mediaType)
+            ? userImporter.importNdjson(body, charset)
+            : userImporter.importCsv(body, charset);
+        SuccessResponse<ImportReport> response = new SuccessResponse<>(
+            HttpStatus.OK,
+            "Users import processed",
+            report
+        );
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    /**
+     * Writes every user ordered by ID as JSON, as they are read from the database.
+     * @param outputStream the stream the users are written to
+     * @param ndjson       whether to write newline-delimited JSON instead of a JSON array
+     * @throws IOException if the users cannot be written
+     */
+    private void writeJson(OutputStream outputStream, boolean ndjson) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            if (ndjson)
+                generator.setRootValueSeparator(null);
+            else
+                generator.writeStartArray();
+
+            userService.streamAllUsers(user -> {
+                try {
+                    generator.writeObject(user);
+                    if (ndjson)
+                        generator.writeRaw('\n');
+                } catch (IOException exception) {
+                    throw new UncheckedIOException(exception);
+                }
+            });
+
+            if (!ndjson)
+                generator.writeEndArray();
+        }
+    }
+
     /**
      * Creates a new user.
      * @param user the User object to be created
@@ -75,19 +359,25 @@ public class UserController {
 
     /**
      * Updates an existing user partially with the given UserDto.
+     * When an If-Match header with the ETag of the user is sent, the update only applies if the user
+     * has not changed since, and 412 Precondition Failed is returned otherwise.
+     * The response carries the new ETag of the user.
      * @param id      the ID of the user to be updated
+     * @param ifMatch the ETag the user must still have, or null to update any version
      * @param userDto the UserDto object containing the updated user information
      * @return a ResponseEntity containing a SuccessResponse with the updated user and the HTTP status
      */
     @PatchMapping("/{id}")
-    public ResponseEntity<SuccessResponse<User>> patchUser(@PathVariable Integer id, @Valid @RequestBody UserDto userDto) {
-        User patchedUser = userService.patchUser(id, userDto);
+    public ResponseEntity<SuccessResponse<User>> patchUser(@PathVariable Integer id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @Valid @RequestBody UserDto userDto) {
+        User patchedUser = userService.patchUser(id, userDto, UserETag.expectedVersion(ifMatch, id));
         SuccessResponse<User> response = new SuccessResponse<>(
             HttpStatus.OK,
             "User patched successfully",
             patchedUser
         );
-        return new ResponseEntity<>(response, HttpStatus.OK);
+        return ResponseEntity.ok().eTag(UserETag.of(patchedUser)).body(response);
     }
 
     /**
@@ -105,5 +395,85 @@ public class UserController {
         );
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
-}
 
+    /**
+     * Creates many users at once.
+     * @param users the User objects to be created
+     * @return a ResponseEntity containing a SuccessResponse with the outcome of each entry and the HTTP status
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<SuccessResponse<List<BatchItemResult>>> createUsers(@RequestBody List<User> users) {
+        List<BatchItemResult> results = userService.createUsers(users);
+        SuccessResponse<List<BatchItemResult>> response = new SuccessResponse<>(
+            HttpStatus.OK,
+            "Users batch processed",
+            results
+        );
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    /**
+     * Updates many existing users partially at once.
+     * @param patches the entries containing the ID and the updated information of each user
+     * @return a ResponseEntity containing a SuccessResponse with the outcome of each entry and the HTTP status
+     */
+    @PatchMapping("/batch")
+    public ResponseEntity<SuccessResponse<List<BatchItemResult>>> patchUsers(@RequestBody List<UserPatchItem> patches) {
+        List<BatchItemResult> results = userService.patchUsers(patches);
+        SuccessResponse<List<BatchItemResult>> response = new SuccessResponse<>(
+            HttpStatus.OK,
+            "Users batch processed",
+            results
+        );
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    /**
+     * Deletes many users by their IDs at once.
+     * @param ids the IDs of the users to be deleted
+     * @return a ResponseEntity containing a SuccessResponse with the outcome of each entry and the HTTP status
+     */
+    @DeleteMapping("/batch")
+    public ResponseEntity<SuccessResponse<List<BatchItemResult>>> deleteUsers(@RequestBody List<Integer> ids) {
+        List<BatchItemResult> results = userService.deleteUsers(ids);
+        SuccessResponse<List<BatchItemResult>> response = new SuccessResponse<>(
+            HttpStatus.OK,
+            "Users batch processed",
+            results
+        );
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    /**
+     * Checks whether an If-None-Match header holds a tag of the given version of the listing, in either encoding.
+     * @param ifNoneMatch the value of the If-None-Match header, or null if it was not sent
+     * @param listing     the current version of the listing
+     * @return true if the client already has this version of the listing
+     */
+    private static boolean matchesListing(String ifNoneMatch, UserListing listing) {
+        if (ifNoneMatch == null)
+            return false;
+
+        for (String tag : ifNoneMatch.split(","))
+            if (tag.trim().equals("*") || UserListing.tokenOf(tag).equals(listing.getToken()))
+                return true;
+        return false;
+    }
+
+    /**
+     * Tells whether an Accept-Encoding header accepts gzip.
+     * @param acceptEncoding the value of the header, or null if it was not sent
+     * @return true if gzip is listed without a zero quality
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null)
+            return false;
+
+        for (String coding : acceptEncoding.toLowerCase(Locale.ROOT).split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equals("gzip"))
+                return parts.length == 1 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+        }
+        return false;
+    }
+}
@@ -0,0 +1,50 @@
+package com.urdgz.docker_exam.controller;
+
+import org.springframework.http.HttpStatus;
+
+import com.urdgz.docker_exam.exception.CustomApiException;
+import com.urdgz.docker_exam.model.User;
+
+/**
+ * UserETag builds the entity tags sent with single-user responses.
+ * A tag is made of the ID and the version of the user, so it changes on every update.
+ * @author Ulises Rodríguez García.
+ */
+final class UserETag {
+
+    private UserETag() {
+    }
+
+    /**
+     * Builds the entity tag of the given user.
+     * @param user the user
+     * @return the quoted entity tag
+     */
+    static String of(User user) {
+        return "\"" + user.getId() + "-" + user.getVersion() + "\"";
+    }
+
+    /**
+     * Reads the version the client expects from an If-Match header sent for the given user.
+     * A wildcard accepts any version, while a tag that is malformed or belongs to another user can never match.
+     * @param ifMatch the value of the If-Match header, or null if it was not sent
+     * @param id      the ID of the user being updated
+     * @return the expected version, or null if any version is accepted
+     * @throws CustomApiException with 412 if the tag cannot match the user
+     */
+    static Long expectedVersion(String ifMatch, Integer id) {
+        if (ifMatch == null || ifMatch.trim().equals("*"))
+            return null;
+
+        String tag = ifMatch.trim();
+        String prefix = "\"" + id + "-";
+        if (tag.startsWith(prefix) && tag.endsWith("\"") && tag.length() > prefix.length() + 1) {
+            try {
+                return Long.parseLong(tag.substring(prefix.length(), tag.length() - 1));
+            } catch (NumberFormatException exception) {
+                // Falls through to the precondition failure below.
+            }
+        }
+        throw new CustomApiException(HttpStatus.PRECONDITION_FAILED, "If-Match does not match the current version of user " + id);
+    }
+}
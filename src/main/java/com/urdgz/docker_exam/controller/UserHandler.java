@@ -0,0 +1,257 @@
+package com.urdgz.docker_exam.controller;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebInputException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.urdgz.docker_exam.dto.SuccessResponse;
+import com.urdgz.docker_exam.dto.UserDto;
+import com.urdgz.docker_exam.exception.CustomApiException;
+import com.urdgz.docker_exam.model.User;
+import com.urdgz.docker_exam.service.ReactiveUserService;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * UserHandler holds the functional endpoints of the reactive stack, routed by the UserRouter.
+ * They answer with the same SuccessResponse bodies, status codes and ETags as the UserController,
+ * without blocking a thread while the database works.
+ * The listing of every user is streamed: each user is written as soon as it is read, and rows are only
+ * read as fast as the client takes them, so the response never holds the whole table in memory.
+ * It is only created when the application runs as a reactive web application.
+ * @author Ulises Rodríguez García.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class UserHandler {
+
+    private static final byte[] LISTING_TAIL = { ']', '}' };
+    private static final byte[] SEPARATOR = { ',' };
+
+    /**
+     * The ReactiveUserService used to perform user-related operations.
+     */
+    private final ReactiveUserService userService;
+
+    /**
+     * The ObjectMapper used to write users while streaming.
+     */
+    private final ObjectMapper objectMapper;
+
+    /**
+     * The Validator used to check the request bodies.
+     */
+    private final Validator validator;
+
+    /**
+     * The DataBufferFactory the streamed users are written to.
+     */
+    private final DataBufferFactory bufferFactory = DefaultDataBufferFactory.sharedInstance;
+
+    /**
+     * Constructs a new UserHandler with the specified ReactiveUserService, ObjectMapper and Validator.
+     * @param userService  the ReactiveUserService to be used for user-related operations
+     * @param objectMapper the ObjectMapper used to write users while streaming
+     * @param validator    the Validator used to check the request bodies
+     */
+    public UserHandler(ReactiveUserService userService, ObjectMapper objectMapper, Validator validator) {
+        this.userService = userService;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+    }
+
+    /**
+     * Streams every user ordered by ID.
+     * Users are written as newline-delimited JSON when the client accepts application/x-ndjson, otherwise
+     * in the usual SuccessResponse envelope, whose data array is written one user at a time.
+     * @param request the ServerRequest
+     * @return a Mono with the streaming response
+     */
+    public Mono<ServerResponse> getAllUsers(ServerRequest request) {
+        Flux<User> users = userService.getAllUsers();
+        if (request.headers().accept().contains(MediaType.APPLICATION_NDJSON))
+            return ServerResponse.ok().contentType(MediaType.APPLICATION_NDJSON).body(users, User.class);
+
+        return ServerResponse.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(BodyInserters.fromDataBuffers(listing(users)));
+    }
+
+    /**
+     * Retrieves a user by their ID.
+     * The response carries the ETag of the user, and a request whose If-None-Match header
+     * matches it is answered with 304 Not Modified and no body.
+     * @param request the ServerRequest carrying the ID of the user
+     * @return a Mono with the user response
+     */
+    public Mono<ServerResponse> getUserById(ServerRequest request) {
+        return id(request)
+            .flatMap(userService::getUserById)
+            .flatMap(user -> userResponse(request, user));
+    }
+
+    /**
+     * Retrieves a user by their email.
+     * The response carries the ETag of the user, and a request whose If-None-Match header
+     * matches it is answered with 304 Not Modified and no body.
+     * @param request the ServerRequest carrying the email of the user
+     * @return a Mono with the user response
+     */
+    public Mono<ServerResponse> getUserByEmail(ServerRequest request) {
+        return Mono.justOrEmpty(request.queryParam("email"))
+            .flatMap(userService::getUserByEmail)
+            .flatMap(user -> userResponse(request, user));
+    }
+
+    /**
+     * Creates a new user.
+     * @param request the ServerRequest carrying the user
+     * @return a Mono with the created user and the 201 status
+     */
+    public Mono<ServerResponse> createUser(ServerRequest request) {
+        return body(request, User.class)
+            .flatMap(userService::createUser)
+            .flatMap(user -> ServerResponse.status(HttpStatus.CREATED)
+                .bodyValue(new SuccessResponse<>(HttpStatus.CREATED, "User created successfully", user)));
+    }
+
+    /**
+     * Updates an existing user partially.
+     * When an If-Match header with the ETag of the user is sent, the update only applies if the user
+     * has not changed since, and 412 Precondition Failed is returned otherwise.
+     * The response carries the new ETag of the user.
+     * @param request the ServerRequest carrying the ID of the user and the UserDto
+     * @return a Mono with the updated user
+     */
+    public Mono<ServerResponse> patchUser(ServerRequest request) {
+        String ifMatch = request.headers().firstHeader(HttpHeaders.IF_MATCH);
+        return id(request)
+            .flatMap(id -> body(request, UserDto.class)
+                .flatMap(userDto -> userService.patchUser(id, userDto, UserETag.expectedVersion(ifMatch, id))))
+            .flatMap(user -> ServerResponse.ok()
+                .eTag(UserETag.of(user))
+                .bodyValue(new SuccessResponse<>(HttpStatus.OK, "User patched successfully", user)));
+    }
+
+    /**
+     * Deletes a user by their ID.
+     * @param request the ServerRequest carrying the ID of the user
+     * @return a Mono with the response
+     */
+    public Mono<ServerResponse> deleteUser(ServerRequest request) {
+        return id(request)
+            .flatMap(userService::deleteUser)
+            .then(ServerResponse.ok().bodyValue(new SuccessResponse<Void>(HttpStatus.OK, "User deleted successfully", null)));
+    }
+
+    /**
+     * Answers with a user and its ETag, or with 304 Not Modified if the client already has that version.
+     * @param request the ServerRequest
+     * @param user    the user
+     * @return a Mono with the response
+     */
+    private Mono<ServerResponse> userResponse(ServerRequest request, User user) {
+        String eTag = UserETag.of(user);
+        return request.checkNotModified(eTag)
+            .switchIfEmpty(Mono.defer(() -> ServerResponse.ok()
+                .eTag(eTag)
+                .bodyValue(new SuccessResponse<>(HttpStatus.OK, "User retrieved successfully", user))));
+    }
+
+    /**
+     * Reads the ID of the user from the path.
+     * @param request the ServerRequest
+     * @return a Mono with the ID
+     */
+    private Mono<Integer> id(ServerRequest request) {
+        String id = request.pathVariable("id");
+        try {
+            return Mono.just(Integer.valueOf(id));
+        } catch (NumberFormatException exception) {
+            return Mono.error(new CustomApiException(HttpStatus.BAD_REQUEST, "Invalid user id " + id));
+        }
+    }
+
+    /**
+     * Reads and validates the body of a request.
+     * @param request the ServerRequest
+     * @param type    the type of the body
+     * @return a Mono with the body
+     */
+    private <T> Mono<T> body(ServerRequest request, Class<T> type) {
+        return request.bodyToMono(type)
+            .onErrorMap(exception -> exception instanceof DecodingException || exception instanceof ServerWebInputException,
+                exception -> new CustomApiException(HttpStatus.BAD_REQUEST, "Malformed JSON request body"))
+            .switchIfEmpty(Mono.error(() -> new CustomApiException(HttpStatus.BAD_REQUEST, "Request body is missing")))
+            .flatMap(body -> {
+                Set<ConstraintViolation<T>> violations = validator.validate(body);
+                if (violations.isEmpty())
+                    return Mono.just(body);
+
+                String message = violations.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining(", "));
+                return Mono.error(new CustomApiException(HttpStatus.BAD_REQUEST, message));
+            });
+    }
+
+    /**
+     * Writes the users inside the SuccessResponse envelope.
+     * The envelope is serialized with an empty data array, and the users are streamed between its head and its tail.
+     * @param users the users
+     * @return the body, one buffer per user
+     */
+    private Flux<DataBuffer> listing(Flux<User> users) {
+        return Flux.defer(() -> {
+            byte[] envelope = write(new SuccessResponse<>(HttpStatus.OK, "Users retrieved successfully", List.of()));
+            byte[] head = Arrays.copyOf(envelope, envelope.length - LISTING_TAIL.length);
+            Flux<DataBuffer> body = users.index().map(user -> {
+                DataBuffer buffer = bufferFactory.allocateBuffer(128);
+                if (user.getT1() > 0)
+                    buffer.write(SEPARATOR);
+                try (OutputStream output = buffer.asOutputStream()) {
+                    objectMapper.writeValue(output, user.getT2());
+                } catch (IOException exception) {
+                    DataBufferUtils.release(buffer);
+                    throw new IllegalStateException(exception);
+                }
+                return buffer;
+            });
+            return Flux.concat(Mono.fromSupplier(() -> bufferFactory.wrap(head)), body,
+                Mono.fromSupplier(() -> bufferFactory.wrap(LISTING_TAIL)));
+        });
+    }
+
+    /**
+     * Serializes a value to JSON.
+     * @param value the value
+     * @return the JSON bytes
+     */
+    private byte[] write(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (IOException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.urdgz.docker_exam.controller;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.web.reactive.function.server.RequestPredicate;
+import org.springframework.web.reactive.function.server.RequestPredicates;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import com.urdgz.docker_exam.exception.CustomApiException;
+import com.urdgz.docker_exam.exception.ReactiveExceptionHandler;
+
+/**
+ * UserRouter maps the /users endpoints of the reactive stack to the UserHandler: listing, lookups by ID
+ * and email, creation, partial updates and deletion. The other endpoints of the UserController, such as
+ * pagination, search, batches, imports and exports, are only served by the blocking stack.
+ * Errors are answered by the ReactiveExceptionHandler in the ErrorResponse format.
+ * It is only loaded when the application runs as a reactive web application.
+ * @author Ulises Rodríguez García.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class UserRouter {
+
+    /**
+     * Creates the routes of the /users endpoints.
+     * @param userHandler      the UserHandler answering the requests
+     * @param exceptionHandler the ReactiveExceptionHandler answering the errors
+     * @return the RouterFunction of the /users endpoints
+     */
+    @Bean
+    public RouterFunction<ServerResponse> userRoutes(UserHandler userHandler, ReactiveExceptionHandler exceptionHandler) {
+        RequestPredicate byEmail = RequestPredicates.queryParam("email", email -> true);
+        RequestPredicate paginated = RequestPredicates.queryParam("limit", limit -> true);
+
+        return RouterFunctions.route()
+            .GET("/users", byEmail, userHandler::getUserByEmail)
+            .GET("/users", paginated.negate(), userHandler::getAllUsers)
+            .GET("/users/{id}", userHandler::getUserById)
+            .POST("/users", userHandler::createUser)
+            .PATCH("/users/{id}", userHandler::patchUser)
+            .DELETE("/users/{id}", userHandler::deleteUser)
+            .onError(CustomApiException.class, exceptionHandler::handleCustomApiException)
+            .onError(DataIntegrityViolationException.class, exceptionHandler::handleDataIntegrityViolation)
+            .onError(exception -> exception instanceof CannotCreateTransactionException
+                || exception instanceof DataAccessResourceFailureException, exceptionHandler::handleConnectionUnavailable)
+            .build();
+    }
+}
@@ -0,0 +1,61 @@
+package com.urdgz.docker_exam.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * PrimaryPin marks the current thread as pinned to the primary database,
+ * so that even read-only transactions started on it skip the replicas.
+ * It is used for reads that must see the latest committed writes, such as the reads
+ * of a client that has just written or the loads of the user cache.
+ * Pins can be nested, the thread stays pinned until the outermost one is released.
+ * @author Ulises Rodríguez García.
+ */
+public final class PrimaryPin implements AutoCloseable {
+
+    /**
+     * The number of nested pins held by the current thread.
+     */
+    private static final ThreadLocal<int[]> DEPTH = ThreadLocal.withInitial(() -> new int[1]);
+
+    private PrimaryPin() {
+    }
+
+    /**
+     * Pins the current thread to the primary database until the returned pin is closed.
+     * @return the pin, to be closed in a finally block or a try-with-resources statement
+     */
+    public static PrimaryPin pin() {
+        DEPTH.get()[0]++;
+        return new PrimaryPin();
+    }
+
+    /**
+     * Runs the given action pinned to the primary database.
+     * @param <T>    the type of the result
+     * @param action the action to be run
+     * @return the result of the action
+     */
+    public static <T> T call(Supplier<T> action) {
+        try (PrimaryPin pin = pin()) {
+            return action.get();
+        }
+    }
+
+    /**
+     * Checks whether the current thread is pinned to the primary database.
+     * @return true if the current thread is pinned
+     */
+    public static boolean isPinned() {
+        return DEPTH.get()[0] > 0;
+    }
+
+    /**
+     * Releases this pin.
+     */
+    @Override
+    public void close() {
+        int[] depth = DEPTH.get();
+        if (--depth[0] <= 0)
+            DEPTH.remove();
+    }
+}
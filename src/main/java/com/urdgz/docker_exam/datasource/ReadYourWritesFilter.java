@@ -0,0 +1,91 @@
+package com.urdgz.docker_exam.datasource;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseCookie;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * ReadYourWritesFilter pins a client to the primary database for a short window after it writes,
+ * so that its next reads see its own changes even while the replicas are catching up.
+ * Every write request sets a cookie holding the end of the window, and the requests
+ * carrying a cookie that has not expired yet are pinned to the primary.
+ * @author Ulises Rodríguez García.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    /**
+     * The name of the cookie holding the end of the window, in epoch milliseconds.
+     */
+    public static final String COOKIE_NAME = "primary-pin";
+
+    /**
+     * The time a client stays pinned to the primary after it writes.
+     */
+    private final Duration window;
+
+    /**
+     * Constructs a new ReadYourWritesFilter with the given window.
+     * @param window the time a client stays pinned to the primary after it writes
+     */
+    public ReadYourWritesFilter(Duration window) {
+        this.window = window;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        HttpMethod method = HttpMethod.valueOf(request.getMethod());
+        boolean write = method != HttpMethod.GET && method != HttpMethod.HEAD && method != HttpMethod.OPTIONS;
+        if (write) {
+            long until = System.currentTimeMillis() + window.toMillis();
+            ResponseCookie cookie = ResponseCookie.from(COOKIE_NAME, String.valueOf(until))
+                .path("/")
+                .maxAge(window)
+                .httpOnly(true)
+                .build();
+            response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+        }
+
+        if (!write && !isPinned(request)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        try (PrimaryPin pin = PrimaryPin.pin()) {
+            chain.doFilter(request, response);
+        }
+    }
+
+    /**
+     * Checks whether the request carries a pin cookie that has not expired yet.
+     * @param request the request
+     * @return true if the client is within its window
+     */
+    private boolean isPinned(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null)
+            return false;
+
+        for (Cookie cookie : cookies) {
+            if (!COOKIE_NAME.equals(cookie.getName()))
+                continue;
+
+            try {
+                return Long.parseLong(cookie.getValue()) > System.currentTimeMillis();
+            } catch (NumberFormatException exception) {
+                return false;
+            }
+        }
+        return false;
+    }
+}
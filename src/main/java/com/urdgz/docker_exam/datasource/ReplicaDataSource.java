@@ -0,0 +1,169 @@
+package com.urdgz.docker_exam.datasource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * ReplicaDataSource hands out connections to the MySQL replicas, picked round-robin among the healthy ones.
+ * Every replica is checked periodically and taken out of rotation while it cannot be reached;
+ * a replica failing to give a connection is taken out right away. The primary is used instead
+ * when no replica is healthy, or when the current thread is pinned to the primary.
+ * It is the read-only target of the routing DataSource, so only read-only transactions reach it.
+ * @author Ulises Rodríguez García.
+ */
+public class ReplicaDataSource extends AbstractDataSource implements AutoCloseable {
+
+    /**
+     * The primary database, used when no replica can serve the connection.
+     */
+    private final DataSource primary;
+
+    /**
+     * The replicas, in rotation order.
+     */
+    private final List<Replica> replicas;
+
+    /**
+     * The position of the next replica in the rotation.
+     */
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * The executor running the health checks.
+     */
+    private final ScheduledExecutorService healthChecker;
+
+    /**
+     * Constructs a new ReplicaDataSource and starts checking the health of its replicas.
+     * @param primary             the primary database, used when no replica can serve the connection
+     * @param replicas            the connection pools of the replicas
+     * @param healthCheckInterval the time between two health checks of every replica
+     * @param meterRegistry       the MeterRegistry the number of healthy replicas is published to
+     */
+    public ReplicaDataSource(DataSource primary, List<HikariDataSource> replicas, Duration healthCheckInterval,
+            MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicas = replicas.stream().map(Replica::new).toList();
+        this.healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.healthChecker.scheduleWithFixedDelay(this::checkHealth, 0, healthCheckInterval.toMillis(), TimeUnit.MILLISECONDS);
+        Gauge.builder("users.datasource.replicas.healthy", this, ReplicaDataSource::healthyReplicas)
+            .description("Number of replicas in the read rotation")
+            .register(meterRegistry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return route(DataSource::getConnection);
+    }
+
+    /**
+     * Gets a connection with the given credentials, picked like the other connections.
+     * Connection pools with fixed credentials, such as the Hikari pools of the replicas, refuse them
+     * without being taken out of rotation, and the connection is then asked to the primary.
+     * @param username the user of the connection
+     * @param password the password of the user
+     * @return the connection
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return route(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    /**
+     * Takes a connection from the next healthy replica, or from the primary when the thread is pinned to it
+     * or no replica can give one.
+     * @param connector the way the connection is taken from the chosen DataSource
+     * @return the connection
+     */
+    private Connection route(Connector connector) throws SQLException {
+        if (!PrimaryPin.isPinned()) {
+            int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+            for (int i = 0; i < replicas.size(); i++) {
+                Replica replica = replicas.get((start + i) % replicas.size());
+                if (!replica.healthy)
+                    continue;
+
+                try {
+                    return connector.connect(replica.dataSource);
+                } catch (SQLFeatureNotSupportedException exception) {
+                    break;
+                } catch (SQLException exception) {
+                    replica.healthy = false;
+                }
+            }
+        }
+        return connector.connect(primary);
+    }
+
+    /**
+     * Gets the number of replicas currently in the rotation.
+     * @return the number of healthy replicas
+     */
+    public int healthyReplicas() {
+        return (int) replicas.stream().filter(replica -> replica.healthy).count();
+    }
+
+    /**
+     * Checks whether every replica can give a valid connection, updating the rotation.
+     */
+    private void checkHealth() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection()) {
+                replica.healthy = connection.isValid(1);
+            } catch (SQLException | RuntimeException exception) {
+                replica.healthy = false;
+            }
+        }
+    }
+
+    /**
+     * Stops the health checks and closes the connection pools of the replicas.
+     */
+    @Override
+    public void close() {
+        healthChecker.shutdownNow();
+        replicas.forEach(replica -> replica.dataSource.close());
+    }
+
+    /**
+     * Connector takes a connection from a DataSource.
+     */
+    @FunctionalInterface
+    private interface Connector {
+
+        Connection connect(DataSource dataSource) throws SQLException;
+    }
+
+    /**
+     * Replica is the connection pool of a replica, together with its health.
+     */
+    private static final class Replica {
+
+        private final HikariDataSource dataSource;
+        private volatile boolean healthy;
+
+        private Replica(HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.urdgz.docker_exam.dto;
+
+import org.springframework.http.HttpStatus;
+
+import com.urdgz.docker_exam.model.User;
+
+/**
+ * BatchItemResult represents the outcome of a single entry of a batch operation.
+ * It contains the position of the entry in the request, the ID of the affected user,
+ * the HTTP status code and message of the outcome, and the resulting user if any.
+ * @author Ulises Rodríguez García.
+ */
+public class BatchItemResult {
+
+    /**
+     * The position of the entry in the batch request.
+     */
+    private final int index;
+
+    /**
+     * The ID of the affected user, or null when no user was affected.
+     */
+    private final Integer id;
+
+    /**
+     * The HTTP status code of the outcome.
+     */
+    private final Integer status;
+
+    /**
+     * A descriptive message of the outcome.
+     */
+    private final String message;
+
+    /**
+     * The resulting user, or null when there is none.
+     */
+    private final User data;
+
+    /**
+     * Constructs a new BatchItemResult with the given details.
+     * @param index   the position of the entry in the batch request
+     * @param id      the ID of the affected user, or null when no user was affected
+     * @param status  the HTTP status of the outcome
+     * @param message the descriptive message of the outcome
+     * @param data    the resulting user, or null when there is none
+     */
+    public BatchItemResult(int index, Integer id, HttpStatus status, String message, User data) {
+        this.index = index;
+        this.id = id;
+        this.status = status.value();
+        this.message = message;
+        this.data = data;
+    }
+
+    /**
+     * Gets the position of the entry in the batch request.
+     * @return the index
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Gets the ID of the affected user.
+     * @return the ID, or null when no user was affected
+     */
+    public Integer getId() {
+        return id;
+    }
+
+    /**
+     * Gets the HTTP status code of the outcome.
+     * @return the status code
+     */
+    public Integer getStatus() {
+        return status;
+    }
+
+    /**
+     * Gets the descriptive message of the outcome.
+     * @return the message
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Gets the resulting user.
+     * @return the user, or null when there is none
+     */
+    public User getData() {
+        return data;
+    }
+}
@@ -0,0 +1,48 @@
+package com.urdgz.docker_exam.dto;
+
+import java.util.List;
+
+/**
+ * CursorPage represents a single page of a keyset-paginated listing.
+ * It contains the items of the page and an opaque cursor that points to the next page.
+ * @param <T> the type of the items contained in the page
+ * @author Ulises Rodríguez García.
+ */
+public class CursorPage<T> {
+
+    /**
+     * The items contained in the page.
+     */
+    private final List<T> items;
+
+    /**
+     * The opaque cursor of the next page, or null when this is the last page.
+     */
+    private final String nextCursor;
+
+    /**
+     * Constructs a new CursorPage with the specified items and next cursor.
+     * @param items      the items contained in the page
+     * @param nextCursor the opaque cursor of the next page, or null when this is the last page
+     */
+    public CursorPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Gets the items contained in the page.
+     * @return the items
+     */
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * Gets the opaque cursor of the next page.
+     * @return the next cursor, or null when this is the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,135 @@
+package com.urdgz.docker_exam.dto;
+
+import java.util.List;
+
+/**
+ * ImportReport represents the outcome of a bulk import of users.
+ * It contains the number of accepted and rejected rows, and the reason each row was rejected,
+ * up to a maximum number of reasons.
+ * @author Ulises Rodríguez García.
+ */
+public class ImportReport {
+
+    /**
+     * The number of rows that created a user.
+     */
+    private final long accepted;
+
+    /**
+     * The number of rows that were rejected.
+     */
+    private final long rejected;
+
+    /**
+     * The reasons the first rejected rows were rejected.
+     */
+    private final List<RejectedRow> rejections;
+
+    /**
+     * Whether more rows were rejected than the ones listed.
+     */
+    private final boolean rejectionsTruncated;
+
+    /**
+     * Constructs a new ImportReport with the given counts and rejections.
+     * @param accepted            the number of rows that created a user
+     * @param rejected            the number of rows that were rejected
+     * @param rejections          the reasons the first rejected rows were rejected
+     * @param rejectionsTruncated whether more rows were rejected than the ones listed
+     */
+    public ImportReport(long accepted, long rejected, List<RejectedRow> rejections, boolean rejectionsTruncated) {
+        this.accepted = accepted;
+        this.rejected = rejected;
+        this.rejections = rejections;
+        this.rejectionsTruncated = rejectionsTruncated;
+    }
+
+    /**
+     * Gets the number of rows that created a user.
+     * @return the accepted count
+     */
+    public long getAccepted() {
+        return accepted;
+    }
+
+    /**
+     * Gets the number of rows that were rejected.
+     * @return the rejected count
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * Gets the reasons the first rejected rows were rejected.
+     * @return the rejections
+     */
+    public List<RejectedRow> getRejections() {
+        return rejections;
+    }
+
+    /**
+     * Checks whether more rows were rejected than the ones listed.
+     * @return true if the list of rejections is incomplete
+     */
+    public boolean isRejectionsTruncated() {
+        return rejectionsTruncated;
+    }
+
+    /**
+     * RejectedRow represents a row of an import that did not create a user.
+     */
+    public static class RejectedRow {
+
+        /**
+         * The line of the input where the row starts.
+         */
+        private final int line;
+
+        /**
+         * The HTTP status code describing the rejection.
+         */
+        private final int status;
+
+        /**
+         * The reason the row was rejected.
+         */
+        private final String message;
+
+        /**
+         * Constructs a new RejectedRow with the given details.
+         * @param line    the line of the input where the row starts
+         * @param status  the HTTP status code describing the rejection
+         * @param message the reason the row was rejected
+         */
+        public RejectedRow(int line, int status, String message) {
+            this.line = line;
+            this.status = status;
+            this.message = message;
+        }
+
+        /**
+         * Gets the line of the input where the row starts.
+         * @return the line number, starting at 1
+         */
+        public int getLine() {
+            return line;
+        }
+
+        /**
+         * Gets the HTTP status code describing the rejection.
+         * @return the status
+         */
+        public int getStatus() {
+            return status;
+        }
+
+        /**
+         * Gets the reason the row was rejected.
+         * @return the message
+         */
+        public String getMessage() {
+            return message;
+        }
+    }
+}
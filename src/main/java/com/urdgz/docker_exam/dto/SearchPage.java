@@ -0,0 +1,48 @@
+package com.urdgz.docker_exam.dto;
+
+import java.util.List;
+
+/**
+ * SearchPage represents a single page of ranked search results.
+ * It contains the items of the page and the offset of the next page.
+ * @param <T> the type of the items contained in the page
+ * @author Ulises Rodríguez García.
+ */
+public class SearchPage<T> {
+
+    /**
+     * The items contained in the page, best matches first.
+     */
+    private final List<T> items;
+
+    /**
+     * The offset of the next page, or null when this is the last page.
+     */
+    private final Integer nextOffset;
+
+    /**
+     * Constructs a new SearchPage with the specified items and next offset.
+     * @param items      the items contained in the page, best matches first
+     * @param nextOffset the offset of the next page, or null when this is the last page
+     */
+    public SearchPage(List<T> items, Integer nextOffset) {
+        this.items = items;
+        this.nextOffset = nextOffset;
+    }
+
+    /**
+     * Gets the items contained in the page.
+     * @return the items
+     */
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * Gets the offset of the next page.
+     * @return the next offset, or null when this is the last page
+     */
+    public Integer getNextOffset() {
+        return nextOffset;
+    }
+}
@@ -0,0 +1,123 @@
+package com.urdgz.docker_exam.dto;
+
+import org.springframework.http.HttpStatus;
+
+import com.urdgz.docker_exam.model.User;
+
+/**
+ * UserCreateStatus represents the progress of an asynchronous user creation.
+ * It contains the idempotency key of the request, whether the creation is still pending,
+ * and once it is done, the HTTP status code and message of the outcome and the created user if any.
+ * @author Ulises Rodríguez García.
+ */
+public class UserCreateStatus {
+
+    /**
+     * State represents whether an asynchronous creation is still queued or already done.
+     */
+    public enum State {
+        PENDING, DONE
+    }
+
+    /**
+     * The idempotency key of the request.
+     */
+    private final String key;
+
+    /**
+     * Whether the creation is still pending or already done.
+     */
+    private final State state;
+
+    /**
+     * The HTTP status code of the outcome, or null while pending.
+     */
+    private final Integer status;
+
+    /**
+     * A descriptive message of the outcome.
+     */
+    private final String message;
+
+    /**
+     * The created user, or null when there is none.
+     */
+    private final User data;
+
+    /**
+     * Constructs a new UserCreateStatus with the given details.
+     * @param key     the idempotency key of the request
+     * @param state   whether the creation is still pending or already done
+     * @param status  the HTTP status of the outcome, or null while pending
+     * @param message the descriptive message of the outcome
+     * @param data    the created user, or null when there is none
+     */
+    private UserCreateStatus(String key, State state, HttpStatus status, String message, User data) {
+        this.key = key;
+        this.state = state;
+        this.status = status == null ? null : status.value();
+        this.message = message;
+        this.data = data;
+    }
+
+    /**
+     * Creates the status of a creation that is waiting in the queue.
+     * @param key the idempotency key of the request
+     * @return the pending status
+     */
+    public static UserCreateStatus pending(String key) {
+        return new UserCreateStatus(key, State.PENDING, null, "User creation queued", null);
+    }
+
+    /**
+     * Creates the status of a creation that has been processed.
+     * @param key     the idempotency key of the request
+     * @param status  the HTTP status of the outcome
+     * @param message the descriptive message of the outcome
+     * @param data    the created user, or null when there is none
+     * @return the done status
+     */
+    public static UserCreateStatus done(String key, HttpStatus status, String message, User data) {
+        return new UserCreateStatus(key, State.DONE, status, message, data);
+    }
+
+    /**
+     * Gets the idempotency key of the request.
+     * @return the key
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Gets whether the creation is still pending or already done.
+     * @return the state
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Gets the HTTP status code of the outcome.
+     * @return the status, or null while pending
+     */
+    public Integer getStatus() {
+        return status;
+    }
+
+    /**
+     * Gets the descriptive message of the outcome.
+     * @return the message
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Gets the created user.
+     * @return the user, or null when there is none
+     */
+    public User getData() {
+        return data;
+    }
+}
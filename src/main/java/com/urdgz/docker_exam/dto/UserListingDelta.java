@@ -0,0 +1,64 @@
+package com.urdgz.docker_exam.dto;
+
+import java.util.List;
+
+import com.urdgz.docker_exam.model.User;
+
+/**
+ * UserListingDelta represents the changes made to the user listing since a version the client already has:
+ * the users created or updated since, and the IDs of the users deleted since.
+ * @author Ulises Rodríguez García.
+ */
+public class UserListingDelta {
+
+    /**
+     * The token of the version the changes lead to, to be sent back to get the next changes.
+     */
+    private final String version;
+
+    /**
+     * The users created or updated since the requested version, in ID order.
+     */
+    private final List<User> users;
+
+    /**
+     * The IDs of the users deleted since the requested version, in ascending order.
+     */
+    private final List<Integer> deletedIds;
+
+    /**
+     * Constructs a new UserListingDelta with the specified version and changes.
+     * @param version    the token of the version the changes lead to
+     * @param users      the users created or updated since the requested version
+     * @param deletedIds the IDs of the users deleted since the requested version
+     */
+    public UserListingDelta(String version, List<User> users, List<Integer> deletedIds) {
+        this.version = version;
+        this.users = users;
+        this.deletedIds = deletedIds;
+    }
+
+    /**
+     * Gets the token of the version the changes lead to.
+     * @return the version token
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets the users created or updated since the requested version.
+     * @return the users
+     */
+    public List<User> getUsers() {
+        return users;
+    }
+
+    /**
+     * Gets the IDs of the users deleted since the requested version.
+     * @return the deleted IDs
+     */
+    public List<Integer> getDeletedIds() {
+        return deletedIds;
+    }
+}
@@ -0,0 +1,111 @@
+package com.urdgz.docker_exam.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.http.HttpStatus;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+import com.urdgz.docker_exam.cache.UserListing;
+import com.urdgz.docker_exam.model.User;
+
+/**
+ * UserListingResponse is the response listing every user from a version of the in-memory listing.
+ * In JSON it is written from the pre-serialized segments of the listing, with the same envelope as a
+ * SuccessResponse, and compressed with gzip when requested. Other formats write it as a SuccessResponse.
+ * @author Ulises Rodríguez García.
+ */
+public class UserListingResponse {
+
+    /**
+     * The timestamp when the response is created.
+     */
+    private final LocalDateTime timestamp;
+
+    /**
+     * The HTTP status code of the response.
+     */
+    private final Integer status;
+
+    /**
+     * A descriptive message of the response.
+     */
+    private final String message;
+
+    /**
+     * The version of the listing written in the response.
+     */
+    private final UserListing listing;
+
+    /**
+     * Whether the JSON body is written compressed with gzip.
+     */
+    private final boolean gzip;
+
+    /**
+     * Constructs a new UserListingResponse with the specified status, message and listing.
+     * The timestamp is set to the current date and time.
+     * @param status  the HTTP status of the response
+     * @param message the descriptive message of the response
+     * @param listing the version of the listing written in the response
+     * @param gzip    whether the JSON body is written compressed with gzip
+     */
+    public UserListingResponse(HttpStatus status, String message, UserListing listing, boolean gzip) {
+        this.timestamp = LocalDateTime.now();
+        this.status = status.value();
+        this.message = message;
+        this.listing = listing;
+        this.gzip = gzip;
+    }
+
+    /**
+     * Gets the timestamp when the response is created.
+     * @return the timestamp
+     */
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Gets the HTTP status code of the response.
+     * @return the status code
+     */
+    public Integer getStatus() {
+        return status;
+    }
+
+    /**
+     * Gets the descriptive message of the response.
+     * @return the message
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Gets the version of the listing written in the response.
+     * @return the listing
+     */
+    public UserListing getListing() {
+        return listing;
+    }
+
+    /**
+     * Tells whether the JSON body is written compressed with gzip.
+     * @return true if the body is compressed
+     */
+    public boolean isGzip() {
+        return gzip;
+    }
+
+    /**
+     * Builds the SuccessResponse written in the formats other than JSON.
+     * @return the SuccessResponse with every user of the listing
+     */
+    @JsonValue
+    public SuccessResponse<List<User>> toSuccessResponse() {
+        SuccessResponse<List<User>> response = new SuccessResponse<>(HttpStatus.valueOf(status), message, listing.getUsers());
+        response.setTimestamp(timestamp);
+        return response;
+    }
+}
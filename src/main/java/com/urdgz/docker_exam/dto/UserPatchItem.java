@@ -0,0 +1,30 @@
+package com.urdgz.docker_exam.dto;
+
+/**
+ * UserPatchItem is a Data Transfer Object for one entry of a batch patch.
+ * It contains the ID of the user to be updated along with the user's name and email.
+ * @author Ulises Rodríguez García.
+ */
+public class UserPatchItem extends UserDto {
+
+    /**
+     * The ID of the user to be updated.
+     */
+    private Integer id;
+
+    /**
+     * Gets the ID of the user to be updated.
+     * @return the ID of the user
+     */
+    public Integer getId() {
+        return id;
+    }
+
+    /**
+     * Sets the ID of the user to be updated.
+     * @param id the ID to set
+     */
+    public void setId(Integer id) {
+        this.id = id;
+    }
+}
@@ -0,0 +1,149 @@
+package com.urdgz.docker_exam.event;
+
+import com.urdgz.docker_exam.model.User;
+
+/**
+ * UserChangeEvent is published by the service layer every time a user is created, updated or deleted.
+ * Listeners use it to keep derived state, such as caches, in step with the Users table.
+ * @author Ulises Rodríguez García.
+ */
+public class UserChangeEvent {
+
+    /**
+     * The kinds of change that can happen to a user.
+     */
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    /**
+     * The kind of change.
+     */
+    private final Type type;
+
+    /**
+     * The ID of the changed user.
+     */
+    private final Integer id;
+
+    /**
+     * A copy of the user after the change, or null when the user was deleted.
+     */
+    private final User user;
+
+    /**
+     * The email of the user before the change, or null when it is unknown or the user was created.
+     */
+    private final String previousEmail;
+
+    /**
+     * Whether the change was already written to the change log by the transaction that made it.
+     */
+    private final boolean recorded;
+
+    /**
+     * Constructs a new UserChangeEvent with the given details.
+     * @param type          the kind of change
+     * @param id            the ID of the changed user
+     * @param user          the user after the change, or null when the user was deleted
+     * @param previousEmail the email of the user before the change, or null when it is unknown
+     */
+    public UserChangeEvent(Type type, Integer id, User user, String previousEmail) {
+        this(type, id, user, previousEmail, false);
+    }
+
+    /**
+     * Constructs a new UserChangeEvent with the given details.
+     * @param type          the kind of change
+     * @param id            the ID of the changed user
+     * @param user          the user after the change, or null when the user was deleted
+     * @param previousEmail the email of the user before the change, or null when it is unknown
+     * @param recorded      whether the change is already in the change log
+     */
+    private UserChangeEvent(Type type, Integer id, User user, String previousEmail, boolean recorded) {
+        this.type = type;
+        this.id = id;
+        this.user = user == null ? null : user.copy();
+        this.previousEmail = previousEmail;
+        this.recorded = recorded;
+    }
+
+    /**
+     * Creates an event for a created user.
+     * @param user the created user
+     * @return the UserChangeEvent
+     */
+    public static UserChangeEvent created(User user) {
+        return new UserChangeEvent(Type.CREATED, user.getId(), user, null);
+    }
+
+    /**
+     * Creates an event for an updated user.
+     * @param user          the user after the update
+     * @param previousEmail the email of the user before the update
+     * @return the UserChangeEvent
+     */
+    public static UserChangeEvent updated(User user, String previousEmail) {
+        return new UserChangeEvent(Type.UPDATED, user.getId(), user, previousEmail);
+    }
+
+    /**
+     * Creates an event for a deleted user.
+     * @param id the ID of the deleted user
+     * @return the UserChangeEvent
+     */
+    public static UserChangeEvent deleted(Integer id) {
+        return new UserChangeEvent(Type.DELETED, id, null, null);
+    }
+
+    /**
+     * Gets the kind of change.
+     * @return the type
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Gets the ID of the changed user.
+     * @return the ID
+     */
+    public Integer getId() {
+        return id;
+    }
+
+    /**
+     * Gets a copy of the user after the change.
+     * @return the user, or null when the user was deleted
+     */
+    public User getUser() {
+        return user;
+    }
+
+    /**
+     * Gets the email of the user before the change.
+     * @return the previous email, or null when it is unknown or the user was created
+     */
+    public String getPreviousEmail() {
+        return previousEmail;
+    }
+
+    /**
+     * Checks whether the change was already written to the change log by the transaction that made it,
+     * as the reactive stack does, so the outbox must not append it again.
+     * @return true if the change is already in the change log
+     */
+    public boolean isRecorded() {
+        return recorded;
+    }
+
+    /**
+     * Creates a copy of this event marked as already written to the change log.
+     * @return the recorded UserChangeEvent
+     */
+    public UserChangeEvent recorded() {
+        return new UserChangeEvent(type, id, user, previousEmail, true);
+    }
+}
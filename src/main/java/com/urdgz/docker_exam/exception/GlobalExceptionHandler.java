@@ -1,6 +1,12 @@
 package com.urdgz.docker_exam.exception;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.ServletWebRequest;
@@ -9,17 +15,36 @@ import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExcep
 
 import com.urdgz.docker_exam.dto.ErrorResponse;
 
+import io.micrometer.core.instrument.MeterRegistry;
+
 /**
  * GlobalExceptionHandler is a controller advice class that handles exceptions globally
  * across the whole application. It extends ResponseEntityExceptionHandler to provide
  * custom exception handling for specific exception types.
+ * Every handled error is counted, tagged by its HTTP status.
+ * It is only created when the application runs as a servlet web application.
  * @author Ulises Rodríguez García.
  */
 @ControllerAdvice
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
 
+    /**
+     * The MeterRegistry the error counters are recorded in.
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Constructs a new GlobalExceptionHandler with the specified MeterRegistry.
+     * @param meterRegistry the MeterRegistry the error counters are recorded in
+     */
+    public GlobalExceptionHandler(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
     /**
      * Handles CustomApiException and constructs a detailed error response.
+     * A 429 response also tells the client when to retry, which is computed by the rate limiter for throttled clients.
      * @param exception the CustomApiException thrown
      * @param request   the WebRequest that resulted in the exception
      * @return a ResponseEntity containing the error response and the appropriate HTTP status code
@@ -28,7 +53,61 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
     protected ResponseEntity<ErrorResponse> handleCustomApiException(CustomApiException exception, WebRequest request) {
         String path = ((ServletWebRequest) request).getRequest().getRequestURI();
         ErrorResponse errorResponse = new ErrorResponse(exception.getStatus(), exception.getMessage(), path);
+        countError(exception.getStatus(), exception);
+
+        if (exception instanceof RateLimitExceededException rateLimitExceeded)
+            return ResponseEntity.status(exception.getStatus())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(rateLimitExceeded.getRetryAfterSeconds()))
+                .body(errorResponse);
+
+        if (exception.getStatus() == HttpStatus.TOO_MANY_REQUESTS)
+            return ResponseEntity.status(exception.getStatus()).header(HttpHeaders.RETRY_AFTER, "1").body(errorResponse);
 
         return new ResponseEntity<>(errorResponse, exception.getStatus());
     }
+
+    /**
+     * Handles the failures to obtain a database connection, such as the connection pool
+     * timing out while every connection is in use, and turns them into a fast 503 response.
+     * @param exception the exception thrown while obtaining the connection
+     * @param request   the WebRequest that resulted in the exception
+     * @return a ResponseEntity containing the error response, a Retry-After header and the 503 status code
+     */
+    @ExceptionHandler({ CannotCreateTransactionException.class, DataAccessResourceFailureException.class })
+    protected ResponseEntity<ErrorResponse> handleConnectionUnavailable(Exception exception, WebRequest request) {
+        String path = ((ServletWebRequest) request).getRequest().getRequestURI();
+        HttpStatus status = HttpStatus.SERVICE_UNAVAILABLE;
+        ErrorResponse errorResponse = new ErrorResponse(status, "The database is busy, please retry later", path);
+        countError(status, exception);
+
+        return ResponseEntity.status(status).header(HttpHeaders.RETRY_AFTER, "1").body(errorResponse);
+    }
+
+    /**
+     * Handles the writes rejected by a constraint of the database other than the unique email, which the service
+     * already turns into a conflict, such as a value too long for its column, and turns them into a 400 response.
+     * @param exception the DataIntegrityViolationException thrown
+     * @param request   the WebRequest that resulted in the exception
+     * @return a ResponseEntity containing the error response and the 400 status code
+     */
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    protected ResponseEntity<ErrorResponse> handleDataIntegrityViolation(DataIntegrityViolationException exception, WebRequest request) {
+        String path = ((ServletWebRequest) request).getRequest().getRequestURI();
+        HttpStatus status = HttpStatus.BAD_REQUEST;
+        ErrorResponse errorResponse = new ErrorResponse(status, "The user data violates a constraint of the database", path);
+        countError(status, exception);
+
+        return new ResponseEntity<>(errorResponse, status);
+    }
+
+    /**
+     * Counts a handled error.
+     * @param status    the HTTP status returned for the error
+     * @param exception the exception that caused the error
+     */
+    private void countError(HttpStatus status, Exception exception) {
+        meterRegistry.counter("users.errors",
+            "status", String.valueOf(status.value()),
+            "exception", exception.getClass().getSimpleName()).increment();
+    }
 }
@@ -0,0 +1,33 @@
+package com.urdgz.docker_exam.exception;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * RateLimitExceededException is thrown when a client sends requests faster than its rate limit allows.
+ * It is answered with 429 Too Many Requests and tells the client how long to wait before retrying.
+ * @author Ulises Rodríguez García.
+ */
+public class RateLimitExceededException extends CustomApiException {
+
+    /**
+     * The number of seconds the client should wait before retrying.
+     */
+    private final long retryAfterSeconds;
+
+    /**
+     * Constructs a new RateLimitExceededException with the time the client should wait.
+     * @param retryAfterSeconds the number of seconds the client should wait before retrying
+     */
+    public RateLimitExceededException(long retryAfterSeconds) {
+        super(HttpStatus.TOO_MANY_REQUESTS, "Rate limit exceeded, please retry later");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * Returns the number of seconds the client should wait before retrying.
+     * @return the number of seconds to wait
+     */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,96 @@
+package com.urdgz.docker_exam.exception;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import com.urdgz.docker_exam.dto.ErrorResponse;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+/**
+ * ReactiveExceptionHandler turns the errors of the reactive routes into the same ErrorResponse bodies,
+ * status codes and headers the GlobalExceptionHandler sends for the blocking controllers.
+ * Every handled error is counted, tagged by its HTTP status.
+ * It is only created when the application runs as a reactive web application.
+ * @author Ulises Rodríguez García.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveExceptionHandler {
+
+    /**
+     * The MeterRegistry the error counters are recorded in.
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Constructs a new ReactiveExceptionHandler with the specified MeterRegistry.
+     * @param meterRegistry the MeterRegistry the error counters are recorded in
+     */
+    public ReactiveExceptionHandler(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Handles CustomApiException and constructs a detailed error response.
+     * @param throwable the CustomApiException thrown
+     * @param request   the ServerRequest that resulted in the exception
+     * @return a Mono with the error response and the appropriate HTTP status code
+     */
+    public Mono<ServerResponse> handleCustomApiException(Throwable throwable, ServerRequest request) {
+        CustomApiException exception = (CustomApiException) throwable;
+        ErrorResponse errorResponse = new ErrorResponse(exception.getStatus(), exception.getMessage(), request.path());
+        countError(exception.getStatus(), exception);
+
+        ServerResponse.BodyBuilder response = ServerResponse.status(exception.getStatus());
+        if (exception.getStatus() == HttpStatus.TOO_MANY_REQUESTS)
+            response.header(HttpHeaders.RETRY_AFTER, "1");
+        return response.bodyValue(errorResponse);
+    }
+
+    /**
+     * Handles the failures to obtain a database connection, such as the connection pool
+     * timing out while every connection is in use, and turns them into a fast 503 response.
+     * @param throwable the exception thrown while obtaining the connection
+     * @param request   the ServerRequest that resulted in the exception
+     * @return a Mono with the error response, a Retry-After header and the 503 status code
+     */
+    public Mono<ServerResponse> handleConnectionUnavailable(Throwable throwable, ServerRequest request) {
+        HttpStatus status = HttpStatus.SERVICE_UNAVAILABLE;
+        ErrorResponse errorResponse = new ErrorResponse(status, "The database is busy, please retry later", request.path());
+        countError(status, throwable);
+
+        return ServerResponse.status(status).header(HttpHeaders.RETRY_AFTER, "1").bodyValue(errorResponse);
+    }
+
+    /**
+     * Handles the writes rejected by a constraint of the database other than the unique email, which the service
+     * already turns into a conflict, such as a value too long for its column, and turns them into a 400 response.
+     * @param throwable the DataIntegrityViolationException thrown
+     * @param request   the ServerRequest that resulted in the exception
+     * @return a Mono with the error response and the 400 status code
+     */
+    public Mono<ServerResponse> handleDataIntegrityViolation(Throwable throwable, ServerRequest request) {
+        HttpStatus status = HttpStatus.BAD_REQUEST;
+        ErrorResponse errorResponse = new ErrorResponse(status, "The user data violates a constraint of the database", request.path());
+        countError(status, throwable);
+
+        return ServerResponse.status(status).bodyValue(errorResponse);
+    }
+
+    /**
+     * Counts a handled error.
+     * @param status    the HTTP status returned for the error
+     * @param throwable the exception that caused the error
+     */
+    private void countError(HttpStatus status, Throwable throwable) {
+        meterRegistry.counter("users.errors",
+            "status", String.valueOf(status.value()),
+            "exception", throwable.getClass().getSimpleName()).increment();
+    }
+}
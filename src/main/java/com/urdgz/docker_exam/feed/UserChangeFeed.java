@@ -0,0 +1,257 @@
+package com.urdgz.docker_exam.feed;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.urdgz.docker_exam.exception.CustomApiException;
+import com.urdgz.docker_exam.model.UserChange;
+import com.urdgz.docker_exam.repository.UserChangeRepository;
+
+/**
+ * UserChangeFeed serves the change log of users to downstream consumers,
+ * either as pages read by sequence number or as a live Server-Sent Events stream.
+ * A single background thread pushes the changes to every stream: it is woken up whenever changes
+ * are committed, reads them from the change log once for all subscribers, and sends a heartbeat
+ * comment when there is nothing new, so closed connections are noticed.
+ * @author Ulises Rodríguez García.
+ */
+@Component
+public class UserChangeFeed implements SmartLifecycle {
+
+    /**
+     * The UserChangeRepository used to read the change log.
+     */
+    private final UserChangeRepository userChangeRepository;
+
+    /**
+     * The maximum number of changes that can be requested in a single page.
+     */
+    private final int maxPageSize;
+
+    /**
+     * The maximum number of live streams open at the same time.
+     */
+    private final int maxSubscribers;
+
+    /**
+     * The time after which a heartbeat is sent when there are no changes.
+     */
+    private final Duration heartbeat;
+
+    /**
+     * The live streams.
+     */
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    /**
+     * Released every time changes are committed, to wake up the dispatcher.
+     */
+    private final Semaphore signal = new Semaphore(0);
+
+    /**
+     * The thread pushing the changes to the live streams, or null when stopped.
+     */
+    private volatile Thread dispatcher;
+
+    /**
+     * Whether the live streams are being served.
+     */
+    private volatile boolean running;
+
+    /**
+     * Constructs a new UserChangeFeed with the specified UserChangeRepository and settings.
+     * @param userChangeRepository the UserChangeRepository used to read the change log
+     * @param maxPageSize          the maximum number of changes that can be requested in a single page
+     * @param maxSubscribers       the maximum number of live streams open at the same time
+     * @param heartbeat            the time after which a heartbeat is sent when there are no changes
+     */
+    public UserChangeFeed(UserChangeRepository userChangeRepository,
+            @Value("${users.page.max-size:1000}") int maxPageSize,
+            @Value("${users.changes.max-subscribers:100}") int maxSubscribers,
+            @Value("${users.changes.heartbeat:15s}") Duration heartbeat) {
+        this.userChangeRepository = userChangeRepository;
+        this.maxPageSize = maxPageSize;
+        this.maxSubscribers = maxSubscribers;
+        this.heartbeat = heartbeat;
+    }
+
+    /**
+     * Retrieves the changes recorded after the given sequence number, in sequence order.
+     * @param since the sequence number after which the changes are retrieved, 0 for the first change
+     * @param limit the maximum number of changes to retrieve
+     * @return a list of UserChange objects ordered by sequence number
+     */
+    public List<UserChange> getChanges(long since, int limit) {
+        if (since < 0)
+            throw new CustomApiException(HttpStatus.BAD_REQUEST, "Since must not be negative");
+
+        if (limit < 1 || limit > maxPageSize)
+            throw new CustomApiException(HttpStatus.BAD_REQUEST, "Limit must be between 1 and " + maxPageSize);
+
+        return userChangeRepository.findBySeqGreaterThanOrderBySeqAsc(since, Limit.of(limit));
+    }
+
+    /**
+     * Opens a live stream of the changes recorded after the given sequence number.
+     * The changes already recorded are sent first, then every new change as soon as it is committed.
+     * Each event carries the sequence number as its ID and the kind of change as its name.
+     * @param since the sequence number after which the changes are sent, 0 for the first change
+     * @return the SseEmitter of the stream
+     */
+    public SseEmitter subscribe(long since) {
+        if (since < 0)
+            throw new CustomApiException(HttpStatus.BAD_REQUEST, "Since must not be negative");
+
+        if (!running || subscribers.size() >= maxSubscribers)
+            throw new CustomApiException(HttpStatus.SERVICE_UNAVAILABLE, "Too many change streams open, please retry later");
+
+        SseEmitter emitter = new SseEmitter();
+        Subscriber subscriber = new Subscriber(emitter, since);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(error -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        signal.release();
+        return emitter;
+    }
+
+    /**
+     * Wakes up the dispatcher after changes were committed.
+     */
+    void changesCommitted() {
+        signal.release();
+    }
+
+    /**
+     * Pushes changes to the live streams until the feed is stopped.
+     */
+    private void dispatch() {
+        while (running) {
+            try {
+                boolean signaled = signal.tryAcquire(heartbeat.toMillis(), TimeUnit.MILLISECONDS);
+                signal.drainPermits();
+                if (subscribers.isEmpty())
+                    continue;
+
+                if (!pushChanges() && !signaled) {
+                    Set<ResponseBodyEmitter.DataWithMediaType> comment = SseEmitter.event().comment("heartbeat").build();
+                    subscribers.forEach(subscriber -> subscriber.send(comment));
+                }
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException exception) {
+                // The change log could not be read, the next signal or heartbeat tries again
+            }
+        }
+    }
+
+    /**
+     * Reads the changes not yet sent to some stream and sends each one to the streams missing it.
+     * @return true if any change was sent
+     */
+    private boolean pushChanges() {
+        long from = subscribers.stream().mapToLong(subscriber -> subscriber.lastSeq).min().orElse(Long.MAX_VALUE);
+        boolean sent = false;
+        while (true) {
+            List<UserChange> changes = userChangeRepository.findBySeqGreaterThanOrderBySeqAsc(from, Limit.of(maxPageSize));
+            for (UserChange change : changes) {
+                Set<ResponseBodyEmitter.DataWithMediaType> event = SseEmitter.event()
+                    .id(String.valueOf(change.getSeq()))
+                    .name(change.getType().name().toLowerCase(Locale.ROOT))
+                    .data(change, MediaType.APPLICATION_JSON)
+                    .build();
+                for (Subscriber subscriber : subscribers)
+                    if (subscriber.lastSeq < change.getSeq() && subscriber.send(event))
+                        subscriber.lastSeq = change.getSeq();
+                sent = true;
+            }
+
+            if (changes.size() < maxPageSize)
+                return sent;
+            from = changes.get(changes.size() - 1).getSeq();
+        }
+    }
+
+    /**
+     * Starts the thread pushing the changes to the live streams.
+     */
+    @Override
+    public void start() {
+        running = true;
+        Thread thread = new Thread(this::dispatch, "user-change-feed");
+        thread.setDaemon(true);
+        thread.start();
+        dispatcher = thread;
+    }
+
+    /**
+     * Stops the dispatcher and closes every live stream.
+     */
+    @Override
+    public void stop() {
+        running = false;
+        Thread thread = dispatcher;
+        dispatcher = null;
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join();
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        subscribers.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Subscriber is a live stream, together with the sequence number of the last change sent to it.
+     */
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private volatile long lastSeq;
+
+        private Subscriber(SseEmitter emitter, long lastSeq) {
+            this.emitter = emitter;
+            this.lastSeq = lastSeq;
+        }
+
+        /**
+         * Sends an event, already built, closing the stream when it cannot be written.
+         * @param event the event to be sent
+         * @return true if the event was sent
+         */
+        private boolean send(Set<ResponseBodyEmitter.DataWithMediaType> event) {
+            try {
+                emitter.send(event);
+                return true;
+            } catch (IOException | IllegalStateException exception) {
+                subscribers.remove(this);
+                emitter.completeWithError(exception);
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.urdgz.docker_exam.feed;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.urdgz.docker_exam.event.UserChangeEvent;
+import com.urdgz.docker_exam.repository.UserChangeJdbcRepository;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * UserChangeOutbox appends every change made to a user to the User_Changes table,
+ * in the same transaction as the change itself (a transactional outbox).
+ * The changes of a transaction are collected as they are published and written with a single
+ * JDBC batch right before the commit. The batch locks the User_Change_Sequence row until the commit,
+ * so appends and commits are serialized by the database, across instances and together with the reactive stack,
+ * and a reader never skips a change committed later with a lower number.
+ * @author Ulises Rodríguez García.
+ */
+@Component
+public class UserChangeOutbox {
+
+    /**
+     * The UserChangeJdbcRepository used to append the changes.
+     */
+    private final UserChangeJdbcRepository userChangeJdbcRepository;
+
+    /**
+     * The EntityManager flushed before the sequence row is locked, so no other row lock is awaited while holding it.
+     */
+    private final EntityManager entityManager;
+
+    /**
+     * The UserChangeFeed notified once changes are committed.
+     */
+    private final UserChangeFeed userChangeFeed;
+
+    /**
+     * Constructs a new UserChangeOutbox with the specified repository, EntityManager and feed.
+     * @param userChangeJdbcRepository the UserChangeJdbcRepository used to append the changes
+     * @param entityManager            the EntityManager of the current transaction
+     * @param userChangeFeed           the UserChangeFeed notified once changes are committed
+     */
+    public UserChangeOutbox(UserChangeJdbcRepository userChangeJdbcRepository, EntityManager entityManager,
+            UserChangeFeed userChangeFeed) {
+        this.userChangeJdbcRepository = userChangeJdbcRepository;
+        this.entityManager = entityManager;
+        this.userChangeFeed = userChangeFeed;
+    }
+
+    /**
+     * Collects a change for the current transaction, or appends it right away when there is no transaction.
+     * Changes already written to the change log by the reactive stack are skipped.
+     * @param event the UserChangeEvent describing the change
+     */
+    @EventListener
+    public void onUserChanged(UserChangeEvent event) {
+        if (event.isRecorded())
+            return;
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            userChangeJdbcRepository.appendAll(List.of(event));
+            userChangeFeed.changesCommitted();
+            return;
+        }
+
+        PendingChanges pending = (PendingChanges) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingChanges();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.events.add(event);
+    }
+
+    /**
+     * PendingChanges holds the changes of a transaction and writes them right before it commits.
+     */
+    private final class PendingChanges implements TransactionSynchronization {
+
+        private final List<UserChangeEvent> events = new ArrayList<>();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            entityManager.flush();
+            userChangeJdbcRepository.appendAll(events);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(UserChangeOutbox.this);
+
+            if (status == STATUS_COMMITTED)
+                userChangeFeed.changesCommitted();
+        }
+    }
+}
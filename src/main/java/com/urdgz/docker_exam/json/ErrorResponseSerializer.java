@@ -0,0 +1,46 @@
+package com.urdgz.docker_exam.json;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.urdgz.docker_exam.dto.ErrorResponse;
+
+/**
+ * ErrorResponseSerializer writes the ErrorResponse straight to the JSON generator
+ * with pre-encoded field names and a cached timestamp.
+ * @author Ulises Rodríguez García.
+ */
+public class ErrorResponseSerializer extends StdSerializer<ErrorResponse> {
+
+    private static final SerializedString TIMESTAMP = new SerializedString("timestamp");
+    private static final SerializedString STATUS = new SerializedString("status");
+    private static final SerializedString ERROR = new SerializedString("error");
+    private static final SerializedString MESSAGE = new SerializedString("message");
+    private static final SerializedString PATH = new SerializedString("path");
+
+    /**
+     * Constructs a new ErrorResponseSerializer.
+     */
+    public ErrorResponseSerializer() {
+        super(ErrorResponse.class);
+    }
+
+    @Override
+    public void serialize(ErrorResponse response, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        generator.writeStartObject(response);
+        generator.writeFieldName(TIMESTAMP);
+        generator.writeString(TimestampFormatter.format(response.getTimestamp()));
+        generator.writeFieldName(STATUS);
+        generator.writeNumber(response.getStatus());
+        generator.writeFieldName(ERROR);
+        generator.writeString(response.getError());
+        generator.writeFieldName(MESSAGE);
+        generator.writeString(response.getMessage());
+        generator.writeFieldName(PATH);
+        generator.writeString(response.getPath());
+        generator.writeEndObject();
+    }
+}
@@ -0,0 +1,28 @@
+package com.urdgz.docker_exam.json;
+
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.urdgz.docker_exam.dto.ErrorResponse;
+import com.urdgz.docker_exam.dto.SuccessResponse;
+import com.urdgz.docker_exam.model.User;
+
+/**
+ * ResponseJsonModule registers the hand-written serializers of the response envelopes and of User.
+ * Being a Module bean, it is added to the ObjectMapper auto-configured by Spring Boot.
+ * @author Ulises Rodríguez García.
+ */
+@Component
+public class ResponseJsonModule extends SimpleModule {
+
+    /**
+     * Constructs a new ResponseJsonModule with the serializers of the responses.
+     */
+    public ResponseJsonModule() {
+        super("ResponseJsonModule");
+        UserSerializer userSerializer = new UserSerializer();
+        addSerializer(User.class, userSerializer);
+        addSerializer(SuccessResponse.class, new SuccessResponseSerializer(userSerializer));
+        addSerializer(ErrorResponse.class, new ErrorResponseSerializer());
+    }
+}
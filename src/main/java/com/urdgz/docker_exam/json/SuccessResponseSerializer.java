@@ -0,0 +1,91 @@
+package com.urdgz.docker_exam.json;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.urdgz.docker_exam.dto.SuccessResponse;
+import com.urdgz.docker_exam.model.User;
+
+/**
+ * SuccessResponseSerializer writes the SuccessResponse envelope straight to the JSON generator
+ * with pre-encoded field names and a cached timestamp.
+ * Users, alone or in a list, are written directly by the UserSerializer; any other data
+ * is handed to the serializer Jackson would have used.
+ * @author Ulises Rodríguez García.
+ */
+@SuppressWarnings("rawtypes")
+public class SuccessResponseSerializer extends StdSerializer<SuccessResponse> {
+
+    private static final SerializedString TIMESTAMP = new SerializedString("timestamp");
+    private static final SerializedString STATUS = new SerializedString("status");
+    private static final SerializedString MESSAGE = new SerializedString("message");
+    private static final SerializedString DATA = new SerializedString("data");
+
+    /**
+     * The serializer used for the users contained in the response.
+     */
+    private final UserSerializer userSerializer;
+
+    /**
+     * Constructs a new SuccessResponseSerializer with the specified UserSerializer.
+     * @param userSerializer the serializer used for the users contained in the response
+     */
+    public SuccessResponseSerializer(UserSerializer userSerializer) {
+        super(SuccessResponse.class);
+        this.userSerializer = userSerializer;
+    }
+
+    @Override
+    public void serialize(SuccessResponse response, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        generator.writeStartObject(response);
+        generator.writeFieldName(TIMESTAMP);
+        if (response.getTimestamp() == null)
+            generator.writeNull();
+        else
+            generator.writeString(TimestampFormatter.format(response.getTimestamp()));
+
+        generator.writeFieldName(STATUS);
+        if (response.getStatus() == null)
+            generator.writeNull();
+        else
+            generator.writeNumber(response.getStatus());
+
+        generator.writeFieldName(MESSAGE);
+        generator.writeString(response.getMessage());
+        generator.writeFieldName(DATA);
+        writeData(response.getData(), generator, provider);
+        generator.writeEndObject();
+    }
+
+    /**
+     * Writes the data of the response.
+     * @param data      the data to be written
+     * @param generator the JSON generator
+     * @param provider  the provider of the serializers for any other type of data
+     * @throws IOException if the data cannot be written
+     */
+    private void writeData(Object data, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        if (data instanceof User user) {
+            userSerializer.serialize(user, generator, provider);
+            return;
+        }
+
+        if (!(data instanceof List<?> list) || list.isEmpty() || !(list.get(0) instanceof User)) {
+            provider.defaultSerializeValue(data, generator);
+            return;
+        }
+
+        generator.writeStartArray(list, list.size());
+        for (Object element : list) {
+            if (element instanceof User user)
+                userSerializer.serialize(user, generator, provider);
+            else
+                provider.defaultSerializeValue(element, generator);
+        }
+        generator.writeEndArray();
+    }
+}
@@ -0,0 +1,90 @@
+package com.urdgz.docker_exam.json;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * TimestampFormatter formats response timestamps with the yyyy-MM-dd'T'HH:mm:ss.SSS pattern
+ * used by SuccessResponse and ErrorResponse.
+ * The last formatted millisecond is cached, so every response created within the same millisecond
+ * reuses the same string, and a miss writes the digits straight into a character buffer.
+ * @author Ulises Rodríguez García.
+ */
+final class TimestampFormatter {
+
+    /**
+     * The formatter used for the years that do not fit in four digits.
+     */
+    private static final DateTimeFormatter FALLBACK = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS");
+
+    /**
+     * The last formatted timestamp.
+     */
+    private static volatile Formatted last = new Formatted(Long.MIN_VALUE, "");
+
+    private TimestampFormatter() {
+    }
+
+    /**
+     * Formats the given timestamp.
+     * @param timestamp the timestamp to be formatted
+     * @return the formatted timestamp
+     */
+    static String format(LocalDateTime timestamp) {
+        long key = timestamp.toLocalDate().toEpochDay() * 86_400_000L + timestamp.toLocalTime().toNanoOfDay() / 1_000_000L;
+        Formatted cached = last;
+        if (cached.key == key)
+            return cached.text;
+
+        int year = timestamp.getYear();
+        if (year < 0 || year > 9999)
+            return FALLBACK.format(timestamp);
+
+        char[] buffer = new char[23];
+        writeDigits(buffer, 0, year, 4);
+        buffer[4] = '-';
+        writeDigits(buffer, 5, timestamp.getMonthValue(), 2);
+        buffer[7] = '-';
+        writeDigits(buffer, 8, timestamp.getDayOfMonth(), 2);
+        buffer[10] = 'T';
+        writeDigits(buffer, 11, timestamp.getHour(), 2);
+        buffer[13] = ':';
+        writeDigits(buffer, 14, timestamp.getMinute(), 2);
+        buffer[16] = ':';
+        writeDigits(buffer, 17, timestamp.getSecond(), 2);
+        buffer[19] = '.';
+        writeDigits(buffer, 20, timestamp.getNano() / 1_000_000, 3);
+
+        String text = new String(buffer);
+        last = new Formatted(key, text);
+        return text;
+    }
+
+    /**
+     * Writes the given value as a zero-padded number of the given width.
+     * @param buffer the buffer to write to
+     * @param offset the position of the first digit
+     * @param value  the value to be written
+     * @param width  the number of digits
+     */
+    private static void writeDigits(char[] buffer, int offset, int value, int width) {
+        for (int i = offset + width - 1; i >= offset; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    /**
+     * Formatted pairs a timestamp, as milliseconds, with its formatted text.
+     */
+    private static final class Formatted {
+
+        private final long key;
+        private final String text;
+
+        private Formatted(long key, String text) {
+            this.key = key;
+            this.text = text;
+        }
+    }
+}
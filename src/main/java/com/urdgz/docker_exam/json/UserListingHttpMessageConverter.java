@@ -0,0 +1,89 @@
+package com.urdgz.docker_exam.json;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.urdgz.docker_exam.dto.UserListingResponse;
+
+/**
+ * UserListingHttpMessageConverter writes a UserListingResponse as JSON by copying the pre-serialized users of
+ * the listing between the envelope written by the SuccessResponseSerializer, so the output is the same as for
+ * a SuccessResponse holding the list of users. Only the envelope is built per request.
+ * A response asking for gzip is written from the pre-compressed segments with a Content-Encoding header,
+ * which also keeps the server from compressing it again.
+ * Spring Boot places it ahead of the default converters, so JSON stays the default format of the listing.
+ * @author Ulises Rodríguez García.
+ */
+@Component
+public class UserListingHttpMessageConverter extends AbstractHttpMessageConverter<UserListingResponse> {
+
+    /**
+     * The end of the envelope, closing the data array and the response object.
+     */
+    private static final byte[] SUFFIX = "]}".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Constructs a new UserListingHttpMessageConverter writing JSON.
+     */
+    public UserListingHttpMessageConverter() {
+        super(MediaType.APPLICATION_JSON);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return UserListingResponse.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected UserListingResponse readInternal(Class<? extends UserListingResponse> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("A user listing cannot be read", inputMessage);
+    }
+
+    @Override
+    protected void addDefaultHeaders(HttpHeaders headers, UserListingResponse response, MediaType contentType) throws IOException {
+        super.addDefaultHeaders(headers, response, contentType);
+        if (response.isGzip())
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+    }
+
+    @Override
+    protected Long getContentLength(UserListingResponse response, MediaType contentType) {
+        return response.isGzip() ? null : response.getListing().length(prefix(response).length, SUFFIX.length);
+    }
+
+    @Override
+    protected void writeInternal(UserListingResponse response, HttpOutputMessage outputMessage) throws IOException {
+        if (response.isGzip())
+            response.getListing().writeGzipTo(outputMessage.getBody(), prefix(response), SUFFIX);
+        else
+            response.getListing().writeTo(outputMessage.getBody(), prefix(response), SUFFIX);
+    }
+
+    /**
+     * Builds the start of the envelope, up to the opening of the data array.
+     * @param response the response
+     * @return the encoded start of the envelope
+     */
+    private static byte[] prefix(UserListingResponse response) {
+        StringBuilder prefix = new StringBuilder(96)
+            .append("{\"timestamp\":\"").append(TimestampFormatter.format(response.getTimestamp()))
+            .append("\",\"status\":").append(response.getStatus())
+            .append(",\"message\":\"");
+        JsonStringEncoder.getInstance().quoteAsString(response.getMessage(), prefix);
+        return prefix.append("\",\"data\":[").toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,38 @@
+package com.urdgz.docker_exam.metrics;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.internal.StatisticsImpl;
+import org.hibernate.stat.spi.StatisticsFactory;
+import org.hibernate.stat.spi.StatisticsImplementor;
+
+/**
+ * RequestCountingStatisticsFactory builds Hibernate statistics that, besides the usual
+ * session-factory-wide figures, feed the per-request counters of {@link RequestQueryCounter}.
+ * It is registered through the hibernate.stats.factory property.
+ * @author Ulises Rodríguez García.
+ */
+public class RequestCountingStatisticsFactory implements StatisticsFactory {
+
+    /**
+     * Builds the statistics of the given session factory.
+     * @param sessionFactory the session factory
+     * @return the statistics
+     */
+    @Override
+    public StatisticsImplementor buildStatistics(SessionFactoryImplementor sessionFactory) {
+        return new StatisticsImpl(sessionFactory) {
+
+            @Override
+            public void prepareStatement() {
+                super.prepareStatement();
+                RequestQueryCounter.statementPrepared();
+            }
+
+            @Override
+            public void loadEntity(String entityName) {
+                super.loadEntity(entityName);
+                RequestQueryCounter.rowLoaded();
+            }
+        };
+    }
+}
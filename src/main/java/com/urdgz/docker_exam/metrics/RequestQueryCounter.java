@@ -0,0 +1,67 @@
+package com.urdgz.docker_exam.metrics;
+
+/**
+ * RequestQueryCounter keeps, for the current thread, the number of JDBC statements prepared
+ * and the number of rows loaded into entities by Hibernate.
+ * The counters are reset at the start of every HTTP request and read at its end.
+ * @author Ulises Rodríguez García.
+ */
+public final class RequestQueryCounter {
+
+    /**
+     * The counters of the current thread.
+     */
+    private static final ThreadLocal<long[]> COUNTERS = ThreadLocal.withInitial(() -> new long[2]);
+
+    /**
+     * The position of the statement counter.
+     */
+    private static final int STATEMENTS = 0;
+
+    /**
+     * The position of the row counter.
+     */
+    private static final int ROWS = 1;
+
+    private RequestQueryCounter() {
+    }
+
+    /**
+     * Resets the counters of the current thread.
+     */
+    public static void reset() {
+        long[] counters = COUNTERS.get();
+        counters[STATEMENTS] = 0;
+        counters[ROWS] = 0;
+    }
+
+    /**
+     * Counts a prepared JDBC statement.
+     */
+    static void statementPrepared() {
+        COUNTERS.get()[STATEMENTS]++;
+    }
+
+    /**
+     * Counts a row loaded into an entity.
+     */
+    static void rowLoaded() {
+        COUNTERS.get()[ROWS]++;
+    }
+
+    /**
+     * Gets the number of JDBC statements prepared since the last reset.
+     * @return the number of statements
+     */
+    public static long statements() {
+        return COUNTERS.get()[STATEMENTS];
+    }
+
+    /**
+     * Gets the number of rows loaded into entities since the last reset.
+     * @return the number of rows
+     */
+    public static long rows() {
+        return COUNTERS.get()[ROWS];
+    }
+}
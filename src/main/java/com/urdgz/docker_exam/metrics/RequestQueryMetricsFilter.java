@@ -0,0 +1,70 @@
+package com.urdgz.docker_exam.metrics;
+
+import java.io.IOException;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * RequestQueryMetricsFilter records, for every HTTP request, how many JDBC statements Hibernate
+ * prepared and how many rows it loaded into entities, tagged by method and URI pattern.
+ * Statements issued directly through JdbcTemplate are not seen by Hibernate and are not counted.
+ * @author Ulises Rodríguez García.
+ */
+@Component
+public class RequestQueryMetricsFilter extends OncePerRequestFilter {
+
+    /**
+     * The MeterRegistry the summaries are recorded in.
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Constructs a new RequestQueryMetricsFilter with the specified MeterRegistry.
+     * @param meterRegistry the MeterRegistry the summaries are recorded in
+     */
+    public RequestQueryMetricsFilter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestQueryCounter.reset();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+            summary("users.request.jdbc.statements", "JDBC statements prepared by Hibernate per request", request, uri)
+                .record(RequestQueryCounter.statements());
+            summary("users.request.jdbc.rows", "Rows loaded into entities by Hibernate per request", request, uri)
+                .record(RequestQueryCounter.rows());
+        }
+    }
+
+    /**
+     * Gets the distribution summary of the given name for the request.
+     * @param name        the name of the summary
+     * @param description the description of the summary
+     * @param request     the HTTP request
+     * @param uri         the URI pattern matched by the request
+     * @return the distribution summary
+     */
+    private DistributionSummary summary(String name, String description, HttpServletRequest request, String uri) {
+        return DistributionSummary.builder(name)
+            .description(description)
+            .tag("method", request.getMethod())
+            .tag("uri", uri)
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
+}
@@ -1,21 +1,34 @@
 package com.urdgz.docker_exam.model;
 
+import java.time.LocalDateTime;
+
+import org.hibernate.annotations.SQLRestriction;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 
 /**
- * Represents a user entity with an ID, name, and email.
- * Mapped to the "Users" table in the database.
+ * Represents a user entity with an ID, name, email, and version.
+ * Mapped to the "Users" table in the database, where the email is unique among the users that are not deleted.
+ * Soft-deleted users stay in the table as tombstones until they are purged, and are never loaded as entities.
  * @author Ulises Rodríguez García.
  */
 @Entity
-@Table(name = "Users")
+@Table(name = "Users",
+    uniqueConstraints = @UniqueConstraint(name = "uk_users_email", columnNames = {"email", "alive"}),
+    indexes = @Index(name = "idx_users_deleted_at", columnList = "deleted_at"))
+@SQLRestriction("deleted_at is null")
 public class User {
 
     /**
@@ -36,13 +49,40 @@ public class User {
 
     /**
      * The email of the entity.
-     * This field is mandatory and cannot be null.
+     * This field is mandatory, cannot be null and is unique across users.
      */
     @Column(nullable = false)
     @Email(message = "Email should be valid")
     @NotBlank(message = "Email is mandatory")
     private String email;
 
+    /**
+     * The version of the entity.
+     * This field is incremented on every update and is used to build the ETag of the user,
+     * so it is not part of the JSON representation.
+     */
+    @Version
+    @Column(nullable = false)
+    @JsonIgnore
+    private Long version;
+
+    /**
+     * The moment the user was soft-deleted, or null while the user is not deleted.
+     * This field is only written by the delete statements.
+     */
+    @Column(name = "deleted_at", insertable = false, updatable = false)
+    @JsonIgnore
+    private LocalDateTime deletedAt;
+
+    /**
+     * A column generated by the database that is 1 while the user is not deleted and null afterwards.
+     * It is part of the unique email constraint, so the email of a deleted user can be taken again.
+     */
+    @Column(insertable = false, updatable = false,
+        columnDefinition = "tinyint generated always as (case when deleted_at is null then 1 end)")
+    @JsonIgnore
+    private Integer alive;
+
     /**
      * Gets the ID of the user.
      * @return the ID of the user
@@ -90,4 +130,33 @@ public class User {
     public void setEmail(String email) {
         this.email = email;
     }
+
+    /**
+     * Gets the version of the user.
+     * @return the version of the user
+     */
+    public Long getVersion() {
+        return version;
+    }
+
+    /**
+     * Sets the version of the user.
+     * @param version the new version of the user
+     */
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    /**
+     * Creates a detached copy of the user.
+     * @return a new User with the same ID, name, email, and version
+     */
+    public User copy() {
+        User copy = new User();
+        copy.setId(id);
+        copy.setName(name);
+        copy.setEmail(email);
+        copy.setVersion(version);
+        return copy;
+    }
 }
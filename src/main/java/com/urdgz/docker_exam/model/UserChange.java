@@ -0,0 +1,133 @@
+package com.urdgz.docker_exam.model;
+
+import java.time.LocalDateTime;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.urdgz.docker_exam.event.UserChangeEvent;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Represents an entry of the change log of users, written in the same transaction as the change it records.
+ * Mapped to the "User_Changes" table in the database, ordered by its sequence number.
+ * Entries are only inserted, through the UserChangeJdbcRepository and the UserChangeR2dbcRepository, and never updated.
+ * @author Ulises Rodríguez García.
+ */
+@Entity
+@Table(name = "User_Changes")
+public class UserChange {
+
+    /**
+     * The sequence number of the change, increasing in the order the changes were committed.
+     * It is taken from the locked User_Change_Sequence row by the transaction appending the change.
+     */
+    @Id
+    private Long seq;
+
+    /**
+     * The ID of the changed user.
+     */
+    @Column(name = "user_id", nullable = false)
+    private Integer userId;
+
+    /**
+     * The kind of change.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private UserChangeEvent.Type type;
+
+    /**
+     * The name of the user after the change, or null when it was deleted.
+     */
+    private String name;
+
+    /**
+     * The email of the user after the change, or null when it was deleted.
+     */
+    private String email;
+
+    /**
+     * The moment the change was recorded.
+     */
+    @Column(name = "changed_at", nullable = false)
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS")
+    private LocalDateTime changedAt;
+
+    /**
+     * Constructs an empty UserChange, used by JPA.
+     */
+    protected UserChange() {
+    }
+
+    /**
+     * Constructs a new UserChange with the given details.
+     * @param seq       the sequence number of the change
+     * @param userId    the ID of the changed user
+     * @param type      the kind of change
+     * @param name      the name of the user after the change, or null when it was deleted
+     * @param email     the email of the user after the change, or null when it was deleted
+     * @param changedAt the moment the change was recorded
+     */
+    public UserChange(Long seq, Integer userId, UserChangeEvent.Type type, String name, String email, LocalDateTime changedAt) {
+        this.seq = seq;
+        this.userId = userId;
+        this.type = type;
+        this.name = name;
+        this.email = email;
+        this.changedAt = changedAt;
+    }
+
+    /**
+     * Gets the sequence number of the change.
+     * @return the sequence number
+     */
+    public Long getSeq() {
+        return seq;
+    }
+
+    /**
+     * Gets the ID of the changed user.
+     * @return the user ID
+     */
+    public Integer getUserId() {
+        return userId;
+    }
+
+    /**
+     * Gets the kind of change.
+     * @return the type
+     */
+    public UserChangeEvent.Type getType() {
+        return type;
+    }
+
+    /**
+     * Gets the name of the user after the change.
+     * @return the name, or null when the user was deleted
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the email of the user after the change.
+     * @return the email, or null when the user was deleted
+     */
+    public String getEmail() {
+        return email;
+    }
+
+    /**
+     * Gets the moment the change was recorded.
+     * @return the timestamp
+     */
+    public LocalDateTime getChangedAt() {
+        return changedAt;
+    }
+}
@@ -0,0 +1,53 @@
+package com.urdgz.docker_exam.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Represents the single row holding the next sequence number of the change log of users.
+ * Mapped to the "User_Change_Sequence" table in the database. Every transaction appending changes locks the row
+ * until it commits, so the sequence numbers are handed out, and become visible, in increasing order across
+ * both stacks and every instance of the application. The row is only read and written through the change
+ * repositories, which create it on first use from the highest sequence number in the change log.
+ * @author Ulises Rodríguez García.
+ */
+@Entity
+@Table(name = "User_Change_Sequence")
+public class UserChangeSequence {
+
+    /**
+     * The ID of the row, always 1.
+     */
+    @Id
+    private Integer id;
+
+    /**
+     * The sequence number of the next change.
+     */
+    @Column(name = "next_seq", nullable = false)
+    private Long nextSeq;
+
+    /**
+     * Constructs an empty UserChangeSequence, used by JPA.
+     */
+    protected UserChangeSequence() {
+    }
+
+    /**
+     * Gets the ID of the row.
+     * @return the ID
+     */
+    public Integer getId() {
+        return id;
+    }
+
+    /**
+     * Gets the sequence number of the next change.
+     * @return the next sequence number
+     */
+    public Long getNextSeq() {
+        return nextSeq;
+    }
+}
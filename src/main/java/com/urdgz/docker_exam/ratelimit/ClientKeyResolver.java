@@ -0,0 +1,52 @@
+package com.urdgz.docker_exam.ratelimit;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * ClientKeyResolver identifies the client of a request, for the rate limiter and the idempotency keys.
+ * A client is identified by its API key only when the key is one of the keys configured in the
+ * users.rate-limit.api-keys property. Any other key is ignored and the client is identified by its IP address,
+ * so sending a different made-up key on every request neither escapes the rate limit nor fills its cache.
+ * @author Ulises Rodríguez García.
+ */
+@Component
+public class ClientKeyResolver {
+
+    /**
+     * The header carrying the API key of the client.
+     */
+    public static final String API_KEY_HEADER = "X-API-Key";
+
+    /**
+     * The API keys recognized as clients of their own.
+     */
+    private final Set<String> apiKeys;
+
+    /**
+     * Constructs a new ClientKeyResolver with the specified API keys.
+     * @param apiKeys the API keys recognized as clients of their own, none by default
+     */
+    public ClientKeyResolver(@Value("${users.rate-limit.api-keys:}") List<String> apiKeys) {
+        this.apiKeys = apiKeys.stream()
+            .map(String::trim)
+            .filter(apiKey -> !apiKey.isEmpty())
+            .collect(Collectors.toUnmodifiableSet());
+    }
+
+    /**
+     * Gets the key identifying the client of a request: its API key if it sent a known one, or its IP address otherwise.
+     * @param request the request
+     * @return the key of the client
+     */
+    public String clientKey(HttpServletRequest request) {
+        String apiKey = request.getHeader(API_KEY_HEADER);
+        return apiKey != null && apiKeys.contains(apiKey) ? "key:" + apiKey : "ip:" + request.getRemoteAddr();
+    }
+}
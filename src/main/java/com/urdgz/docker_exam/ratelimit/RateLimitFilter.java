@@ -0,0 +1,203 @@
+package com.urdgz.docker_exam.ratelimit;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.util.UrlPathHelper;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.urdgz.docker_exam.exception.RateLimitExceededException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * RateLimitFilter gives every client of the /users API its own token bucket, keyed by API key when it is a configured one
+ * or by IP address otherwise, as resolved by the ClientKeyResolver.
+ * Each request takes tokens according to its cost: reads are cheap, writes cost more, and the listings that read
+ * the whole table cost the most. A request that finds too few tokens is rejected with 429 Too Many Requests, in the
+ * ErrorResponse format and with a Retry-After header, before it reaches the controller or the database.
+ * The buckets are lock-free and kept in a concurrent cache, so admitting a request takes no lock.
+ * It is only created when the users.rate-limit.enabled property is true and the application runs as a servlet web application.
+ * @author Ulises Rodríguez García.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "users.rate-limit.enabled", havingValue = "true")
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    /**
+     * The cost classes of the requests.
+     */
+    enum Cost {
+        READ, WRITE, LISTING
+    }
+
+    /**
+     * The bucket of every known client, dropped after the client stays idle for a while.
+     */
+    private final Cache<String, TokenBucket> buckets;
+
+    /**
+     * The time a bucket needs to refill completely, in nanoseconds.
+     */
+    private final long capacity;
+
+    /**
+     * The time a bucket needs to refill the tokens of each cost class, in nanoseconds.
+     */
+    private final long[] costs = new long[Cost.values().length];
+
+    /**
+     * The number of rejected requests of each cost class.
+     */
+    private final Counter[] rejected = new Counter[Cost.values().length];
+
+    /**
+     * The HandlerExceptionResolver used to answer the rejected requests like the controllers do.
+     */
+    private final HandlerExceptionResolver exceptionResolver;
+
+    /**
+     * The ClientKeyResolver identifying the client of every request.
+     */
+    private final ClientKeyResolver clientKeyResolver;
+
+    /**
+     * Constructs a new RateLimitFilter with the specified rates and weights.
+     * @param exceptionResolver the HandlerExceptionResolver used to answer the rejected requests
+     * @param clientKeyResolver the ClientKeyResolver identifying the client of every request
+     * @param meterRegistry     the MeterRegistry the state of the limiter and the rejections are published to
+     * @param rate              the number of tokens added to every bucket per second
+     * @param burst             the maximum number of tokens a bucket holds
+     * @param readCost          the number of tokens taken by a read
+     * @param writeCost         the number of tokens taken by a write
+     * @param listingCost       the number of tokens taken by a listing of the whole table
+     * @param idleTimeout       the time after which the bucket of an idle client is dropped
+     * @param maxClients        the maximum number of clients tracked at once
+     */
+    public RateLimitFilter(@Qualifier("handlerExceptionResolver") HandlerExceptionResolver exceptionResolver,
+            ClientKeyResolver clientKeyResolver, MeterRegistry meterRegistry,
+            @Value("${users.rate-limit.rate:100}") int rate,
+            @Value("${users.rate-limit.burst:200}") int burst,
+            @Value("${users.rate-limit.read-cost:1}") int readCost,
+            @Value("${users.rate-limit.write-cost:5}") int writeCost,
+            @Value("${users.rate-limit.listing-cost:50}") int listingCost,
+            @Value("${users.rate-limit.idle-timeout:10m}") Duration idleTimeout,
+            @Value("${users.rate-limit.max-clients:100000}") long maxClients) {
+        if (readCost > burst || writeCost > burst || listingCost > burst)
+            throw new IllegalArgumentException("The cost of a request cannot exceed the burst of the rate limit");
+
+        this.exceptionResolver = exceptionResolver;
+        this.clientKeyResolver = clientKeyResolver;
+        long nanosPerToken = TimeUnit.SECONDS.toNanos(1) / rate;
+        this.capacity = nanosPerToken * burst;
+        this.costs[Cost.READ.ordinal()] = nanosPerToken * readCost;
+        this.costs[Cost.WRITE.ordinal()] = nanosPerToken * writeCost;
+        this.costs[Cost.LISTING.ordinal()] = nanosPerToken * listingCost;
+        this.buckets = Caffeine.newBuilder()
+            .expireAfterAccess(idleTimeout)
+            .maximumSize(maxClients)
+            .build();
+
+        for (Cost cost : Cost.values())
+            rejected[cost.ordinal()] = Counter.builder("users.ratelimit.rejected")
+                .description("Requests rejected by the rate limiter")
+                .tag("cost", cost.name().toLowerCase())
+                .register(meterRegistry);
+        Gauge.builder("users.ratelimit.clients", buckets, Cache::estimatedSize)
+            .description("Number of clients tracked by the rate limiter")
+            .register(meterRegistry);
+        Gauge.builder("users.ratelimit.clients.throttled", this, RateLimitFilter::throttledClients)
+            .description("Number of clients without enough tokens left for a read")
+            .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = path(request);
+        return !path.equals("/users") && !path.startsWith("/users/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Cost cost = classify(request);
+        long now = System.nanoTime();
+        long wait = buckets.get(clientKeyResolver.clientKey(request), key -> new TokenBucket(now))
+            .tryAcquire(costs[cost.ordinal()], capacity, now);
+
+        if (wait > 0) {
+            rejected[cost.ordinal()].increment();
+            long retryAfterSeconds = Math.max(1, (wait + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+            exceptionResolver.resolveException(request, response, null, new RateLimitExceededException(retryAfterSeconds));
+            return;
+        }
+
+        chain.doFilter(request, response);
+    }
+
+    /**
+     * Classifies a request by its cost.
+     * Listings of the whole table are the unpaginated GET /users, the stream and the export. The changes of the
+     * listing since a version are only a few users, so they cost as a read.
+     * @param request the request
+     * @return the cost class of the request
+     */
+    static Cost classify(HttpServletRequest request) {
+        HttpMethod method = HttpMethod.valueOf(request.getMethod());
+        if (method != HttpMethod.GET && method != HttpMethod.HEAD)
+            return Cost.WRITE;
+
+        String path = path(request);
+        if (path.equals("/users/stream") || path.equals("/users/export"))
+            return Cost.LISTING;
+
+        if (path.equals("/users") && request.getParameter("limit") == null && request.getParameter("email") == null
+                && request.getParameter("since") == null)
+            return Cost.LISTING;
+
+        return Cost.READ;
+    }
+
+    /**
+     * Gets the path of a request within the application, as Spring MVC matches it against the handlers:
+     * decoded, without the context path, the ;-separated path parameters and duplicate slashes.
+     * Matching on the raw URI would let /users;x=1 skip the limiter and still reach the listing.
+     * @param request the request
+     * @return the lookup path of the request
+     */
+    private static String path(HttpServletRequest request) {
+        return UrlPathHelper.defaultInstance.getLookupPathForRequest(request);
+    }
+
+    /**
+     * Counts the clients that do not have enough tokens left for a read.
+     * @return the number of throttled clients
+     */
+    private long throttledClients() {
+        long now = System.nanoTime();
+        long readCost = costs[Cost.READ.ordinal()];
+        return buckets.asMap().values().stream()
+            .filter(bucket -> bucket.available(capacity, now) < readCost)
+            .count();
+    }
+}
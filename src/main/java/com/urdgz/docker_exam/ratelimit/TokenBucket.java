@@ -0,0 +1,55 @@
+package com.urdgz.docker_exam.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TokenBucket is a lock-free token bucket kept as a single theoretical arrival time (the generic cell rate algorithm).
+ * Taking tokens pushes the arrival time forward by the time the bucket needs to refill them, and a request is
+ * admitted while the arrival time stays within the burst of the bucket, so the whole state is updated with one CAS.
+ * @author Ulises Rodríguez García.
+ */
+final class TokenBucket {
+
+    /**
+     * The time, in nanoseconds, at which the bucket would be full again.
+     */
+    private final AtomicLong theoreticalArrival;
+
+    /**
+     * Constructs a new full TokenBucket.
+     * @param now the current time in nanoseconds
+     */
+    TokenBucket(long now) {
+        this.theoreticalArrival = new AtomicLong(now);
+    }
+
+    /**
+     * Takes the given number of tokens from the bucket if they are available.
+     * @param cost     the time the bucket needs to refill the tokens, in nanoseconds
+     * @param capacity the time the bucket needs to refill completely, in nanoseconds
+     * @param now      the current time in nanoseconds
+     * @return 0 if the tokens were taken, or the time to wait until they are available, in nanoseconds
+     */
+    long tryAcquire(long cost, long capacity, long now) {
+        while (true) {
+            long current = theoreticalArrival.get();
+            long next = Math.max(current, now) + cost;
+            long excess = next - now - capacity;
+            if (excess > 0)
+                return excess;
+
+            if (theoreticalArrival.compareAndSet(current, next))
+                return 0;
+        }
+    }
+
+    /**
+     * Gets the time left before the bucket is empty, which is the amount of tokens left expressed in refill time.
+     * @param capacity the time the bucket needs to refill completely, in nanoseconds
+     * @param now      the current time in nanoseconds
+     * @return the available refill time, in nanoseconds
+     */
+    long available(long capacity, long now) {
+        return capacity - Math.max(theoreticalArrival.get() - now, 0);
+    }
+}
@@ -0,0 +1,118 @@
+package com.urdgz.docker_exam.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.urdgz.docker_exam.event.UserChangeEvent;
+import com.urdgz.docker_exam.model.User;
+
+/**
+ * UserChangeJdbcRepository appends entries to the change log of users with a single JDBC batch.
+ * It runs on the connection of the current transaction, so the entries are committed,
+ * or rolled back, together with the changes they record.
+ * The sequence numbers are taken from the User_Change_Sequence row, which stays locked until the transaction ends,
+ * so appends are serialized by the database: a reader never skips a change committed later with a lower number,
+ * whichever stack or instance of the application wrote it.
+ * @author Ulises Rodríguez García.
+ */
+@Repository
+public class UserChangeJdbcRepository {
+
+    /**
+     * The query used to read and lock the next sequence number.
+     */
+    static final String SELECT_NEXT = "SELECT next_seq FROM User_Change_Sequence WHERE id = 1 FOR UPDATE";
+
+    /**
+     * The statement used to create the sequence row, after the highest sequence number in the change log.
+     * It is ignored when another transaction created the row first.
+     */
+    static final String CREATE_SEQUENCE =
+        "INSERT IGNORE INTO User_Change_Sequence (id, next_seq) SELECT 1, COALESCE(MAX(seq), 0) + 1 FROM User_Changes";
+
+    /**
+     * The statement used to reserve the sequence numbers of the appended changes.
+     */
+    private static final String RESERVE = "UPDATE User_Change_Sequence SET next_seq = next_seq + ? WHERE id = 1";
+
+    /**
+     * The statement used to append a change.
+     */
+    private static final String INSERT =
+        "INSERT INTO User_Changes (seq, user_id, type, name, email, changed_at) VALUES (?, ?, ?, ?, ?, ?)";
+
+    /**
+     * The JdbcTemplate used to run the statements.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Constructs a new UserChangeJdbcRepository with the specified JdbcTemplate.
+     * @param jdbcTemplate the JdbcTemplate used to run the statements
+     */
+    public UserChangeJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Appends the given changes to the change log, in order.
+     * It joins the current transaction, or starts one when there is none, so the sequence row is held until the commit.
+     * @param events the changes to be appended
+     */
+    @Transactional
+    public void appendAll(List<UserChangeEvent> events) {
+        if (events.isEmpty())
+            return;
+
+        long first = reserve(events.size());
+        Timestamp changedAt = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement statement, int i) throws SQLException {
+                UserChangeEvent event = events.get(i);
+                User user = event.getUser();
+                statement.setLong(1, first + i);
+                statement.setInt(2, event.getId());
+                statement.setString(3, event.getType().name());
+                if (user == null) {
+                    statement.setNull(4, Types.VARCHAR);
+                    statement.setNull(5, Types.VARCHAR);
+                } else {
+                    statement.setString(4, user.getName());
+                    statement.setString(5, user.getEmail());
+                }
+                statement.setTimestamp(6, changedAt);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return events.size();
+            }
+        });
+    }
+
+    /**
+     * Locks the sequence row, creating it on first use, and reserves the given number of sequence numbers.
+     * @param count the number of sequence numbers to reserve
+     * @return the first reserved sequence number
+     */
+    private long reserve(int count) {
+        List<Long> next = jdbcTemplate.queryForList(SELECT_NEXT, Long.class);
+        if (next.isEmpty()) {
+            jdbcTemplate.update(CREATE_SEQUENCE);
+            next = jdbcTemplate.queryForList(SELECT_NEXT, Long.class);
+        }
+
+        jdbcTemplate.update(RESERVE, count);
+        return next.get(0);
+    }
+}
@@ -0,0 +1,93 @@
+package com.urdgz.docker_exam.repository;
+
+import java.time.LocalDateTime;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+
+import com.urdgz.docker_exam.event.UserChangeEvent;
+import com.urdgz.docker_exam.model.User;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * UserChangeR2dbcRepository appends entries to the change log of users from the reactive stack.
+ * It runs on the connection of the current reactive transaction, so the entries are committed,
+ * or rolled back, together with the changes they record.
+ * Sequence numbers are taken from the same locked User_Change_Sequence row as the UserChangeJdbcRepository,
+ * so the changes of both stacks are appended one transaction at a time and become visible in increasing order.
+ * It is only created when the application runs as a reactive web application.
+ * @author Ulises Rodríguez García.
+ */
+@Repository
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class UserChangeR2dbcRepository {
+
+    /**
+     * The statement used to reserve the sequence number of an appended change.
+     */
+    private static final String RESERVE = "UPDATE User_Change_Sequence SET next_seq = next_seq + 1 WHERE id = 1";
+
+    /**
+     * The statement used to append a change.
+     * The type is cast because the H2 driver binds strings as character large objects, which H2 refuses to store in an ENUM column.
+     */
+    private static final String INSERT =
+        "INSERT INTO User_Changes (seq, user_id, type, name, email, changed_at) VALUES (:seq, :userId, CAST(:type AS CHAR(16)), :name, :email, :changedAt)";
+
+    /**
+     * The DatabaseClient used to run the statements.
+     */
+    private final DatabaseClient databaseClient;
+
+    /**
+     * Constructs a new UserChangeR2dbcRepository with the specified DatabaseClient.
+     * @param databaseClient the DatabaseClient used to run the statements
+     */
+    public UserChangeR2dbcRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    /**
+     * Appends a change to the change log.
+     * It must run in the reactive transaction of the change, which keeps the sequence row locked until it ends.
+     * @param event the UserChangeEvent describing the change
+     * @return a Mono completing once the change is written
+     */
+    public Mono<Void> append(UserChangeEvent event) {
+        return reserve().flatMap(seq -> insert(seq, event));
+    }
+
+    /**
+     * Locks the sequence row, creating it on first use, and reserves the next sequence number.
+     * @return a Mono with the reserved sequence number
+     */
+    private Mono<Long> reserve() {
+        Mono<Long> next = databaseClient.sql(UserChangeJdbcRepository.SELECT_NEXT)
+            .map(row -> row.get("next_seq", Long.class))
+            .one();
+        return next
+            .switchIfEmpty(databaseClient.sql(UserChangeJdbcRepository.CREATE_SEQUENCE).then().then(next))
+            .flatMap(seq -> databaseClient.sql(RESERVE).then().thenReturn(seq));
+    }
+
+    /**
+     * Inserts a change with its sequence number.
+     * @param seq   the sequence number of the change
+     * @param event the UserChangeEvent describing the change
+     * @return a Mono completing once the change is written
+     */
+    private Mono<Void> insert(long seq, UserChangeEvent event) {
+        User user = event.getUser();
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(INSERT)
+            .bind("seq", seq)
+            .bind("userId", event.getId())
+            .bind("type", event.getType().name())
+            .bind("changedAt", LocalDateTime.now());
+        spec = user == null
+            ? spec.bindNull("name", String.class).bindNull("email", String.class)
+            : spec.bind("name", user.getName()).bind("email", user.getEmail());
+        return spec.then();
+    }
+}
@@ -0,0 +1,27 @@
+package com.urdgz.docker_exam.repository;
+
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.urdgz.docker_exam.model.UserChange;
+
+/**
+ * UserChangeRepository is an interface for reading the change log of users.
+ * It extends JpaRepository to provide JPA functionalities for the UserChange entity.
+ * Its queries run in read-only transactions unless they join a read-write one.
+ * @author Ulises Rodríguez García.
+ */
+@Transactional(readOnly = true)
+public interface UserChangeRepository extends JpaRepository<UserChange, Long> {
+
+    /**
+     * Retrieves the changes whose sequence number is greater than the given one, in sequence order.
+     * @param seq   the sequence number after which the changes are retrieved
+     * @param limit the maximum number of changes to retrieve
+     * @return a list of UserChange objects ordered by sequence number
+     */
+    List<UserChange> findBySeqGreaterThanOrderBySeqAsc(Long seq, Limit limit);
+}
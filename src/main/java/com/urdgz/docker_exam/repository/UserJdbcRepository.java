@@ -0,0 +1,249 @@
+package com.urdgz.docker_exam.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import com.urdgz.docker_exam.model.User;
+
+/**
+ * UserJdbcRepository performs the User operations that do not fit the JPA repository,
+ * such as reading the whole Users table through a forward-only result set or inserting
+ * many users with a single JDBC batch.
+ * @author Ulises Rodríguez García.
+ */
+@Repository
+public class UserJdbcRepository {
+
+    /**
+     * Maps a row of the Users table to a User object.
+     */
+    public static final RowMapper<User> USER_ROW_MAPPER = UserJdbcRepository::mapUser;
+
+    /**
+     * The query used to read every user ordered by ID.
+     */
+    private static final String SELECT_ALL = "SELECT id, name, email, version FROM Users WHERE deleted_at IS NULL ORDER BY id";
+
+    /**
+     * The statement used to insert a user.
+     */
+    private static final String INSERT = "INSERT INTO Users (name, email, version) VALUES (?, ?, 0)";
+
+    /**
+     * The query used to read and lock a single user by ID.
+     */
+    private static final String SELECT_FOR_UPDATE = "SELECT id, name, email, version FROM Users WHERE id = ? AND deleted_at IS NULL FOR UPDATE";
+
+    /**
+     * The statement used to delete a user.
+     */
+    private static final String DELETE = "DELETE FROM Users WHERE id = ? AND deleted_at IS NULL";
+
+    /**
+     * The statement used to soft-delete a user.
+     */
+    private static final String SOFT_DELETE = "UPDATE Users SET deleted_at = ? WHERE id = ? AND deleted_at IS NULL";
+
+    /**
+     * The statement used to remove a batch of tombstones deleted before a given moment.
+     */
+    private static final String PURGE = "DELETE FROM Users WHERE deleted_at < ? LIMIT ?";
+
+    /**
+     * The JdbcTemplate used to run the queries.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * The number of rows fetched from the database per round trip while streaming.
+     */
+    private final int fetchSize;
+
+    /**
+     * Constructs a new UserJdbcRepository with the specified JdbcTemplate and fetch size.
+     * @param jdbcTemplate the JdbcTemplate used to run the queries
+     * @param fetchSize    the number of rows fetched per round trip while streaming
+     */
+    public UserJdbcRepository(JdbcTemplate jdbcTemplate, @Value("${users.stream.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Reads every user ordered by ID and hands each one to the given consumer as soon as it is read.
+     * The rows are fetched through a forward-only, read-only result set, so only one fetch
+     * window is kept in memory regardless of the size of the table.
+     * @param consumer the consumer that receives each user
+     */
+    public void forEachUser(Consumer<User> consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                SELECT_ALL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            return statement;
+        }, (ResultSet resultSet) -> consumer.accept(mapUser(resultSet, 0)));
+    }
+
+    /**
+     * Inserts the given users with a single JDBC batch and sets the generated ID and initial version on each of them.
+     * Because the IDs are generated by the database, Hibernate cannot batch these inserts,
+     * so they are sent through JDBC directly (rewritten into multi-row inserts by the MySQL driver).
+     * @param users the users to be inserted
+     */
+    public void insertAll(List<User> users) {
+        if (users.isEmpty())
+            return;
+
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+            connection -> connection.prepareStatement(INSERT, new String[] {"id"}),
+            new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement statement, int i) throws SQLException {
+                    statement.setString(1, users.get(i).getName());
+                    statement.setString(2, users.get(i).getEmail());
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return users.size();
+                }
+            },
+            keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < users.size(); i++) {
+            users.get(i).setId(generatedId(keys.get(i)));
+            users.get(i).setVersion(0L);
+        }
+    }
+
+    /**
+     * Gets the ID from the generated keys of an inserted row.
+     * The name of the key column depends on the driver (MySQL Connector/J names it GENERATED_KEY whatever
+     * column is asked for, H2 names it ID), so the single value of the row is read instead.
+     * @param key the generated keys of the row
+     * @return the generated ID
+     */
+    static int generatedId(Map<String, Object> key) {
+        return ((Number) key.values().iterator().next()).intValue();
+    }
+
+    /**
+     * Updates the given fields of a user with a single conditional statement, only if the user still has the expected version.
+     * Null fields are left out of the statement, and the version is incremented on success.
+     * @param id              the ID of the user to be updated
+     * @param name            the new name, or null to keep the current one
+     * @param email           the new email, or null to keep the current one
+     * @param expectedVersion the version the user must have for the update to apply
+     * @return the number of updated rows, which is 0 when the user does not exist or has another version
+     */
+    public int updateIfVersion(Integer id, String name, String email, long expectedVersion) {
+        StringBuilder sql = new StringBuilder("UPDATE Users SET ");
+        Object[] args = new Object[4];
+        int count = 0;
+        if (name != null) {
+            sql.append("name = ?, ");
+            args[count++] = name;
+        }
+        if (email != null) {
+            sql.append("email = ?, ");
+            args[count++] = email;
+        }
+        sql.append("version = version + 1 WHERE id = ? AND version = ? AND deleted_at IS NULL");
+        args[count++] = id;
+        args[count++] = expectedVersion;
+        return jdbcTemplate.update(sql.toString(), Arrays.copyOf(args, count));
+    }
+
+    /**
+     * Reads the latest committed state of a user and locks its row until the end of the current transaction.
+     * @param id the ID of the user
+     * @return an Optional containing the user, or empty if it does not exist
+     */
+    public Optional<User> findByIdForUpdate(Integer id) {
+        return jdbcTemplate.query(SELECT_FOR_UPDATE, USER_ROW_MAPPER, id).stream().findFirst();
+    }
+
+    /**
+     * Deletes a user with a single statement.
+     * @param id the ID of the user to be deleted
+     * @return the number of deleted rows, which is 0 when the user does not exist
+     */
+    public int deleteById(Integer id) {
+        return jdbcTemplate.update(DELETE, id);
+    }
+
+    /**
+     * Soft-deletes a user with a single statement, leaving its row as a tombstone until it is purged.
+     * @param id        the ID of the user to be deleted
+     * @param deletedAt the moment of the deletion
+     * @return the number of deleted rows, which is 0 when the user does not exist
+     */
+    public int softDeleteById(Integer id, LocalDateTime deletedAt) {
+        return jdbcTemplate.update(SOFT_DELETE, Timestamp.valueOf(deletedAt), id);
+    }
+
+    /**
+     * Soft-deletes many users with a single statement.
+     * @param ids       the IDs of the users to be deleted
+     * @param deletedAt the moment of the deletion
+     * @return the number of deleted rows
+     */
+    public int softDeleteAllById(Collection<Integer> ids, LocalDateTime deletedAt) {
+        if (ids.isEmpty())
+            return 0;
+
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        List<Object> args = new ArrayList<>(ids.size() + 1);
+        args.add(Timestamp.valueOf(deletedAt));
+        args.addAll(ids);
+        return jdbcTemplate.update(
+            "UPDATE Users SET deleted_at = ? WHERE id IN (" + placeholders + ") AND deleted_at IS NULL", args.toArray());
+    }
+
+    /**
+     * Removes up to the given number of tombstones of users soft-deleted before the given moment.
+     * @param deletedBefore the moment before which the tombstones are removed
+     * @param limit         the maximum number of tombstones removed by the statement
+     * @return the number of removed tombstones
+     */
+    public int purgeDeletedBefore(LocalDateTime deletedBefore, int limit) {
+        return jdbcTemplate.update(PURGE, Timestamp.valueOf(deletedBefore), limit);
+    }
+
+    /**
+     * Maps the current row of the given result set to a User object.
+     * @param resultSet the result set positioned on a row of the Users table
+     * @param rowNum    the number of the current row
+     * @return the mapped User object
+     * @throws SQLException if a column cannot be read
+     */
+    private static User mapUser(ResultSet resultSet, int rowNum) throws SQLException {
+        User user = new User();
+        user.setId(resultSet.getInt("id"));
+        user.setName(resultSet.getString("name"));
+        user.setEmail(resultSet.getString("email"));
+        user.setVersion(resultSet.getLong("version"));
+        return user;
+    }
+}
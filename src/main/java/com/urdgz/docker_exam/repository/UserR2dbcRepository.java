@@ -0,0 +1,206 @@
+package com.urdgz.docker_exam.repository;
+
+import java.time.LocalDateTime;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+
+import com.urdgz.docker_exam.model.User;
+
+import io.r2dbc.spi.Readable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * UserR2dbcRepository performs the User operations of the reactive stack on the Users table through R2DBC,
+ * so no thread waits on the database. It runs the same statements as the UserJdbcRepository, and
+ * the users are read as the subscriber requests them, so a slow client slows down the query instead of
+ * piling rows up in memory.
+ * It is only created when the application runs as a reactive web application.
+ * @author Ulises Rodríguez García.
+ */
+@Repository
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class UserR2dbcRepository {
+
+    /**
+     * The query used to read every user ordered by ID.
+     */
+    private static final String SELECT_ALL = "SELECT id, name, email, version FROM Users WHERE deleted_at IS NULL ORDER BY id";
+
+    /**
+     * The query used to read a single user by ID.
+     */
+    private static final String SELECT_BY_ID = "SELECT id, name, email, version FROM Users WHERE id = :id AND deleted_at IS NULL";
+
+    /**
+     * The query used to read a single user by email.
+     */
+    private static final String SELECT_BY_EMAIL = "SELECT id, name, email, version FROM Users WHERE email = :email AND deleted_at IS NULL";
+
+    /**
+     * The query used to read and lock a single user by ID.
+     */
+    private static final String SELECT_FOR_UPDATE = SELECT_BY_ID + " FOR UPDATE";
+
+    /**
+     * The statement used to insert a user.
+     */
+    private static final String INSERT = "INSERT INTO Users (name, email, version) VALUES (:name, :email, 0)";
+
+    /**
+     * The statement used to delete a user.
+     */
+    private static final String DELETE = "DELETE FROM Users WHERE id = :id AND deleted_at IS NULL";
+
+    /**
+     * The statement used to soft-delete a user.
+     */
+    private static final String SOFT_DELETE = "UPDATE Users SET deleted_at = :deletedAt WHERE id = :id AND deleted_at IS NULL";
+
+    /**
+     * The DatabaseClient used to run the statements.
+     */
+    private final DatabaseClient databaseClient;
+
+    /**
+     * The number of rows fetched from the database per round trip while streaming.
+     */
+    private final int fetchSize;
+
+    /**
+     * Constructs a new UserR2dbcRepository with the specified DatabaseClient and fetch size.
+     * @param databaseClient the DatabaseClient used to run the statements
+     * @param fetchSize      the number of rows fetched per round trip while streaming
+     */
+    public UserR2dbcRepository(DatabaseClient databaseClient, @Value("${users.stream.fetch-size:1000}") int fetchSize) {
+        this.databaseClient = databaseClient;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Reads every user ordered by ID.
+     * @return the users, emitted as they are read
+     */
+    public Flux<User> findAll() {
+        return databaseClient.sql(SELECT_ALL)
+            .filter(statement -> statement.fetchSize(fetchSize))
+            .map(UserR2dbcRepository::mapUser)
+            .all();
+    }
+
+    /**
+     * Reads a user by ID.
+     * @param id the ID of the user
+     * @return the user, or an empty Mono if it does not exist
+     */
+    public Mono<User> findById(Integer id) {
+        return databaseClient.sql(SELECT_BY_ID)
+            .bind("id", id)
+            .map(UserR2dbcRepository::mapUser)
+            .one();
+    }
+
+    /**
+     * Reads a user by email.
+     * @param email the email of the user
+     * @return the user, or an empty Mono if it does not exist
+     */
+    public Mono<User> findByEmail(String email) {
+        return databaseClient.sql(SELECT_BY_EMAIL)
+            .bind("email", email)
+            .map(UserR2dbcRepository::mapUser)
+            .one();
+    }
+
+    /**
+     * Reads a user by ID and locks its row until the end of the transaction.
+     * @param id the ID of the user
+     * @return the user, or an empty Mono if it does not exist
+     */
+    public Mono<User> findByIdForUpdate(Integer id) {
+        return databaseClient.sql(SELECT_FOR_UPDATE)
+            .bind("id", id)
+            .map(UserR2dbcRepository::mapUser)
+            .one();
+    }
+
+    /**
+     * Inserts a user.
+     * @param user the user to insert, whose ID is ignored
+     * @return the ID generated for the user
+     */
+    public Mono<Integer> insert(User user) {
+        return databaseClient.sql(INSERT)
+            .filter(statement -> statement.returnGeneratedValues("id"))
+            .bind("name", user.getName())
+            .bind("email", user.getEmail())
+            .map(row -> row.get("id", Integer.class))
+            .one();
+    }
+
+    /**
+     * Updates the given fields of a user and increments its version.
+     * @param id    the ID of the user
+     * @param name  the new name, or null to keep the current one
+     * @param email the new email, or null to keep the current one
+     * @return the number of updated rows
+     */
+    public Mono<Long> update(Integer id, String name, String email) {
+        StringBuilder sql = new StringBuilder("UPDATE Users SET ");
+        if (name != null)
+            sql.append("name = :name, ");
+        if (email != null)
+            sql.append("email = :email, ");
+        sql.append("version = version + 1 WHERE id = :id AND deleted_at IS NULL");
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString()).bind("id", id);
+        if (name != null)
+            spec = spec.bind("name", name);
+        if (email != null)
+            spec = spec.bind("email", email);
+        return spec.fetch().rowsUpdated();
+    }
+
+    /**
+     * Deletes a user.
+     * @param id the ID of the user
+     * @return the number of deleted rows
+     */
+    public Mono<Long> deleteById(Integer id) {
+        return databaseClient.sql(DELETE)
+            .bind("id", id)
+            .fetch()
+            .rowsUpdated();
+    }
+
+    /**
+     * Marks a user as deleted, keeping its row as a tombstone.
+     * @param id        the ID of the user
+     * @param deletedAt the moment of the deletion
+     * @return the number of deleted rows
+     */
+    public Mono<Long> softDeleteById(Integer id, LocalDateTime deletedAt) {
+        return databaseClient.sql(SOFT_DELETE)
+            .bind("deletedAt", deletedAt)
+            .bind("id", id)
+            .fetch()
+            .rowsUpdated();
+    }
+
+    /**
+     * Maps a row of the Users table to a User object.
+     * @param row the row
+     * @return the User
+     */
+    private static User mapUser(Readable row) {
+        User user = new User();
+        user.setId(row.get("id", Integer.class));
+        user.setName(row.get("name", String.class));
+        user.setEmail(row.get("email", String.class));
+        user.setVersion(row.get("version", Long.class));
+        return user;
+    }
+}
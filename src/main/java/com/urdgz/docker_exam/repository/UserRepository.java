@@ -1,20 +1,55 @@
 package com.urdgz.docker_exam.repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.urdgz.docker_exam.model.User;
 
 /**
  * UserRepository is an interface for CRUD operations on a repository for the User type.
  * It extends JpaRepository to provide JPA functionalities for the User entity.
+ * Its queries run in read-only transactions unless they join a read-write one.
  * @author Ulises Rodríguez García.
  */
+@Transactional(readOnly = true)
 public interface UserRepository extends JpaRepository<User, Integer> { 
 
     /**
-     * Checks if a User with the given email exists in the database.
-     * @param email the email to check for existence
-     * @return true if an entity with the given email exists, false otherwise
+     * Retrieves the User with the given email.
+     * @param email the email of the user
+     * @return an Optional with the user, or empty if no user has the given email
+     */
+    Optional<User> findByEmail(String email);
+
+    /**
+     * Retrieves the users whose ID is greater than the given one, ordered by ID.
+     * Used for keyset pagination, so the query seeks on the primary key instead of skipping rows.
+     * @param id    the ID after which the users are retrieved
+     * @param limit the maximum number of users to retrieve
+     * @return a list of User objects ordered by ID
+     */
+    List<User> findByIdGreaterThanOrderByIdAsc(Integer id, Limit limit);
+
+    /**
+     * Retrieves which of the given emails are already used by a User, with a single IN query.
+     * @param emails the emails to check for existence
+     * @return the emails that already exist in the database
+     */
+    @Query("select u.email from User u where u.email in :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    /**
+     * Retrieves which of the given IDs belong to an existing User, with a single IN query.
+     * @param ids the IDs to check for existence
+     * @return the IDs that exist in the database
      */
-    boolean existsByEmail(String email);
+    @Query("select u.id from User u where u.id in :ids")
+    List<Integer> findExistingIds(@Param("ids") Collection<Integer> ids);
 }
@@ -0,0 +1,99 @@
+package com.urdgz.docker_exam.search;
+
+import java.util.Arrays;
+
+/**
+ * IdPostings is a growable, sorted array of user IDs, used as the posting list of a term.
+ * New users have increasing IDs, so additions are almost always appended at the end.
+ * It is not thread-safe, the UserSearchIndex guards every access.
+ * @author Ulises Rodríguez García.
+ */
+final class IdPostings {
+
+    /**
+     * The IDs, sorted in ascending order, in the first size positions.
+     */
+    private int[] ids = new int[2];
+
+    /**
+     * The number of IDs in the list.
+     */
+    private int size;
+
+    /**
+     * Adds an ID to the list, keeping it sorted.
+     * @param id the ID to be added
+     */
+    void add(int id) {
+        if (size > 0 && ids[size - 1] >= id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0)
+                return;
+
+            insert(-position - 1, id);
+            return;
+        }
+        insert(size, id);
+    }
+
+    /**
+     * Removes an ID from the list.
+     * @param id the ID to be removed
+     */
+    void remove(int id) {
+        int position = Arrays.binarySearch(ids, 0, size, id);
+        if (position < 0)
+            return;
+
+        System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+        size--;
+    }
+
+    /**
+     * Checks whether the list contains an ID.
+     * @param id the ID to look for
+     * @return true if the list contains the ID
+     */
+    boolean contains(int id) {
+        return Arrays.binarySearch(ids, 0, size, id) >= 0;
+    }
+
+    /**
+     * Gets the ID at the given position.
+     * @param index the position of the ID
+     * @return the ID
+     */
+    int get(int index) {
+        return ids[index];
+    }
+
+    /**
+     * Gets the number of IDs in the list.
+     * @return the size
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether the list is empty.
+     * @return true if the list has no IDs
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Inserts an ID at the given position, growing the array when full.
+     * @param position the position of the new ID
+     * @param id       the ID to be inserted
+     */
+    private void insert(int position, int id) {
+        if (size == ids.length)
+            ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+
+        System.arraycopy(ids, position, ids, position + 1, size - position);
+        ids[position] = id;
+        size++;
+    }
+}
@@ -0,0 +1,464 @@
+package com.urdgz.docker_exam.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.urdgz.docker_exam.cache.UserCache;
+import com.urdgz.docker_exam.dto.SearchPage;
+import com.urdgz.docker_exam.event.UserChangeEvent;
+import com.urdgz.docker_exam.model.User;
+import com.urdgz.docker_exam.repository.UserJdbcRepository;
+
+/**
+ * UserSearchIndex is an in-memory index for searching users by name and email.
+ * Every name and email is split into tokens, kept in a sorted map for exact and prefix matching,
+ * and into trigrams, kept in an inverted index for substring matching. Posting lists are sorted arrays of IDs.
+ * The index is loaded from the database in the background once the application is ready, so startup does not
+ * depend on the size of the table, and it is updated after every committed change. The listeners of two changes
+ * can run in another order than the changes committed, so a change older than the indexed version is ignored.
+ * A rebuild loads a new index without holding the lock, while the current one keeps serving searches and changes,
+ * and swaps it in once loaded, after replaying the changes that arrived meanwhile. Both indexes are held in memory
+ * during a rebuild.
+ * Matches are ranked as exact token matches first, then token prefix matches, then any other substring,
+ * and the search stops as soon as the requested page is complete. Queries shorter than a trigram
+ * only match the start of a word, as matching them anywhere would mean scanning every user.
+ * @author Ulises Rodríguez García.
+ */
+@Component
+public class UserSearchIndex {
+
+    private static final Pattern NAME_SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern EMAIL_SEPARATORS = Pattern.compile("[@._+\\-]+");
+
+    /**
+     * The time to wait before loading the index again when loading it failed.
+     */
+    private static final long REBUILD_RETRY_MILLIS = 5000;
+
+    /**
+     * The UserJdbcRepository used to load every user when the index is built.
+     */
+    private final UserJdbcRepository userJdbcRepository;
+
+    /**
+     * The lock guarding the index, searches share it and changes take it exclusively.
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * The lock held for the whole of a rebuild, so that rebuilds do not overlap.
+     */
+    private final Lock rebuildLock = new ReentrantLock();
+
+    /**
+     * The current index, replaced as a whole by a rebuild.
+     */
+    private Index index = new Index();
+
+    /**
+     * The changes that arrived since the running rebuild started, or null when no rebuild is running.
+     */
+    private List<UserChangeEvent> pendingChanges;
+
+    /**
+     * Whether the index has been loaded from the database.
+     */
+    private volatile boolean ready;
+
+    /**
+     * Constructs a new UserSearchIndex with the specified UserJdbcRepository.
+     * @param userJdbcRepository the UserJdbcRepository used to load every user when the index is built
+     */
+    public UserSearchIndex(UserJdbcRepository userJdbcRepository) {
+        this.userJdbcRepository = userJdbcRepository;
+    }
+
+    /**
+     * Starts loading the index in the background once the application is ready to serve requests.
+     * The load is retried until the database is reachable.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        Thread thread = new Thread(() -> {
+            while (!ready) {
+                try {
+                    rebuild();
+                } catch (RuntimeException exception) {
+                    try {
+                        Thread.sleep(REBUILD_RETRY_MILLIS);
+                    } catch (InterruptedException interrupted) {
+                        return;
+                    }
+                }
+            }
+        }, "user-search-index-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Loads every user from the database into a new index and replaces the current one with it.
+     * The load runs without the lock. The changes made meanwhile are applied to the current index as usual and
+     * recorded, then replayed on the new index before the swap, where the version check skips the ones
+     * the load already saw.
+     */
+    public void rebuild() {
+        rebuildLock.lock();
+        try {
+            lock.writeLock().lock();
+            try {
+                pendingChanges = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            Index loaded = new Index();
+            try {
+                userJdbcRepository.forEachUser(loaded::add);
+            } catch (RuntimeException exception) {
+                lock.writeLock().lock();
+                try {
+                    pendingChanges = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                throw exception;
+            }
+
+            lock.writeLock().lock();
+            try {
+                for (UserChangeEvent event : pendingChanges)
+                    loaded.apply(event);
+                index = loaded;
+                pendingChanges = null;
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * Updates the index after a user was created, updated or deleted.
+     * It runs after the transaction commits, or right away when there is no transaction.
+     * While a rebuild is loading, the change is also recorded to be replayed on the new index.
+     * @param event the UserChangeEvent describing the change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangeEvent event) {
+        lock.writeLock().lock();
+        try {
+            index.apply(event);
+            if (pendingChanges != null)
+                pendingChanges.add(event);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Searches the users whose name or email contains the given query, ignoring case.
+     * @param query  the text to look for
+     * @param offset the number of matches to skip
+     * @param limit  the maximum number of users in the page
+     * @return a SearchPage with the users, best matches first, and the offset of the next page
+     */
+    public SearchPage<User> search(String query, int offset, int limit) {
+        String normalized = normalize(query);
+        int wanted = offset + limit + 1;
+        Set<Integer> matches = new LinkedHashSet<>();
+        List<User> users = new ArrayList<>(limit);
+
+        lock.readLock().lock();
+        try {
+            Index index = this.index;
+            IdPostings exact = index.tokens.get(normalized);
+            if (exact != null)
+                collect(exact, matches, wanted);
+
+            for (IdPostings postings : index.tokens.subMap(normalized, false, normalized + Character.MAX_VALUE, false).values()) {
+                if (matches.size() >= wanted)
+                    break;
+                collect(postings, matches, wanted);
+            }
+
+            if (normalized.length() >= 3 && matches.size() < wanted)
+                collectSubstrings(index, normalized, matches, wanted);
+
+            int position = 0;
+            for (Integer id : matches) {
+                if (position >= offset && users.size() < limit)
+                    users.add(index.documents.get(id).toUser());
+                position++;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Integer nextOffset = matches.size() > offset + limit ? offset + limit : null;
+        return new SearchPage<>(users, nextOffset);
+    }
+
+    /**
+     * Tells whether the index has been loaded from the database and can be searched.
+     * @return true if the index is ready
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Gets the number of indexed users.
+     * @return the number of users
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index.documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the IDs of a posting list to the matches until enough have been found.
+     * @param postings the posting list
+     * @param matches  the IDs found so far, in ranking order
+     * @param wanted   the number of matches to find
+     */
+    private void collect(IdPostings postings, Set<Integer> matches, int wanted) {
+        for (int i = 0; i < postings.size() && matches.size() < wanted; i++)
+            matches.add(postings.get(i));
+    }
+
+    /**
+     * Adds the IDs of the users containing the query anywhere in their name or email.
+     * The users are taken from the shortest posting list among the trigrams of the query,
+     * checked against the others, and finally checked against the query itself.
+     * @param index   the index searched
+     * @param query   the normalized query, at least three characters long
+     * @param matches the IDs found so far, in ranking order
+     * @param wanted  the number of matches to find
+     */
+    private void collectSubstrings(Index index, String query, Set<Integer> matches, int wanted) {
+        List<IdPostings> lists = new ArrayList<>();
+        for (String trigram : trigrams(query)) {
+            IdPostings postings = index.trigrams.get(trigram);
+            if (postings == null)
+                return;
+            lists.add(postings);
+        }
+        lists.sort(Comparator.comparingInt(IdPostings::size));
+
+        IdPostings shortest = lists.get(0);
+        for (int i = 0; i < shortest.size() && matches.size() < wanted; i++) {
+            int id = shortest.get(i);
+            if (matches.contains(id) || !containsAll(lists, id))
+                continue;
+
+            Document document = index.documents.get(id);
+            if (document.name.contains(query) || document.email.contains(query))
+                matches.add(id);
+        }
+    }
+
+    /**
+     * Checks whether every posting list, but the first, contains an ID.
+     * @param lists the posting lists
+     * @param id    the ID to look for
+     * @return true if every list contains the ID
+     */
+    private boolean containsAll(List<IdPostings> lists, int id) {
+        for (int i = 1; i < lists.size(); i++)
+            if (!lists.get(i).contains(id))
+                return false;
+        return true;
+    }
+
+    /**
+     * Removes an ID from the posting list of a term, dropping the term once its list is empty.
+     * @param index the index containing the term
+     * @param term  the term
+     * @param id    the ID to be removed
+     */
+    private static void removePosting(Map<String, IdPostings> index, String term, int id) {
+        IdPostings postings = index.get(term);
+        if (postings == null)
+            return;
+
+        postings.remove(id);
+        if (postings.isEmpty())
+            index.remove(term);
+    }
+
+    /**
+     * Normalizes a text for indexing and searching.
+     * @param text the text to be normalized
+     * @return the trimmed, lower-case text
+     */
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Gets the distinct trigrams of a text.
+     * @param text the text
+     * @return the trigrams, empty when the text is shorter than three characters
+     */
+    private static Set<String> trigrams(String text) {
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i + 3 <= text.length(); i++)
+            result.add(text.substring(i, i + 3));
+        return result;
+    }
+
+    /**
+     * Index holds the indexed users and their posting lists. It is only read and changed under the lock,
+     * except while a rebuild loads a new one that nothing else can see yet.
+     */
+    private static final class Index {
+
+        /**
+         * The indexed users, keyed by ID.
+         */
+        private final Map<Integer, Document> documents = new HashMap<>();
+
+        /**
+         * The IDs of the users containing each token, sorted by token.
+         */
+        private final TreeMap<String, IdPostings> tokens = new TreeMap<>();
+
+        /**
+         * The IDs of the users containing each trigram.
+         */
+        private final Map<String, IdPostings> trigrams = new HashMap<>();
+
+        /**
+         * Applies a change to the index.
+         * A user is only replaced by a newer version of it, and only a creation adds a user that is not indexed,
+         * so that a late update cannot bring back a deleted user.
+         * @param event the UserChangeEvent describing the change
+         */
+        private void apply(UserChangeEvent event) {
+            if (event.getType() == UserChangeEvent.Type.DELETED) {
+                remove(event.getId());
+                return;
+            }
+
+            Document indexed = documents.get(event.getId());
+            if (indexed == null ? event.getType() != UserChangeEvent.Type.CREATED : indexed.version >= UserCache.versionOf(event.getUser()))
+                return;
+
+            remove(event.getId());
+            add(event.getUser());
+        }
+
+        /**
+         * Adds a user to the index.
+         * @param user the user to be added
+         */
+        private void add(User user) {
+            Document document = new Document(user);
+            documents.put(document.id, document);
+            for (String token : document.tokens())
+                tokens.computeIfAbsent(token, key -> new IdPostings()).add(document.id);
+            for (String trigram : document.trigrams())
+                trigrams.computeIfAbsent(trigram, key -> new IdPostings()).add(document.id);
+        }
+
+        /**
+         * Removes a user from the index, if present.
+         * @param id the ID of the user to be removed
+         */
+        private void remove(Integer id) {
+            Document document = documents.remove(id);
+            if (document == null)
+                return;
+
+            for (String token : document.tokens())
+                removePosting(tokens, token, document.id);
+            for (String trigram : document.trigrams())
+                removePosting(trigrams, trigram, document.id);
+        }
+    }
+
+    /**
+     * Document is an indexed user, with its name and email normalized.
+     */
+    private static final class Document {
+
+        private final int id;
+        private final long version;
+        private final String originalName;
+        private final String originalEmail;
+        private final String name;
+        private final String email;
+
+        private Document(User user) {
+            this.id = user.getId();
+            this.version = UserCache.versionOf(user);
+            this.originalName = user.getName();
+            this.originalEmail = user.getEmail();
+            this.name = normalize(user.getName());
+            this.email = normalize(user.getEmail());
+        }
+
+        /**
+         * Gets the tokens of the user: the whole name and email and each of their words.
+         * @return the tokens
+         */
+        private Set<String> tokens() {
+            Set<String> result = new HashSet<>();
+            result.add(name);
+            result.add(email);
+            for (String word : NAME_SEPARATORS.split(name))
+                result.add(word);
+            for (String word : EMAIL_SEPARATORS.split(email))
+                result.add(word);
+            result.remove("");
+            return result;
+        }
+
+        /**
+         * Gets the trigrams of the name and email of the user.
+         * @return the trigrams
+         */
+        private Set<String> trigrams() {
+            Set<String> result = UserSearchIndex.trigrams(name);
+            result.addAll(UserSearchIndex.trigrams(email));
+            return result;
+        }
+
+        /**
+         * Creates the User represented by this document.
+         * @return the user
+         */
+        private User toUser() {
+            User user = new User();
+            user.setId(id);
+            user.setName(originalName);
+            user.setEmail(originalEmail);
+            return user;
+        }
+    }
+}
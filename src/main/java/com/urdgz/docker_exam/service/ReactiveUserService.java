@@ -0,0 +1,58 @@
+package com.urdgz.docker_exam.service;
+
+import com.urdgz.docker_exam.dto.UserDto;
+import com.urdgz.docker_exam.model.User;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * ReactiveUserService is the non-blocking counterpart of the UserService, used by the reactive stack.
+ * Its operations return immediately and emit their result, or a CustomApiException, once the database answers.
+ * @author Ulises Rodríguez García.
+ */
+public interface ReactiveUserService {
+
+    /**
+     * Retrieves every user ordered by ID.
+     * @return the users, emitted as they are read from the database
+     */
+    Flux<User> getAllUsers();
+
+    /**
+     * Retrieves a user by their ID.
+     * @param id the ID of the user
+     * @return the User object
+     */
+    Mono<User> getUserById(Integer id);
+
+    /**
+     * Retrieves a user by their email.
+     * @param email the email of the user
+     * @return the User object
+     */
+    Mono<User> getUserByEmail(String email);
+
+    /**
+     * Creates a new user.
+     * @param user the User object to be created
+     * @return the created User object
+     */
+    Mono<User> createUser(User user);
+
+    /**
+     * Updates an existing user partially with the given UserDto.
+     * @param id              the ID of the user to be updated
+     * @param userDto         the UserDto object containing the updated user information
+     * @param expectedVersion the version the user must have, or null to update any version
+     * @return the updated User object
+     */
+    Mono<User> patchUser(Integer id, UserDto userDto, Long expectedVersion);
+
+    /**
+     * Deletes a user by their ID.
+     * @param id the ID of the user to be deleted
+     * @return a Mono completing once the user is deleted
+     */
+    Mono<Void> deleteUser(Integer id);
+}
@@ -0,0 +1,229 @@
+package com.urdgz.docker_exam.service;
+
+import java.time.LocalDateTime;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionSynchronization;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import com.urdgz.docker_exam.dto.UserDto;
+import com.urdgz.docker_exam.event.UserChangeEvent;
+import com.urdgz.docker_exam.exception.CustomApiException;
+import com.urdgz.docker_exam.model.User;
+import com.urdgz.docker_exam.repository.UserChangeR2dbcRepository;
+import com.urdgz.docker_exam.repository.UserR2dbcRepository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * ReactiveUserServiceImp is the implementation of the ReactiveUserService on top of R2DBC.
+ * It follows the rules of the UserServiceImp and answers with the same errors, but it has no user cache:
+ * every lookup goes to the database without blocking a thread. Every change is written to the change log
+ * in the same reactive transaction as the change itself, so the change feed of the blocking instances sees it.
+ * Once committed, every change is also published as a UserChangeEvent, so the user cache, its shared tier and the
+ * other state derived from the Users table are updated, and the other instances are told about it, as they are
+ * for the changes of the blocking stack.
+ * It is only created when the application runs as a reactive web application.
+ * @author Ulises Rodríguez García.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserServiceImp implements ReactiveUserService {
+
+    /**
+     * The Logger used to report the listeners that failed on a committed change.
+     */
+    private static final Logger log = LoggerFactory.getLogger(ReactiveUserServiceImp.class);
+
+    /**
+     * The UserR2dbcRepository used to read and write users.
+     */
+    private final UserR2dbcRepository userR2dbcRepository;
+
+    /**
+     * The UserChangeR2dbcRepository used to append every change to the change log.
+     */
+    private final UserChangeR2dbcRepository userChangeR2dbcRepository;
+
+    /**
+     * The TransactionalOperator running the changes in R2DBC transactions.
+     */
+    private final TransactionalOperator transactionalOperator;
+
+    /**
+     * The ApplicationEventPublisher used to announce every committed change made to a user.
+     */
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Whether deleted users are kept as tombstones instead of being removed.
+     */
+    private final boolean softDelete;
+
+    /**
+     * Constructs a new ReactiveUserServiceImp with the specified repositories and settings.
+     * @param userR2dbcRepository       the UserR2dbcRepository used to read and write users
+     * @param userChangeR2dbcRepository the UserChangeR2dbcRepository used to append every change to the change log
+     * @param transactionalOperator     the TransactionalOperator running the changes in R2DBC transactions
+     * @param eventPublisher            the ApplicationEventPublisher used to announce every committed change made to a user
+     * @param softDelete                whether deleted users are kept as tombstones instead of being removed
+     */
+    public ReactiveUserServiceImp(UserR2dbcRepository userR2dbcRepository,
+            UserChangeR2dbcRepository userChangeR2dbcRepository, TransactionalOperator transactionalOperator,
+            ApplicationEventPublisher eventPublisher, @Value("${users.delete.soft:false}") boolean softDelete) {
+        this.userR2dbcRepository = userR2dbcRepository;
+        this.userChangeR2dbcRepository = userChangeR2dbcRepository;
+        this.transactionalOperator = transactionalOperator;
+        this.eventPublisher = eventPublisher;
+        this.softDelete = softDelete;
+    }
+
+    /**
+     * Retrieves every user ordered by ID, read as the subscriber requests them.
+     * @return the users
+     */
+    @Override
+    public Flux<User> getAllUsers() {
+        return userR2dbcRepository.findAll();
+    }
+
+    /**
+     * Retrieves a user by their ID.
+     * @param id the ID of the user
+     * @return the User object
+     */
+    @Override
+    public Mono<User> getUserById(Integer id) {
+        return userR2dbcRepository.findById(id)
+            .switchIfEmpty(Mono.error(() -> new CustomApiException(HttpStatus.NOT_FOUND, "User not found with id " + id)));
+    }
+
+    /**
+     * Retrieves a user by their email.
+     * @param email the email of the user
+     * @return the User object
+     */
+    @Override
+    public Mono<User> getUserByEmail(String email) {
+        return userR2dbcRepository.findByEmail(email)
+            .switchIfEmpty(Mono.error(() -> new CustomApiException(HttpStatus.NOT_FOUND, "User not found with email " + email)));
+    }
+
+    /**
+     * Creates a new user.
+     * Duplicate emails are detected by the unique index when the user is inserted.
+     * An ID sent by the client is only checked for conflicts, as IDs are generated by the database.
+     * @param user the User object to be created
+     * @return the created User object
+     */
+    @Override
+    public Mono<User> createUser(User user) {
+        Mono<Boolean> idTaken = user.getId() == null
+            ? Mono.just(false)
+            : userR2dbcRepository.findById(user.getId()).hasElement();
+
+        Mono<User> created = idTaken.flatMap(taken -> {
+            if (taken)
+                return Mono.error(new CustomApiException(HttpStatus.CONFLICT, "A user with the same id already exists"));
+
+            return userR2dbcRepository.insert(user).flatMap(id -> {
+                User createdUser = user.copy();
+                createdUser.setId(id);
+                createdUser.setVersion(0L);
+                return record(UserChangeEvent.created(createdUser)).thenReturn(createdUser);
+            });
+        });
+        return transactionalOperator.transactional(created).onErrorMap(UserServiceImp::isEmailConflict, exception -> emailConflict());
+    }
+
+    /**
+     * Updates an existing user partially with the given UserDto.
+     * The user is read and locked first, so the version check and the update cannot interleave with another change.
+     * @param id              the ID of the user to be updated
+     * @param userDto         the UserDto object containing the updated user information
+     * @param expectedVersion the version the user must have, or null to update any version
+     * @return the updated User object
+     */
+    @Override
+    public Mono<User> patchUser(Integer id, UserDto userDto, Long expectedVersion) {
+        Mono<User> patched = userR2dbcRepository.findByIdForUpdate(id)
+            .switchIfEmpty(Mono.error(() -> new CustomApiException(HttpStatus.NOT_FOUND, "User not found with id " + id)))
+            .flatMap(current -> {
+                if (expectedVersion != null && !expectedVersion.equals(current.getVersion()))
+                    return Mono.error(new CustomApiException(HttpStatus.PRECONDITION_FAILED, "User with id " + id + " has been modified since it was read"));
+
+                if (userDto.getName() == null && userDto.getEmail() == null)
+                    return Mono.just(current);
+
+                User patchedUser = current.copy();
+                if (userDto.getName() != null)
+                    patchedUser.setName(userDto.getName());
+                if (userDto.getEmail() != null)
+                    patchedUser.setEmail(userDto.getEmail());
+                patchedUser.setVersion(current.getVersion() + 1);
+
+                return userR2dbcRepository.update(id, userDto.getName(), userDto.getEmail())
+                    .then(record(UserChangeEvent.updated(patchedUser, current.getEmail())))
+                    .thenReturn(patchedUser);
+            });
+        return transactionalOperator.transactional(patched).onErrorMap(UserServiceImp::isEmailConflict, exception -> emailConflict());
+    }
+
+    /**
+     * Deletes a user by their ID with a single statement, whose row count tells whether the user existed.
+     * In soft-delete mode the row is kept as a tombstone until it is purged.
+     * @param id the ID of the user to be deleted
+     * @return a Mono completing once the user is deleted
+     */
+    @Override
+    public Mono<Void> deleteUser(Integer id) {
+        Mono<Long> deleted = softDelete
+            ? userR2dbcRepository.softDeleteById(id, LocalDateTime.now())
+            : userR2dbcRepository.deleteById(id);
+
+        return transactionalOperator.transactional(deleted.flatMap(rows -> rows == 0
+            ? Mono.error(new CustomApiException(HttpStatus.NOT_FOUND, "User not found with id " + id))
+            : record(UserChangeEvent.deleted(id))));
+    }
+
+    /**
+     * Writes a change to the change log in the current reactive transaction, and publishes it once the transaction commits.
+     * The listeners block, so they run on a worker thread; the change is answered once they are done, as in the blocking stack.
+     * @param event the UserChangeEvent describing the change
+     * @return a Mono completing once the change is written
+     */
+    private Mono<Void> record(UserChangeEvent event) {
+        return userChangeR2dbcRepository.append(event)
+            .then(TransactionSynchronizationManager.forCurrentTransaction())
+            .doOnNext(manager -> manager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public Mono<Void> afterCommit() {
+                    return Mono.fromRunnable(() -> eventPublisher.publishEvent(event.recorded()))
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .onErrorResume(RuntimeException.class, exception -> {
+                            log.warn("Listeners of the committed change of user {} failed", event.getId(), exception);
+                            return Mono.empty();
+                        })
+                        .then();
+                }
+            }))
+            .then();
+    }
+
+    /**
+     * Builds the error returned when an email is already taken by another user.
+     * @return the CustomApiException with 409
+     */
+    private static CustomApiException emailConflict() {
+        return new CustomApiException(HttpStatus.CONFLICT, "A user with the same email already exists");
+    }
+}
@@ -0,0 +1,304 @@
+package com.urdgz.docker_exam.service;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import com.urdgz.docker_exam.cache.UserListing;
+import com.urdgz.docker_exam.dto.BatchItemResult;
+import com.urdgz.docker_exam.dto.CursorPage;
+import com.urdgz.docker_exam.dto.SearchPage;
+import com.urdgz.docker_exam.dto.UserDto;
+import com.urdgz.docker_exam.dto.UserListingDelta;
+import com.urdgz.docker_exam.dto.UserPatchItem;
+import com.urdgz.docker_exam.event.UserChangeEvent;
+import com.urdgz.docker_exam.exception.CustomApiException;
+import com.urdgz.docker_exam.model.User;
+import com.urdgz.docker_exam.shard.ShardedUserRepository;
+
+import io.micrometer.core.annotation.Timed;
+
+/**
+ * ShardedUserServiceImp is the implementation of the UserService used when the Users table is sharded.
+ * It replaces the UserServiceImp when the users.sharding.shard-urls property is set, and serves the creation,
+ * lookups, patches, deletions, listings and pages of users from the shards through the ShardedUserRepository.
+ * The user cache, the search index and the in-memory listing are loaded from the main database, so they are not
+ * used: the search, the changes of the listing and the batches answer 501 Not Implemented, and soft deletes
+ * are refused when the application starts. Every change is still published, so the change feed keeps working.
+ * @author Ulises Rodríguez García.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "users.sharding.shard-urls")
+@Timed(value = "users.service", description = "Time spent in each user service method", histogram = true)
+public class ShardedUserServiceImp implements UserService {
+
+    /**
+     * The ShardedUserRepository the users are read from and written to.
+     */
+    private final ShardedUserRepository shardedUserRepository;
+
+    /**
+     * The ApplicationEventPublisher used to announce every change made to a user.
+     */
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * The maximum number of users that can be requested in a single page.
+     */
+    private final int maxPageSize;
+
+    /**
+     * Constructs a new ShardedUserServiceImp with the specified repository and settings.
+     * @param shardedUserRepository the ShardedUserRepository the users are read from and written to
+     * @param eventPublisher        the ApplicationEventPublisher used to announce every change made to a user
+     * @param maxPageSize           the maximum number of users that can be requested in a single page
+     * @param softDelete            whether deleted users are kept as tombstones, which the shards do not support
+     * @throws IllegalStateException if soft deletes are enabled
+     */
+    public ShardedUserServiceImp(ShardedUserRepository shardedUserRepository, ApplicationEventPublisher eventPublisher,
+            @Value("${users.page.max-size:1000}") int maxPageSize,
+            @Value("${users.delete.soft:false}") boolean softDelete) {
+        if (softDelete)
+            throw new IllegalStateException("users.delete.soft is not supported when the Users table is sharded");
+
+        this.shardedUserRepository = shardedUserRepository;
+        this.eventPublisher = eventPublisher;
+        this.maxPageSize = maxPageSize;
+    }
+
+    /**
+     * Retrieves a list of all users, merged in ID order from every shard.
+     * @return a list of User objects
+     */
+    @Override
+    public List<User> getAllUsers() {
+        return Collections.unmodifiableList(shardedUserRepository.findAll());
+    }
+
+    /**
+     * The in-memory listing is loaded from the main database, so it is never available.
+     * @return an empty Optional, so the listing is read from the shards
+     */
+    @Override
+    public Optional<UserListing> getUserListing() {
+        return Optional.empty();
+    }
+
+    /**
+     * The changes of the listing are kept by the in-memory listing, which is not used with shards.
+     * @param since the token of the version the client has
+     * @return never
+     * @throws CustomApiException with 501
+     */
+    @Override
+    public UserListingDelta getUserListingChanges(String since) {
+        throw notSupported("The changes of the listing are");
+    }
+
+    /**
+     * Retrieves a user by their ID from its shard.
+     * @param id the ID of the user
+     * @return the User object
+     */
+    @Override
+    public User getUserById(Integer id) {
+        return shardedUserRepository.findById(id)
+            .orElseThrow(() -> new CustomApiException(HttpStatus.NOT_FOUND, "User not found with id " + id));
+    }
+
+    /**
+     * Retrieves a user by their email, through the email lookup table.
+     * @param email the email of the user
+     * @return the User object
+     */
+    @Override
+    public User getUserByEmail(String email) {
+        return shardedUserRepository.findByEmail(email)
+            .orElseThrow(() -> new CustomApiException(HttpStatus.NOT_FOUND, "User not found with email " + email));
+    }
+
+    /**
+     * Retrieves a page of users ordered by ID, merged from the first users of every shard after the cursor.
+     * One extra row is fetched to find out whether there is a next page.
+     * @param after the opaque cursor returned with the previous page, or null for the first page
+     * @param limit the maximum number of users in the page
+     * @return a CursorPage with the users and the cursor of the next page
+     */
+    @Override
+    public CursorPage<User> getUsersPage(String after, int limit) {
+        if (limit < 1 || limit > maxPageSize)
+            throw new CustomApiException(HttpStatus.BAD_REQUEST, "Limit must be between 1 and " + maxPageSize);
+
+        List<User> users = shardedUserRepository.findByIdGreaterThan(UserCursor.decode(after), limit + 1);
+        if (users.size() <= limit)
+            return new CursorPage<>(users, null);
+
+        List<User> page = users.subList(0, limit);
+        return new CursorPage<>(page, UserCursor.encode(page.get(limit - 1).getId()));
+    }
+
+    /**
+     * The search index is loaded from the main database, so it is not used with shards.
+     * @param query  the text to look for
+     * @param offset the number of matches to skip
+     * @param limit  the maximum number of users in the page
+     * @return never
+     * @throws CustomApiException with 501
+     */
+    @Override
+    public SearchPage<User> searchUsers(String query, int offset, int limit) {
+        throw notSupported("Search is");
+    }
+
+    /**
+     * Streams every user ordered by ID to the given consumer, reading the shards one merged page at a time,
+     * so at most a page of users is held in memory.
+     * @param consumer the consumer that receives each user
+     */
+    @Override
+    public void streamAllUsers(Consumer<User> consumer) {
+        int after = 0;
+        List<User> page;
+        do {
+            page = shardedUserRepository.findByIdGreaterThan(after, maxPageSize);
+            page.forEach(consumer);
+            if (!page.isEmpty())
+                after = page.get(page.size() - 1).getId();
+        } while (page.size() == maxPageSize);
+    }
+
+    /**
+     * Creates a new user on its shard, claiming its email in the email lookup table first.
+     * An ID sent by the client is only checked for conflicts, as IDs are allocated from the sequence.
+     * @param user the User object to be created
+     * @return the created User object
+     */
+    @Override
+    public User createUser(User user) {
+        if (user.getId() != null && shardedUserRepository.findById(user.getId()).isPresent())
+            throw new CustomApiException(HttpStatus.CONFLICT, "A user with the same id already exists");
+
+        user.setId(null);
+
+        try {
+            User createdUser = shardedUserRepository.insert(user);
+            eventPublisher.publishEvent(UserChangeEvent.created(createdUser));
+            return createdUser;
+        } catch (DuplicateKeyException exception) {
+            throw emailConflict();
+        }
+    }
+
+    /**
+     * Updates an existing user partially with the given UserDto, with a conditional update on its version.
+     * When the user changes between the read and the update, the update is retried on its latest state,
+     * unless the client expected a version, in which case it fails.
+     * @param id              the ID of the user to be updated
+     * @param userDto         the UserDto object containing the updated user information
+     * @param expectedVersion the version the user must have, or null to update any version
+     * @return the updated User object
+     */
+    @Override
+    public User patchUser(Integer id, UserDto userDto, Long expectedVersion) {
+        while (true) {
+            User current = getUserById(id);
+            if (expectedVersion != null && !expectedVersion.equals(current.getVersion()))
+                throw new CustomApiException(HttpStatus.PRECONDITION_FAILED, "User with id " + id + " has been modified since it was read");
+
+            if (userDto.getName() == null && userDto.getEmail() == null)
+                return current;
+
+            User patchedUser = current.copy();
+            if (userDto.getName() != null)
+                patchedUser.setName(userDto.getName());
+            if (userDto.getEmail() != null)
+                patchedUser.setEmail(userDto.getEmail());
+
+            int updated;
+            try {
+                updated = shardedUserRepository.update(id, patchedUser.getName(), patchedUser.getEmail(), current.getVersion());
+            } catch (DuplicateKeyException exception) {
+                throw emailConflict();
+            }
+
+            if (updated == 1) {
+                patchedUser.setVersion(current.getVersion() + 1);
+                eventPublisher.publishEvent(UserChangeEvent.updated(patchedUser, current.getEmail()));
+                return patchedUser;
+            }
+        }
+    }
+
+    /**
+     * Deletes a user from its shard and releases their email.
+     * @param id the ID of the user to be deleted
+     */
+    @Override
+    public void deleteUser(Integer id) {
+        if (!shardedUserRepository.deleteById(id))
+            throw new CustomApiException(HttpStatus.NOT_FOUND, "User not found with id " + id);
+
+        eventPublisher.publishEvent(UserChangeEvent.deleted(id));
+    }
+
+    /**
+     * Batches are written in a single transaction, which the shards do not share.
+     * The importer and the asynchronous creation fall back to creating each user on its own.
+     * @param users the User objects to be created
+     * @return never
+     * @throws CustomApiException with 501
+     */
+    @Override
+    public List<BatchItemResult> createUsers(List<User> users) {
+        throw notSupported("Batch operations are");
+    }
+
+    /**
+     * Batches are written in a single transaction, which the shards do not share.
+     * @param patches the entries containing the ID and the updated information of each user
+     * @return never
+     * @throws CustomApiException with 501
+     */
+    @Override
+    public List<BatchItemResult> patchUsers(List<UserPatchItem> patches) {
+        throw notSupported("Batch operations are");
+    }
+
+    /**
+     * Batches are written in a single transaction, which the shards do not share.
+     * @param ids the IDs of the users to be deleted
+     * @return never
+     * @throws CustomApiException with 501
+     */
+    @Override
+    public List<BatchItemResult> deleteUsers(List<Integer> ids) {
+        throw notSupported("Batch operations are");
+    }
+
+    /**
+     * Builds the exception thrown when the email is already claimed by another user.
+     * @return the CustomApiException to be thrown
+     */
+    private static CustomApiException emailConflict() {
+        return new CustomApiException(HttpStatus.CONFLICT, "A user with the same email already exists");
+    }
+
+    /**
+     * Builds the exception thrown by the features that are not available on shards.
+     * @param feature the feature, with its verb, such as "Search is"
+     * @return the CustomApiException to be thrown
+     */
+    private static CustomApiException notSupported(String feature) {
+        return new CustomApiException(HttpStatus.NOT_IMPLEMENTED, feature + " not supported when the Users table is sharded");
+    }
+}
@@ -0,0 +1,161 @@
+package com.urdgz.docker_exam.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.urdgz.docker_exam.datasource.PrimaryPin;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * SingleFlight coalesces concurrent identical reads: while a call for an operation and its arguments is running,
+ * every other caller asking for the same operation and arguments waits for that call and gets its result, instead
+ * of running its own query. A flight is registered with a single putIfAbsent on a ConcurrentHashMap, and it is
+ * removed before its result is published, so a caller arriving afterwards starts a new one and never gets a result
+ * older than its own request. A failure, such as a CustomApiException with NOT_FOUND, is thrown to every caller
+ * of the flight.
+ * Reads pinned to the primary are never coalesced, since a flight started before the caller's own write would hide it.
+ * Results are shared between the callers of a flight, so they must be treated as read-only or copied by each caller.
+ * A call must not start a flight with its own operation and arguments, which would wait for itself.
+ * It is disabled by setting users.single-flight.enabled to false.
+ * @author Ulises Rodríguez García.
+ */
+@Component
+public class SingleFlight {
+
+    /**
+     * The flights running, by operation and arguments.
+     */
+    private final ConcurrentMap<List<Object>, CompletableFuture<Object>> flights = new ConcurrentHashMap<>();
+
+    /**
+     * The MeterRegistry the counters of each operation are registered in.
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Whether concurrent identical calls are coalesced.
+     */
+    private final boolean enabled;
+
+    /**
+     * The number of calls that ran their own query.
+     */
+    private final LongAdder executed = new LongAdder();
+
+    /**
+     * The number of calls that waited for the query of another call.
+     */
+    private final LongAdder collapsed = new LongAdder();
+
+    /**
+     * Constructs a new SingleFlight.
+     * @param meterRegistry the MeterRegistry the counters are published to
+     * @param enabled       whether concurrent identical calls are coalesced
+     */
+    public SingleFlight(MeterRegistry meterRegistry, @Value("${users.single-flight.enabled:true}") boolean enabled) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        Gauge.builder("users.single-flight.in-flight", flights, ConcurrentMap::size)
+            .description("Number of reads currently shared by concurrent callers")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Runs a call, or waits for the identical call already running and returns its result.
+     * @param <T>       the type of the result
+     * @param operation the name of the operation
+     * @param call      the call to be run when no identical call is running
+     * @param arguments the arguments of the operation, which must implement equals and hashCode
+     * @return the result of the call
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String operation, Supplier<T> call, Object... arguments) {
+        if (!enabled || PrimaryPin.isPinned())
+            return call.get();
+
+        List<Object> key = new ArrayList<>(arguments.length + 1);
+        key.add(operation);
+        key.addAll(Arrays.asList(arguments));
+
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> running = flights.putIfAbsent(key, flight);
+        if (running != null) {
+            collapsed.increment();
+            counter(operation, "collapsed").increment();
+            return (T) join(running);
+        }
+
+        executed.increment();
+        counter(operation, "executed").increment();
+        try {
+            T result = call.get();
+            flights.remove(key, flight);
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException | Error exception) {
+            flights.remove(key, flight);
+            flight.completeExceptionally(exception);
+            throw exception;
+        }
+    }
+
+    /**
+     * Gets the number of calls that ran their own query.
+     * @return the number of executed calls
+     */
+    public long executedCount() {
+        return executed.sum();
+    }
+
+    /**
+     * Gets the number of calls that got the result of another call instead of running their own query.
+     * @return the number of collapsed calls
+     */
+    public long collapsedCount() {
+        return collapsed.sum();
+    }
+
+    /**
+     * Gets the counter of the calls of an operation with the given result.
+     * @param operation the name of the operation
+     * @param result    executed or collapsed
+     * @return the Counter
+     */
+    private Counter counter(String operation, String result) {
+        return Counter.builder("users.single-flight.calls")
+            .description("Number of reads that ran their own query or shared the query of a concurrent identical read")
+            .tag("operation", operation)
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Waits for a flight and returns its result, throwing the exception of its call if it failed.
+     * @param flight the flight
+     * @return the result of the flight
+     */
+    private static Object join(CompletableFuture<Object> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException exception) {
+            if (exception.getCause() instanceof RuntimeException cause)
+                throw cause;
+            if (exception.getCause() instanceof Error cause)
+                throw cause;
+            throw exception;
+        }
+    }
+}
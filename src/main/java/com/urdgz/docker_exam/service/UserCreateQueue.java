@@ -0,0 +1,328 @@
+package com.urdgz.docker_exam.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.urdgz.docker_exam.dto.BatchItemResult;
+import com.urdgz.docker_exam.dto.UserCreateStatus;
+import com.urdgz.docker_exam.exception.CustomApiException;
+import com.urdgz.docker_exam.model.User;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * UserCreateQueue is a bounded write-behind queue for user creations.
+ * Requests are accepted under an idempotency key and queued, and a single background thread
+ * drains them to the database in groups through the batch creation of the UserService.
+ * The outcome of each request, including email conflicts, is kept under its key for a while.
+ * Keys are scoped by client, so two clients choosing the same key never see each other's requests, and each key
+ * is bound to a hash of the user it was first sent with, so reusing it for another user is rejected.
+ * It is only created when the users.async.enabled property is true.
+ * @author Ulises Rodríguez García.
+ */
+@Component
+@ConditionalOnProperty(name = "users.async.enabled", havingValue = "true")
+public class UserCreateQueue implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(UserCreateQueue.class);
+
+    /**
+     * The UserService used to create the queued users.
+     */
+    private final UserService userService;
+
+    /**
+     * The queued creations, waiting to be written.
+     */
+    private final BlockingQueue<PendingCreate> queue;
+
+    /**
+     * Every known request, keyed by client and idempotency key.
+     */
+    private final Cache<List<String>, TrackedCreate> statuses;
+
+    /**
+     * The maximum number of creations written in a single group.
+     */
+    private final int maxGroupSize;
+
+    /**
+     * The number of requests rejected because the queue was full.
+     */
+    private final Counter rejected;
+
+    /**
+     * The thread draining the queue, or null when stopped.
+     */
+    private volatile Thread drainer;
+
+    /**
+     * Whether the queue accepts and drains creations.
+     */
+    private volatile boolean running;
+
+    /**
+     * Constructs a new UserCreateQueue with the specified UserService and sizing.
+     * @param userService   the UserService used to create the queued users
+     * @param meterRegistry the MeterRegistry the queue size and rejections are published to
+     * @param capacity      the maximum number of creations waiting in the queue
+     * @param maxGroupSize  the maximum number of creations written in a single group
+     * @param statusTtl     the time the status of a request is kept after it was last updated
+     */
+    public UserCreateQueue(UserService userService, MeterRegistry meterRegistry,
+            @Value("${users.async.queue-capacity:10000}") int capacity,
+            @Value("${users.batch.max-size:1000}") int maxGroupSize,
+            @Value("${users.async.status-ttl:1h}") Duration statusTtl) {
+        this.userService = userService;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxGroupSize = maxGroupSize;
+        this.statuses = Caffeine.newBuilder()
+            .expireAfterWrite(statusTtl)
+            .build();
+        this.rejected = meterRegistry.counter("users.async.rejected");
+        Gauge.builder("users.async.queue.size", queue, BlockingQueue::size)
+            .description("Number of user creations waiting to be written")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Queues the creation of a user under the given idempotency key of a client.
+     * A key the client already used for the same user is not queued again, and its current status is returned instead.
+     * @param client the key identifying the client, such as its API key or IP address
+     * @param key    the idempotency key of the request
+     * @param user   the user to be created, already validated
+     * @return the status of the request
+     * @throws CustomApiException with 422 if the client already used the key for another user,
+     *                            with 429 if the queue is full, and with 503 if the queue is not running
+     */
+    public UserCreateStatus submit(String client, String key, User user) {
+        if (!running)
+            throw new CustomApiException(HttpStatus.SERVICE_UNAVAILABLE, "User creation queue is not running");
+
+        List<String> id = List.of(client, key);
+        TrackedCreate pending = new TrackedCreate(fingerprint(user), UserCreateStatus.pending(key));
+        TrackedCreate existing = statuses.asMap().putIfAbsent(id, pending);
+        if (existing != null) {
+            if (!Arrays.equals(existing.fingerprint(), pending.fingerprint()))
+                throw new CustomApiException(HttpStatus.UNPROCESSABLE_ENTITY, "Idempotency-Key was already used for a different user");
+            return existing.status();
+        }
+
+        if (!queue.offer(new PendingCreate(id, pending.fingerprint(), user))) {
+            statuses.invalidate(id);
+            rejected.increment();
+            throw new CustomApiException(HttpStatus.TOO_MANY_REQUESTS, "Too many pending user creations, please retry later");
+        }
+
+        return pending.status();
+    }
+
+    /**
+     * Retrieves the status of the request with the given idempotency key of a client.
+     * @param client the key identifying the client, such as its API key or IP address
+     * @param key    the idempotency key of the request
+     * @return an Optional with the status, or empty if the client has no such key or it expired
+     */
+    public Optional<UserCreateStatus> getStatus(String client, String key) {
+        return Optional.ofNullable(statuses.getIfPresent(List.of(client, key))).map(TrackedCreate::status);
+    }
+
+    /**
+     * Drains the queue until the queue is stopped and empty.
+     */
+    private void drain() {
+        List<PendingCreate> group = new ArrayList<>(maxGroupSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingCreate first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null)
+                    continue;
+
+                group.add(first);
+                queue.drainTo(group, maxGroupSize - 1);
+                write(group);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    /**
+     * Writes a group of creations in a single batch and records the outcome of each one.
+     * When the batch fails as a whole, such as when a concurrent request took one of the emails,
+     * the creations are retried one by one so that only the conflicting ones fail.
+     * @param group the creations to be written
+     */
+    private void write(List<PendingCreate> group) {
+        List<BatchItemResult> results;
+        try {
+            results = userService.createUsers(group.stream().map(PendingCreate::user).toList());
+        } catch (RuntimeException exception) {
+            group.forEach(this::writeOne);
+            return;
+        }
+
+        for (int i = 0; i < group.size(); i++) {
+            BatchItemResult result = results.get(i);
+            record(group.get(i), HttpStatus.valueOf(result.getStatus()), result.getMessage(), result.getData());
+        }
+    }
+
+    /**
+     * Writes a single creation and records its outcome.
+     * @param pending the creation to be written
+     */
+    private void writeOne(PendingCreate pending) {
+        try {
+            User created = userService.createUser(pending.user());
+            record(pending, HttpStatus.CREATED, "User created successfully", created);
+        } catch (CustomApiException exception) {
+            record(pending, exception.getStatus(), exception.getMessage(), null);
+        } catch (RuntimeException exception) {
+            log.warn("Queued user creation {} failed", pending.key(), exception);
+            record(pending, HttpStatus.INTERNAL_SERVER_ERROR, "User creation failed", null);
+        }
+    }
+
+    /**
+     * Records the outcome of a creation under its client and idempotency key.
+     * @param pending the creation
+     * @param status  the HTTP status of the outcome
+     * @param message the descriptive message of the outcome
+     * @param data    the created user, or null when there is none
+     */
+    private void record(PendingCreate pending, HttpStatus status, String message, User data) {
+        statuses.put(pending.id(), new TrackedCreate(pending.fingerprint(),
+            UserCreateStatus.done(pending.key(), status, message, data)));
+    }
+
+    /**
+     * Hashes the fields of a user that are written, so a key can be bound to the user it was sent with.
+     * @param user the user
+     * @return the SHA-256 hash of the name and email of the user
+     */
+    private static byte[] fingerprint(User user) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(String.valueOf(user.getName()).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(String.valueOf(user.getEmail()).getBytes(StandardCharsets.UTF_8));
+            return digest.digest();
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException("SHA-256 is not available", exception);
+        }
+    }
+
+    /**
+     * Starts the thread draining the queue.
+     */
+    @Override
+    public void start() {
+        running = true;
+        Thread thread = new Thread(this::drain, "user-create-queue");
+        thread.setDaemon(true);
+        thread.start();
+        drainer = thread;
+    }
+
+    /**
+     * Stops accepting creations and waits until the ones already queued are written.
+     */
+    @Override
+    public void stop() {
+        running = false;
+        Thread thread = drainer;
+        drainer = null;
+        if (thread == null)
+            return;
+
+        try {
+            thread.join();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * PendingCreate is a creation waiting in the queue, together with its client, idempotency key and fingerprint.
+     */
+    private static final class PendingCreate {
+
+        private final List<String> id;
+        private final byte[] fingerprint;
+        private final User user;
+
+        private PendingCreate(List<String> id, byte[] fingerprint, User user) {
+            this.id = id;
+            this.fingerprint = fingerprint;
+            this.user = user;
+        }
+
+        private List<String> id() {
+            return id;
+        }
+
+        private String key() {
+            return id.get(1);
+        }
+
+        private byte[] fingerprint() {
+            return fingerprint;
+        }
+
+        private User user() {
+            return user;
+        }
+    }
+
+    /**
+     * TrackedCreate is the status of a known request, together with the fingerprint of the user it was sent with.
+     */
+    private static final class TrackedCreate {
+
+        private final byte[] fingerprint;
+        private final UserCreateStatus status;
+
+        private TrackedCreate(byte[] fingerprint, UserCreateStatus status) {
+            this.fingerprint = fingerprint;
+            this.status = status;
+        }
+
+        private byte[] fingerprint() {
+            return fingerprint;
+        }
+
+        private UserCreateStatus status() {
+            return status;
+        }
+    }
+}
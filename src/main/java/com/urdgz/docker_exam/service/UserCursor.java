@@ -0,0 +1,56 @@
+package com.urdgz.docker_exam.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.springframework.http.HttpStatus;
+
+import com.urdgz.docker_exam.exception.CustomApiException;
+
+/**
+ * UserCursor encodes and decodes the opaque cursors used to paginate the user listing.
+ * A cursor wraps the ID of the last user of a page so that the next page can be fetched
+ * with a keyset query instead of an offset.
+ * @author Ulises Rodríguez García.
+ */
+final class UserCursor {
+
+    /**
+     * The prefix written before the ID inside a cursor.
+     */
+    private static final String PREFIX = "id:";
+
+    private UserCursor() {
+    }
+
+    /**
+     * Encodes the given user ID into an opaque cursor.
+     * @param id the ID of the last user of a page
+     * @return the opaque cursor
+     */
+    static String encode(Integer id) {
+        byte[] raw = (PREFIX + id).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+
+    /**
+     * Decodes the given opaque cursor into a user ID.
+     * @param cursor the opaque cursor, or null to start from the beginning
+     * @return the ID wrapped by the cursor, or 0 when the cursor is null
+     * @throws CustomApiException if the cursor is malformed
+     */
+    static int decode(String cursor) {
+        if (cursor == null || cursor.isEmpty())
+            return 0;
+
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!raw.startsWith(PREFIX))
+                throw new IllegalArgumentException(raw);
+
+            return Integer.parseInt(raw.substring(PREFIX.length()));
+        } catch (IllegalArgumentException exception) {
+            throw new CustomApiException(HttpStatus.BAD_REQUEST, "Invalid cursor " + cursor);
+        }
+    }
+}
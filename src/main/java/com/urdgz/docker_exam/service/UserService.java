@@ -1,8 +1,16 @@
 package com.urdgz.docker_exam.service;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 
+import com.urdgz.docker_exam.cache.UserListing;
+import com.urdgz.docker_exam.dto.BatchItemResult;
+import com.urdgz.docker_exam.dto.CursorPage;
+import com.urdgz.docker_exam.dto.SearchPage;
 import com.urdgz.docker_exam.dto.UserDto;
+import com.urdgz.docker_exam.dto.UserListingDelta;
+import com.urdgz.docker_exam.dto.UserPatchItem;
 import com.urdgz.docker_exam.model.User;
 
 /**
@@ -18,6 +26,58 @@ public interface UserService {
      */
     List<User> getAllUsers();
 
+    /**
+     * Retrieves the current version of the in-memory listing of every user.
+     * @return an Optional with the listing, or empty if it is disabled or not loaded yet
+     */
+    Optional<UserListing> getUserListing();
+
+    /**
+     * Retrieves the changes made to the listing of every user since a version of it.
+     * @param since the token of the version the client has
+     * @return the users created or updated and the IDs of the users deleted since that version
+     */
+    UserListingDelta getUserListingChanges(String since);
+
+    /**
+     * Retrieves a user by their ID.
+     * @param id the ID of the user
+     * @return the User object
+     */
+    User getUserById(Integer id);
+
+    /**
+     * Retrieves a user by their email.
+     * @param email the email of the user
+     * @return the User object
+     */
+    User getUserByEmail(String email);
+
+    /**
+     * Retrieves a page of users ordered by ID.
+     * @param after the opaque cursor returned with the previous page, or null for the first page
+     * @param limit the maximum number of users in the page
+     * @return a CursorPage with the users and the cursor of the next page
+     */
+    CursorPage<User> getUsersPage(String after, int limit);
+
+    /**
+     * Searches the users whose name or email contains the given query, ignoring case.
+     * Exact matches of a word come first, then words starting with the query, then any other match.
+     * Queries of one or two characters only match the start of a word.
+     * @param query  the text to look for
+     * @param offset the number of matches to skip
+     * @param limit  the maximum number of users in the page
+     * @return a SearchPage with the users, best matches first, and the offset of the next page
+     */
+    SearchPage<User> searchUsers(String query, int offset, int limit);
+
+    /**
+     * Streams every user ordered by ID to the given consumer without loading them all in memory.
+     * @param consumer the consumer that receives each user
+     */
+    void streamAllUsers(Consumer<User> consumer);
+
     /**
      * Creates a new user.
      * @param userDto the UserDto object to be created
@@ -31,11 +91,43 @@ public interface UserService {
      * @param userDto the UserDto object containing the updated user information
      * @return the updated User object
      */
-    User patchUser(Integer id, UserDto userDto);
+    default User patchUser(Integer id, UserDto userDto) {
+        return patchUser(id, userDto, null);
+    }
+
+    /**
+     * Updates an existing user partially with the given UserDto, only if it still has the expected version.
+     * @param id              the ID of the user to be updated
+     * @param userDto         the UserDto object containing the updated user information
+     * @param expectedVersion the version the user must have, or null to update any version
+     * @return the updated User object
+     */
+    User patchUser(Integer id, UserDto userDto, Long expectedVersion);
 
     /**
      * Deletes a user by their ID.
      * @param id the ID of the user to be deleted
      */
     void deleteUser(Integer id);
+
+    /**
+     * Creates many users at once.
+     * @param users the User objects to be created
+     * @return the outcome of each entry, in the same order as the given users
+     */
+    List<BatchItemResult> createUsers(List<User> users);
+
+    /**
+     * Updates many existing users partially at once.
+     * @param patches the entries containing the ID and the updated information of each user
+     * @return the outcome of each entry, in the same order as the given patches
+     */
+    List<BatchItemResult> patchUsers(List<UserPatchItem> patches);
+
+    /**
+     * Deletes many users by their IDs at once.
+     * @param ids the IDs of the users to be deleted
+     * @return the outcome of each entry, in the same order as the given IDs
+     */
+    List<BatchItemResult> deleteUsers(List<Integer> ids);
 }
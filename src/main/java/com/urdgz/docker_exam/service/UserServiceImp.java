@@ -1,98 +1,616 @@
 package com.urdgz.docker_exam.service;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.urdgz.docker_exam.cache.UserCache;
+import com.urdgz.docker_exam.cache.UserListing;
+import com.urdgz.docker_exam.cache.UserListingSnapshot;
+import com.urdgz.docker_exam.dto.BatchItemResult;
+import com.urdgz.docker_exam.dto.CursorPage;
+import com.urdgz.docker_exam.dto.SearchPage;
 import com.urdgz.docker_exam.dto.UserDto;
+import com.urdgz.docker_exam.dto.UserListingDelta;
+import com.urdgz.docker_exam.dto.UserPatchItem;
+import com.urdgz.docker_exam.event.UserChangeEvent;
 import com.urdgz.docker_exam.exception.CustomApiException;
 import com.urdgz.docker_exam.model.User;
+import com.urdgz.docker_exam.repository.UserJdbcRepository;
 import com.urdgz.docker_exam.repository.UserRepository;
+import com.urdgz.docker_exam.search.UserSearchIndex;
 
-import jakarta.transaction.Transactional;
+import io.micrometer.core.annotation.Timed;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 
 /**
  * UserServiceImp is an implementation of the UserService interface.
  * It provides the actual logic for the operations defined in the UserService interface,
  * such as retrieving all users, creating a user, updating a user partially, and deleting a user.
+ * Every method is timed and tagged with its name.
+ * Listings run in read-only transactions, which are served by the replicas when they are configured,
+ * while single-user lookups go through the user cache, which is always loaded from the primary.
+ * Concurrent identical reads of the listing or of a single user share one call through the SingleFlight.
+ * The full listing is also kept in memory, already serialized, by the UserListingSnapshot, which every
+ * committed change updates.
  * @author Ulises Rodríguez García.
  */
 @Service
+@Timed(value = "users.service", description = "Time spent in each user service method", histogram = true)
 public class UserServiceImp implements UserService {
 
+    /**
+     * The name of the unique constraint on the email of the users.
+     */
+    private static final String EMAIL_CONSTRAINT = "uk_users_email";
+
     /**
      * The UserRepository instance used to perform CRUD operations on User entities.
      */
     private final UserRepository userRepository;
 
     /**
-     * Constructs a new UserServiceImp with the specified UserRepository.
-     * @param userRepository the UserRepository to be used for database operations
+     * The UserJdbcRepository instance used to stream User entities.
+     */
+    private final UserJdbcRepository userJdbcRepository;
+
+    /**
+     * The maximum number of users that can be requested in a single page.
+     */
+    private final int maxPageSize;
+
+    /**
+     * The UserCache used to look up users without going to the database.
+     */
+    private final UserCache userCache;
+
+    /**
+     * The ApplicationEventPublisher used to announce every change made to a user.
+     */
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * The Validator used to check each entry of a batch on its own.
+     */
+    private final Validator validator;
+
+    /**
+     * The maximum number of entries accepted in a single batch.
+     */
+    private final int maxBatchSize;
+
+    /**
+     * The UserSearchIndex used to search users by name and email.
      */
-    public UserServiceImp(UserRepository userRepository) {
+    private final UserSearchIndex userSearchIndex;
+
+    /**
+     * Whether deleted users are kept as tombstones instead of being removed.
+     */
+    private final boolean softDelete;
+
+    /**
+     * The SingleFlight used to share one call among concurrent identical reads.
+     */
+    private final SingleFlight singleFlight;
+
+    /**
+     * The UserListingSnapshot keeping the listing of every user in memory.
+     */
+    private final UserListingSnapshot userListingSnapshot;
+
+    /**
+     * Constructs a new UserServiceImp with the specified repositories and settings.
+     * @param userRepository      the UserRepository to be used for database operations
+     * @param userJdbcRepository  the UserJdbcRepository to be used for streaming and batch inserts
+     * @param userCache           the UserCache used to look up users without going to the database
+     * @param userSearchIndex     the UserSearchIndex used to search users by name and email
+     * @param eventPublisher      the ApplicationEventPublisher used to announce every change made to a user
+     * @param singleFlight        the SingleFlight used to share one call among concurrent identical reads
+     * @param userListingSnapshot the UserListingSnapshot keeping the listing of every user in memory
+     * @param validator           the Validator used to check each entry of a batch
+     * @param maxPageSize         the maximum number of users that can be requested in a single page
+     * @param maxBatchSize        the maximum number of entries accepted in a single batch
+     * @param softDelete          whether deleted users are kept as tombstones instead of being removed
+     */
+    public UserServiceImp(UserRepository userRepository, UserJdbcRepository userJdbcRepository, UserCache userCache,
+            UserSearchIndex userSearchIndex, ApplicationEventPublisher eventPublisher, SingleFlight singleFlight,
+            UserListingSnapshot userListingSnapshot, Validator validator,
+            @Value("${users.page.max-size:1000}") int maxPageSize,
+            @Value("${users.batch.max-size:1000}") int maxBatchSize,
+            @Value("${users.delete.soft:false}") boolean softDelete) {
         this.userRepository = userRepository;
+        this.userJdbcRepository = userJdbcRepository;
+        this.userCache = userCache;
+        this.userSearchIndex = userSearchIndex;
+        this.eventPublisher = eventPublisher;
+        this.validator = validator;
+        this.maxPageSize = maxPageSize;
+        this.maxBatchSize = maxBatchSize;
+        this.softDelete = softDelete;
+        this.singleFlight = singleFlight;
+        this.userListingSnapshot = userListingSnapshot;
     }
 
     /**
      * Retrieves a list of all users.
+     * Concurrent calls share one query, and the list is read-only since it may be returned to several callers.
      * @return a list of User objects
      */
     @Override
+    @Transactional(readOnly = true)
     public List<User> getAllUsers() {
-        return userRepository.findAll();
+        return singleFlight.execute("getAllUsers", () -> Collections.unmodifiableList(userRepository.findAll()));
+    }
+
+    /**
+     * Retrieves the current version of the in-memory listing of every user.
+     * @return an Optional with the listing, or empty if it is disabled or not loaded yet
+     */
+    @Override
+    public Optional<UserListing> getUserListing() {
+        return userListingSnapshot.current();
+    }
+
+    /**
+     * Retrieves the changes made to the listing of every user since a version of it, from the in-memory listing.
+     * @param since the token of the version the client has
+     * @return the users created or updated and the IDs of the users deleted since that version
+     */
+    @Override
+    public UserListingDelta getUserListingChanges(String since) {
+        return userListingSnapshot.changesSince(since);
+    }
+
+    /**
+     * Retrieves a user by their ID, through the user cache.
+     * Concurrent calls for the same ID share one lookup, and each caller gets its own copy of the user.
+     * @param id the ID of the user
+     * @return the User object
+     */
+    @Override
+    public User getUserById(Integer id) {
+        return singleFlight.execute("getUserById", () -> userCache.findById(id)
+            .orElseThrow(() -> new CustomApiException(HttpStatus.NOT_FOUND, "User not found with id " + id)), id)
+            .copy();
+    }
+
+    /**
+     * Retrieves a user by their email, through the user cache.
+     * Concurrent calls for the same email share one lookup, and each caller gets its own copy of the user.
+     * @param email the email of the user
+     * @return the User object
+     */
+    @Override
+    public User getUserByEmail(String email) {
+        return singleFlight.execute("getUserByEmail", () -> userCache.findByEmail(email)
+            .orElseThrow(() -> new CustomApiException(HttpStatus.NOT_FOUND, "User not found with email " + email)), email)
+            .copy();
+    }
+
+    /**
+     * Retrieves a page of users ordered by ID.
+     * One extra row is fetched to find out whether there is a next page.
+     * @param after the opaque cursor returned with the previous page, or null for the first page
+     * @param limit the maximum number of users in the page
+     * @return a CursorPage with the users and the cursor of the next page
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<User> getUsersPage(String after, int limit) {
+        if (limit < 1 || limit > maxPageSize)
+            throw new CustomApiException(HttpStatus.BAD_REQUEST, "Limit must be between 1 and " + maxPageSize);
+
+        List<User> users = userRepository.findByIdGreaterThanOrderByIdAsc(UserCursor.decode(after), Limit.of(limit + 1));
+        if (users.size() <= limit)
+            return new CursorPage<>(users, null);
+
+        List<User> page = users.subList(0, limit);
+        return new CursorPage<>(page, UserCursor.encode(page.get(limit - 1).getId()));
+    }
+
+    /**
+     * Searches the users whose name or email contains the given query, ignoring case, through the search index.
+     * @param query  the text to look for
+     * @param offset the number of matches to skip
+     * @param limit  the maximum number of users in the page
+     * @return a SearchPage with the users, best matches first, and the offset of the next page
+     */
+    @Override
+    public SearchPage<User> searchUsers(String query, int offset, int limit) {
+        if (query == null || query.isBlank())
+            throw new CustomApiException(HttpStatus.BAD_REQUEST, "Query must not be empty");
+
+        if (limit < 1 || limit > maxPageSize)
+            throw new CustomApiException(HttpStatus.BAD_REQUEST, "Limit must be between 1 and " + maxPageSize);
+
+        if (offset < 0)
+            throw new CustomApiException(HttpStatus.BAD_REQUEST, "Offset must not be negative");
+
+        if (!userSearchIndex.isReady())
+            throw new CustomApiException(HttpStatus.SERVICE_UNAVAILABLE, "The search index is still loading, please retry later");
+
+        return userSearchIndex.search(query, offset, limit);
+    }
+
+    /**
+     * Streams every user ordered by ID to the given consumer without loading them all in memory.
+     * @param consumer the consumer that receives each user
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAllUsers(Consumer<User> consumer) {
+        userJdbcRepository.forEachUser(consumer);
     }
 
     /**
      * Creates a new user.
+     * Duplicate emails are detected by the unique index when the user is inserted.
+     * An ID sent by the client is only checked for conflicts, as IDs are generated by the database.
      * @param user the User object to be created
      * @return the created User object
      */
     @Override
     @Transactional
     public User createUser(User user) {
-        if (user.getId() != null && userRepository.existsById(user.getId())) 
+        if (user.getId() != null && userCache.existsById(user.getId())) 
             throw new CustomApiException(HttpStatus.CONFLICT, "A user with the same id already exists");
 
-        if (userRepository.existsByEmail(user.getEmail())) 
-            throw new CustomApiException(HttpStatus.CONFLICT, "A user with the same email already exists");
+        user.setId(null);
 
-        return userRepository.save(user);
+        try {
+            User createdUser = userRepository.saveAndFlush(user);
+            eventPublisher.publishEvent(UserChangeEvent.created(createdUser));
+            return createdUser;
+        } catch (DataIntegrityViolationException exception) {
+            throw isEmailConflict(exception) ? emailConflict() : exception;
+        }
     }
 
     /**
      * Updates an existing user partially with the given UserDto.
-     * @param id      the ID of the user to be updated
-     * @param userDto the UserDto object containing the updated user information
+     * The update is a single conditional statement on the version of the cached user, so the user
+     * is not read from the database unless the cache is stale or the expected version differs from it,
+     * in which case the latest state is read and locked first. Duplicate emails are detected by the unique index.
+     * @param id              the ID of the user to be updated
+     * @param userDto         the UserDto object containing the updated user information
+     * @param expectedVersion the version the user must have, or null to update any version
      * @return the updated User object
      */
     @Override
     @Transactional
-    public User patchUser(Integer id, UserDto userDto) {
-        return userRepository.findById(id).map(existingUser -> {
-            if (userDto.getName() != null && !existingUser.getName().equals(userDto.getName())) 
-                existingUser.setName(userDto.getName());
-            
-            if (userDto.getEmail() != null && !existingUser.getEmail().equals(userDto.getEmail())) {
-                if (userRepository.existsByEmail(userDto.getEmail())) 
-                    throw new CustomApiException(HttpStatus.CONFLICT, "A user with the same email already exists");
-                
-                existingUser.setEmail(userDto.getEmail());
-            }
-            return userRepository.save(existingUser);
-        }).orElseThrow(() -> new CustomApiException(HttpStatus.NOT_FOUND, "User not found with id " + id));
+    public User patchUser(Integer id, UserDto userDto, Long expectedVersion) {
+        User current = userCache.findById(id)
+            .orElseThrow(() -> new CustomApiException(HttpStatus.NOT_FOUND, "User not found with id " + id));
+        if (expectedVersion != null && !expectedVersion.equals(current.getVersion()))
+            current = lockCurrentVersion(id, expectedVersion);
+
+        if (userDto.getName() == null && userDto.getEmail() == null)
+            return current;
+
+        if (updateIfVersion(id, userDto, current.getVersion()) == 0) {
+            current = lockCurrentVersion(id, expectedVersion);
+            updateIfVersion(id, userDto, current.getVersion());
+        }
+
+        User patchedUser = current.copy();
+        if (userDto.getName() != null)
+            patchedUser.setName(userDto.getName());
+        if (userDto.getEmail() != null)
+            patchedUser.setEmail(userDto.getEmail());
+        patchedUser.setVersion(current.getVersion() + 1);
+
+        eventPublisher.publishEvent(UserChangeEvent.updated(patchedUser, current.getEmail()));
+        return patchedUser;
     }
 
     /**
-     * Deletes a user by their ID.
+     * Runs the conditional update of a user, turning a duplicate email into a conflict.
+     * @param id      the ID of the user to be updated
+     * @param userDto the UserDto object containing the updated user information
+     * @param version the version the user must have
+     * @return the number of updated rows
+     */
+    private int updateIfVersion(Integer id, UserDto userDto, long version) {
+        try {
+            return userJdbcRepository.updateIfVersion(id, userDto.getName(), userDto.getEmail(), version);
+        } catch (DataIntegrityViolationException exception) {
+            throw isEmailConflict(exception) ? emailConflict() : exception;
+        }
+    }
+
+    /**
+     * Reads and locks the latest state of a user after its cached or expected version did not match.
+     * @param id              the ID of the user
+     * @param expectedVersion the version the client expects, or null if any version is accepted
+     * @return the latest state of the user, locked until the end of the transaction
+     * @throws CustomApiException with 404 if the user does not exist, or 412 if it does not have the expected version
+     */
+    private User lockCurrentVersion(Integer id, Long expectedVersion) {
+        User latest = userJdbcRepository.findByIdForUpdate(id)
+            .orElseThrow(() -> new CustomApiException(HttpStatus.NOT_FOUND, "User not found with id " + id));
+        if (expectedVersion != null && !expectedVersion.equals(latest.getVersion()))
+            throw new CustomApiException(HttpStatus.PRECONDITION_FAILED, "User with id " + id + " has been modified since it was read");
+        return latest;
+    }
+
+    /**
+     * Deletes a user by their ID with a single statement, whose row count tells whether the user existed.
+     * In soft-delete mode the row is kept as a tombstone until it is purged.
+     * The deletion and its entry in the change log are committed together.
      * @param id the ID of the user to be deleted
      */
     @Override
+    @Transactional
     public void deleteUser(Integer id) {
-        if (userRepository.existsById(id)) 
-            userRepository.deleteById(id);
-
-        else 
+        int deleted = softDelete
+            ? userJdbcRepository.softDeleteById(id, LocalDateTime.now())
+            : userJdbcRepository.deleteById(id);
+        if (deleted == 0)
             throw new CustomApiException(HttpStatus.NOT_FOUND, "User not found with id " + id);
+
+        eventPublisher.publishEvent(UserChangeEvent.deleted(id));
+    }
+
+    /**
+     * Creates many users at once.
+     * Every entry is validated on its own, email conflicts are checked with a single IN query
+     * for the whole batch, and the accepted users are written with a single JDBC batch.
+     * Emails are compared ignoring case, as the unique index on them does.
+     * IDs sent by the client are ignored, as they are generated by the database.
+     * @param users the User objects to be created
+     * @return the outcome of each entry, in the same order as the given users
+     */
+    @Override
+    @Transactional
+    public List<BatchItemResult> createUsers(List<User> users) {
+        checkBatchSize(users.size());
+        BatchItemResult[] results = new BatchItemResult[users.size()];
+        Map<String, Integer> indexByEmail = new HashMap<>();
+
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            String violations = validate(user);
+            if (violations != null)
+                results[i] = new BatchItemResult(i, null, HttpStatus.BAD_REQUEST, violations, null);
+
+            else if (indexByEmail.putIfAbsent(emailKey(user.getEmail()), i) != null)
+                results[i] = new BatchItemResult(i, null, HttpStatus.CONFLICT, "The same email appears more than once in the batch", null);
+        }
+
+        if (!indexByEmail.isEmpty())
+            for (String email : userRepository.findExistingEmails(indexByEmail.values().stream().map(i -> users.get(i).getEmail()).toList())) {
+                Integer i = indexByEmail.remove(emailKey(email));
+                if (i != null)
+                    results[i] = new BatchItemResult(i, null, HttpStatus.CONFLICT, "A user with the same email already exists", null);
+            }
+
+        List<User> accepted = new ArrayList<>(indexByEmail.size());
+        for (int i : indexByEmail.values().stream().sorted().toList()) {
+            User user = new User();
+            user.setName(users.get(i).getName());
+            user.setEmail(users.get(i).getEmail());
+            accepted.add(user);
+        }
+
+        try {
+            userJdbcRepository.insertAll(accepted);
+        } catch (DataIntegrityViolationException exception) {
+            throw isEmailConflict(exception) ? emailConflict() : exception;
+        }
+
+        int next = 0;
+        for (int i = 0; i < results.length; i++)
+            if (results[i] == null) {
+                User created = accepted.get(next++);
+                eventPublisher.publishEvent(UserChangeEvent.created(created));
+                results[i] = new BatchItemResult(i, created.getId(), HttpStatus.CREATED, "User created successfully", created);
+            }
+
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Updates many existing users partially at once.
+     * The users are loaded with a single query, email conflicts are checked with a single IN query
+     * for the whole batch, and the updates are flushed by Hibernate as JDBC batches.
+     * Emails are compared ignoring case, as the unique index on them does.
+     * @param patches the entries containing the ID and the updated information of each user
+     * @return the outcome of each entry, in the same order as the given patches
+     */
+    @Override
+    @Transactional
+    public List<BatchItemResult> patchUsers(List<UserPatchItem> patches) {
+        checkBatchSize(patches.size());
+        BatchItemResult[] results = new BatchItemResult[patches.size()];
+        Set<Integer> ids = new HashSet<>();
+
+        for (int i = 0; i < patches.size(); i++) {
+            UserPatchItem patch = patches.get(i);
+            String violations = validate(patch);
+            if (patch.getId() == null)
+                results[i] = new BatchItemResult(i, null, HttpStatus.BAD_REQUEST, "Id is mandatory", null);
+
+            else if (violations != null)
+                results[i] = new BatchItemResult(i, patch.getId(), HttpStatus.BAD_REQUEST, violations, null);
+
+            else if (!ids.add(patch.getId()))
+                results[i] = new BatchItemResult(i, patch.getId(), HttpStatus.CONFLICT, "The same id appears more than once in the batch", null);
+        }
+
+        Map<Integer, User> usersById = userRepository.findAllById(ids).stream()
+            .collect(Collectors.toMap(User::getId, user -> user));
+        Map<String, Integer> indexByEmail = new HashMap<>();
+
+        for (int i = 0; i < patches.size(); i++) {
+            if (results[i] != null)
+                continue;
+
+            UserPatchItem patch = patches.get(i);
+            User existingUser = usersById.get(patch.getId());
+            if (existingUser == null)
+                results[i] = new BatchItemResult(i, patch.getId(), HttpStatus.NOT_FOUND, "User not found with id " + patch.getId(), null);
+
+            else if (patch.getEmail() != null && !existingUser.getEmail().equalsIgnoreCase(patch.getEmail())
+                    && indexByEmail.putIfAbsent(emailKey(patch.getEmail()), i) != null)
+                results[i] = new BatchItemResult(i, patch.getId(), HttpStatus.CONFLICT, "The same email appears more than once in the batch", null);
+        }
+
+        if (!indexByEmail.isEmpty())
+            for (String email : userRepository.findExistingEmails(indexByEmail.values().stream().map(i -> patches.get(i).getEmail()).toList())) {
+                Integer i = indexByEmail.get(emailKey(email));
+                if (i != null)
+                    results[i] = new BatchItemResult(i, patches.get(i).getId(), HttpStatus.CONFLICT, "A user with the same email already exists", null);
+            }
+
+        Map<Integer, String> previousEmails = new HashMap<>();
+        for (int i = 0; i < patches.size(); i++) {
+            if (results[i] != null)
+                continue;
+
+            UserPatchItem patch = patches.get(i);
+            User existingUser = usersById.get(patch.getId());
+            previousEmails.put(existingUser.getId(), existingUser.getEmail());
+            if (patch.getName() != null)
+                existingUser.setName(patch.getName());
+
+            if (patch.getEmail() != null)
+                existingUser.setEmail(patch.getEmail());
+
+            results[i] = new BatchItemResult(i, existingUser.getId(), HttpStatus.OK, "User patched successfully", existingUser);
+        }
+
+        try {
+            userRepository.flush();
+        } catch (DataIntegrityViolationException exception) {
+            throw isEmailConflict(exception) ? emailConflict() : exception;
+        }
+
+        for (Map.Entry<Integer, String> previousEmail : previousEmails.entrySet())
+            eventPublisher.publishEvent(UserChangeEvent.updated(usersById.get(previousEmail.getKey()), previousEmail.getValue()));
+
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Deletes many users by their IDs at once.
+     * Existing IDs are found with a single IN query and removed, or soft-deleted, with a single statement.
+     * @param ids the IDs of the users to be deleted
+     * @return the outcome of each entry, in the same order as the given IDs
+     */
+    @Override
+    @Transactional
+    public List<BatchItemResult> deleteUsers(List<Integer> ids) {
+        checkBatchSize(ids.size());
+        BatchItemResult[] results = new BatchItemResult[ids.size()];
+        Set<Integer> requested = new HashSet<>();
+
+        for (int i = 0; i < ids.size(); i++) {
+            Integer id = ids.get(i);
+            if (id == null)
+                results[i] = new BatchItemResult(i, null, HttpStatus.BAD_REQUEST, "Id is mandatory", null);
+
+            else if (!requested.add(id))
+                results[i] = new BatchItemResult(i, id, HttpStatus.CONFLICT, "The same id appears more than once in the batch", null);
+        }
+
+        Set<Integer> existing = requested.isEmpty() ? Set.of() : new HashSet<>(userRepository.findExistingIds(requested));
+        if (!existing.isEmpty() && softDelete)
+            userJdbcRepository.softDeleteAllById(existing, LocalDateTime.now());
+
+        else if (!existing.isEmpty())
+            userRepository.deleteAllByIdInBatch(existing);
+
+        for (Integer id : existing)
+            eventPublisher.publishEvent(UserChangeEvent.deleted(id));
+
+        for (int i = 0; i < ids.size(); i++)
+            if (results[i] == null)
+                results[i] = existing.contains(ids.get(i))
+                    ? new BatchItemResult(i, ids.get(i), HttpStatus.OK, "User deleted successfully", null)
+                    : new BatchItemResult(i, ids.get(i), HttpStatus.NOT_FOUND, "User not found with id " + ids.get(i), null);
+
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Builds the exception thrown when a write is rejected by the unique index on the email.
+     * @return the CustomApiException to be thrown
+     */
+    private static CustomApiException emailConflict() {
+        return new CustomApiException(HttpStatus.CONFLICT, "A user with the same email already exists");
+    }
+
+    /**
+     * Tells whether a failed write was rejected by the unique index on the email, and not by another constraint
+     * such as a value too long for its column, which is not a conflict.
+     * JDBC and R2DBC report a duplicate key as a DuplicateKeyException, and the email is the only unique key besides
+     * the generated ID, while Hibernate reports any violated constraint by its name.
+     * @param throwable the exception thrown by the write
+     * @return true if the email is already taken by another user
+     */
+    static boolean isEmailConflict(Throwable throwable) {
+        if (throwable instanceof DuplicateKeyException)
+            return true;
+
+        for (Throwable cause = throwable.getCause(); cause != null; cause = cause.getCause())
+            if (cause instanceof ConstraintViolationException violation)
+                return violation.getConstraintName() != null
+                    && violation.getConstraintName().toLowerCase(Locale.ROOT).contains(EMAIL_CONSTRAINT);
+
+        return false;
+    }
+
+    /**
+     * Gets the key an email is compared by within a batch, which ignores case like the collation of the email column.
+     * @param email the email
+     * @return the email in lower case
+     */
+    private static String emailKey(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Checks that a batch is not empty and does not exceed the maximum batch size.
+     * @param size the number of entries of the batch
+     * @throws CustomApiException if the batch is empty or too large
+     */
+    private void checkBatchSize(int size) {
+        if (size < 1 || size > maxBatchSize)
+            throw new CustomApiException(HttpStatus.BAD_REQUEST, "Batch size must be between 1 and " + maxBatchSize);
+    }
+
+    /**
+     * Validates the given object against its constraints.
+     * @param object the object to be validated
+     * @return the messages of the violated constraints joined by commas, or null if the object is valid
+     */
+    private String validate(Object object) {
+        Set<ConstraintViolation<Object>> violations = validator.validate(object);
+        if (violations.isEmpty())
+            return null;
+
+        return violations.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining(", "));
     }
 }
@@ -0,0 +1,205 @@
+package com.urdgz.docker_exam.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Component;
+
+import com.urdgz.docker_exam.repository.UserJdbcRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * UserTombstonePurger removes the rows of soft-deleted users once they are older than the retention.
+ * It runs during an off-peak window that opens on a cron schedule, removing the tombstones in small
+ * batches, each one its own short statement with a pause in between, and stops when the window closes
+ * or no old tombstone is left. A failed window is logged and counted, and the next window picks up the rest.
+ * It is only created when the users.delete.soft property is true.
+ * @author Ulises Rodríguez García.
+ */
+@Component
+@ConditionalOnProperty(name = "users.delete.soft", havingValue = "true")
+public class UserTombstonePurger implements SmartLifecycle {
+
+    /**
+     * The Logger used to report the failed purges.
+     */
+    private static final Logger log = LoggerFactory.getLogger(UserTombstonePurger.class);
+
+    /**
+     * The UserJdbcRepository used to remove the tombstones.
+     */
+    private final UserJdbcRepository userJdbcRepository;
+
+    /**
+     * The schedule on which the purge window opens.
+     */
+    private final CronExpression schedule;
+
+    /**
+     * The maximum time a purge runs for once the window opens.
+     */
+    private final Duration window;
+
+    /**
+     * The time a tombstone is kept before it can be removed.
+     */
+    private final Duration retention;
+
+    /**
+     * The maximum number of tombstones removed by a single statement.
+     */
+    private final int batchSize;
+
+    /**
+     * The pause between two batches, leaving room for the regular traffic and the replicas.
+     */
+    private final Duration pause;
+
+    /**
+     * The number of tombstones removed.
+     */
+    private final Counter purged;
+
+    /**
+     * The number of purge windows ended by a failure.
+     */
+    private final Counter failures;
+
+    /**
+     * The executor running the purges, or null when stopped.
+     */
+    private volatile ScheduledExecutorService executor;
+
+    /**
+     * Whether purges are scheduled and allowed to go on.
+     */
+    private volatile boolean running;
+
+    /**
+     * Constructs a new UserTombstonePurger with the specified UserJdbcRepository and schedule.
+     * @param userJdbcRepository the UserJdbcRepository used to remove the tombstones
+     * @param meterRegistry      the MeterRegistry the number of removed tombstones and failed purges is published to
+     * @param schedule           the cron expression on which the purge window opens
+     * @param window             the maximum time a purge runs for once the window opens
+     * @param retention          the time a tombstone is kept before it can be removed
+     * @param batchSize          the maximum number of tombstones removed by a single statement
+     * @param pause              the pause between two batches
+     */
+    public UserTombstonePurger(UserJdbcRepository userJdbcRepository, MeterRegistry meterRegistry,
+            @Value("${users.delete.purge-cron:0 0 3 * * *}") String schedule,
+            @Value("${users.delete.purge-window:1h}") Duration window,
+            @Value("${users.delete.retention:7d}") Duration retention,
+            @Value("${users.delete.purge-batch-size:1000}") int batchSize,
+            @Value("${users.delete.purge-pause:100ms}") Duration pause) {
+        this.userJdbcRepository = userJdbcRepository;
+        this.schedule = CronExpression.parse(schedule);
+        this.window = window;
+        this.retention = retention;
+        this.batchSize = batchSize;
+        this.pause = pause;
+        this.purged = meterRegistry.counter("users.delete.purged");
+        this.failures = meterRegistry.counter("users.delete.purge.failures");
+    }
+
+    /**
+     * Removes the tombstones older than the retention, batch by batch, until none is left,
+     * the given time is reached, or the purger is stopped.
+     * @param until the moment after which no new batch is started
+     * @return the number of removed tombstones
+     */
+    public long purge(LocalDateTime until) {
+        LocalDateTime deletedBefore = LocalDateTime.now().minus(retention);
+        long total = 0;
+        while (running && LocalDateTime.now().isBefore(until)) {
+            int removed = userJdbcRepository.purgeDeletedBefore(deletedBefore, batchSize);
+            total += removed;
+            purged.increment(removed);
+            if (removed < batchSize)
+                break;
+
+            try {
+                Thread.sleep(pause.toMillis());
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Runs a purge for the length of the window and schedules the next one.
+     */
+    private void runWindow() {
+        try {
+            purge(LocalDateTime.now().plus(window));
+        } catch (RuntimeException exception) {
+            failures.increment();
+            log.warn("Purging the user tombstones failed, the remaining ones are removed in the next window", exception);
+        } finally {
+            scheduleNext();
+        }
+    }
+
+    /**
+     * Schedules the next purge at the next time the window opens.
+     */
+    private void scheduleNext() {
+        ScheduledExecutorService current = executor;
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime next = schedule.next(now);
+        if (current == null || !running || next == null)
+            return;
+
+        current.schedule(this::runWindow, Duration.between(now, next).toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Starts scheduling purges.
+     */
+    @Override
+    public void start() {
+        running = true;
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "user-tombstone-purger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduleNext();
+    }
+
+    /**
+     * Stops scheduling purges and lets a running one end after its current batch.
+     */
+    @Override
+    public void stop() {
+        running = false;
+        ScheduledExecutorService current = executor;
+        executor = null;
+        if (current == null)
+            return;
+
+        current.shutdownNow();
+        try {
+            current.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
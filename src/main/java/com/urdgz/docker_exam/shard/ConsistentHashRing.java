@@ -0,0 +1,105 @@
+package com.urdgz.docker_exam.shard;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * ConsistentHashRing assigns keys to shards by hashing both onto the same 64-bit ring: a key belongs to
+ * the first shard position found clockwise from its hash.
+ * Every shard is placed at many virtual positions, so keys spread evenly, and the positions of a shard only
+ * depend on its index, so adding a shard only moves to it about 1/N of the keys and leaves the others in place.
+ * @author Ulises Rodríguez García.
+ */
+public class ConsistentHashRing {
+
+    /**
+     * The virtual positions of the shards on the ring, mapped to the index of their shard.
+     */
+    private final NavigableMap<Long, Integer> positions = new TreeMap<>();
+
+    /**
+     * The number of shards on the ring.
+     */
+    private final int shardCount;
+
+    /**
+     * Constructs a new ConsistentHashRing with the specified number of shards and virtual positions per shard.
+     * @param shardCount   the number of shards
+     * @param virtualNodes the number of positions of each shard on the ring
+     */
+    public ConsistentHashRing(int shardCount, int virtualNodes) {
+        if (shardCount < 1 || virtualNodes < 1)
+            throw new IllegalArgumentException("A ring needs at least one shard and one virtual node per shard");
+
+        this.shardCount = shardCount;
+        for (int shard = 0; shard < shardCount; shard++)
+            for (int node = 0; node < virtualNodes; node++)
+                positions.put(hash("shard-" + shard + "#" + node), shard);
+    }
+
+    /**
+     * Finds the shard of an integer key, such as the ID of a user.
+     * @param key the key
+     * @return the index of the shard
+     */
+    public int shardFor(int key) {
+        return locate(mix(key));
+    }
+
+    /**
+     * Finds the shard of a string key, such as the email of a user.
+     * @param key the key
+     * @return the index of the shard
+     */
+    public int shardFor(String key) {
+        return locate(hash(key));
+    }
+
+    /**
+     * Gets the number of shards on the ring.
+     * @return the number of shards
+     */
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    /**
+     * Finds the first shard position clockwise from a hash, wrapping around the end of the ring.
+     * @param hash the hash of the key
+     * @return the index of the shard
+     */
+    private int locate(long hash) {
+        Map.Entry<Long, Integer> position = positions.ceilingEntry(hash);
+        return (position == null ? positions.firstEntry() : position).getValue();
+    }
+
+    /**
+     * Hashes a string with FNV-1a and spreads the result over the ring. The virtual positions are hashed from
+     * their names this way too, so they never coincide with the hashes of small integer keys.
+     * @param value the string
+     * @return the hash of the string
+     */
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Spreads the bits of a value over the whole 64-bit range with the SplitMix64 finalizer,
+     * so consecutive keys land far apart on the ring.
+     * @param value the value
+     * @return the hash of the value
+     */
+    private static long mix(long value) {
+        long z = value + 0x9e3779b97f4a7c15L;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,413 @@
+package com.urdgz.docker_exam.shard;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.urdgz.docker_exam.model.User;
+import com.urdgz.docker_exam.repository.UserJdbcRepository;
+
+/**
+ * ShardedUserRepository spreads the Users table over several shards, separate schemas or MySQL instances,
+ * and routes every operation on a user to the shard chosen by a consistent hash of its ID.
+ * Email uniqueness is enforced by the User_Emails table, a global email to user ID lookup table that is itself
+ * spread over the same shards by a consistent hash of the email, so neither the writes nor the uniqueness
+ * checks go through a single database. The IDs are handed out by the UserIdAllocator.
+ * A user and its email entry usually live on different shards and are not written in one transaction:
+ * the email is claimed first and released again if writing the user fails, so two users can never share an email.
+ * A crash between the two writes leaves an orphaned claim, whose user does not exist or no longer has the email.
+ * It is taken over by the next user claiming the email once it is older than the claim timeout, which must be longer
+ * than any write of a user takes, so a claim whose user is still being written is never mistaken for an orphan.
+ * Listings query every shard in parallel and merge their ordered results by ID.
+ * @author Ulises Rodríguez García.
+ */
+public class ShardedUserRepository implements AutoCloseable {
+
+    /**
+     * The Logger used to report the orphaned claims taken over.
+     */
+    private static final Logger log = LoggerFactory.getLogger(ShardedUserRepository.class);
+
+    /**
+     * The query used to read a user by ID.
+     */
+    private static final String SELECT_BY_ID = "SELECT id, name, email, version FROM Users WHERE id = ?";
+
+    /**
+     * The query used to read a page of users after a given ID, in ID order.
+     */
+    private static final String SELECT_PAGE = "SELECT id, name, email, version FROM Users WHERE id > ? ORDER BY id LIMIT ?";
+
+    /**
+     * The query used to read every user of a shard, in ID order.
+     */
+    private static final String SELECT_ALL = "SELECT id, name, email, version FROM Users ORDER BY id";
+
+    /**
+     * The statement used to insert a user with its allocated ID.
+     */
+    private static final String INSERT = "INSERT INTO Users (id, name, email, version) VALUES (?, ?, ?, 0)";
+
+    /**
+     * The statement used to update a user only if it still has the expected version.
+     */
+    private static final String UPDATE = "UPDATE Users SET name = ?, email = ?, version = version + 1 WHERE id = ? AND version = ?";
+
+    /**
+     * The statement used to delete a user.
+     */
+    private static final String DELETE = "DELETE FROM Users WHERE id = ?";
+
+    /**
+     * The query used to find the ID of the user owning an email.
+     */
+    private static final String SELECT_EMAIL_OWNER = "SELECT user_id FROM User_Emails WHERE email = ?";
+
+    /**
+     * The statement used to claim an email for a user, failing if it is already claimed.
+     */
+    private static final String CLAIM_EMAIL = "INSERT INTO User_Emails (email, user_id, claimed_at) VALUES (?, ?, ?)";
+
+    /**
+     * The query used to find the owner of a claim made before a given moment.
+     */
+    private static final String SELECT_EXPIRED_CLAIM_OWNER = "SELECT user_id FROM User_Emails WHERE email = ? AND claimed_at < ?";
+
+    /**
+     * The statement used to take over a claim, only if it still belongs to the orphaned owner and was made before a given moment.
+     */
+    private static final String TAKE_OVER_EMAIL =
+        "UPDATE User_Emails SET user_id = ?, claimed_at = ? WHERE email = ? AND user_id = ? AND claimed_at < ?";
+
+    /**
+     * The statement used to release an email claimed by a user.
+     */
+    private static final String RELEASE_EMAIL = "DELETE FROM User_Emails WHERE email = ? AND user_id = ?";
+
+    /**
+     * The JdbcTemplates of the shards, by shard index.
+     */
+    private final List<JdbcTemplate> shards;
+
+    /**
+     * The shards as given, closed with the repository when they hold connection pools.
+     */
+    private final List<DataSource> dataSources;
+
+    /**
+     * The ConsistentHashRing choosing the shard of each user ID and of each email.
+     */
+    private final ConsistentHashRing ring;
+
+    /**
+     * The UserIdAllocator handing out the IDs of new users.
+     */
+    private final UserIdAllocator idAllocator;
+
+    /**
+     * The age after which a claim whose user does not have the email is considered orphaned.
+     */
+    private final Duration claimTimeout;
+
+    /**
+     * The executor querying the shards in parallel, one thread per shard.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Constructs a new ShardedUserRepository over the given shards.
+     * @param dataSources  the DataSources of the shards, in a fixed order since the order decides the shard of each user
+     * @param virtualNodes the number of positions of each shard on the hash ring
+     * @param idAllocator  the UserIdAllocator handing out the IDs of new users
+     * @param claimTimeout the age after which a claim whose user does not have the email is considered orphaned
+     */
+    public ShardedUserRepository(List<DataSource> dataSources, int virtualNodes, UserIdAllocator idAllocator, Duration claimTimeout) {
+        this.dataSources = List.copyOf(dataSources);
+        this.shards = dataSources.stream().map(JdbcTemplate::new).toList();
+        this.ring = new ConsistentHashRing(dataSources.size(), virtualNodes);
+        this.idAllocator = idAllocator;
+        this.claimTimeout = claimTimeout;
+
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(dataSources.size(), task -> {
+            Thread thread = new Thread(task, "user-shard-query-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Inserts a new user, claiming its email first, and sets its allocated ID and initial version.
+     * @param user the user to be inserted
+     * @return the inserted user
+     * @throws org.springframework.dao.DuplicateKeyException if another user already has the email
+     */
+    public User insert(User user) {
+        int id = idAllocator.next();
+        claim(user.getEmail(), id);
+        try {
+            userShard(id).update(INSERT, id, user.getName(), user.getEmail());
+        } catch (RuntimeException exception) {
+            emailShard(user.getEmail()).update(RELEASE_EMAIL, user.getEmail(), id);
+            throw exception;
+        }
+
+        user.setId(id);
+        user.setVersion(0L);
+        return user;
+    }
+
+    /**
+     * Retrieves a user by their ID from its shard.
+     * @param id the ID of the user
+     * @return an Optional with the user, or empty if it does not exist
+     */
+    public Optional<User> findById(Integer id) {
+        return userShard(id).query(SELECT_BY_ID, UserJdbcRepository.USER_ROW_MAPPER, id).stream().findFirst();
+    }
+
+    /**
+     * Retrieves a user by their email, looking up its ID in the email table and then the user in its shard.
+     * @param email the email of the user
+     * @return an Optional with the user, or empty if no user has the email
+     */
+    public Optional<User> findByEmail(String email) {
+        return emailOwner(email)
+            .flatMap(this::findById)
+            .filter(user -> user.getEmail().equals(email));
+    }
+
+    /**
+     * Checks if a user has the given email, only looking at the email table.
+     * @param email the email to check for existence
+     * @return true if a user has the email, false otherwise
+     */
+    public boolean existsByEmail(String email) {
+        return emailOwner(email).isPresent();
+    }
+
+    /**
+     * Updates the name and the email of a user, only if it still has the expected version.
+     * A new email is claimed before the user is updated, and the previous one is released afterwards.
+     * @param id              the ID of the user
+     * @param name            the new name of the user
+     * @param email           the new email of the user
+     * @param expectedVersion the version the user must have for the update to apply
+     * @return the number of updated rows, which is 0 when the user does not exist or has another version
+     * @throws org.springframework.dao.DuplicateKeyException if another user already has the new email
+     */
+    public int update(Integer id, String name, String email, long expectedVersion) {
+        Optional<User> current = findById(id);
+        if (current.isEmpty())
+            return 0;
+
+        String previousEmail = current.get().getEmail();
+        boolean emailChanged = !previousEmail.equals(email);
+        if (emailChanged)
+            claim(email, id);
+
+        int updated;
+        try {
+            updated = userShard(id).update(UPDATE, name, email, id, expectedVersion);
+        } catch (RuntimeException exception) {
+            if (emailChanged)
+                emailShard(email).update(RELEASE_EMAIL, email, id);
+            throw exception;
+        }
+
+        if (emailChanged) {
+            String released = updated == 0 ? email : previousEmail;
+            emailShard(released).update(RELEASE_EMAIL, released, id);
+        }
+        return updated;
+    }
+
+    /**
+     * Deletes a user by their ID and releases their email.
+     * @param id the ID of the user
+     * @return true if the user existed, false otherwise
+     */
+    public boolean deleteById(Integer id) {
+        Optional<User> user = findById(id);
+        if (user.isEmpty() || userShard(id).update(DELETE, id) == 0)
+            return false;
+
+        emailShard(user.get().getEmail()).update(RELEASE_EMAIL, user.get().getEmail(), id);
+        return true;
+    }
+
+    /**
+     * Retrieves every user ordered by ID, querying the shards in parallel and merging their results.
+     * @return the users of every shard, in ID order
+     */
+    public List<User> findAll() {
+        return merge(queryAll(shard -> shard.query(SELECT_ALL, UserJdbcRepository.USER_ROW_MAPPER)), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Retrieves the first users after a given ID in ID order. Every shard is asked in parallel for its own first
+     * users after the ID, which are enough to build the page once merged.
+     * @param afterId the ID after which the page starts
+     * @param limit   the maximum number of users in the page
+     * @return the users of the page, in ID order
+     */
+    public List<User> findByIdGreaterThan(Integer afterId, int limit) {
+        return merge(queryAll(shard -> shard.query(SELECT_PAGE, UserJdbcRepository.USER_ROW_MAPPER, afterId, limit)), limit);
+    }
+
+    /**
+     * Gets the index of the shard holding a user.
+     * @param id the ID of the user
+     * @return the index of the shard
+     */
+    public int shardOf(Integer id) {
+        return ring.shardFor(id);
+    }
+
+    /**
+     * Gets the number of shards.
+     * @return the number of shards
+     */
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    /**
+     * Stops the query threads and closes the connection pools of the shards.
+     */
+    @Override
+    public void close() throws Exception {
+        executor.shutdownNow();
+        for (DataSource dataSource : dataSources)
+            if (dataSource instanceof AutoCloseable closeable)
+                closeable.close();
+    }
+
+    /**
+     * Claims an email for a user, taking over the claim left by a crashed write if there is one.
+     * @param email the email
+     * @param id    the ID of the user
+     * @throws DuplicateKeyException if another user has the email, or may still be writing it
+     */
+    private void claim(String email, int id) {
+        JdbcTemplate shard = emailShard(email);
+        try {
+            shard.update(CLAIM_EMAIL, email, id, Timestamp.valueOf(LocalDateTime.now()));
+        } catch (DuplicateKeyException exception) {
+            if (!takeOverOrphanedClaim(shard, email, id))
+                throw exception;
+        }
+    }
+
+    /**
+     * Takes over the claim of an email when it is older than the claim timeout and its user does not have the email,
+     * because the user was never written, or was deleted or changed without releasing the claim.
+     * The claim is only replaced if it did not change since it was read.
+     * @param shard the shard holding the entry of the email
+     * @param email the email
+     * @param id    the ID of the user claiming the email
+     * @return true if the claim was taken over, false if it belongs to a user or is too recent
+     */
+    private boolean takeOverOrphanedClaim(JdbcTemplate shard, String email, int id) {
+        Timestamp expiry = Timestamp.valueOf(LocalDateTime.now().minus(claimTimeout));
+        Optional<Integer> owner = shard.queryForList(SELECT_EXPIRED_CLAIM_OWNER, Integer.class, email, expiry).stream().findFirst();
+        if (owner.isEmpty() || findById(owner.get()).filter(user -> user.getEmail().equals(email)).isPresent())
+            return false;
+
+        if (shard.update(TAKE_OVER_EMAIL, id, Timestamp.valueOf(LocalDateTime.now()), email, owner.get(), expiry) == 0)
+            return false;
+
+        log.warn("Took over the orphaned claim of user {} on email {}", owner.get(), email);
+        return true;
+    }
+
+    /**
+     * Finds the ID of the user owning an email in the email table.
+     * @param email the email
+     * @return an Optional with the ID of the user, or empty if no user has the email
+     */
+    private Optional<Integer> emailOwner(String email) {
+        return emailShard(email).queryForList(SELECT_EMAIL_OWNER, Integer.class, email).stream().findFirst();
+    }
+
+    /**
+     * Runs a query on every shard in parallel.
+     * @param query the query run on each shard
+     * @return the results of each shard
+     */
+    private List<List<User>> queryAll(Function<JdbcTemplate, List<User>> query) {
+        List<CompletableFuture<List<User>>> futures = shards.stream()
+            .map(shard -> CompletableFuture.supplyAsync(() -> query.apply(shard), executor))
+            .toList();
+        try {
+            return futures.stream().map(CompletableFuture::join).toList();
+        } catch (CompletionException exception) {
+            if (exception.getCause() instanceof RuntimeException cause)
+                throw cause;
+            throw exception;
+        }
+    }
+
+    /**
+     * Merges lists of users sorted by ID into one list sorted by ID, taking the smallest head
+     * of the lists from a priority queue at each step.
+     * @param lists the lists sorted by ID
+     * @param limit the maximum number of users to be merged
+     * @return the merged users
+     */
+    static List<User> merge(List<List<User>> lists, int limit) {
+        PriorityQueue<int[]> heads = new PriorityQueue<>(Comparator.comparing(head -> lists.get(head[0]).get(head[1]).getId()));
+        int total = 0;
+        for (int list = 0; list < lists.size(); list++) {
+            total += lists.get(list).size();
+            if (!lists.get(list).isEmpty())
+                heads.add(new int[] { list, 0 });
+        }
+
+        List<User> merged = new ArrayList<>(Math.min(total, limit));
+        while (!heads.isEmpty() && merged.size() < limit) {
+            int[] head = heads.poll();
+            List<User> list = lists.get(head[0]);
+            merged.add(list.get(head[1]));
+            if (++head[1] < list.size())
+                heads.add(head);
+        }
+        return merged;
+    }
+
+    /**
+     * Gets the shard holding a user.
+     * @param id the ID of the user
+     * @return the JdbcTemplate of the shard
+     */
+    private JdbcTemplate userShard(int id) {
+        return shards.get(ring.shardFor(id));
+    }
+
+    /**
+     * Gets the shard holding the entry of an email in the email table.
+     * @param email the email
+     * @return the JdbcTemplate of the shard
+     */
+    private JdbcTemplate emailShard(String email) {
+        return shards.get(ring.shardFor(email));
+    }
+}
@@ -0,0 +1,83 @@
+package com.urdgz.docker_exam.shard;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * UserIdAllocator hands out the IDs of new users across every shard, since a shard cannot generate them on
+ * its own: the ID decides the shard. IDs are reserved in blocks from the single row of the User_Id_Sequence
+ * table, so the table is only touched once per block and does not become the bottleneck of the writes.
+ * IDs of a block left unused when the application stops are skipped.
+ * @author Ulises Rodríguez García.
+ */
+public class UserIdAllocator {
+
+    /**
+     * The query used to read and lock the next unreserved ID.
+     */
+    private static final String SELECT_NEXT = "SELECT next_id FROM User_Id_Sequence WHERE id = 1 FOR UPDATE";
+
+    /**
+     * The statement used to reserve a block of IDs.
+     */
+    private static final String RESERVE = "UPDATE User_Id_Sequence SET next_id = next_id + ? WHERE id = 1";
+
+    /**
+     * The JdbcTemplate used to reserve the blocks.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * The TransactionTemplate reserving each block in its own transaction.
+     */
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * The number of IDs reserved at once.
+     */
+    private final int blockSize;
+
+    /**
+     * The next ID to hand out from the current block.
+     */
+    private long next;
+
+    /**
+     * The first ID after the current block.
+     */
+    private long limit;
+
+    /**
+     * Constructs a new UserIdAllocator over the database holding the User_Id_Sequence table.
+     * @param dataSource the DataSource of the database holding the sequence
+     * @param blockSize  the number of IDs reserved at once
+     */
+    public UserIdAllocator(DataSource dataSource, int blockSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Hands out a new ID, reserving a new block when the current one is used up.
+     * @return the ID
+     */
+    public synchronized int next() {
+        if (next == limit) {
+            Long first = transactionTemplate.execute(status -> {
+                Long current = jdbcTemplate.queryForObject(SELECT_NEXT, Long.class);
+                jdbcTemplate.update(RESERVE, blockSize);
+                return current;
+            });
+            next = first;
+            limit = first + blockSize;
+        }
+
+        if (next > Integer.MAX_VALUE)
+            throw new IllegalStateException("The user IDs are exhausted");
+        return (int) next++;
+    }
+}
@@ -0,0 +1,187 @@
+package com.urdgz.docker_exam.transfer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RecordReader reads CSV records or plain lines from a character stream, one at a time.
+ * CSV fields may be quoted, with doubled quotes inside them and line breaks allowed.
+ * Records are capped in length, so a single huge record cannot exhaust the memory:
+ * the rest of an oversized record is skipped and the record is flagged.
+ * @author Ulises Rodríguez García.
+ */
+final class RecordReader {
+
+    /**
+     * The maximum number of characters kept from a single record.
+     */
+    static final int MAX_RECORD_LENGTH = 16_384;
+
+    /**
+     * The character stream being read.
+     */
+    private final Reader reader;
+
+    /**
+     * The character read ahead after a carriage return, or -2 when there is none.
+     */
+    private int pending = -2;
+
+    /**
+     * The number of the line being read, starting at 1.
+     */
+    private int line = 1;
+
+    /**
+     * The number of the line where the last record started.
+     */
+    private int recordLine;
+
+    /**
+     * Whether the last record was longer than the maximum and was truncated.
+     */
+    private boolean truncated;
+
+    /**
+     * Constructs a new RecordReader over the given character stream.
+     * @param reader the character stream, preferably buffered
+     */
+    RecordReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Reads the next CSV record.
+     * @return the fields of the record, or null at the end of the stream
+     * @throws IOException if the stream cannot be read
+     */
+    List<String> readCsvRecord() throws IOException {
+        int c = read();
+        if (c == -1)
+            return null;
+
+        startRecord();
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        int length = 0;
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c == -1)
+                    break;
+
+                if (c == '"') {
+                    c = read();
+                    if (c != '"') {
+                        quoted = false;
+                        continue;
+                    }
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+                c = read();
+                continue;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+                c = read();
+                continue;
+            } else if (c == '\n' || c == '\r' || c == -1) {
+                break;
+            }
+
+            if (c == '\n')
+                line++;
+            if (length++ < MAX_RECORD_LENGTH)
+                field.append((char) c);
+            else
+                truncated = true;
+            c = read();
+        }
+
+        endLine(c);
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Reads the next line.
+     * @return the line, without its line break, or null at the end of the stream
+     * @throws IOException if the stream cannot be read
+     */
+    String readLine() throws IOException {
+        int c = read();
+        if (c == -1)
+            return null;
+
+        startRecord();
+        StringBuilder builder = new StringBuilder();
+        while (c != '\n' && c != '\r' && c != -1) {
+            if (builder.length() < MAX_RECORD_LENGTH)
+                builder.append((char) c);
+            else
+                truncated = true;
+            c = read();
+        }
+
+        endLine(c);
+        return builder.toString();
+    }
+
+    /**
+     * Gets the number of the line where the last record started.
+     * @return the line number, starting at 1
+     */
+    int getRecordLine() {
+        return recordLine;
+    }
+
+    /**
+     * Checks whether the last record was longer than the maximum and was truncated.
+     * @return true if the record was truncated
+     */
+    boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Resets the state kept for the record about to be read.
+     */
+    private void startRecord() {
+        recordLine = line;
+        truncated = false;
+    }
+
+    /**
+     * Consumes the line break that ended a record.
+     * @param c the character that ended the record
+     * @throws IOException if the stream cannot be read
+     */
+    private void endLine(int c) throws IOException {
+        if (c == -1)
+            return;
+
+        line++;
+        if (c == '\r') {
+            int next = read();
+            if (next != '\n')
+                pending = next;
+        }
+    }
+
+    /**
+     * Reads the next character, or the one read ahead.
+     * @return the character, or -1 at the end of the stream
+     * @throws IOException if the stream cannot be read
+     */
+    private int read() throws IOException {
+        if (pending != -2) {
+            int c = pending;
+            pending = -2;
+            return c;
+        }
+        return reader.read();
+    }
+}
@@ -0,0 +1,80 @@
+package com.urdgz.docker_exam.transfer;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import com.urdgz.docker_exam.model.User;
+
+/**
+ * UserCsvWriter writes users as CSV rows with the id, name and email columns.
+ * Fields containing commas, quotes or line breaks are quoted, with their quotes doubled.
+ * @author Ulises Rodríguez García.
+ */
+public class UserCsvWriter {
+
+    /**
+     * The header row of the exported CSV.
+     */
+    public static final String HEADER = "id,name,email";
+
+    /**
+     * The character stream the rows are written to.
+     */
+    private final Writer writer;
+
+    /**
+     * Constructs a new UserCsvWriter over the given character stream.
+     * @param writer the character stream the rows are written to, preferably buffered
+     */
+    public UserCsvWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Writes the header row.
+     * @throws IOException if the row cannot be written
+     */
+    public void writeHeader() throws IOException {
+        writer.write(HEADER);
+        writer.write("\r\n");
+    }
+
+    /**
+     * Writes a user as a row.
+     * @param user the user to be written
+     * @throws IOException if the row cannot be written
+     */
+    public void write(User user) throws IOException {
+        writer.write(String.valueOf(user.getId()));
+        writer.write(',');
+        writeField(user.getName());
+        writer.write(',');
+        writeField(user.getEmail());
+        writer.write("\r\n");
+    }
+
+    /**
+     * Writes a field, quoting it when needed.
+     * @param value the value of the field
+     * @throws IOException if the field cannot be written
+     */
+    private void writeField(String value) throws IOException {
+        if (value == null)
+            return;
+
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
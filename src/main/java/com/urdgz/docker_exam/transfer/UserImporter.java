@@ -0,0 +1,261 @@
+package com.urdgz.docker_exam.transfer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.urdgz.docker_exam.dto.BatchItemResult;
+import com.urdgz.docker_exam.dto.ImportReport;
+import com.urdgz.docker_exam.exception.CustomApiException;
+import com.urdgz.docker_exam.model.User;
+import com.urdgz.docker_exam.service.UserService;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+
+/**
+ * UserImporter creates users from a CSV or newline-delimited JSON stream.
+ * Rows are parsed one at a time as the stream is read and written in batches, each one in its own transaction,
+ * through the batch creation of the UserService, which validates every row with the constraints of User.
+ * Only the current batch and a bounded number of rejection reasons are kept, so the memory used
+ * does not depend on the size of the input.
+ * @author Ulises Rodríguez García.
+ */
+@Component
+public class UserImporter {
+
+    /**
+     * The UserService used to create the users.
+     */
+    private final UserService userService;
+
+    /**
+     * The ObjectReader used to parse each line of a newline-delimited JSON stream.
+     */
+    private final ObjectReader userReader;
+
+    /**
+     * The number of rows written in each batch.
+     */
+    private final int batchSize;
+
+    /**
+     * The maximum number of rejection reasons reported.
+     */
+    private final int maxRejections;
+
+    /**
+     * Constructs a new UserImporter with the specified UserService and settings.
+     * @param userService   the UserService used to create the users
+     * @param objectMapper  the ObjectMapper used to parse newline-delimited JSON
+     * @param batchSize     the number of rows written in each batch
+     * @param maxRejections the maximum number of rejection reasons reported
+     */
+    public UserImporter(UserService userService, ObjectMapper objectMapper,
+            @Value("${users.batch.max-size:1000}") int batchSize,
+            @Value("${users.import.max-rejections:100}") int maxRejections) {
+        this.userService = userService;
+        this.userReader = objectMapper.readerFor(User.class);
+        this.batchSize = batchSize;
+        this.maxRejections = maxRejections;
+    }
+
+    /**
+     * Imports users from a CSV stream with name and email columns.
+     * When the first row is a header containing an email column, the columns are found by name,
+     * otherwise the name is expected in the first column and the email in the second.
+     * @param input   the CSV stream
+     * @param charset the charset of the stream
+     * @return an ImportReport with the accepted and rejected counts and the rejection reasons
+     * @throws IOException if the stream cannot be read
+     */
+    public ImportReport importCsv(InputStream input, Charset charset) throws IOException {
+        RecordReader reader = new RecordReader(new BufferedReader(new InputStreamReader(input, charset)));
+        Import result = new Import();
+        int nameColumn = 0;
+        int emailColumn = 1;
+
+        List<String> record = reader.readCsvRecord();
+        if (record != null) {
+            List<String> header = record.stream().map(field -> field.trim().toLowerCase(Locale.ROOT)).toList();
+            if (header.contains("email")) {
+                nameColumn = header.indexOf("name");
+                emailColumn = header.indexOf("email");
+                if (nameColumn < 0)
+                    throw new CustomApiException(HttpStatus.BAD_REQUEST, "CSV header must contain a name column");
+
+                record = reader.readCsvRecord();
+            }
+        }
+
+        for (; record != null; record = reader.readCsvRecord()) {
+            int line = reader.getRecordLine();
+            if (record.size() == 1 && record.get(0).isBlank())
+                continue;
+
+            if (reader.isTruncated())
+                result.reject(line, HttpStatus.BAD_REQUEST, "Row is longer than " + RecordReader.MAX_RECORD_LENGTH + " characters");
+            else if (record.size() <= Math.max(nameColumn, emailColumn))
+                result.reject(line, HttpStatus.BAD_REQUEST, "Row must have a name and an email");
+            else {
+                User user = new User();
+                user.setName(record.get(nameColumn).trim());
+                user.setEmail(record.get(emailColumn).trim());
+                result.add(line, user);
+            }
+        }
+        return result.finish();
+    }
+
+    /**
+     * Imports users from a newline-delimited JSON stream, one user object per line.
+     * @param input   the newline-delimited JSON stream
+     * @param charset the charset of the stream
+     * @return an ImportReport with the accepted and rejected counts and the rejection reasons
+     * @throws IOException if the stream cannot be read
+     */
+    public ImportReport importNdjson(InputStream input, Charset charset) throws IOException {
+        RecordReader reader = new RecordReader(new BufferedReader(new InputStreamReader(input, charset)));
+        Import result = new Import();
+
+        for (String text = reader.readLine(); text != null; text = reader.readLine()) {
+            int line = reader.getRecordLine();
+            if (text.isBlank())
+                continue;
+
+            if (reader.isTruncated()) {
+                result.reject(line, HttpStatus.BAD_REQUEST, "Row is longer than " + RecordReader.MAX_RECORD_LENGTH + " characters");
+                continue;
+            }
+
+            try {
+                User user = userReader.readValue(text);
+                if (user == null) {
+                    result.reject(line, HttpStatus.BAD_REQUEST, "Row must be a JSON object");
+                    continue;
+                }
+
+                user.setId(null);
+                result.add(line, user);
+            } catch (JsonProcessingException exception) {
+                result.reject(line, HttpStatus.BAD_REQUEST, "Malformed JSON: " + exception.getOriginalMessage());
+            }
+        }
+        return result.finish();
+    }
+
+    /**
+     * Import keeps the state of a single import: the current batch and the counters.
+     */
+    private final class Import {
+
+        private final List<User> users = new ArrayList<>(batchSize);
+        private final List<Integer> lines = new ArrayList<>(batchSize);
+        private final List<ImportReport.RejectedRow> rejections = new ArrayList<>();
+        private long accepted;
+        private long rejected;
+
+        /**
+         * Adds a parsed row to the current batch, writing the batch once full.
+         * @param line the line where the row starts
+         * @param user the user of the row
+         */
+        private void add(int line, User user) {
+            users.add(user);
+            lines.add(line);
+            if (users.size() >= batchSize)
+                flush();
+        }
+
+        /**
+         * Records a rejected row.
+         * @param line    the line where the row starts
+         * @param status  the HTTP status describing the rejection
+         * @param message the reason the row was rejected
+         */
+        private void reject(int line, HttpStatus status, String message) {
+            rejected++;
+            if (rejections.size() < maxRejections)
+                rejections.add(new ImportReport.RejectedRow(line, status.value(), message));
+        }
+
+        /**
+         * Writes the current batch in a single transaction.
+         * When the batch fails as a whole, for any reason, such as when a concurrent request took one of the emails,
+         * the rows are retried one by one so that only the failing ones are rejected, each with its reason.
+         * The earlier batches are already committed, so a failure never ends the import without a report.
+         */
+        private void flush() {
+            if (users.isEmpty())
+                return;
+
+            try {
+                List<BatchItemResult> results = userService.createUsers(users);
+                for (int i = 0; i < results.size(); i++)
+                    record(lines.get(i), HttpStatus.valueOf(results.get(i).getStatus()), results.get(i).getMessage());
+            } catch (RuntimeException batchException) {
+                for (int i = 0; i < users.size(); i++)
+                    createOne(lines.get(i), users.get(i));
+            }
+            users.clear();
+            lines.clear();
+        }
+
+        /**
+         * Writes a single row in its own transaction and records its outcome.
+         * @param line the line where the row starts
+         * @param user the user of the row
+         */
+        private void createOne(int line, User user) {
+            try {
+                userService.createUser(user);
+                record(line, HttpStatus.CREATED, null);
+            } catch (CustomApiException exception) {
+                record(line, exception.getStatus(), exception.getMessage());
+            } catch (ConstraintViolationException exception) {
+                record(line, HttpStatus.BAD_REQUEST, exception.getConstraintViolations().stream()
+                    .map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining(", ")));
+            } catch (DataIntegrityViolationException exception) {
+                record(line, HttpStatus.BAD_REQUEST, "The user data violates a constraint of the database");
+            } catch (RuntimeException exception) {
+                record(line, HttpStatus.INTERNAL_SERVER_ERROR, "User creation failed");
+            }
+        }
+
+        /**
+         * Records the outcome of a written row.
+         * @param line    the line where the row starts
+         * @param status  the HTTP status of the outcome
+         * @param message the message of the outcome
+         */
+        private void record(int line, HttpStatus status, String message) {
+            if (status == HttpStatus.CREATED)
+                accepted++;
+            else
+                reject(line, status, message);
+        }
+
+        /**
+         * Writes the last batch and builds the report.
+         * @return the ImportReport of the import
+         */
+        private ImportReport finish() {
+            flush();
+            return new ImportReport(accepted, rejected, rejections, rejected > rejections.size());
+        }
+    }
+}
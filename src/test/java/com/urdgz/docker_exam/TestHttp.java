@@ -0,0 +1,55 @@
+package com.urdgz.docker_exam;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+
+public final class TestHttp {
+
+	private final HttpClient client = HttpClient.newHttpClient();
+
+	private final String baseUrl;
+
+	public TestHttp(int port) {
+		this.baseUrl = "http://localhost:" + port;
+	}
+
+	public HttpResponse<String> get(String path, String... headers) throws IOException, InterruptedException {
+		return send("GET", path, null, headers);
+	}
+
+	public HttpResponse<byte[]> getBytes(String path, String... headers) throws IOException, InterruptedException {
+		return client.send(request("GET", path, null, headers), HttpResponse.BodyHandlers.ofByteArray());
+	}
+
+	public HttpResponse<String> send(String method, String path, String body, String... headers) throws IOException, InterruptedException {
+		return client.send(request(method, path, body, headers), HttpResponse.BodyHandlers.ofString());
+	}
+
+	public CompletableFuture<HttpResponse<String>> sendAsync(String method, String path, String body, String... headers) {
+		return client.sendAsync(request(method, path, body, headers), HttpResponse.BodyHandlers.ofString());
+	}
+
+	// JSON is sent and accepted unless the name and value pairs of the headers set their own Content-Type or Accept.
+	private HttpRequest request(String method, String path, String body, String... headers) {
+		HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+			.method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body));
+		if (body != null && !hasHeader(headers, "Content-Type"))
+			request.header("Content-Type", "application/json");
+		if (!hasHeader(headers, "Accept"))
+			request.header("Accept", "application/json");
+		if (headers.length > 0)
+			request.headers(headers);
+		return request.build();
+	}
+
+	private static boolean hasHeader(String[] headers, String name) {
+		for (int i = 0; i < headers.length; i += 2)
+			if (headers[i].equalsIgnoreCase(name))
+				return true;
+		return false;
+	}
+}
@@ -0,0 +1,23 @@
+package com.urdgz.docker_exam;
+
+import com.urdgz.docker_exam.model.User;
+
+public final class TestUsers {
+
+	private TestUsers() {
+	}
+
+	public static User newUser(String name, String email) {
+		User user = new User();
+		user.setName(name);
+		user.setEmail(email);
+		return user;
+	}
+
+	public static User newUser(int id, String name, String email, long version) {
+		User user = newUser(name, email);
+		user.setId(id);
+		user.setVersion(version);
+		return user;
+	}
+}
@@ -0,0 +1,207 @@
+package com.urdgz.docker_exam.cache;
+
+import static com.urdgz.docker_exam.TestUsers.newUser;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.urdgz.docker_exam.event.UserChangeEvent;
+import com.urdgz.docker_exam.model.User;
+import com.urdgz.docker_exam.repository.UserJdbcRepository;
+import com.urdgz.docker_exam.repository.UserRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class UserCacheClusterTests {
+
+	private static final int USERS = 100;
+
+	private final Map<Integer, User> database = new ConcurrentHashMap<>();
+
+	private final AtomicInteger databaseReads = new AtomicInteger();
+
+	private final List<UserCache> nodes = new ArrayList<>();
+
+	private UserInvalidationBus invalidationBus;
+
+	@BeforeEach
+	void setUp() {
+		UserRepository userRepository = mock(UserRepository.class);
+		when(userRepository.findById(any())).thenAnswer(invocation -> {
+			databaseReads.incrementAndGet();
+			return Optional.ofNullable(database.get(invocation.getArgument(0))).map(User::copy);
+		});
+		when(userRepository.findByEmail(anyString())).thenAnswer(invocation -> {
+			databaseReads.incrementAndGet();
+			return database.values().stream().filter(user -> user.getEmail().equals(invocation.getArgument(0))).findFirst().map(User::copy);
+		});
+
+		SharedUserCache sharedCache = new InMemorySharedUserCache(10_000, Duration.ofMinutes(10));
+		invalidationBus = new InMemoryUserInvalidationBus();
+		for (int i = 0; i < 3; i++)
+			nodes.add(new UserCache(userRepository, sharedCache, invalidationBus, new SimpleMeterRegistry(), 10_000, Duration.ofMinutes(10)));
+
+		for (int id = 1; id <= USERS; id++)
+			database.put(id, newUser(id, "User " + id, "user" + id + "@example.com", 0));
+	}
+
+	@Test
+	void readsAreServedByTheNearCacheAndThenByTheSharedTier() {
+		for (UserCache node : nodes)
+			for (int round = 0; round < 10; round++)
+				for (int id = 1; id <= USERS; id++)
+					assertThat(node.findById(id)).isPresent();
+
+		assertThat(databaseReads).hasValue(USERS);
+		for (UserCache node : nodes)
+			assertThat(node.idStats().hitRate()).isEqualTo(0.9);
+		assertThat(nodes.get(0).sharedStats().missCount()).isEqualTo(USERS);
+		assertThat(nodes.get(1).sharedStats().hitCount()).isEqualTo(USERS);
+		assertThat(nodes.get(2).sharedStats().hitRate()).isEqualTo(1.0);
+	}
+
+	@Test
+	void noNodeServesAStaleUserAfterAWrite() {
+		readEverywhere(7);
+
+		write(nodes.get(0), newUser(7, "Lara Croft", "croft@example.com", 1), "user7@example.com");
+		for (UserCache node : nodes) {
+			assertThat(node.findById(7)).get().extracting(User::getName, User::getVersion).containsExactly("Lara Croft", 1L);
+			assertThat(node.findByEmail("user7@example.com")).isEmpty();
+			assertThat(node.findByEmail("croft@example.com")).get().extracting(User::getId).isEqualTo(7);
+		}
+		assertThat(nodes.get(1).appliedInvalidationCount()).isEqualTo(1);
+
+		database.remove(7);
+		nodes.get(2).onUserChanged(UserChangeEvent.deleted(7));
+		for (UserCache node : nodes) {
+			assertThat(node.findById(7)).isEmpty();
+			assertThat(node.findByEmail("croft@example.com")).isEmpty();
+		}
+	}
+
+	@Test
+	void outOfOrderInvalidationsAndUpdatesAreRejected() {
+		write(nodes.get(0), newUser(3, "Terry Crews", "crews@example.com", 2), null);
+		readEverywhere(3);
+
+		long ignored = nodes.get(1).ignoredInvalidationCount();
+		nodes.get(2).onInvalidation(new UserInvalidation("late-node", 3, 1));
+		nodes.get(1).onInvalidation(new UserInvalidation("late-node", 3, 1));
+		assertThat(nodes.get(1).ignoredInvalidationCount()).isEqualTo(ignored + 1);
+
+		nodes.get(2).onUserChanged(UserChangeEvent.updated(newUser(3, "Terry", "user3@example.com", 1), null));
+		for (UserCache node : nodes)
+			assertThat(node.findById(3)).get().extracting(User::getName, User::getVersion).containsExactly("Terry Crews", 2L);
+
+		database.remove(3);
+		nodes.get(0).onUserChanged(UserChangeEvent.deleted(3));
+		nodes.get(1).onUserChanged(UserChangeEvent.updated(newUser(3, "Terry Crews", "crews@example.com", 3), null));
+		for (UserCache node : nodes)
+			assertThat(node.findById(3)).isEmpty();
+	}
+
+	@Test
+	void concurrentReadersNeverSeeAVersionOlderThanTheLastCommittedWrite() throws InterruptedException {
+		AtomicBoolean running = new AtomicBoolean(true);
+		AtomicInteger committedVersion = new AtomicInteger();
+		AtomicInteger staleReads = new AtomicInteger();
+		ExecutorService readers = Executors.newFixedThreadPool(6);
+
+		for (int r = 0; r < 6; r++) {
+			UserCache node = nodes.get(r % nodes.size());
+			readers.execute(() -> {
+				while (running.get()) {
+					int id = 1 + ThreadLocalRandom.current().nextInt(5);
+					int committed = id == 1 ? committedVersion.get() : 0;
+					long version = node.findById(id).map(User::getVersion).orElse(-1L);
+					if (version < committed)
+						staleReads.incrementAndGet();
+				}
+			});
+		}
+
+		for (int version = 1; version <= 500; version++) {
+			UserCache writer = nodes.get(version % nodes.size());
+			write(writer, newUser(1, "User 1", "user1@example.com", version), null);
+			committedVersion.set(version);
+		}
+
+		running.set(false);
+		readers.shutdown();
+		assertThat(readers.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(staleReads).hasValue(0);
+		for (UserCache node : nodes)
+			assertThat(node.findById(1)).get().extracting(User::getVersion).isEqualTo(500L);
+	}
+
+	@Test
+	void listingsQueueThePeerChangesMadeWhileTheyLoad() throws Exception {
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch changed = new CountDownLatch(1);
+		UserListingSnapshot snapshot = new UserListingSnapshot(new UserJdbcRepository(null, 0) {
+			@Override
+			public void forEachUser(Consumer<User> consumer) {
+				List<User> users = database.values().stream().map(User::copy).toList();
+				loading.countDown();
+				try {
+					changed.await();
+				} catch (InterruptedException exception) {
+					throw new IllegalStateException(exception);
+				}
+				users.forEach(consumer);
+			}
+		}, nodes.get(1), invalidationBus, new ObjectMapper(), new SimpleMeterRegistry(), true, false, 16, 100);
+
+		CompletableFuture<Void> rebuild = CompletableFuture.runAsync(snapshot::rebuild);
+		assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+		CompletableFuture.runAsync(() -> {
+			write(nodes.get(0), newUser(7, "Lara Croft", "croft@example.com", 1), "user7@example.com");
+			database.remove(8);
+			nodes.get(2).onUserChanged(UserChangeEvent.deleted(8));
+		}).get(5, TimeUnit.SECONDS);
+		changed.countDown();
+		rebuild.get(5, TimeUnit.SECONDS);
+
+		UserListing listing = snapshot.current().orElseThrow();
+		assertThat(listing.find(7, 16)).extracting(User::getName, User::getVersion).containsExactly("Lara Croft", 1L);
+		assertThat(listing.find(8, 16)).isNull();
+		assertThat(listing.size()).isEqualTo(USERS - 1);
+
+		long version = listing.getVersion();
+		write(nodes.get(1), newUser(9, "Nina Simone", "nina@example.com", 1), null);
+		assertThat(snapshot.current().orElseThrow().getVersion()).isEqualTo(version);
+	}
+
+	private void readEverywhere(int id) {
+		for (UserCache node : nodes)
+			assertThat(node.findById(id)).isPresent();
+	}
+
+	private void write(UserCache node, User user, String previousEmail) {
+		database.put(user.getId(), user.copy());
+		node.onUserChanged(UserChangeEvent.updated(user, previousEmail));
+	}
+}
@@ -0,0 +1,101 @@
+package com.urdgz.docker_exam.cache;
+
+import static com.urdgz.docker_exam.TestUsers.newUser;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.urdgz.docker_exam.dto.UserDto;
+import com.urdgz.docker_exam.dto.UserPatchItem;
+import com.urdgz.docker_exam.model.User;
+import com.urdgz.docker_exam.repository.UserRepository;
+import com.urdgz.docker_exam.service.UserService;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class UserCacheTests {
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private UserCache userCache;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@BeforeEach
+	void setUp() {
+		userRepository.deleteAllInBatch();
+		userCache.clear();
+	}
+
+	@Test
+	void readsAreServedFromTheCacheAfterTheFirstLookup() {
+		User user = userService.createUser(newUser("Lara Craft", "lara@example.com"));
+		long hits = userCache.idStats().hitCount();
+
+		assertThat(userCache.findById(user.getId())).get().extracting(User::getName).isEqualTo("Lara Craft");
+		assertThat(userCache.findByEmail("lara@example.com")).get().extracting(User::getId).isEqualTo(user.getId());
+		assertThat(userCache.idStats().hitCount()).isGreaterThan(hits);
+	}
+
+	@Test
+	void patchReplacesTheCachedUser() {
+		User user = userService.createUser(newUser("Lara Craft", "lara@example.com"));
+		userCache.findById(user.getId());
+
+		UserDto userDto = new UserDto();
+		userDto.setName("Lara Croft");
+		userDto.setEmail("croft@example.com");
+		userService.patchUser(user.getId(), userDto);
+
+		assertThat(userCache.findById(user.getId())).get().extracting(User::getName, User::getEmail)
+			.containsExactly("Lara Croft", "croft@example.com");
+		assertThat(userCache.findByEmail("lara@example.com")).isEmpty();
+		assertThat(userCache.findByEmail("croft@example.com")).get().extracting(User::getId).isEqualTo(user.getId());
+	}
+
+	@Test
+	void batchPatchReplacesTheCachedUsers() {
+		User user = userService.createUser(newUser("Terry Crews", "terry@example.com"));
+		userCache.findByEmail("terry@example.com");
+
+		UserPatchItem patch = new UserPatchItem();
+		patch.setId(user.getId());
+		patch.setEmail("crews@example.com");
+		userService.patchUsers(List.of(patch));
+
+		assertThat(userCache.findByEmail("terry@example.com")).isEmpty();
+		assertThat(userCache.findById(user.getId())).get().extracting(User::getEmail).isEqualTo("crews@example.com");
+	}
+
+	@Test
+	void deleteEvictsTheCachedUser() {
+		User user = userService.createUser(newUser("Nina Simone", "nina@example.com"));
+		User other = userService.createUser(newUser("Nina Martinez", "martinez@example.com"));
+		userCache.findById(user.getId());
+		userCache.findById(other.getId());
+
+		userService.deleteUser(user.getId());
+		userService.deleteUsers(List.of(other.getId()));
+
+		assertThat(userCache.findById(user.getId())).isEmpty();
+		assertThat(userCache.findByEmail("nina@example.com")).isEmpty();
+		assertThat(userCache.findById(other.getId())).isEmpty();
+	}
+
+	@Test
+	void cachedUsersCannotBeModifiedByCallers() {
+		User user = userService.createUser(newUser("Lara Craft", "lara@example.com"));
+		userCache.findById(user.getId()).get().setName("Changed");
+
+		assertThat(userCache.findById(user.getId())).get().extracting(User::getName).isEqualTo("Lara Craft");
+	}
+}
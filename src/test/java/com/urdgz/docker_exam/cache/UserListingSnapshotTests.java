@@ -0,0 +1,174 @@
+package com.urdgz.docker_exam.cache;
+
+import static com.urdgz.docker_exam.TestUsers.newUser;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.net.URLEncoder;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.urdgz.docker_exam.TestHttp;
+import com.urdgz.docker_exam.dto.UserDto;
+import com.urdgz.docker_exam.model.User;
+import com.urdgz.docker_exam.repository.UserRepository;
+import com.urdgz.docker_exam.service.UserService;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "users.rate-limit.enabled=false")
+@ActiveProfiles("test")
+class UserListingSnapshotTests {
+
+	private final ObjectMapper json = new ObjectMapper();
+
+	@LocalServerPort
+	private int port;
+
+	private TestHttp http;
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private UserCache userCache;
+
+	@Autowired
+	private UserListingSnapshot snapshot;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@BeforeEach
+	void setUp() {
+		http = new TestHttp(port);
+		userRepository.deleteAllInBatch();
+		userCache.clear();
+		snapshot.rebuild();
+	}
+
+	@Test
+	void listingIsServedFromTheSnapshotAndKeptUpToDate() throws Exception {
+		User lara = userService.createUser(newUser("Lara Craft", "lara@example.com"));
+		User terry = userService.createUser(newUser("Terry Crews", "terry@example.com"));
+
+		HttpResponse<byte[]> response = http.getBytes("/users");
+		String eTag = response.headers().firstValue("ETag").orElseThrow();
+		JsonNode body = json.readTree(response.body());
+		assertThat(response.statusCode()).isEqualTo(200);
+		assertThat(response.headers().firstValueAsLong("Content-Length")).hasValue(response.body().length);
+		assertThat(body.get("message").asText()).isEqualTo("Users retrieved successfully");
+		assertThat(body.get("data").findValuesAsText("email")).containsExactly("lara@example.com", "terry@example.com");
+		assertThat(body.get("data").get(0).get("id").asInt()).isEqualTo(lara.getId());
+
+		assertThat(http.getBytes("/users", "If-None-Match", eTag).statusCode()).isEqualTo(304);
+
+		UserDto userDto = new UserDto();
+		userDto.setName("Terry Jeffords");
+		userService.patchUser(terry.getId(), userDto);
+
+		response = http.getBytes("/users", "If-None-Match", eTag);
+		assertThat(response.statusCode()).isEqualTo(200);
+		assertThat(response.headers().firstValue("ETag")).get().isNotEqualTo(eTag);
+		assertThat(json.readTree(response.body()).get("data").findValuesAsText("name")).containsExactly("Lara Craft", "Terry Jeffords");
+	}
+
+	@Test
+	void gzipListingDecodesToTheSameUsers() throws Exception {
+		List<User> users = new ArrayList<>();
+		for (int i = 0; i < 300; i++)
+			users.add(newUser("User " + i, "user" + i + "@example.com"));
+		userService.createUsers(users);
+
+		HttpResponse<byte[]> identity = http.getBytes("/users");
+		HttpResponse<byte[]> gzip = http.getBytes("/users", "Accept-Encoding", "gzip");
+
+		assertThat(gzip.headers().firstValue("Content-Encoding")).hasValue("gzip");
+		assertThat(gzip.headers().firstValue("ETag")).get().isNotEqualTo(identity.headers().firstValue("ETag").orElseThrow());
+		assertThat(gzip.headers().allValues("Vary")).anySatisfy(vary -> assertThat(vary).containsIgnoringCase("Accept-Encoding"));
+		assertThat(gzip.body().length).isLessThan(identity.body().length);
+		try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip.body()))) {
+			JsonNode body = json.readTree(in.readAllBytes());
+			assertThat(body.get("data")).isEqualTo(json.readTree(identity.body()).get("data"));
+			assertThat(body.get("data")).hasSize(300);
+		}
+	}
+
+	@Test
+	void eitherEncodingOfTheETagIdentifiesTheVersion() throws Exception {
+		User lara = userService.createUser(newUser("Lara Craft", "lara@example.com"));
+		String identityTag = http.getBytes("/users").headers().firstValue("ETag").orElseThrow();
+		String gzipTag = http.getBytes("/users", "Accept-Encoding", "gzip").headers().firstValue("ETag").orElseThrow();
+		assertThat(gzipTag).isEqualTo(identityTag.replace("\"", "").transform(token -> "\"" + token + "-gzip\""));
+
+		HttpResponse<byte[]> notModified = http.getBytes("/users", "Accept-Encoding", "gzip", "If-None-Match", identityTag);
+		assertThat(notModified.statusCode()).isEqualTo(304);
+		assertThat(notModified.headers().firstValue("ETag")).hasValue(gzipTag);
+		assertThat(http.getBytes("/users", "If-None-Match", "W/" + gzipTag).statusCode()).isEqualTo(304);
+
+		UserDto userDto = new UserDto();
+		userDto.setName("Lara Croft");
+		userService.patchUser(lara.getId(), userDto);
+
+		for (String since : new String[] { gzipTag, "W/" + gzipTag, "W/" + identityTag }) {
+			HttpResponse<byte[]> response = http.getBytes("/users?since=" + URLEncoder.encode(since, StandardCharsets.UTF_8));
+			assertThat(response.statusCode()).as(since).isEqualTo(200);
+			assertThat(json.readTree(response.body()).get("data").get("users").findValuesAsText("name")).containsExactly("Lara Croft");
+		}
+	}
+
+	@Test
+	void changesSinceAVersionListTheChangedAndDeletedUsers() throws Exception {
+		User lara = userService.createUser(newUser("Lara Craft", "lara@example.com"));
+		User terry = userService.createUser(newUser("Terry Crews", "terry@example.com"));
+		String eTag = http.getBytes("/users").headers().firstValue("ETag").orElseThrow();
+
+		User nina = userService.createUser(newUser("Nina Simone", "nina@example.com"));
+		UserDto userDto = new UserDto();
+		userDto.setName("Lara Croft");
+		userService.patchUser(lara.getId(), userDto);
+		userService.deleteUser(terry.getId());
+
+		HttpResponse<byte[]> response = http.getBytes("/users?since=" + eTag.replace("\"", ""));
+		JsonNode data = json.readTree(response.body()).get("data");
+		assertThat(response.statusCode()).isEqualTo(200);
+		assertThat(data.get("users").findValuesAsText("name")).containsExactly("Lara Croft", "Nina Simone");
+		assertThat(data.get("users").get(1).get("id").asInt()).isEqualTo(nina.getId());
+		assertThat(data.get("deletedIds")).extracting(JsonNode::asInt).containsExactly(terry.getId());
+		assertThat(response.headers().firstValue("ETag")).hasValue("\"" + data.get("version").asText() + "\"");
+
+		JsonNode next = json.readTree(http.getBytes("/users?since=" + data.get("version").asText()).body()).get("data");
+		assertThat(next.get("users")).isEmpty();
+		assertThat(next.get("deletedIds")).isEmpty();
+	}
+
+	@Test
+	void unknownVersionsAreGoneAndMalformedOnesRejected() throws Exception {
+		userService.createUser(newUser("Lara Craft", "lara@example.com"));
+
+		assertThat(http.getBytes("/users?since=00000000-1").statusCode()).isEqualTo(410);
+		assertThat(http.getBytes("/users?since=latest").statusCode()).isEqualTo(400);
+	}
+
+	@Test
+	void binaryFormatsWriteTheListingAsASuccessResponse() throws Exception {
+		userService.createUser(newUser("Lara Craft", "lara@example.com"));
+
+		HttpResponse<byte[]> response = http.getBytes("/users", "Accept", "application/x-jackson-smile");
+		JsonNode body = new SmileMapper().readTree(response.body());
+		assertThat(response.statusCode()).isEqualTo(200);
+		assertThat(body.get("message").asText()).isEqualTo("Users retrieved successfully");
+		assertThat(body.get("data").findValuesAsText("email")).containsExactly("lara@example.com");
+	}
+}
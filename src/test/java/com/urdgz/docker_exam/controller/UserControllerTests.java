@@ -0,0 +1,143 @@
+package com.urdgz.docker_exam.controller;
+
+import static com.urdgz.docker_exam.TestUsers.newUser;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.urdgz.docker_exam.TestHttp;
+import com.urdgz.docker_exam.cache.UserCache;
+import com.urdgz.docker_exam.model.User;
+import com.urdgz.docker_exam.repository.UserRepository;
+import com.urdgz.docker_exam.service.UserService;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "users.rate-limit.enabled=false")
+@ActiveProfiles("test")
+class UserControllerTests {
+
+	private final ObjectMapper json = new ObjectMapper();
+
+	@LocalServerPort
+	private int port;
+
+	private TestHttp http;
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private UserCache userCache;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void setUp() {
+		http = new TestHttp(port);
+		userRepository.deleteAllInBatch();
+		userCache.clear();
+	}
+
+	@Test
+	void eachListingParameterSelectsItsOwnHandler() throws Exception {
+		userService.createUser(newUser("Lara Craft", "lara@example.com"));
+
+		assertThat(json.readTree(http.get("/users?email=lara@example.com").body()).get("data").get("name").asText()).isEqualTo("Lara Craft");
+		assertThat(json.readTree(http.get("/users?limit=10").body()).get("data").get("items")).hasSize(1);
+	}
+
+	@Test
+	void combinedListingParametersAreRejected() throws Exception {
+		for (String query : new String[] { "limit=10&email=lara@example.com", "email=lara@example.com&since=x-1", "limit=10&since=x-1" }) {
+			HttpResponse<String> response = http.get("/users?" + query);
+			JsonNode body = json.readTree(response.body());
+			assertThat(response.statusCode()).as(query).isEqualTo(400);
+			assertThat(body.get("message").asText()).isEqualTo("Only one of the limit, email and since parameters can be sent");
+		}
+	}
+
+	@Test
+	void onlyDuplicateEmailsAreReportedAsConflicts() throws Exception {
+		userService.createUser(newUser("Lara Craft", "lara@example.com"));
+
+		HttpResponse<String> duplicate = http.send("POST", "/users", "{\"name\":\"Lara\",\"email\":\"lara@example.com\"}");
+		assertThat(duplicate.statusCode()).isEqualTo(409);
+		assertThat(json.readTree(duplicate.body()).get("message").asText()).isEqualTo("A user with the same email already exists");
+
+		HttpResponse<String> tooLong = http.send("POST", "/users", "{\"name\":\"" + "x".repeat(300) + "\",\"email\":\"long@example.com\"}");
+		assertThat(tooLong.statusCode()).isEqualTo(400);
+		assertThat(json.readTree(tooLong.body()).get("message").asText()).isEqualTo("The user data violates a constraint of the database");
+	}
+
+	@Test
+	void patchAppliesOnlyWhenIfMatchHasTheCurrentVersion() throws Exception {
+		User user = userService.createUser(newUser("Lara Craft", "lara@example.com"));
+		String eTag = "\"" + user.getId() + "-0\"";
+
+		HttpResponse<String> matching = http.send("PATCH", "/users/" + user.getId(), "{\"name\":\"Lara Croft\"}", "If-Match", eTag);
+		assertThat(matching.statusCode()).isEqualTo(200);
+		assertThat(matching.headers().firstValue("ETag")).hasValue("\"" + user.getId() + "-1\"");
+		assertThat(json.readTree(matching.body()).get("data").get("name").asText()).isEqualTo("Lara Croft");
+
+		HttpResponse<String> stale = http.send("PATCH", "/users/" + user.getId(), "{\"name\":\"Stale\"}", "If-Match", eTag);
+		assertThat(stale.statusCode()).isEqualTo(412);
+		assertThat(json.readTree(stale.body()).get("message").asText())
+			.isEqualTo("User with id " + user.getId() + " has been modified since it was read");
+		assertThat(userRepository.findById(user.getId())).get().extracting(User::getName, User::getVersion)
+			.containsExactly("Lara Croft", 1L);
+	}
+
+	@Test
+	void patchRetriesOnTheLatestVersionWhenTheCacheIsStale() throws Exception {
+		User user = userService.createUser(newUser("Terry Crews", "terry@example.com"));
+		assertThat(userCache.findById(user.getId())).get().extracting(User::getVersion).isEqualTo(0L);
+		jdbcTemplate.update("UPDATE Users SET name = 'Terry Jeffords', version = version + 1 WHERE id = ?", user.getId());
+
+		HttpResponse<String> unconditional = http.send("PATCH", "/users/" + user.getId(), "{\"email\":\"jeffords@example.com\"}");
+		assertThat(unconditional.statusCode()).isEqualTo(200);
+		assertThat(unconditional.headers().firstValue("ETag")).hasValue("\"" + user.getId() + "-2\"");
+		JsonNode data = json.readTree(unconditional.body()).get("data");
+		assertThat(data.get("name").asText()).isEqualTo("Terry Jeffords");
+		assertThat(data.get("email").asText()).isEqualTo("jeffords@example.com");
+
+		jdbcTemplate.update("UPDATE Users SET version = version + 1 WHERE id = ?", user.getId());
+		HttpResponse<String> conditional = http.send("PATCH", "/users/" + user.getId(), "{\"name\":\"Terry\"}", "If-Match", "\"" + user.getId() + "-3\"");
+		assertThat(conditional.statusCode()).isEqualTo(200);
+		assertThat(conditional.headers().firstValue("ETag")).hasValue("\"" + user.getId() + "-4\"");
+		assertThat(userRepository.findById(user.getId())).get().extracting(User::getName, User::getVersion)
+			.containsExactly("Terry", 4L);
+	}
+
+	@Test
+	void onlyOneOfTwoConcurrentPatchesOfTheSameVersionApplies() throws Exception {
+		User user = userService.createUser(newUser("Nina Simone", "nina@example.com"));
+		for (int round = 0; round < 10; round++) {
+			String eTag = "\"" + user.getId() + "-" + round + "\"";
+			List<CompletableFuture<HttpResponse<String>>> patches = new ArrayList<>();
+			for (int i = 0; i < 2; i++)
+				patches.add(http.sendAsync("PATCH", "/users/" + user.getId(), "{\"name\":\"Nina " + round + "-" + i + "\"}", "If-Match", eTag));
+
+			List<Integer> statuses = new ArrayList<>();
+			for (CompletableFuture<HttpResponse<String>> patch : patches)
+				statuses.add(patch.get().statusCode());
+			assertThat(statuses).as("round " + round).containsExactlyInAnyOrder(200, 412);
+		}
+		assertThat(userRepository.findById(user.getId())).get().extracting(User::getVersion).isEqualTo(10L);
+	}
+}
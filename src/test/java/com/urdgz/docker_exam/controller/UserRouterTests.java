@@ -0,0 +1,219 @@
+package com.urdgz.docker_exam.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.urdgz.docker_exam.cache.SharedUserCache;
+import com.urdgz.docker_exam.cache.UserInvalidation;
+import com.urdgz.docker_exam.cache.UserInvalidationBus;
+import com.urdgz.docker_exam.event.UserChangeEvent;
+import com.urdgz.docker_exam.model.User;
+import com.urdgz.docker_exam.repository.UserChangeJdbcRepository;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"spring.main.web-application-type=reactive",
+		"spring.datasource.url=jdbc:h2:mem:db_reactive;MODE=MySQL;DB_CLOSE_DELAY=-1",
+		"spring.r2dbc.url=r2dbc:h2:mem:///db_reactive?options=DB_CLOSE_DELAY=-1;MODE=MySQL" })
+@ActiveProfiles({ "reactive", "test" })
+class UserRouterTests {
+
+	@Autowired
+	private WebTestClient webTestClient;
+
+	@Autowired
+	private DatabaseClient databaseClient;
+
+	@Autowired
+	private UserChangeJdbcRepository userChangeJdbcRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private SharedUserCache sharedUserCache;
+
+	@Autowired
+	private UserInvalidationBus invalidationBus;
+
+	@BeforeEach
+	void setUp() {
+		databaseClient.sql("DELETE FROM Users").then().block();
+		databaseClient.sql("DELETE FROM User_Changes").then().block();
+	}
+
+	@Test
+	void singleUserEndpointsKeepTheContractOfTheBlockingStack() {
+		Integer id = create("Lara Craft", "lara@example.com");
+
+		String eTag = webTestClient.get().uri("/users/{id}", id).exchange()
+			.expectStatus().isOk()
+			.expectHeader().valueEquals("ETag", "\"" + id + "-0\"")
+			.expectBody()
+			.jsonPath("$.message").isEqualTo("User retrieved successfully")
+			.jsonPath("$.data.name").isEqualTo("Lara Craft")
+			.jsonPath("$.data.version").doesNotExist()
+			.returnResult().getResponseHeaders().getETag();
+		webTestClient.get().uri("/users/{id}", id).header("If-None-Match", eTag).exchange()
+			.expectStatus().isNotModified();
+		webTestClient.get().uri("/users?email=lara@example.com").exchange()
+			.expectStatus().isOk()
+			.expectBody().jsonPath("$.data.id").isEqualTo(id);
+
+		webTestClient.patch().uri("/users/{id}", id).header("If-Match", eTag)
+			.contentType(MediaType.APPLICATION_JSON).bodyValue("{\"name\":\"Lara Croft\"}").exchange()
+			.expectStatus().isOk()
+			.expectHeader().valueEquals("ETag", "\"" + id + "-1\"")
+			.expectBody().jsonPath("$.data.name").isEqualTo("Lara Croft");
+		webTestClient.patch().uri("/users/{id}", id).header("If-Match", eTag)
+			.contentType(MediaType.APPLICATION_JSON).bodyValue("{\"name\":\"Stale\"}").exchange()
+			.expectStatus().isEqualTo(412)
+			.expectBody()
+			.jsonPath("$.error").isEqualTo("Precondition Failed")
+			.jsonPath("$.path").isEqualTo("/users/" + id);
+
+		webTestClient.delete().uri("/users/{id}", id).exchange()
+			.expectStatus().isOk()
+			.expectBody().jsonPath("$.message").isEqualTo("User deleted successfully");
+		webTestClient.get().uri("/users/{id}", id).exchange()
+			.expectStatus().isNotFound()
+			.expectBody()
+			.jsonPath("$.status").isEqualTo(404)
+			.jsonPath("$.message").isEqualTo("User not found with id " + id);
+
+		assertThat(changeTypes(id)).containsExactly("CREATED", "UPDATED", "DELETED");
+	}
+
+	@Test
+	void invalidRequestsAreAnsweredWithErrorResponses() {
+		create("Terry Crews", "terry@example.com");
+
+		webTestClient.post().uri("/users").contentType(MediaType.APPLICATION_JSON)
+			.bodyValue("{\"name\":\"Terry\",\"email\":\"terry@example.com\"}").exchange()
+			.expectStatus().isEqualTo(409)
+			.expectBody().jsonPath("$.message").isEqualTo("A user with the same email already exists");
+		webTestClient.post().uri("/users").contentType(MediaType.APPLICATION_JSON)
+			.bodyValue("{\"name\":\"\",\"email\":\"not-an-email\"}").exchange()
+			.expectStatus().isBadRequest()
+			.expectBody().jsonPath("$.message").isEqualTo("Email should be valid, Name is mandatory");
+		webTestClient.post().uri("/users").contentType(MediaType.APPLICATION_JSON)
+			.bodyValue("{\"name\":").exchange()
+			.expectStatus().isBadRequest()
+			.expectBody().jsonPath("$.error").isEqualTo("Bad Request");
+		webTestClient.get().uri("/users/abc").exchange()
+			.expectStatus().isBadRequest();
+	}
+
+	@Test
+	void listingIsStreamedInTheEnvelopeOrAsNdjson() {
+		create("Nina Simone", "nina@example.com");
+		create("Nina Martinez", "martinez@example.com");
+		create("Terry Crews", "terry@example.com");
+
+		webTestClient.get().uri("/users").exchange()
+			.expectStatus().isOk()
+			.expectBody()
+			.jsonPath("$.status").isEqualTo(200)
+			.jsonPath("$.message").isEqualTo("Users retrieved successfully")
+			.jsonPath("$.data.length()").isEqualTo(3)
+			.jsonPath("$.data[0].name").isEqualTo("Nina Simone")
+			.jsonPath("$.data[2].email").isEqualTo("terry@example.com");
+
+		List<User> users = webTestClient.get().uri("/users").accept(MediaType.APPLICATION_NDJSON).exchange()
+			.expectStatus().isOk()
+			.returnResult(User.class).getResponseBody().collectList().block();
+		assertThat(users).extracting(User::getName).containsExactly("Nina Simone", "Nina Martinez", "Terry Crews");
+
+		databaseClient.sql("DELETE FROM Users").then().block();
+		webTestClient.get().uri("/users").exchange()
+			.expectStatus().isOk()
+			.expectBody().jsonPath("$.data.length()").isEqualTo(0);
+	}
+
+	@Test
+	void changesAreWrittenToTheSharedCacheAndBroadcast() {
+		ConcurrentLinkedQueue<UserInvalidation> invalidations = new ConcurrentLinkedQueue<>();
+		invalidationBus.subscribe(invalidations::add);
+
+		Integer id = create("Nina Simone", "nina@example.com");
+		assertThat(sharedUserCache.get(id).getName()).isEqualTo("Nina Simone");
+
+		webTestClient.patch().uri("/users/{id}", id)
+			.contentType(MediaType.APPLICATION_JSON).bodyValue("{\"name\":\"Nina Martinez\"}").exchange()
+			.expectStatus().isOk();
+		assertThat(sharedUserCache.get(id).getName()).isEqualTo("Nina Martinez");
+		assertThat(sharedUserCache.get(id).getVersion()).isEqualTo(1L);
+
+		webTestClient.delete().uri("/users/{id}", id).exchange()
+			.expectStatus().isOk();
+		assertThat(sharedUserCache.get(id)).isNull();
+
+		assertThat(invalidations).filteredOn(invalidation -> invalidation.getId().equals(id))
+			.extracting(UserInvalidation::getVersion).containsExactly(0L, 1L, UserInvalidation.DELETED);
+		assertThat(changeTypes(id)).containsExactly("CREATED", "UPDATED", "DELETED");
+	}
+
+	@Test
+	void changesWaitForTheUncommittedChangesOfTheBlockingStack() throws Exception {
+		CountDownLatch appended = new CountDownLatch(1);
+		CountDownLatch commit = new CountDownLatch(1);
+		TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+		CompletableFuture<Void> blocking = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(status -> {
+			userChangeJdbcRepository.appendAll(List.of(UserChangeEvent.deleted(-1)));
+			appended.countDown();
+			try {
+				commit.await();
+			} catch (InterruptedException exception) {
+				Thread.currentThread().interrupt();
+			}
+		}));
+		assertThat(appended.await(5, TimeUnit.SECONDS)).isTrue();
+
+		CompletableFuture<Integer> reactive = CompletableFuture.supplyAsync(() -> create("Lara Craft", "lara@example.com"));
+		Thread.sleep(300);
+		assertThat(reactive).isNotDone();
+
+		commit.countDown();
+		blocking.get(5, TimeUnit.SECONDS);
+		Integer id = reactive.get(5, TimeUnit.SECONDS);
+
+		List<Integer> userIds = databaseClient.sql("SELECT user_id FROM User_Changes ORDER BY seq")
+			.map(row -> row.get("user_id", Integer.class))
+			.all().collectList().block();
+		assertThat(userIds).containsExactly(-1, id);
+	}
+
+	private Integer create(String name, String email) {
+		return webTestClient.post().uri("/users").contentType(MediaType.APPLICATION_JSON)
+			.bodyValue("{\"name\":\"" + name + "\",\"email\":\"" + email + "\"}").exchange()
+			.expectStatus().isCreated()
+			.expectBody(UserEnvelope.class).returnResult().getResponseBody().data.getId();
+	}
+
+	private List<String> changeTypes(Integer id) {
+		return databaseClient.sql("SELECT type FROM User_Changes WHERE user_id = :id ORDER BY seq")
+			.bind("id", id)
+			.map(row -> row.get("type", String.class))
+			.all().collectList().block();
+	}
+
+	static class UserEnvelope {
+
+		public User data;
+	}
+}
@@ -0,0 +1,56 @@
+package com.urdgz.docker_exam.datasource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.Cookie;
+
+class ReadYourWritesFilterTests {
+
+	private final ReadYourWritesFilter filter = new ReadYourWritesFilter(Duration.ofSeconds(5));
+
+	private final List<Boolean> pinned = new ArrayList<>();
+
+	private final FilterChain chain = (request, response) -> pinned.add(PrimaryPin.isPinned());
+
+	@Test
+	void writesArePinnedAndPinTheNextReadsOfTheClient() throws Exception {
+		MockHttpServletResponse written = new MockHttpServletResponse();
+		filter.doFilter(new MockHttpServletRequest("PATCH", "/users/1"), written, chain);
+		Cookie cookie = written.getCookie(ReadYourWritesFilter.COOKIE_NAME);
+		assertThat(cookie).isNotNull();
+		assertThat(cookie.getMaxAge()).isEqualTo(5);
+
+		MockHttpServletRequest read = new MockHttpServletRequest("GET", "/users/1");
+		read.setCookies(cookie);
+		filter.doFilter(read, new MockHttpServletResponse(), chain);
+
+		assertThat(pinned).containsExactly(true, true);
+		assertThat(PrimaryPin.isPinned()).isFalse();
+	}
+
+	@Test
+	void readsWithoutAPinOrWithAnExpiredOneUseTheReplicas() throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(new MockHttpServletRequest("GET", "/users/1"), response, chain);
+		assertThat(response.getCookie(ReadYourWritesFilter.COOKIE_NAME)).isNull();
+
+		MockHttpServletRequest expired = new MockHttpServletRequest("GET", "/users/1");
+		expired.setCookies(new Cookie(ReadYourWritesFilter.COOKIE_NAME, String.valueOf(System.currentTimeMillis() - 1)));
+		filter.doFilter(expired, new MockHttpServletResponse(), chain);
+
+		MockHttpServletRequest malformed = new MockHttpServletRequest("GET", "/users/1");
+		malformed.setCookies(new Cookie(ReadYourWritesFilter.COOKIE_NAME, "soon"));
+		filter.doFilter(malformed, new MockHttpServletResponse(), chain);
+
+		assertThat(pinned).containsExactly(false, false, false);
+	}
+}
@@ -0,0 +1,130 @@
+package com.urdgz.docker_exam.datasource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.urdgz.docker_exam.config.DataSourceRoutingConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ReplicaDataSourceTests {
+
+	private DataSource primary;
+
+	private final List<HikariDataSource> replicas = new ArrayList<>();
+
+	private ReplicaDataSource replicaDataSource;
+
+	@BeforeEach
+	void setUp() throws InterruptedException {
+		primary = new DriverManagerDataSource(url("primary"), "sa", "");
+		name(primary, "primary");
+		for (int i = 1; i <= 2; i++) {
+			HikariDataSource replica = new HikariDataSource();
+			replica.setJdbcUrl(url("replica_" + i));
+			replica.setUsername("sa");
+			replica.setPassword("");
+			replica.setMaximumPoolSize(2);
+			name(replica, "replica-" + i);
+			replicas.add(replica);
+		}
+
+		replicaDataSource = new ReplicaDataSource(primary, replicas, Duration.ofHours(1), new SimpleMeterRegistry());
+		for (int i = 0; i < 100 && replicaDataSource.healthyReplicas() < replicas.size(); i++)
+			Thread.sleep(20);
+		assertThat(replicaDataSource.healthyReplicas()).isEqualTo(2);
+	}
+
+	@AfterEach
+	void tearDown() {
+		replicaDataSource.close();
+	}
+
+	@Test
+	void connectionsRotateOverTheReplicas() throws SQLException {
+		List<String> names = new ArrayList<>();
+		for (int i = 0; i < 4; i++)
+			names.add(nameOf(replicaDataSource.getConnection()));
+
+		assertThat(names).containsExactly("replica-1", "replica-2", "replica-1", "replica-2");
+	}
+
+	@Test
+	void failingReplicasAreSkippedAndThePrimaryServesWhenNoneIsLeft() throws SQLException {
+		replicas.get(0).close();
+		assertThat(nameOf(replicaDataSource.getConnection())).isEqualTo("replica-2");
+		assertThat(nameOf(replicaDataSource.getConnection())).isEqualTo("replica-2");
+		assertThat(replicaDataSource.healthyReplicas()).isEqualTo(1);
+
+		replicas.get(1).close();
+		assertThat(nameOf(replicaDataSource.getConnection())).isEqualTo("primary");
+		assertThat(replicaDataSource.healthyReplicas()).isZero();
+	}
+
+	@Test
+	void pinnedThreadsUseThePrimary() throws SQLException {
+		try (PrimaryPin pin = PrimaryPin.pin()) {
+			assertThat(nameOf(replicaDataSource.getConnection())).isEqualTo("primary");
+		}
+		assertThat(nameOf(replicaDataSource.getConnection())).startsWith("replica-");
+	}
+
+	@Test
+	void connectionsWithCredentialsAreDelegated() throws SQLException {
+		assertThat(nameOf(replicaDataSource.getConnection("sa", ""))).isEqualTo("primary");
+		assertThat(replicaDataSource.healthyReplicas()).isEqualTo(2);
+	}
+
+	@Test
+	void onlyReadOnlyTransactionsReachTheReplicas() {
+		DataSource routing = new DataSourceRoutingConfig().dataSource(primary, replicaDataSource);
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(routing);
+		TransactionTemplate readWrite = new TransactionTemplate(new DataSourceTransactionManager(routing));
+		TransactionTemplate readOnly = new TransactionTemplate(new DataSourceTransactionManager(routing));
+		readOnly.setReadOnly(true);
+
+		String readWriteNode = readWrite.execute(status -> jdbcTemplate.queryForObject("SELECT name FROM Node", String.class));
+		String readOnlyNode = readOnly.execute(status -> jdbcTemplate.queryForObject("SELECT name FROM Node", String.class));
+		String pinnedNode = readOnly.execute(status -> PrimaryPin.call(() -> jdbcTemplate.queryForObject("SELECT name FROM Node", String.class)));
+
+		assertThat(readWriteNode).isEqualTo("primary");
+		assertThat(readOnlyNode).startsWith("replica-");
+		assertThat(pinnedNode).isEqualTo("primary");
+	}
+
+	private static String url(String database) {
+		return "jdbc:h2:mem:routing_" + database + ";DB_CLOSE_DELAY=-1";
+	}
+
+	private static void name(DataSource dataSource, String name) {
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.execute("DROP TABLE IF EXISTS Node");
+		jdbcTemplate.execute("CREATE TABLE Node (name VARCHAR(32))");
+		jdbcTemplate.update("INSERT INTO Node (name) VALUES (?)", name);
+	}
+
+	private static String nameOf(Connection connection) throws SQLException {
+		try (connection; Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery("SELECT name FROM Node")) {
+			resultSet.next();
+			return resultSet.getString(1);
+		}
+	}
+}
@@ -0,0 +1,111 @@
+package com.urdgz.docker_exam.feed;
+
+import static com.urdgz.docker_exam.TestUsers.newUser;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.urdgz.docker_exam.dto.UserDto;
+import com.urdgz.docker_exam.event.UserChangeEvent;
+import com.urdgz.docker_exam.exception.CustomApiException;
+import com.urdgz.docker_exam.model.User;
+import com.urdgz.docker_exam.model.UserChange;
+import com.urdgz.docker_exam.repository.UserChangeJdbcRepository;
+import com.urdgz.docker_exam.repository.UserChangeRepository;
+import com.urdgz.docker_exam.service.UserService;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class UserChangeOutboxTests {
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private UserChangeFeed userChangeFeed;
+
+	@Autowired
+	private UserChangeRepository userChangeRepository;
+
+	@Autowired
+	private UserChangeJdbcRepository userChangeJdbcRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private long since;
+
+	@BeforeEach
+	void setUp() {
+		since = userChangeRepository.findAll().stream().mapToLong(UserChange::getSeq).max().orElse(0);
+	}
+
+	@Test
+	void everyMutationIsRecordedInOrder() {
+		User user = userService.createUser(newUser("Lara Craft", "outbox-lara@example.com"));
+		UserDto userDto = new UserDto();
+		userDto.setName("Lara Croft");
+		userService.patchUser(user.getId(), userDto);
+		userService.deleteUser(user.getId());
+
+		List<UserChange> changes = userChangeFeed.getChanges(since, 10);
+
+		assertThat(changes).extracting(UserChange::getType).containsExactly(
+				UserChangeEvent.Type.CREATED, UserChangeEvent.Type.UPDATED, UserChangeEvent.Type.DELETED);
+		assertThat(changes).extracting(UserChange::getUserId).containsOnly(user.getId());
+		assertThat(changes.get(1).getName()).isEqualTo("Lara Croft");
+		assertThat(changes).extracting(UserChange::getSeq).isSorted();
+	}
+
+	@Test
+	void rolledBackMutationsAreNotRecorded() {
+		userService.createUser(newUser("Terry Crews", "outbox-terry@example.com"));
+		long afterCreate = userChangeFeed.getChanges(since, 10).get(0).getSeq();
+
+		assertThatThrownBy(() -> userService.createUser(newUser("Terry Again", "outbox-terry@example.com")))
+			.isInstanceOf(CustomApiException.class);
+
+		assertThat(userChangeFeed.getChanges(afterCreate, 10)).isEmpty();
+	}
+
+	@Test
+	void appendsWaitForTheUncommittedAppendsOfOtherTransactions() throws Exception {
+		CountDownLatch appended = new CountDownLatch(1);
+		CountDownLatch commit = new CountDownLatch(1);
+		TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+		CompletableFuture<Void> first = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(status -> {
+			userChangeJdbcRepository.appendAll(List.of(UserChangeEvent.deleted(-1)));
+			appended.countDown();
+			try {
+				commit.await();
+			} catch (InterruptedException exception) {
+				Thread.currentThread().interrupt();
+			}
+		}));
+		assertThat(appended.await(5, TimeUnit.SECONDS)).isTrue();
+
+		CompletableFuture<Void> second = CompletableFuture.runAsync(
+				() -> userChangeJdbcRepository.appendAll(List.of(UserChangeEvent.deleted(-2))));
+		Thread.sleep(300);
+		assertThat(second).isNotDone();
+		assertThat(userChangeFeed.getChanges(since, 10)).isEmpty();
+
+		commit.countDown();
+		first.get(5, TimeUnit.SECONDS);
+		second.get(5, TimeUnit.SECONDS);
+
+		assertThat(userChangeFeed.getChanges(since, 10)).extracting(UserChange::getUserId).containsExactly(-1, -2);
+	}
+}
@@ -0,0 +1,98 @@
+package com.urdgz.docker_exam.json;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.urdgz.docker_exam.dto.BatchItemResult;
+import com.urdgz.docker_exam.dto.CursorPage;
+import com.urdgz.docker_exam.dto.ErrorResponse;
+import com.urdgz.docker_exam.dto.SuccessResponse;
+import com.urdgz.docker_exam.model.User;
+
+class ResponseJsonModuleTests {
+
+	private final ObjectMapper reflective = Jackson2ObjectMapperBuilder.json().build();
+
+	private final ObjectMapper streaming = Jackson2ObjectMapperBuilder.json()
+			.modulesToInstall(new ResponseJsonModule())
+			.build();
+
+	@Test
+	void userListingIsWrittenByteForByte() throws Exception {
+		List<User> users = new ArrayList<>();
+		for (int i = 1; i <= 50; i++)
+			users.add(newUser(i, "User \"" + i + "\" Rodríguez", "user" + i + "@example.com"));
+		users.add(newUser(null, null, null));
+
+		assertSameBytes(new SuccessResponse<>(HttpStatus.OK, "Users retrieved successfully", users));
+		assertSameBytes(new SuccessResponse<>(HttpStatus.OK, "Users retrieved successfully", List.of()));
+		assertSameBytes(new SuccessResponse<>(HttpStatus.OK, "Users retrieved successfully", Arrays.asList(users.get(0), null)));
+	}
+
+	@Test
+	void otherPayloadsAreWrittenByteForByte() throws Exception {
+		User user = newUser(7, "Lara Craft", "lara@example.com");
+
+		assertSameBytes(new SuccessResponse<>(HttpStatus.CREATED, "User created successfully", user));
+		assertSameBytes(new SuccessResponse<>(HttpStatus.NO_CONTENT, "User deleted successfully", null));
+		assertSameBytes(new SuccessResponse<>(HttpStatus.OK, "Users retrieved successfully", new CursorPage<>(List.of(user), "abc")));
+		assertSameBytes(new SuccessResponse<>(HttpStatus.OK, "Users batch processed",
+				List.of(new BatchItemResult(0, 7, HttpStatus.CREATED, "User created successfully", user),
+						new BatchItemResult(1, null, HttpStatus.CONFLICT, "Email already exists", null))));
+		assertSameBytes(new ErrorResponse(HttpStatus.NOT_FOUND, "User not found", "/users/7"));
+	}
+
+	@Test
+	void timestampsAreFormattedLikeTheDeclaredPattern() throws Exception {
+		SuccessResponse<Void> response = new SuccessResponse<>(HttpStatus.OK, "ok", null);
+		for (LocalDateTime timestamp : List.of(LocalDateTime.of(2024, 1, 2, 3, 4, 5, 6_000_000),
+				LocalDateTime.of(2024, 1, 2, 3, 4, 5, 6_999_999), LocalDateTime.of(999, 12, 31, 23, 59, 59),
+				LocalDateTime.of(2024, 12, 31, 23, 59, 59, 999_000_000))) {
+			response.setTimestamp(timestamp);
+			assertSameBytes(response);
+		}
+	}
+
+	@Test
+	void binaryFormatsCarryTheSameContent() throws Exception {
+		List<User> users = new ArrayList<>();
+		for (int i = 1; i <= 50; i++)
+			users.add(newUser(i, "User " + i + " Rodríguez", "user" + i + "@example.com"));
+		SuccessResponse<List<User>> response = new SuccessResponse<>(HttpStatus.OK, "Users retrieved successfully", users);
+		JsonNode expected = streaming.readTree(streaming.writeValueAsBytes(response));
+
+		for (JsonFactory factory : List.of(new SmileFactory(), new CBORFactory())) {
+			ObjectMapper binary = Jackson2ObjectMapperBuilder.json()
+					.factory(factory)
+					.modulesToInstall(new ResponseJsonModule())
+					.build();
+
+			assertThat(binary.readTree(binary.writeValueAsBytes(response))).isEqualTo(expected);
+		}
+	}
+
+	private void assertSameBytes(Object response) throws Exception {
+		assertThat(streaming.writeValueAsString(response)).isEqualTo(reflective.writeValueAsString(response));
+	}
+
+	private User newUser(Integer id, String name, String email) {
+		User user = new User();
+		user.setId(id);
+		user.setName(name);
+		user.setEmail(email);
+		return user;
+	}
+}
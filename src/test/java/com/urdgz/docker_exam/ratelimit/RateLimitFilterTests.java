@@ -0,0 +1,53 @@
+package com.urdgz.docker_exam.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.urdgz.docker_exam.TestHttp;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "users.rate-limit.api-keys=known-key,path-parameter-key")
+@ActiveProfiles("test")
+class RateLimitFilterTests {
+
+	@LocalServerPort
+	private int port;
+
+	private TestHttp http;
+
+	@BeforeEach
+	void setUp() {
+		http = new TestHttp(port);
+	}
+
+	@Test
+	void rotatingUnknownKeysShareTheBucketOfTheirAddress() throws Exception {
+		int status = 200;
+		for (int i = 0; i < 20 && status != 429; i++)
+			status = listUsers(UUID.randomUUID().toString()).statusCode();
+		assertThat(status).isEqualTo(429);
+
+		assertThat(listUsers("known-key").statusCode()).isEqualTo(200);
+	}
+
+	@Test
+	void pathParametersDoNotSkipTheLimiter() throws Exception {
+		int status = 200;
+		for (int i = 0; i < 20 && status != 429; i++)
+			status = http.get("/users;x=" + i, ClientKeyResolver.API_KEY_HEADER, "path-parameter-key").statusCode();
+		assertThat(status).isEqualTo(429);
+		assertThat(http.get("/users", ClientKeyResolver.API_KEY_HEADER, "path-parameter-key").statusCode()).isEqualTo(429);
+	}
+
+	private HttpResponse<String> listUsers(String apiKey) throws IOException, InterruptedException {
+		return http.get("/users", ClientKeyResolver.API_KEY_HEADER, apiKey);
+	}
+}
@@ -0,0 +1,68 @@
+package com.urdgz.docker_exam.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class TokenBucketTests {
+
+	private static final long TOKEN = TimeUnit.MILLISECONDS.toNanos(10);
+
+	private static final long CAPACITY = 10 * TOKEN;
+
+	@Test
+	void burstIsAdmittedAndThenTheBucketRefillsAtItsRate() {
+		long now = 1_000_000_000L;
+		TokenBucket bucket = new TokenBucket(now);
+
+		for (int i = 0; i < 10; i++)
+			assertThat(bucket.tryAcquire(TOKEN, CAPACITY, now)).isZero();
+
+		assertThat(bucket.tryAcquire(TOKEN, CAPACITY, now)).isEqualTo(TOKEN);
+		assertThat(bucket.tryAcquire(TOKEN, CAPACITY, now + TOKEN)).isZero();
+		assertThat(bucket.available(CAPACITY, now + TOKEN)).isZero();
+		assertThat(bucket.available(CAPACITY, now + 100 * TOKEN)).isEqualTo(CAPACITY);
+	}
+
+	@Test
+	void expensiveRequestsWaitForEnoughTokens() {
+		long now = 1_000_000_000L;
+		TokenBucket bucket = new TokenBucket(now);
+
+		assertThat(bucket.tryAcquire(8 * TOKEN, CAPACITY, now)).isZero();
+		assertThat(bucket.tryAcquire(5 * TOKEN, CAPACITY, now)).isEqualTo(3 * TOKEN);
+		assertThat(bucket.tryAcquire(TOKEN, CAPACITY, now)).isZero();
+	}
+
+	@Test
+	void concurrentRequestsNeverTakeMoreThanTheBurst() throws InterruptedException {
+		long now = 1_000_000_000L;
+		TokenBucket bucket = new TokenBucket(now);
+		AtomicInteger admitted = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+
+		for (int i = 0; i < 8; i++)
+			executor.execute(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException exception) {
+					return;
+				}
+				for (int j = 0; j < 1000; j++)
+					if (bucket.tryAcquire(TOKEN, CAPACITY, now) == 0)
+						admitted.incrementAndGet();
+			});
+		start.countDown();
+		executor.shutdown();
+		assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+		assertThat(admitted.get()).isEqualTo(10);
+	}
+}
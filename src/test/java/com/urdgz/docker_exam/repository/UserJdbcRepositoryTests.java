@@ -0,0 +1,18 @@
+package com.urdgz.docker_exam.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigInteger;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class UserJdbcRepositoryTests {
+
+	@Test
+	void generatedIdIsReadWhateverTheDriverNamesTheKeyColumn() {
+		assertThat(UserJdbcRepository.generatedId(Map.of("GENERATED_KEY", BigInteger.valueOf(42)))).isEqualTo(42);
+		assertThat(UserJdbcRepository.generatedId(Map.of("ID", 7L))).isEqualTo(7);
+		assertThat(UserJdbcRepository.generatedId(Map.of("insert_id", 3))).isEqualTo(3);
+	}
+}
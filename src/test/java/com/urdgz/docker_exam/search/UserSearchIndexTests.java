@@ -0,0 +1,189 @@
+package com.urdgz.docker_exam.search;
+
+import static com.urdgz.docker_exam.TestUsers.newUser;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.urdgz.docker_exam.dto.SearchPage;
+import com.urdgz.docker_exam.dto.UserDto;
+import com.urdgz.docker_exam.dto.UserPatchItem;
+import com.urdgz.docker_exam.event.UserChangeEvent;
+import com.urdgz.docker_exam.model.User;
+import com.urdgz.docker_exam.repository.UserJdbcRepository;
+import com.urdgz.docker_exam.repository.UserRepository;
+import com.urdgz.docker_exam.service.UserService;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class UserSearchIndexTests {
+
+	private static final List<String> QUERIES = List.of("lara", "croft", "cro", "example", "@example.com",
+			"ara c", "terry", "crews@", "nina", "simone", "mart", "new.com", "zz", "RA CR");
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private UserSearchIndex userSearchIndex;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@BeforeEach
+	void setUp() {
+		userRepository.deleteAllInBatch();
+		userSearchIndex.rebuild();
+	}
+
+	@Test
+	void indexMatchesTheDatabaseAfterEveryMutation() {
+		User lara = userService.createUser(newUser("Lara Craft", "lara@example.com"));
+		userService.createUsers(List.of(newUser("Terry Crews", "terry@example.com"),
+				newUser("Nina Simone", "nina@example.com"), newUser("Nina Martinez", "martinez@example.com")));
+		assertConsistentWithDatabase();
+
+		UserDto userDto = new UserDto();
+		userDto.setName("Lara Croft");
+		userDto.setEmail("croft@new.com");
+		userService.patchUser(lara.getId(), userDto);
+		assertConsistentWithDatabase();
+
+		User terry = userService.getUserByEmail("terry@example.com");
+		UserPatchItem patch = new UserPatchItem();
+		patch.setId(terry.getId());
+		patch.setEmail("crews@example.com");
+		userService.patchUsers(List.of(patch));
+		assertConsistentWithDatabase();
+
+		userService.deleteUser(lara.getId());
+		assertConsistentWithDatabase();
+
+		userService.deleteUsers(List.of(userService.getUserByEmail("nina@example.com").getId()));
+		assertConsistentWithDatabase();
+
+		userSearchIndex.rebuild();
+		assertConsistentWithDatabase();
+	}
+
+	@Test
+	void changesDeliveredOutOfOrderKeepTheLatestVersion() {
+		User lara = userService.createUser(newUser("Lara Craft", "lara@example.com"));
+		User first = lara.copy();
+		first.setName("Lara Croft");
+		first.setVersion(1L);
+		User second = lara.copy();
+		second.setName("Lara Stone");
+		second.setVersion(2L);
+
+		userSearchIndex.onUserChanged(UserChangeEvent.updated(second, lara.getEmail()));
+		userSearchIndex.onUserChanged(UserChangeEvent.updated(first, lara.getEmail()));
+		assertThat(userService.searchUsers("stone", 0, 10).getItems()).extracting(User::getId).containsExactly(lara.getId());
+		assertThat(userService.searchUsers("croft", 0, 10).getItems()).isEmpty();
+
+		userSearchIndex.onUserChanged(UserChangeEvent.deleted(lara.getId()));
+		userSearchIndex.onUserChanged(UserChangeEvent.updated(first, lara.getEmail()));
+		assertThat(userService.searchUsers("lara", 0, 10).getItems()).isEmpty();
+	}
+
+	@Test
+	void changesDuringARebuildAreNotBlockedAndAreReplayedOnTheNewIndex() throws Exception {
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch changed = new CountDownLatch(1);
+		User lara = newUser(1, "Lara Craft", "user1@example.com", 0);
+		User nina = newUser(3, "Nina Simone", "user3@example.com", 0);
+		UserSearchIndex index = new UserSearchIndex(new UserJdbcRepository(null, 0) {
+			@Override
+			public void forEachUser(Consumer<User> consumer) {
+				consumer.accept(lara.copy());
+				loading.countDown();
+				try {
+					changed.await();
+				} catch (InterruptedException exception) {
+					throw new IllegalStateException(exception);
+				}
+				consumer.accept(nina.copy());
+			}
+		});
+
+		CompletableFuture<Void> rebuild = CompletableFuture.runAsync(index::rebuild);
+		assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+		CompletableFuture.runAsync(() -> {
+			index.onUserChanged(UserChangeEvent.updated(newUser(1, "Lara Croft", "user1@example.com", 1), "user1@example.com"));
+			index.onUserChanged(UserChangeEvent.created(newUser(2, "Terry Crews", "user2@example.com", 0)));
+			index.onUserChanged(UserChangeEvent.deleted(3));
+		}).get(5, TimeUnit.SECONDS);
+		changed.countDown();
+		rebuild.get(5, TimeUnit.SECONDS);
+
+		assertThat(index.isReady()).isTrue();
+		assertThat(index.search("croft", 0, 10).getItems()).extracting(User::getId).containsExactly(1);
+		assertThat(index.search("craft", 0, 10).getItems()).isEmpty();
+		assertThat(index.search("terry", 0, 10).getItems()).extracting(User::getId).containsExactly(2);
+		assertThat(index.search("nina", 0, 10).getItems()).isEmpty();
+		assertThat(index.size()).isEqualTo(2);
+	}
+
+	@Test
+	void exactWordsRankBeforePrefixesAndSubstrings() {
+		User substring = userService.createUser(newUser("Elaraine Stone", "stone@example.com"));
+		User prefix = userService.createUser(newUser("Laramie Jones", "jones@example.com"));
+		User exact = userService.createUser(newUser("Lara Craft", "craft@example.com"));
+
+		assertThat(userService.searchUsers("lara", 0, 10).getItems()).extracting(User::getId)
+			.containsExactly(exact.getId(), prefix.getId(), substring.getId());
+	}
+
+	@Test
+	void shortQueriesMatchTheStartOfWords() {
+		User lara = userService.createUser(newUser("Lara Craft", "craft@example.com"));
+		userService.createUser(newUser("Elaraine Stone", "stone@example.com"));
+
+		assertThat(userService.searchUsers("la", 0, 10).getItems()).extracting(User::getId)
+			.containsExactly(lara.getId());
+	}
+
+	@Test
+	void resultsArePaginated() {
+		for (int i = 0; i < 5; i++)
+			userService.createUser(newUser("Page User " + i, "page" + i + "@example.com"));
+
+		SearchPage<User> first = userService.searchUsers("page", 0, 3);
+		SearchPage<User> second = userService.searchUsers("page", first.getNextOffset(), 3);
+
+		assertThat(first.getItems()).hasSize(3);
+		assertThat(second.getItems()).hasSize(2);
+		assertThat(second.getNextOffset()).isNull();
+		assertThat(second.getItems()).extracting(User::getId)
+			.doesNotContainAnyElementsOf(first.getItems().stream().map(User::getId).toList());
+	}
+
+	private void assertConsistentWithDatabase() {
+		List<User> users = userRepository.findAll();
+		for (String query : QUERIES) {
+			String normalized = query.trim().toLowerCase(Locale.ROOT);
+			List<Integer> expected = users.stream()
+				.filter(user -> user.getName().toLowerCase(Locale.ROOT).contains(normalized)
+						|| user.getEmail().toLowerCase(Locale.ROOT).contains(normalized))
+				.map(User::getId)
+				.toList();
+
+			assertThat(userService.searchUsers(query, 0, 100).getItems())
+				.as("results for %s", query)
+				.extracting(User::getId)
+				.containsExactlyInAnyOrderElementsOf(expected);
+		}
+		assertThat(userSearchIndex.size()).isEqualTo(users.size());
+	}
+}
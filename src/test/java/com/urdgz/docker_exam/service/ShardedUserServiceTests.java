@@ -0,0 +1,121 @@
+package com.urdgz.docker_exam.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.urdgz.docker_exam.TestHttp;
+import com.urdgz.docker_exam.model.User;
+import com.urdgz.docker_exam.shard.ShardedUserRepository;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+	"users.sharding.shard-urls=" + ShardedUserServiceTests.SHARD_0 + "," + ShardedUserServiceTests.SHARD_1,
+	"users.page.max-size=2",
+	"users.rate-limit.enabled=false"
+})
+@ActiveProfiles("test")
+class ShardedUserServiceTests {
+
+	static final String SHARD_0 = "jdbc:h2:mem:sharded_service_0;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+	static final String SHARD_1 = "jdbc:h2:mem:sharded_service_1;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+	private final ObjectMapper json = new ObjectMapper();
+
+	@LocalServerPort
+	private int port;
+
+	private TestHttp http;
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private ShardedUserRepository shardedUserRepository;
+
+	@Autowired
+	private DataSource dataSource;
+
+	@BeforeEach
+	void setUp() {
+		http = new TestHttp(port);
+		JdbcTemplate main = new JdbcTemplate(dataSource);
+		main.execute("CREATE TABLE IF NOT EXISTS User_Id_Sequence (id TINYINT PRIMARY KEY, next_id BIGINT NOT NULL)");
+		main.execute("MERGE INTO User_Id_Sequence (id, next_id) KEY (id) VALUES (1, 1)");
+
+		for (String url : List.of(SHARD_0, SHARD_1)) {
+			JdbcTemplate shard = new JdbcTemplate(new DriverManagerDataSource(url, "sa", ""));
+			shard.execute("DROP TABLE IF EXISTS Users");
+			shard.execute("DROP TABLE IF EXISTS User_Emails");
+			shard.execute("CREATE TABLE Users (id INT PRIMARY KEY, name VARCHAR(255) NOT NULL, email VARCHAR(255) NOT NULL, version BIGINT NOT NULL DEFAULT 0)");
+			shard.execute("CREATE TABLE User_Emails (email VARCHAR(255) PRIMARY KEY, user_id INT NOT NULL, claimed_at DATETIME(6) NOT NULL)");
+		}
+	}
+
+	@Test
+	void theApiServesUsersFromTheShards() throws Exception {
+		assertThat(userService).isInstanceOf(ShardedUserServiceImp.class);
+
+		List<Integer> ids = new ArrayList<>();
+		for (String name : List.of("Lara", "Terry", "Nina")) {
+			HttpResponse<String> created = http.send("POST", "/users", "{\"name\":\"" + name + "\",\"email\":\"" + name.toLowerCase() + "@example.com\"}");
+			assertThat(created.statusCode()).isEqualTo(201);
+			ids.add(json.readTree(created.body()).get("data").get("id").asInt());
+		}
+		assertThat(shardedUserRepository.findAll()).extracting(User::getId).containsExactlyElementsOf(ids);
+		assertThat(http.send("POST", "/users", "{\"name\":\"Lara\",\"email\":\"lara@example.com\"}").statusCode()).isEqualTo(409);
+
+		assertThat(json.readTree(http.send("GET", "/users", null).body()).get("data").findValuesAsText("name")).containsExactly("Lara", "Terry", "Nina");
+		JsonNode page = json.readTree(http.send("GET", "/users?limit=2", null).body()).get("data");
+		assertThat(page.get("items").findValuesAsText("name")).containsExactly("Lara", "Terry");
+		assertThat(page.get("nextCursor").asText()).isNotEmpty();
+		assertThat(json.readTree(http.send("GET", "/users?email=nina@example.com", null).body()).get("data").get("id").asInt()).isEqualTo(ids.get(2));
+
+		HttpResponse<String> patched = http.send("PATCH", "/users/" + ids.get(0), "{\"email\":\"croft@example.com\"}");
+		assertThat(patched.statusCode()).isEqualTo(200);
+		assertThat(json.readTree(patched.body()).get("data").get("email").asText()).isEqualTo("croft@example.com");
+		assertThat(shardedUserRepository.findById(ids.get(0))).get().extracting(User::getVersion).isEqualTo(1L);
+		assertThat(userService.getUserByEmail("croft@example.com").getId()).isEqualTo(ids.get(0));
+
+		assertThat(http.send("DELETE", "/users/" + ids.get(1), null).statusCode()).isBetween(200, 204);
+		assertThat(http.send("GET", "/users/" + ids.get(1), null).statusCode()).isEqualTo(404);
+
+		List<String> streamed = new ArrayList<>();
+		userService.streamAllUsers(user -> streamed.add(user.getName()));
+		assertThat(streamed).containsExactly("Lara", "Nina");
+	}
+
+	@Test
+	void featuresTheShardsCannotServeAreNotImplemented() throws Exception {
+		assertThat(http.send("GET", "/users/search?q=lara", null).statusCode()).isEqualTo(501);
+		assertThat(http.send("POST", "/users/batch", "[{\"name\":\"Lara\",\"email\":\"lara@example.com\"}]").statusCode()).isEqualTo(501);
+		assertThat(http.send("GET", "/users?since=00000000-1", null).statusCode()).isEqualTo(501);
+		assertThatThrownBy(() -> new ShardedUserServiceImp(shardedUserRepository, event -> { }, 2, true))
+			.isInstanceOf(IllegalStateException.class);
+	}
+
+	@Test
+	void importsFallBackToCreatingEachUser() throws Exception {
+		JsonNode report = json.readTree(http.send("POST", "/users/import", "name,email\nLara,lara@example.com\nOther,lara@example.com\n",
+			"Content-Type", "text/csv").body()).get("data");
+
+		assertThat(report.get("accepted").asInt()).isEqualTo(1);
+		assertThat(report.get("rejections").get(0).get("status").asInt()).isEqualTo(409);
+	}
+}
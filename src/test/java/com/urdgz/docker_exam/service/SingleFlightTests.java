@@ -0,0 +1,157 @@
+package com.urdgz.docker_exam.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import com.urdgz.docker_exam.datasource.PrimaryPin;
+import com.urdgz.docker_exam.exception.CustomApiException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class SingleFlightTests {
+
+	private static final int CALLERS = 32;
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private final SingleFlight singleFlight = new SingleFlight(meterRegistry, true);
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+
+	@AfterEach
+	void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	void concurrentIdenticalCallsShareOneCall() throws Exception {
+		AtomicInteger calls = new AtomicInteger();
+		List<Future<Object>> results = runConcurrently(() -> singleFlight.execute("getUserById", () -> {
+			calls.incrementAndGet();
+			awaitCollapsed(CALLERS - 1);
+			return new Object();
+		}, 7));
+
+		Object shared = results.get(0).get();
+		for (Future<Object> result : results)
+			assertThat(result.get()).isSameAs(shared);
+
+		assertThat(calls).hasValue(1);
+		assertThat(singleFlight.executedCount()).isEqualTo(1);
+		assertThat(singleFlight.collapsedCount()).isEqualTo(CALLERS - 1);
+		assertThat(meterRegistry.get("users.single-flight.calls").tags("operation", "getUserById", "result", "collapsed").counter().count())
+			.isEqualTo(CALLERS - 1);
+		assertThat(meterRegistry.get("users.single-flight.in-flight").gauge().value()).isZero();
+	}
+
+	@Test
+	void failuresAreThrownToEveryCaller() throws Exception {
+		List<Future<Object>> results = runConcurrently(() -> singleFlight.execute("getUserById", () -> {
+			awaitCollapsed(CALLERS - 1);
+			throw new CustomApiException(HttpStatus.NOT_FOUND, "User not found with id 404");
+		}, 404));
+
+		for (Future<Object> result : results)
+			assertThatThrownBy(result::get).cause()
+				.isInstanceOf(CustomApiException.class)
+				.extracting(exception -> ((CustomApiException) exception).getStatus())
+				.isEqualTo(HttpStatus.NOT_FOUND);
+
+		assertThat(singleFlight.executedCount()).isEqualTo(1);
+		assertThat(singleFlight.execute("getUserById", () -> "found", 404)).isEqualTo("found");
+	}
+
+	@Test
+	void differentArgumentsAndPinnedReadsAreNotShared() {
+		assertThat(singleFlight.execute("getUserById", () -> singleFlight.execute("getUserById", () -> 2, 2), 1)).isEqualTo(2);
+		assertThat(singleFlight.execute("getUserById", () -> singleFlight.execute("getUserByEmail", () -> 1, 1), 1)).isEqualTo(1);
+
+		try (PrimaryPin pin = PrimaryPin.pin()) {
+			assertThat(singleFlight.execute("getAllUsers", () -> "pinned")).isEqualTo("pinned");
+		}
+		assertThat(singleFlight.executedCount()).isEqualTo(4);
+		assertThat(singleFlight.collapsedCount()).isZero();
+	}
+
+	@Test
+	void everyCallerGetsTheResultOfItsOwnKeyUnderContention() throws Exception {
+		int keys = 8;
+		int callsPerCaller = 2_000;
+		AtomicIntegerArray queries = new AtomicIntegerArray(keys);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<Integer>> callers = new ArrayList<>();
+
+		for (int c = 0; c < CALLERS; c++) {
+			callers.add(executor.submit(() -> {
+				start.await();
+				int mismatches = 0;
+				for (int i = 0; i < callsPerCaller; i++) {
+					int key = ThreadLocalRandom.current().nextInt(keys);
+					boolean fail = key == 0;
+					try {
+						int value = singleFlight.execute("lookup", () -> {
+							queries.incrementAndGet(key);
+							if (ThreadLocalRandom.current().nextInt(4) == 0)
+								LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+							if (fail)
+								throw new CustomApiException(HttpStatus.NOT_FOUND, "missing");
+							return key * 10;
+						}, key);
+						if (fail || value != key * 10)
+							mismatches++;
+					} catch (CustomApiException exception) {
+						if (!fail)
+							mismatches++;
+					}
+				}
+				return mismatches;
+			}));
+		}
+		start.countDown();
+
+		for (Future<Integer> caller : callers)
+			assertThat(caller.get(60, TimeUnit.SECONDS)).isZero();
+
+		int totalQueries = 0;
+		for (int key = 0; key < keys; key++)
+			totalQueries += queries.get(key);
+		assertThat(singleFlight.executedCount()).isEqualTo(totalQueries);
+		assertThat(singleFlight.executedCount() + singleFlight.collapsedCount()).isEqualTo((long) CALLERS * callsPerCaller);
+		assertThat(meterRegistry.get("users.single-flight.in-flight").gauge().value()).isZero();
+	}
+
+	private List<Future<Object>> runConcurrently(Callable<Object> call) {
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<Object>> results = new ArrayList<>();
+		for (int c = 0; c < CALLERS; c++)
+			results.add(executor.submit(() -> {
+				start.await();
+				return call.call();
+			}));
+		start.countDown();
+		return results;
+	}
+
+	private void awaitCollapsed(long count) {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (singleFlight.collapsedCount() < count && System.nanoTime() < deadline)
+			LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+	}
+}
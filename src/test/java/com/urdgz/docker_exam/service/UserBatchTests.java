@@ -0,0 +1,69 @@
+package com.urdgz.docker_exam.service;
+
+import static com.urdgz.docker_exam.TestUsers.newUser;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.urdgz.docker_exam.cache.UserCache;
+import com.urdgz.docker_exam.dto.BatchItemResult;
+import com.urdgz.docker_exam.dto.UserPatchItem;
+import com.urdgz.docker_exam.model.User;
+import com.urdgz.docker_exam.repository.UserRepository;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class UserBatchTests {
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private UserCache userCache;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@BeforeEach
+	void setUp() {
+		userRepository.deleteAllInBatch();
+		userCache.clear();
+	}
+
+	@Test
+	void batchCreateRejectsEmailsDifferingOnlyInCase() {
+		List<BatchItemResult> results = userService.createUsers(List.of(
+			newUser("Lara Craft", "Lara@example.com"),
+			newUser("Lara Croft", "lara@EXAMPLE.com"),
+			newUser("Terry Crews", "terry@example.com")));
+
+		assertThat(results).extracting(BatchItemResult::getStatus).containsExactly(201, 409, 201);
+		assertThat(userRepository.count()).isEqualTo(2);
+	}
+
+	@Test
+	void batchPatchRejectsEmailsDifferingOnlyInCase() {
+		User lara = userService.createUser(newUser("Lara Craft", "lara@example.com"));
+		User terry = userService.createUser(newUser("Terry Crews", "terry@example.com"));
+
+		List<BatchItemResult> results = userService.patchUsers(List.of(
+			patch(lara.getId(), "Shared@example.com"),
+			patch(terry.getId(), "shared@example.com")));
+
+		assertThat(results).extracting(BatchItemResult::getStatus).containsExactly(200, 409);
+		assertThat(userService.getUserById(terry.getId()).getEmail()).isEqualTo("terry@example.com");
+	}
+
+	private static UserPatchItem patch(Integer id, String email) {
+		UserPatchItem patch = new UserPatchItem();
+		patch.setId(id);
+		patch.setEmail(email);
+		return patch;
+	}
+}
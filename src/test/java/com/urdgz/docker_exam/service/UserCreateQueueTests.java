@@ -0,0 +1,73 @@
+package com.urdgz.docker_exam.service;
+
+import static com.urdgz.docker_exam.TestUsers.newUser;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.urdgz.docker_exam.cache.UserCache;
+import com.urdgz.docker_exam.dto.UserCreateStatus;
+import com.urdgz.docker_exam.exception.CustomApiException;
+import com.urdgz.docker_exam.model.User;
+import com.urdgz.docker_exam.repository.UserRepository;
+
+@SpringBootTest(properties = "users.async.enabled=true")
+@ActiveProfiles("test")
+class UserCreateQueueTests {
+
+	@Autowired
+	private UserCreateQueue userCreateQueue;
+
+	@Autowired
+	private UserCache userCache;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@BeforeEach
+	void setUp() {
+		userRepository.deleteAllInBatch();
+		userCache.clear();
+	}
+
+	@Test
+	void keysAreScopedByClient() throws InterruptedException {
+		userCreateQueue.submit("ip:10.0.0.1", "create-1", newUser("Lara Craft", "lara@example.com"));
+		userCreateQueue.submit("ip:10.0.0.2", "create-1", newUser("Terry Crews", "terry@example.com"));
+
+		UserCreateStatus lara = awaitDone("ip:10.0.0.1", "create-1");
+		UserCreateStatus terry = awaitDone("ip:10.0.0.2", "create-1");
+		assertThat(lara.getData().getEmail()).isEqualTo("lara@example.com");
+		assertThat(terry.getData().getEmail()).isEqualTo("terry@example.com");
+		assertThat(userCreateQueue.getStatus("ip:10.0.0.3", "create-1")).isEmpty();
+	}
+
+	@Test
+	void aKeyIsBoundToTheUserItWasFirstSentWith() throws InterruptedException {
+		userCreateQueue.submit("ip:10.0.0.1", "create-2", newUser("Lara Craft", "lara@example.com"));
+		UserCreateStatus done = awaitDone("ip:10.0.0.1", "create-2");
+
+		assertThat(userCreateQueue.submit("ip:10.0.0.1", "create-2", newUser("Lara Craft", "lara@example.com")))
+			.extracting(UserCreateStatus::getState, UserCreateStatus::getStatus)
+			.containsExactly(UserCreateStatus.State.DONE, done.getStatus());
+		assertThatThrownBy(() -> userCreateQueue.submit("ip:10.0.0.1", "create-2", newUser("Lara Croft", "croft@example.com")))
+			.isInstanceOfSatisfying(CustomApiException.class, exception -> assertThat(exception.getStatus().value()).isEqualTo(422));
+		assertThat(userRepository.count()).isEqualTo(1);
+	}
+
+	private UserCreateStatus awaitDone(String client, String key) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10_000;
+		UserCreateStatus status = userCreateQueue.getStatus(client, key).orElseThrow();
+		while (status.getState() != UserCreateStatus.State.DONE && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+			status = userCreateQueue.getStatus(client, key).orElseThrow();
+		}
+		assertThat(status.getState()).isEqualTo(UserCreateStatus.State.DONE);
+		return status;
+	}
+}
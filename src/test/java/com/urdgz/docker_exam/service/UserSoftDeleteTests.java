@@ -0,0 +1,91 @@
+package com.urdgz.docker_exam.service;
+
+import static com.urdgz.docker_exam.TestUsers.newUser;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.urdgz.docker_exam.exception.CustomApiException;
+import com.urdgz.docker_exam.model.User;
+import com.urdgz.docker_exam.repository.UserJdbcRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@SpringBootTest(properties = {"users.delete.soft=true", "users.delete.retention=0s"})
+@ActiveProfiles("test")
+class UserSoftDeleteTests {
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private UserTombstonePurger userTombstonePurger;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void deletedUsersAreHiddenAndTheirEmailCanBeTakenAgain() {
+		User lara = userService.createUser(newUser("Lara Craft", "soft-lara@example.com"));
+
+		userService.deleteUser(lara.getId());
+
+		assertThatThrownBy(() -> userService.getUserById(lara.getId()))
+			.isInstanceOfSatisfying(CustomApiException.class, exception -> assertThat(exception.getStatus()).isEqualTo(HttpStatus.NOT_FOUND));
+		assertThatThrownBy(() -> userService.deleteUser(lara.getId()))
+			.isInstanceOfSatisfying(CustomApiException.class, exception -> assertThat(exception.getStatus()).isEqualTo(HttpStatus.NOT_FOUND));
+		assertThat(userService.getAllUsers()).extracting(User::getId).doesNotContain(lara.getId());
+		assertThat(userService.searchUsers("soft-lara", 0, 10).getItems()).isEmpty();
+		assertThat(countRows(lara.getId())).isEqualTo(1);
+
+		User again = userService.createUser(newUser("Lara Croft", "soft-lara@example.com"));
+		assertThat(userService.getUserByEmail("soft-lara@example.com").getId()).isEqualTo(again.getId());
+	}
+
+	@Test
+	void purgeRemovesTheTombstones() {
+		User nina = userService.createUser(newUser("Nina Simone", "soft-nina@example.com"));
+		User terry = userService.createUser(newUser("Terry Crews", "soft-terry@example.com"));
+		userService.deleteUsers(List.of(nina.getId(), terry.getId()));
+		assertThat(countRows(nina.getId()) + countRows(terry.getId())).isEqualTo(2);
+
+		assertThat(userTombstonePurger.purge(LocalDateTime.now().plusMinutes(1))).isGreaterThanOrEqualTo(2);
+
+		assertThat(countRows(nina.getId()) + countRows(terry.getId())).isZero();
+	}
+
+	@Test
+	void failedPurgesAreCountedAndTheNextWindowStillRuns() throws InterruptedException {
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		UserTombstonePurger purger = new UserTombstonePurger(new UserJdbcRepository(null, 0) {
+			@Override
+			public int purgeDeletedBefore(LocalDateTime deletedBefore, int limit) {
+				throw new IllegalStateException("The database is unavailable");
+			}
+		}, meterRegistry, "* * * * * *", Duration.ofSeconds(1), Duration.ZERO, 10, Duration.ZERO);
+
+		purger.start();
+		try {
+			for (int i = 0; i < 50 && meterRegistry.counter("users.delete.purge.failures").count() < 2; i++)
+				Thread.sleep(100);
+		} finally {
+			purger.stop();
+		}
+
+		assertThat(meterRegistry.counter("users.delete.purge.failures").count()).isGreaterThanOrEqualTo(2);
+	}
+
+	private int countRows(Integer id) {
+		return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM Users WHERE id = ?", Integer.class, id);
+	}
+}
@@ -0,0 +1,45 @@
+package com.urdgz.docker_exam.shard;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import org.junit.jupiter.api.Test;
+
+class ConsistentHashRingTests {
+
+	private static final int KEYS = 100_000;
+
+	@Test
+	void keysAreSpreadEvenlyOverTheShards() {
+		ConsistentHashRing ring = new ConsistentHashRing(4, 160);
+		int[] ids = new int[4];
+		int[] emails = new int[4];
+
+		for (int key = 1; key <= KEYS; key++) {
+			ids[ring.shardFor(key)]++;
+			emails[ring.shardFor("user" + key + "@example.com")]++;
+		}
+
+		for (int shard = 0; shard < 4; shard++) {
+			assertThat(ids[shard] / (double) KEYS).isCloseTo(0.25, within(0.05));
+			assertThat(emails[shard] / (double) KEYS).isCloseTo(0.25, within(0.05));
+		}
+	}
+
+	@Test
+	void addingAShardOnlyMovesKeysToIt() {
+		ConsistentHashRing before = new ConsistentHashRing(4, 160);
+		ConsistentHashRing after = new ConsistentHashRing(5, 160);
+		int moved = 0;
+
+		for (int key = 1; key <= KEYS; key++) {
+			int shard = after.shardFor(key);
+			if (shard != before.shardFor(key)) {
+				assertThat(shard).isEqualTo(4);
+				moved++;
+			}
+		}
+
+		assertThat(moved / (double) KEYS).isCloseTo(0.2, within(0.05));
+	}
+}
@@ -0,0 +1,142 @@
+package com.urdgz.docker_exam.shard;
+
+import static com.urdgz.docker_exam.TestUsers.newUser;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import com.urdgz.docker_exam.model.User;
+
+class ShardedUserRepositoryTests {
+
+	private static final int SHARDS = 3;
+
+	private final List<DataSource> shards = new ArrayList<>();
+
+	private ShardedUserRepository repository;
+
+	@BeforeEach
+	void setUp() {
+		DataSource sequence = dataSource("shard_test_sequence");
+		JdbcTemplate sequenceTemplate = new JdbcTemplate(sequence);
+		sequenceTemplate.execute("DROP TABLE IF EXISTS User_Id_Sequence");
+		sequenceTemplate.execute("CREATE TABLE User_Id_Sequence (id TINYINT PRIMARY KEY, next_id BIGINT NOT NULL)");
+		sequenceTemplate.execute("INSERT INTO User_Id_Sequence (id, next_id) VALUES (1, 1)");
+
+		for (int i = 0; i < SHARDS; i++) {
+			DataSource shard = dataSource("shard_test_" + i);
+			JdbcTemplate shardTemplate = new JdbcTemplate(shard);
+			shardTemplate.execute("DROP TABLE IF EXISTS Users");
+			shardTemplate.execute("DROP TABLE IF EXISTS User_Emails");
+			shardTemplate.execute("CREATE TABLE Users (id INT PRIMARY KEY, name VARCHAR(255) NOT NULL, email VARCHAR(255) NOT NULL, version BIGINT NOT NULL DEFAULT 0)");
+			shardTemplate.execute("CREATE TABLE User_Emails (email VARCHAR(255) PRIMARY KEY, user_id INT NOT NULL, claimed_at DATETIME(6) NOT NULL)");
+			shards.add(shard);
+		}
+
+		repository = new ShardedUserRepository(shards, 160, new UserIdAllocator(sequence, 7), Duration.ofMinutes(1));
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		repository.close();
+	}
+
+	@Test
+	void usersAreSpreadOverTheShardsAndListedInIdOrder() {
+		List<Integer> ids = new ArrayList<>();
+		for (int i = 0; i < 60; i++)
+			ids.add(repository.insert(newUser("User " + i, "user" + i + "@example.com")).getId());
+
+		for (DataSource shard : shards)
+			assertThat(new JdbcTemplate(shard).queryForObject("SELECT COUNT(*) FROM Users", Integer.class)).isPositive();
+
+		assertThat(repository.findAll()).extracting(User::getId).containsExactlyElementsOf(ids);
+		assertThat(repository.findByIdGreaterThan(ids.get(9), 10)).extracting(User::getId).containsExactlyElementsOf(ids.subList(10, 20));
+		assertThat(repository.findByIdGreaterThan(ids.get(55), 10)).extracting(User::getId).containsExactlyElementsOf(ids.subList(56, 60));
+
+		Integer id = ids.get(42);
+		assertThat(new JdbcTemplate(shards.get(repository.shardOf(id))).queryForObject("SELECT email FROM Users WHERE id = ?", String.class, id))
+			.isEqualTo("user42@example.com");
+		assertThat(repository.findById(id)).get().extracting(User::getName).isEqualTo("User 42");
+		assertThat(repository.findByEmail("user42@example.com")).get().extracting(User::getId).isEqualTo(id);
+	}
+
+	@Test
+	void emailsAreUniqueAcrossShards() {
+		User lara = repository.insert(newUser("Lara Craft", "lara@example.com"));
+		User terry = repository.insert(newUser("Terry Crews", "terry@example.com"));
+
+		assertThatThrownBy(() -> repository.insert(newUser("Other Lara", "lara@example.com")))
+			.isInstanceOf(DuplicateKeyException.class);
+		assertThat(repository.findAll()).hasSize(2);
+
+		assertThatThrownBy(() -> repository.update(lara.getId(), "Lara Craft", "terry@example.com", 0))
+			.isInstanceOf(DuplicateKeyException.class);
+		assertThat(repository.findById(lara.getId())).get().extracting(User::getEmail).isEqualTo("lara@example.com");
+
+		assertThat(repository.update(lara.getId(), "Lara Croft", "croft@example.com", 0)).isEqualTo(1);
+		assertThat(repository.existsByEmail("lara@example.com")).isFalse();
+		assertThat(repository.findByEmail("croft@example.com")).get().extracting(User::getName, User::getVersion)
+			.containsExactly("Lara Croft", 1L);
+		assertThat(repository.insert(newUser("New Lara", "lara@example.com")).getId()).isNotEqualTo(lara.getId());
+
+		assertThat(repository.update(terry.getId(), "Terry", "stale@example.com", 5)).isZero();
+		assertThat(repository.existsByEmail("stale@example.com")).isFalse();
+		assertThat(repository.existsByEmail("terry@example.com")).isTrue();
+	}
+
+	@Test
+	void deletingAUserReleasesItsEmail() {
+		User user = repository.insert(newUser("Nina Simone", "nina@example.com"));
+
+		assertThat(repository.deleteById(user.getId())).isTrue();
+		assertThat(repository.deleteById(user.getId())).isFalse();
+		assertThat(repository.findById(user.getId())).isEmpty();
+		assertThat(repository.findByEmail("nina@example.com")).isEmpty();
+		assertThat(repository.insert(newUser("Nina Again", "nina@example.com")).getId()).isGreaterThan(user.getId());
+	}
+
+	@Test
+	void orphanedClaimsAreTakenOverOnceTheyExpire() {
+		User lara = repository.insert(newUser("Lara Craft", "lara@example.com"));
+		claimDirectly("lara@example.com", lara.getId(), 2);
+		claimDirectly("orphan@example.com", 999, 2);
+		claimDirectly("recent@example.com", 998, 0);
+
+		assertThatThrownBy(() -> repository.insert(newUser("Other Lara", "lara@example.com")))
+			.isInstanceOf(DuplicateKeyException.class);
+		assertThatThrownBy(() -> repository.insert(newUser("Recent", "recent@example.com")))
+			.isInstanceOf(DuplicateKeyException.class);
+
+		User orphan = repository.insert(newUser("Orphan", "orphan@example.com"));
+		assertThat(repository.findByEmail("orphan@example.com")).get().extracting(User::getId).isEqualTo(orphan.getId());
+
+		claimDirectly("moved@example.com", lara.getId(), 2);
+		assertThat(repository.update(orphan.getId(), "Orphan", "moved@example.com", 0)).isEqualTo(1);
+		assertThat(repository.findByEmail("moved@example.com")).get().extracting(User::getId).isEqualTo(orphan.getId());
+	}
+
+	private void claimDirectly(String email, int id, int minutesAgo) {
+		new JdbcTemplate(shards.get(new ConsistentHashRing(SHARDS, 160).shardFor(email))).update(
+				"MERGE INTO User_Emails (email, user_id, claimed_at) KEY (email) VALUES (?, ?, ?)",
+				email, id, Timestamp.valueOf(LocalDateTime.now().minusMinutes(minutesAgo)));
+	}
+
+	private static DataSource dataSource(String name) {
+		return new DriverManagerDataSource("jdbc:h2:mem:" + name + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+	}
+}
@@ -0,0 +1,80 @@
+package com.urdgz.docker_exam.transfer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.jupiter.api.Test;
+
+class RecordReaderTests {
+
+	@Test
+	void quotedFieldsKeepCommasAndDoubledQuotes() throws IOException {
+		RecordReader reader = new RecordReader(new StringReader("\"Craft, Lara\",\"say \"\"hi\"\"\",\"\"\n"));
+
+		assertThat(reader.readCsvRecord()).containsExactly("Craft, Lara", "say \"hi\"", "");
+		assertThat(reader.readCsvRecord()).isNull();
+	}
+
+	@Test
+	void everyLineBreakStyleEndsARecord() throws IOException {
+		RecordReader reader = new RecordReader(new StringReader("a,1\r\nb,2\rc,3\nd,4"));
+
+		assertThat(reader.readCsvRecord()).containsExactly("a", "1");
+		assertThat(reader.readCsvRecord()).containsExactly("b", "2");
+		assertThat(reader.readCsvRecord()).containsExactly("c", "3");
+		assertThat(reader.readCsvRecord()).containsExactly("d", "4");
+		assertThat(reader.getRecordLine()).isEqualTo(4);
+		assertThat(reader.readCsvRecord()).isNull();
+	}
+
+	@Test
+	void quotedLineBreaksStayInTheFieldAndCountAsLines() throws IOException {
+		RecordReader reader = new RecordReader(new StringReader("\"Lara\r\nCraft\",lara@example.com\r\nTerry,terry@example.com\r\n"));
+
+		assertThat(reader.readCsvRecord()).containsExactly("Lara\r\nCraft", "lara@example.com");
+		assertThat(reader.getRecordLine()).isEqualTo(1);
+		assertThat(reader.readCsvRecord()).containsExactly("Terry", "terry@example.com");
+		assertThat(reader.getRecordLine()).isEqualTo(3);
+	}
+
+	@Test
+	void blankLinesAreReadAsSingleEmptyFields() throws IOException {
+		RecordReader reader = new RecordReader(new StringReader("a,1\n\r\n\nb,2\n"));
+
+		assertThat(reader.readCsvRecord()).containsExactly("a", "1");
+		assertThat(reader.readCsvRecord()).containsExactly("");
+		assertThat(reader.readCsvRecord()).containsExactly("");
+		assertThat(reader.readCsvRecord()).containsExactly("b", "2");
+		assertThat(reader.getRecordLine()).isEqualTo(4);
+		assertThat(reader.readCsvRecord()).isNull();
+	}
+
+	@Test
+	void oversizedRecordsAreTruncatedAndTheNextOneIsReadWhole() throws IOException {
+		String huge = "x".repeat(RecordReader.MAX_RECORD_LENGTH + 10);
+		RecordReader reader = new RecordReader(new StringReader("\"" + huge + "\",a\nb,c\n"));
+
+		assertThat(reader.readCsvRecord()).hasSize(2).first().asString().hasSize(RecordReader.MAX_RECORD_LENGTH);
+		assertThat(reader.isTruncated()).isTrue();
+		assertThat(reader.readCsvRecord()).containsExactly("b", "c");
+		assertThat(reader.isTruncated()).isFalse();
+		assertThat(reader.getRecordLine()).isEqualTo(2);
+	}
+
+	@Test
+	void linesAreReadWithoutTheirBreaksAndCapped() throws IOException {
+		String huge = "y".repeat(RecordReader.MAX_RECORD_LENGTH + 1);
+		RecordReader reader = new RecordReader(new StringReader("{\"a\":1}\r\n\r\n" + huge + "\n{\"b\":2}"));
+
+		assertThat(reader.readLine()).isEqualTo("{\"a\":1}");
+		assertThat(reader.readLine()).isEmpty();
+		assertThat(reader.readLine()).hasSize(RecordReader.MAX_RECORD_LENGTH);
+		assertThat(reader.isTruncated()).isTrue();
+		assertThat(reader.readLine()).isEqualTo("{\"b\":2}");
+		assertThat(reader.isTruncated()).isFalse();
+		assertThat(reader.getRecordLine()).isEqualTo(4);
+		assertThat(reader.readLine()).isNull();
+	}
+}
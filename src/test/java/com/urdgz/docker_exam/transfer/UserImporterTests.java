@@ -0,0 +1,53 @@
+package com.urdgz.docker_exam.transfer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.urdgz.docker_exam.dto.ImportReport;
+import com.urdgz.docker_exam.model.User;
+import com.urdgz.docker_exam.service.UserService;
+
+class UserImporterTests {
+
+	private final List<String> created = new ArrayList<>();
+
+	@Test
+	void failedBatchesAreRetriedRowByRowAndEveryFailureIsReported() throws IOException {
+		UserService userService = (UserService) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { UserService.class },
+			(proxy, method, args) -> switch (method.getName()) {
+				case "createUsers" -> throw new IllegalStateException("Connection reset");
+				case "createUser" -> {
+					User user = (User) args[0];
+					if (user.getName().startsWith("Long"))
+						throw new DataIntegrityViolationException("Value too long");
+					if (user.getName().startsWith("Broken"))
+						throw new IllegalStateException("Connection reset");
+					created.add(user.getEmail());
+					yield user;
+				}
+				default -> throw new UnsupportedOperationException(method.getName());
+			});
+		UserImporter importer = new UserImporter(userService, new ObjectMapper(), 10, 100);
+
+		String csv = "name,email\nLara,lara@example.com\nLong name,long@example.com\nBroken,broken@example.com\nTerry,terry@example.com\n";
+		ImportReport report = importer.importCsv(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8);
+
+		assertThat(created).containsExactly("lara@example.com", "terry@example.com");
+		assertThat(report.getAccepted()).isEqualTo(2);
+		assertThat(report.getRejected()).isEqualTo(2);
+		assertThat(report.getRejections()).extracting(ImportReport.RejectedRow::getLine).containsExactly(3, 4);
+		assertThat(report.getRejections()).extracting(ImportReport.RejectedRow::getStatus).containsExactly(400, 500);
+		assertThat(report.getRejections()).extracting(ImportReport.RejectedRow::getMessage)
+			.containsExactly("The user data violates a constraint of the database", "User creation failed");
+	}
+}